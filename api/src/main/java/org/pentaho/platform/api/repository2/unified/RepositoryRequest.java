@@ -39,6 +39,11 @@ public class RepositoryRequest {
 
   private transient String workingFilter; // temporary storage of remaining filter text as it is parsed.
   private String childNodeFilter;
+  private Set<String> hydrateMemberSet = null;
+  private int offset = 0;
+  private Integer limit = null;
+  private String continuationToken;
+  private String nextContinuationToken;
 
   /**
    * This class encapsulates the parameters received by the "children" and "tree" REST calls. It provides default values
@@ -248,4 +253,73 @@ public class RepositoryRequest {
     this.includeAcls = includeAcls;
   }
 
+  public Set<String> getHydrateMemberSet() {
+    return hydrateMemberSet;
+  }
+
+  /**
+   * @param hydrateMemberSet
+   *     Names of the members (same names as the include/exclude member sets) the caller is going to read from every
+   *     returned file. Repositories may load them for all the files in one pass instead of one file at a time. Default
+   *     is null, meaning files are loaded lazily.
+   */
+  public void setHydrateMemberSet( Set<String> hydrateMemberSet ) {
+    this.hydrateMemberSet = hydrateMemberSet;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * @param offset
+   *     Number of children to skip, in title order, before the first one returned. Counted from the position after
+   *     the continuation token when one is given. Default is 0.
+   */
+  public void setOffset( Integer offset ) {
+    this.offset = offset == null || offset < 0 ? 0 : offset;
+  }
+
+  public Integer getLimit() {
+    return limit;
+  }
+
+  /**
+   * @param limit
+   *     Maximum number of children to return. Children are then sorted by locale title (ties broken by title and id)
+   *     so pages are stable, and only the requested page is held in memory. Default is null, meaning all children.
+   */
+  public void setLimit( Integer limit ) {
+    this.limit = limit == null || limit < 0 ? null : limit;
+  }
+
+  public boolean isPaged() {
+    return limit != null;
+  }
+
+  public String getContinuationToken() {
+    return continuationToken;
+  }
+
+  /**
+   * @param continuationToken
+   *     Opaque token returned as {@link #getNextContinuationToken()} by the previous page; the listing resumes right
+   *     after the last child of that page.
+   */
+  public void setContinuationToken( String continuationToken ) {
+    this.continuationToken = StringUtils.isEmpty( continuationToken ) ? null : continuationToken;
+  }
+
+  /**
+   * @return Token to pass as the continuation token of the next request, set by the repository when a paged listing
+   *     has more children; null on the last page.
+   */
+  public String getNextContinuationToken() {
+    return nextContinuationToken;
+  }
+
+  public void setNextContinuationToken( String nextContinuationToken ) {
+    this.nextContinuationToken = nextContinuationToken;
+  }
+
 }
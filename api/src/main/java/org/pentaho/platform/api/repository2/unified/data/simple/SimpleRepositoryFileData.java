@@ -16,11 +16,8 @@ package org.pentaho.platform.api.repository2.unified.data.simple;
 import org.apache.commons.lang.StringUtils;
 import org.pentaho.platform.api.repository2.unified.IRepositoryFileData;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.StringWriter;
 import java.util.Arrays;
 
 /**
@@ -44,6 +41,8 @@ public class SimpleRepositoryFileData implements IRepositoryFileData {
 
   private String mimeType;
 
+  private long size = -1;
+
   // ~ Constructors
   // ====================================================================================================
 
@@ -54,6 +53,16 @@ public class SimpleRepositoryFileData implements IRepositoryFileData {
     this.mimeType = mimeType;
   }
 
+  /**
+   * @param size
+   *          the exact number of bytes in {@code stream}, or -1 if it is not known
+   */
+  public SimpleRepositoryFileData( final InputStream stream, final String encoding, final String mimeType,
+      final long size ) {
+    this( stream, encoding, mimeType );
+    this.size = size;
+  }
+
   // ~ Methods
   // =========================================================================================================
 
@@ -96,6 +105,15 @@ public class SimpleRepositoryFileData implements IRepositoryFileData {
     return mimeType;
   }
 
+  /**
+   * Returns the exact number of bytes in the data stream, as recorded by the repository.
+   * 
+   * @return size, or -1 if it is not known
+   */
+  public long getSize() {
+    return size;
+  }
+
   /*
    * (non-Javadoc)
    * 
@@ -103,6 +121,9 @@ public class SimpleRepositoryFileData implements IRepositoryFileData {
    */
   @Override
   public long getDataSize() {
+    if ( size >= 0 ) {
+      return size;
+    }
     try {
       return stream.available();
     } catch ( IOException e ) {
@@ -114,17 +135,25 @@ public class SimpleRepositoryFileData implements IRepositoryFileData {
   @SuppressWarnings( "nls" )
   public String toString() {
     final int MAX_EXCERPT_LENGTH = 20;
+    // enough bytes for MAX_EXCERPT_LENGTH characters in any encoding, plus one to tell whether there is more
+    final int PEEK_LENGTH = MAX_EXCERPT_LENGTH * 4 + 1;
 
     StringBuilder buf = new StringBuilder();
     buf.append( "SimpleRepositoryFileData[" );
 
     if ( stream.markSupported() ) {
-      stream.mark( Integer.MAX_VALUE );
+      stream.mark( PEEK_LENGTH );
       buf.append( "stream excerpt=" );
+      byte[] bytes = null;
+      try {
+        bytes = peek( stream, PEEK_LENGTH );
+      } catch ( IOException e ) {
+        throw new RuntimeException( e );
+      }
       if ( StringUtils.isNotBlank( encoding ) ) {
         String text = null;
         try {
-          text = toString( stream, encoding );
+          text = new String( bytes, encoding );
         } catch ( IOException e ) {
           throw new RuntimeException( e );
         }
@@ -133,12 +162,6 @@ public class SimpleRepositoryFileData implements IRepositoryFileData {
         buf.append( "encoding=" );
         buf.append( encoding );
       } else {
-        byte[] bytes = null;
-        try {
-          bytes = toByteArray( stream );
-        } catch ( IOException e ) {
-          throw new RuntimeException( e );
-        }
         buf.append( head( bytes, MAX_EXCERPT_LENGTH ) );
       }
 
@@ -191,33 +214,18 @@ public class SimpleRepositoryFileData implements IRepositoryFileData {
     }
   }
 
-  /*
-   * Copied from IOUtils.
-   */
-  private static String toString( final InputStream input, final String encoding ) throws IOException {
-    final int DEFAULT_BUFFER_SIZE = 1024 * 4;
-    StringWriter sw = new StringWriter();
-    InputStreamReader in = new InputStreamReader( input, encoding );
-    char[] buffer = new char[DEFAULT_BUFFER_SIZE];
-    int n = 0;
-    while ( -1 != ( n = in.read( buffer ) ) ) {
-      sw.write( buffer, 0, n );
-    }
-    return sw.toString();
-  }
-
-  /*
-   * Copied from IOUtils.
+  /**
+   * Reads at most {@code length} bytes from {@code input}, so that a large stream is never read completely just to
+   * show its beginning.
    */
-  private static byte[] toByteArray( final InputStream input ) throws IOException {
-    final int DEFAULT_BUFFER_SIZE = 1024 * 4;
-    ByteArrayOutputStream output = new ByteArrayOutputStream();
-    byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+  private static byte[] peek( final InputStream input, final int length ) throws IOException {
+    byte[] buffer = new byte[length];
+    int count = 0;
     int n = 0;
-    while ( -1 != ( n = input.read( buffer ) ) ) {
-      output.write( buffer, 0, n );
+    while ( count < length && -1 != ( n = input.read( buffer, count, length - count ) ) ) {
+      count += n;
     }
-    return output.toByteArray();
+    return count < length ? Arrays.copyOf( buffer, count ) : buffer;
   }
 
 }
@@ -17,6 +17,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.pentaho.platform.api.repository2.unified.data.simple.SimpleRepositoryFileData;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,9 +28,12 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.intThat;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -69,7 +73,7 @@ public class SimpleRepositoryFileDataTest {
 
     assertNotNull( file.toString() );
     verify( inputStreamSpy ).markSupported();
-    verify( inputStreamSpy ).mark( Integer.MAX_VALUE );
+    verify( inputStreamSpy ).mark( intThat( limit -> limit < 1024 ) );
     try {
       verify( inputStreamSpy ).reset();
     } catch ( Exception e ) {
@@ -82,15 +86,26 @@ public class SimpleRepositoryFileDataTest {
     file = new SimpleRepositoryFileData( inputStreamSpy, "", MIME_TYPE );
     assertNotNull( file.toString() );
     verify( inputStreamSpy ).markSupported();
-    verify( inputStreamSpy ).mark( Integer.MAX_VALUE );
+    verify( inputStreamSpy ).mark( intThat( limit -> limit < 1024 ) );
     try {
-      verify( inputStreamSpy, atLeastOnce() ).read( any( byte[].class ) );
+      verify( inputStreamSpy, atLeastOnce() ).read( any( byte[].class ), anyInt(), anyInt() );
       verify( inputStreamSpy ).reset();
     } catch ( Exception e ) {
       fail( "No exception should be thrown." );
     }
   }
 
+  @Test
+  public void testKnownSizeIsUsedInsteadOfTheStream() throws Exception {
+    assertEquals( -1, file.getSize() );
+
+    InputStream stream = mock( InputStream.class );
+    file = new SimpleRepositoryFileData( stream, ENCODING, MIME_TYPE, 1234 );
+    assertEquals( 1234, file.getSize() );
+    assertEquals( 1234, file.getDataSize() );
+    verify( stream, never() ).available();
+  }
+
   @Test
   public void testExceptions() {
     InputStream stream = mock( InputStream.class );
@@ -124,4 +139,15 @@ public class SimpleRepositoryFileDataTest {
     theString = file.toString();
     assertTrue( theString.contains( "..." ) );
   }
+
+  @Test
+  public void testToStringReadsOnlyTheHead() throws IOException {
+    byte[] data = new byte[ 1024 * 1024 ];
+    BufferedInputStream stream = new BufferedInputStream( new ByteArrayInputStream( data ), 128 );
+    file = new SimpleRepositoryFileData( stream, "", MIME_TYPE );
+
+    assertTrue( file.toString().contains( "..." ) );
+    // the mark is still valid, so the whole content can be read again
+    assertEquals( data.length, stream.available() );
+  }
 }
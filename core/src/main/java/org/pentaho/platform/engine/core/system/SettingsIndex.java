@@ -0,0 +1,156 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.core.system;
+
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.dom4j.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A settings document compiled into a flat, read only map. Every element is entered under each of the relative paths
+ * that select it, so that looking up <code>a/b</code> gives the same elements, in document order, as the XPath
+ * expression <code>//a/b</code>, without scanning the document.
+ * <p/>
+ * Only plain paths of element names are indexed; anything else (attributes, predicates, wildcards, prefixes) is left
+ * to XPath, as are documents that use namespaces.
+ */
+public class SettingsIndex {
+
+  private final Document document;
+
+  private final Map<String, Setting> settings;
+
+  private SettingsIndex( final Document document, final Map<String, Setting> settings ) {
+    this.document = document;
+    this.settings = settings;
+  }
+
+  /**
+   * Compiles the document. The document must not be modified afterwards.
+   */
+  public static SettingsIndex compile( final Document document ) {
+    Map<String, List<Node>> nodesByPath = new HashMap<String, List<Node>>();
+    Element root = document.getRootElement();
+    if ( root == null || !add( root, new ArrayList<String>(), nodesByPath ) ) {
+      return new SettingsIndex( document, null );
+    }
+    Map<String, Setting> settings = new HashMap<String, Setting>( nodesByPath.size() * 4 / 3 + 1 );
+    for ( Map.Entry<String, List<Node>> entry : nodesByPath.entrySet() ) {
+      settings.put( entry.getKey(), new Setting( entry.getValue() ) );
+    }
+    return new SettingsIndex( document, settings );
+  }
+
+  private static boolean add( final Element element, final List<String> ancestors,
+                              final Map<String, List<Node>> nodesByPath ) {
+    if ( element.getNamespaceURI() != null && element.getNamespaceURI().length() > 0 ) {
+      return false;
+    }
+    ancestors.add( element.getName() );
+    // enter the element under its name, its parent's name and its name, and so on up to the root
+    StringBuilder path = new StringBuilder( element.getName() );
+    for ( int i = ancestors.size() - 1; i >= 0; i-- ) {
+      if ( i < ancestors.size() - 1 ) {
+        path.insert( 0, '/' ).insert( 0, ancestors.get( i ) );
+      }
+      String key = path.toString();
+      List<Node> nodes = nodesByPath.get( key );
+      if ( nodes == null ) {
+        nodes = new ArrayList<Node>( 1 );
+        nodesByPath.put( key, nodes );
+      }
+      nodes.add( element );
+    }
+    for ( Object child : element.elements() ) {
+      if ( !add( (Element) child, ancestors, nodesByPath ) ) {
+        return false;
+      }
+    }
+    ancestors.remove( ancestors.size() - 1 );
+    return true;
+  }
+
+  public Document getDocument() {
+    return document;
+  }
+
+  /**
+   * Returns the text of the first element at <code>settingName</code>, or <code>defaultValue</code> if there is none.
+   */
+  public String getSetting( final String settingName, final String defaultValue ) {
+    if ( settings == null || !isPlainPath( settingName ) ) {
+      Node node = document.selectSingleNode( "//" + settingName ); //$NON-NLS-1$
+      return node == null ? defaultValue : node.getText();
+    }
+    Setting setting = settings.get( settingName );
+    return setting == null ? defaultValue : setting.text;
+  }
+
+  /**
+   * Returns the elements at <code>settingName</code>, in document order.
+   */
+  public List getSettings( final String settingName ) {
+    if ( settings == null || !isPlainPath( settingName ) ) {
+      return document.selectNodes( "//" + settingName ); //$NON-NLS-1$
+    }
+    Setting setting = settings.get( settingName );
+    return setting == null ? Collections.emptyList() : setting.nodes;
+  }
+
+  /**
+   * Whether the name is a path of element names, such as <code>audit/auditLogFile</code>. Checked by hand, since it
+   * runs on every lookup.
+   */
+  static boolean isPlainPath( final String settingName ) {
+    if ( settingName == null || settingName.isEmpty() ) {
+      return false;
+    }
+    boolean segmentStart = true;
+    for ( int i = 0; i < settingName.length(); i++ ) {
+      char c = settingName.charAt( i );
+      if ( c == '/' ) {
+        if ( segmentStart ) {
+          return false;
+        }
+        segmentStart = true;
+      } else if ( segmentStart ) {
+        if ( !Character.isLetter( c ) && c != '_' ) {
+          return false;
+        }
+        segmentStart = false;
+      } else if ( !Character.isLetterOrDigit( c ) && c != '_' && c != '-' && c != '.' ) {
+        return false;
+      }
+    }
+    return !segmentStart;
+  }
+
+  private static final class Setting {
+
+    private final String text;
+
+    private final List<Node> nodes;
+
+    Setting( final List<Node> nodes ) {
+      this.text = nodes.get( 0 ).getText();
+      this.nodes = Collections.unmodifiableList( nodes );
+    }
+  }
+}
@@ -13,30 +13,59 @@
 
 package org.pentaho.platform.engine.core.system;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IPentahoSession;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
- * 
- * 
+ * In-memory {@link ICacheManager} used when no other cache manager is configured.
+ * <p>
+ * Each region is a separate cache. Regions are created on first use with the default limits, at most
+ * {@link #DEFAULT_MAX_ELEMENTS} entries unless changed, or explicitly through
+ * {@link #addCacheRegion(String, Properties)} using the same property names as EhCache:
+ * <code>maxElementsInMemory</code>, <code>timeToIdleSeconds</code> and <code>timeToLiveSeconds</code>. The
+ * {@link #SESSION} and {@link #GLOBAL} regions never get the default limits, since their callers expect entries to
+ * stay until they are removed. When a bounded region is full, the least recently used entries are evicted.
+ *
  * @author rmansoor
  * 
  */
 public class SimpleMapCacheManager implements ICacheManager {
 
+  public static final String MAX_ELEMENTS = "maxElementsInMemory"; //$NON-NLS-1$
+  public static final String TIME_TO_IDLE = "timeToIdleSeconds"; //$NON-NLS-1$
+  public static final String TIME_TO_LIVE = "timeToLiveSeconds"; //$NON-NLS-1$
+
+  public static final long DEFAULT_MAX_ELEMENTS = 10000;
+
   protected static final Log logger = LogFactory.getLog( SimpleMapCacheManager.class );
-  private final Map simpleMap;
+
+  /*
+   * Region caches can't hold null keys, so they are stored as this instead.
+   */
+  private static final Object NULL_KEY = new Object();
+
+  private final ConcurrentMap<String, Cache<Object, Object>> regions =
+    new ConcurrentHashMap<String, Cache<Object, Object>>();
+  private volatile long defaultMaxElements = DEFAULT_MAX_ELEMENTS;
+  private volatile long defaultTimeToIdleSeconds = 0;
+  private volatile long defaultTimeToLiveSeconds = 0;
   private static SimpleMapCacheManager _instance = new SimpleMapCacheManager();
 
   public static SimpleMapCacheManager getInstance() {
@@ -44,10 +73,33 @@ public class SimpleMapCacheManager implements ICacheManager {
   }
 
   public SimpleMapCacheManager() {
-    simpleMap = Collections.synchronizedMap( new HashMap() );
     PentahoSystem.addLogoutListener( this );
   } // ctor
 
+  /**
+   * Sets the maximum number of entries of regions created without explicit limits, other than the session and global
+   * regions. 0 means unbounded.
+   */
+  public void setDefaultMaxElements( long defaultMaxElements ) {
+    this.defaultMaxElements = defaultMaxElements;
+  }
+
+  /**
+   * Sets how long an unused entry is kept in regions created without explicit limits, other than the session and
+   * global regions. 0 means forever.
+   */
+  public void setDefaultTimeToIdleSeconds( long defaultTimeToIdleSeconds ) {
+    this.defaultTimeToIdleSeconds = defaultTimeToIdleSeconds;
+  }
+
+  /**
+   * Sets how long an entry is kept in regions created without explicit limits, other than the session and global
+   * regions. 0 means forever.
+   */
+  public void setDefaultTimeToLiveSeconds( long defaultTimeToLiveSeconds ) {
+    this.defaultTimeToLiveSeconds = defaultTimeToLiveSeconds;
+  }
+
   public void cacheStop() {
   }
 
@@ -60,51 +112,78 @@ public class SimpleMapCacheManager implements ICacheManager {
   }
 
   public boolean addCacheRegion( String region, Properties cacheProperties ) {
+    if ( !regions.containsKey( region ) ) {
+      boolean defaults = usesDefaultLimits( region );
+      regions.putIfAbsent( region, buildRegion(
+        getLong( cacheProperties, MAX_ELEMENTS, defaults ? defaultMaxElements : 0 ),
+        getLong( cacheProperties, TIME_TO_IDLE, defaults ? defaultTimeToIdleSeconds : 0 ),
+        getLong( cacheProperties, TIME_TO_LIVE, defaults ? defaultTimeToLiveSeconds : 0 ) ) );
+    }
     return true;
   }
 
   public boolean addCacheRegion( String region ) {
+    getRegion( region );
     return true;
   }
 
   public void clearRegionCache( String region ) {
-    removeFromMap( region );
+    Cache<Object, Object> cache = regions.get( region );
+    if ( cache != null ) {
+      cache.invalidateAll();
+    }
   }
 
   public void removeRegionCache( String region ) {
-    removeFromMap( region );
+    regions.remove( region );
   }
 
   public void putInRegionCache( String region, Object key, Object value ) {
-    simpleMap.put( getCorrectedKey( region, key ), value );
+    if ( value == null ) {
+      removeFromRegionCache( region, key );
+    } else {
+      getRegion( region ).put( maskNull( key ), value );
+    }
   }
 
   public Object getFromRegionCache( String region, Object key ) {
-    return simpleMap.get( getCorrectedKey( region, key ) );
+    Cache<Object, Object> cache = regions.get( region );
+    return cache != null ? cache.getIfPresent( maskNull( key ) ) : null;
   }
 
   public Set getAllEntriesFromRegionCache( String region ) {
-    if ( simpleMap != null ) {
-      return simpleMap.entrySet();
-    } else {
-      return null;
+    Cache<Object, Object> cache = regions.get( region );
+    if ( cache == null ) {
+      return new HashSet();
     }
+    Map<Object, Object> entries = new HashMap<Object, Object>();
+    for ( Map.Entry<Object, Object> entry : cache.asMap().entrySet() ) {
+      entries.put( unmaskNull( entry.getKey() ), entry.getValue() );
+    }
+    return entries.entrySet();
   }
 
   public Set getAllKeysFromRegionCache( String region ) {
-    if ( simpleMap != null ) {
-      return simpleMap.keySet();
-    } else {
-      return null;
+    Cache<Object, Object> cache = regions.get( region );
+    Set keys = new HashSet();
+    if ( cache != null ) {
+      for ( Object key : cache.asMap().keySet() ) {
+        keys.add( unmaskNull( key ) );
+      }
     }
+    return keys;
   }
 
   public List getAllValuesFromRegionCache( String region ) {
-    return getFromMap( region );
+    Cache<Object, Object> cache = regions.get( region );
+    return cache != null ? new ArrayList( cache.asMap().values() ) : new ArrayList();
   }
 
   public void removeFromRegionCache( String region, Object key ) {
-    simpleMap.remove( getCorrectedKey( region, key ) );
+    Cache<Object, Object> cache = regions.get( region );
+    if ( cache != null ) {
+      cache.invalidate( maskNull( key ) );
+    }
   }
 
   public boolean cacheEnabled() {
@@ -112,7 +191,9 @@ public class SimpleMapCacheManager implements ICacheManager {
   }
 
   public void clearCache() {
-    simpleMap.clear();
+    for ( Cache<Object, Object> cache : regions.values() ) {
+      cache.invalidateAll();
+    }
   }
 
   public Object getFromGlobalCache( Object key ) {
@@ -124,7 +205,17 @@ public class SimpleMapCacheManager implements ICacheManager {
   }
 
   public void killSessionCache( IPentahoSession session ) {
-    removeFromMap( session.getId() );
+    Cache<Object, Object> cache = regions.get( SESSION );
+    if ( cache != null && session.getId() != null ) {
+      String keyId = session.getId() + "\t"; //$NON-NLS-1$
+      Iterator<Object> it = cache.asMap().keySet().iterator();
+      while ( it.hasNext() ) {
+        Object key = it.next();
+        if ( key instanceof String && ( (String) key ).startsWith( keyId ) ) {
+          it.remove();
+        }
+      }
+    }
   }
 
   public void killSessionCaches() {
@@ -147,62 +238,89 @@ public class SimpleMapCacheManager implements ICacheManager {
     removeFromRegionCache( SESSION, getCorrectedKey( session, key ) );
   }
 
-  private String getCorrectedKey( final IPentahoSession session, final String key ) {
-    String sessionId = session.getId();
-    String newKey = null;
-    if ( sessionId != null ) {
-      newKey = sessionId + "\t" + key; //$NON-NLS-1$
+  /**
+   * Returns the hit, miss and eviction counts of a region, or null if the region does not exist.
+   */
+  public CacheStats getRegionCacheStats( String region ) {
+    Cache<Object, Object> cache = regions.get( region );
+    return cache != null ? cache.stats() : null;
+  }
+
+  /**
+   * Returns the hit, miss and eviction counts of every region.
+   */
+  public Map<String, CacheStats> getAllRegionCacheStats() {
+    Map<String, CacheStats> stats = new HashMap<String, CacheStats>();
+    for ( Map.Entry<String, Cache<Object, Object>> region : regions.entrySet() ) {
+      stats.put( region.getKey(), region.getValue().stats() );
     }
-    return newKey;
+    return stats;
   }
 
-  private String getCorrectedKey( final String region, final Object key ) {
-    return region + "\t" + key; //$NON-NLS-1$
+  private Cache<Object, Object> getRegion( String region ) {
+    Cache<Object, Object> cache = regions.get( region );
+    if ( cache == null ) {
+      cache = regions.computeIfAbsent( region, r -> usesDefaultLimits( r )
+        ? buildRegion( defaultMaxElements, defaultTimeToIdleSeconds, defaultTimeToLiveSeconds )
+        : buildRegion( 0, 0, 0 ) );
+    }
+    return cache;
   }
 
-  private List getFromMap( String id ) {
-    List list = new ArrayList();
-    if ( simpleMap != null ) {
-      String keyId = id + "\t";
-      Iterator it = simpleMap.entrySet().iterator();
-      while ( it.hasNext() ) {
-        Map.Entry entry = (Map.Entry) it.next();
-        String key = ( entry.getKey() != null ) ? entry.getKey().toString() : ""; //$NON-NLS-1$
-        if ( key.startsWith( keyId ) ) {
-          list.add( entry.getValue() );
-        }
-      }
+  private static boolean usesDefaultLimits( String region ) {
+    return !SESSION.equals( region ) && !GLOBAL.equals( region );
+  }
+
+  private Cache<Object, Object> buildRegion( long maxElements, long timeToIdleSeconds, long timeToLiveSeconds ) {
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+      .concurrencyLevel( Runtime.getRuntime().availableProcessors() )
+      .recordStats();
+    if ( maxElements > 0 ) {
+      builder.maximumSize( maxElements );
+    }
+    if ( timeToIdleSeconds > 0 ) {
+      builder.expireAfterAccess( timeToIdleSeconds, TimeUnit.SECONDS );
+    }
+    if ( timeToLiveSeconds > 0 ) {
+      builder.expireAfterWrite( timeToLiveSeconds, TimeUnit.SECONDS );
     }
-    return list;
+    return builder.build();
   }
 
-  private void removeFromMap( String id ) {
-    if ( simpleMap != null ) {
-      Iterator it = simpleMap.entrySet().iterator();
-      String keyId = id + "\t";
-      while ( it.hasNext() ) {
-        Map.Entry entry = (Map.Entry) it.next();
-        String key = entry.getKey() != null ? (String) entry.getKey() : ""; //$NON-NLS-1$
-        if ( key.startsWith( keyId ) ) {
-          it.remove();
-        }
-      }
+  private static long getLong( Properties properties, String name, long defaultValue ) {
+    String value = properties != null ? properties.getProperty( name ) : null;
+    if ( value == null ) {
+      return defaultValue;
     }
+    try {
+      return Long.parseLong( value.trim() );
+    } catch ( NumberFormatException e ) {
+      logger.warn( "Ignoring invalid cache property " + name + "=" + value ); //$NON-NLS-1$ //$NON-NLS-2$
+      return defaultValue;
+    }
+  }
+
+  private static Object maskNull( Object key ) {
+    return key != null ? key : NULL_KEY;
+  }
+
+  private static Object unmaskNull( Object key ) {
+    return key == NULL_KEY ? null : key;
+  }
+
+  private String getCorrectedKey( final IPentahoSession session, final String key ) {
+    String sessionId = session.getId();
+    String newKey = null;
+    if ( sessionId != null ) {
+      newKey = sessionId + "\t" + key; //$NON-NLS-1$
+    }
+    return newKey;
   }
 
   @Override
   public long getElementCountInRegionCache( String region ) {
-    long cnt = 0;
-    String regionKey = region + "\t";
-    Iterator it = simpleMap.entrySet().iterator();
-    while ( it.hasNext() ) {
-      Map.Entry entry = (Map.Entry) it.next();
-      String key = entry.getKey() != null ? (String) entry.getKey() : ""; //$NON-NLS-1$
-      if ( key.startsWith( regionKey ) ) {
-        cnt++;
-      }
-    }
-    return cnt;
+    Cache<Object, Object> cache = regions.get( region );
+    return cache != null ? cache.size() : 0;
   }
 
   @Override
@@ -17,7 +17,6 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
-import org.dom4j.Node;
 import org.pentaho.platform.api.engine.ISystemSettings;
 import org.pentaho.platform.engine.core.messages.Messages;
 import org.pentaho.platform.util.xml.dom4j.XmlDom4JHelper;
@@ -37,7 +36,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * Provides system settings data for system configuration files located in the system folder of the repository.
  * System settings for </code>PentahoSystem</code> are hardcoded to exist in <repository>/system/pentaho.xml.
  * Provides a settings cache so that settings are read from the file once, and the associated DOM document is
- * cached in memory for future lookups.
+ * cached in memory, compiled into a {@link SettingsIndex}, for future lookups. A file is read again when it has been
+ * modified, or when the cache is reset.
  *
  * @author unknown
  *
@@ -57,7 +57,12 @@ public class SystemSettings extends PentahoBase implements ISystemSettings {
 
   private static final Log logger = LogFactory.getLog( SystemSettings.class );
 
-  private final Map settingsDocumentMap = new ConcurrentHashMap();
+  /**
+   * How often, at most, a settings file is checked for modifications.
+   */
+  private static final long MODIFICATION_CHECK_INTERVAL_MS = 1000;
+
+  private final Map<String, CachedSettings> settingsDocumentMap = new ConcurrentHashMap<String, CachedSettings>();
 
   String logId;
 
@@ -72,16 +77,14 @@ public class SystemSettings extends PentahoBase implements ISystemSettings {
   }
 
   public String getSystemSetting( final String path, final String settingName, final String defaultValue ) {
-    debug( Messages.getInstance().getString( "SYSTEMSETTINGS.DEBUG_GET_SYSTEM_SETTING_PATH", File.separator + path ) ); //$NON-NLS-1$
-    Document doc = getSystemSettingsDocument( path );
-    if ( doc == null ) {
-      return defaultValue;
+    if ( loggingLevel <= DEBUG ) {
+      debug( Messages.getInstance().getString( "SYSTEMSETTINGS.DEBUG_GET_SYSTEM_SETTING_PATH", File.separator + path ) ); //$NON-NLS-1$
     }
-    Node node = doc.selectSingleNode( "//" + settingName ); //$NON-NLS-1$
-    if ( node == null ) {
+    SettingsIndex index = getSettingsIndex( path );
+    if ( index == null ) {
       return defaultValue;
     }
-    return node.getText();
+    return index.getSetting( settingName, defaultValue );
   }
 
   public String getSystemSetting( final String settingName, final String defaultValue ) {
@@ -89,17 +92,11 @@ public class SystemSettings extends PentahoBase implements ISystemSettings {
   }
 
   public List getSystemSettings( final String path, final String settingName ) {
-    List settings = (List) settingsDocumentMap.get( path + settingName );
-    if ( settings != null ) {
-      return settings;
-    }
-    Document doc = getSystemSettingsDocument( path );
-    if ( doc == null ) {
+    SettingsIndex index = getSettingsIndex( path );
+    if ( index == null ) {
       return null;
     }
-    settings = doc.selectNodes( "//" + settingName ); //$NON-NLS-1$
-    settingsDocumentMap.put( path + settingName, settings );
-    return settings;
+    return index.getSettings( settingName );
   }
 
   public List getSystemSettings( final String settingName ) {
@@ -112,30 +109,41 @@ public class SystemSettings extends PentahoBase implements ISystemSettings {
 
   /**
    * Get the DOM document initialized by the file specified in the <code>actionPath</code> parameter. If this is
-   * the first time the document associated with <code>actionPath</code> has been requested, cache the DOM
-   * document. If this is not the first time the document has been requested, return the document from the cache.
+   * the first time the document associated with <code>actionPath</code> has been requested, or the file has been
+   * modified since, cache the DOM document. Otherwise return the document from the cache.
    */
   public Document getSystemSettingsDocument( final String actionPath ) {
-    // S logId =
-    // runtimeContext.getInstanceId()+":"+LOG_NAME+":"+runtimeContext.getActionName(); //$NON-NLS-1$ //$NON-NLS-2$
-    Document systemSettingsDocument = (Document) settingsDocumentMap.get( actionPath );
-    if ( systemSettingsDocument == null ) {
-      File f = getFile( actionPath );
-      if ( f == null ) {
-        return null;
-      }
-      try {
-        systemSettingsDocument = getSettingsDocumentFromFile( f );
-        settingsDocumentMap.put( actionPath, systemSettingsDocument );
-      } catch ( DocumentException e ) {
-        // todo log this
-        e.printStackTrace();
-      } catch ( IOException e ) {
-        // todo log this
-        e.printStackTrace();
-      }
+    SettingsIndex index = getSettingsIndex( actionPath );
+    return index == null ? null : index.getDocument();
+  }
+
+  /**
+   * Returns the compiled settings of the file at <code>actionPath</code>, reading the file if it is not cached or has
+   * been modified since it was read.
+   */
+  protected SettingsIndex getSettingsIndex( final String actionPath ) {
+    CachedSettings cached = settingsDocumentMap.get( actionPath );
+    if ( cached != null && !cached.isModified() ) {
+      return cached.index;
+    }
+    File f = getFile( actionPath );
+    if ( f == null ) {
+      return null;
+    }
+    try {
+      // take the time stamp first, so that a change made while reading is picked up by the next check
+      long lastModified = f.lastModified();
+      cached = new CachedSettings( f, lastModified, SettingsIndex.compile( getSettingsDocumentFromFile( f ) ) );
+      settingsDocumentMap.put( actionPath, cached );
+      return cached.index;
+    } catch ( DocumentException e ) {
+      // todo log this
+      e.printStackTrace();
+    } catch ( IOException e ) {
+      // todo log this
+      e.printStackTrace();
     }
-    return systemSettingsDocument;
+    return null;
   }
 
   /**
@@ -191,6 +199,36 @@ public class SystemSettings extends PentahoBase implements ISystemSettings {
     settingsDocumentMap.clear();
   }
 
+  /**
+   * A compiled settings file and the time stamp it had when it was read.
+   */
+  private static final class CachedSettings {
+
+    private final File file;
+
+    private final long lastModified;
+
+    private final SettingsIndex index;
+
+    private volatile long nextCheck;
+
+    CachedSettings( final File file, final long lastModified, final SettingsIndex index ) {
+      this.file = file;
+      this.lastModified = lastModified;
+      this.index = index;
+      this.nextCheck = System.currentTimeMillis() + MODIFICATION_CHECK_INTERVAL_MS;
+    }
+
+    boolean isModified() {
+      long now = System.currentTimeMillis();
+      if ( now < nextCheck ) {
+        return false;
+      }
+      nextCheck = now + MODIFICATION_CHECK_INTERVAL_MS;
+      return file.lastModified() != lastModified;
+    }
+  }
+
   // TODO sbarkdull, this props could be cached in a map similar to how the xml docs are cached
   public Properties getSystemSettingsProperties( final String path ) {
     String fullPath = PentahoSystem.getApplicationContext().getSolutionPath( "system" + File.separator + path ); //$NON-NLS-1$
@@ -29,6 +29,9 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -52,6 +55,20 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   private Lock writeLock = factoryLock.writeLock();
   private Lock readLock = factoryLock.readLock();
 
+  /*
+   * For each type, the observable factories which can provide it. Entries tagged with an older generation than the
+   * current one are stale and ignored.
+   */
+  private final ConcurrentMap<Class<?>, ResolvedFactories> resolutionCache =
+      new ConcurrentHashMap<Class<?>, ResolvedFactories>();
+  private final AtomicLong generation = new AtomicLong();
+  private final Runnable invalidator = new Runnable() {
+    @Override
+    public void run() {
+      invalidateCache();
+    }
+  };
+
   public AggregateObjectFactory() {
 
   }
@@ -59,7 +76,10 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   public void registerObjectFactory( IPentahoObjectFactory fact, boolean primary ) {
     writeLock.lock();
     try {
-      factories.add( fact );
+      if ( factories.add( fact ) && fact instanceof IObservableObjectFactory ) {
+        ( (IObservableObjectFactory) fact ).addChangeListener( invalidator );
+      }
+      invalidateCache();
     } finally {
       writeLock.unlock();
     }
@@ -82,12 +102,66 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   public boolean deregisterObjectFactory( IPentahoObjectFactory factory ) {
     writeLock.lock();
     try {
-      return factories.remove( factory );
+      boolean removed = factories.remove( factory );
+      if ( removed && factory instanceof IObservableObjectFactory ) {
+        ( (IObservableObjectFactory) factory ).removeChangeListener( invalidator );
+      }
+      invalidateCache();
+      return removed;
     } finally {
       writeLock.unlock();
     }
   }
 
+  /**
+   * Forgets which factories provide which types. This happens on its own when factories are registered or
+   * deregistered, and when an {@link IObservableObjectFactory} reports a change.
+   */
+  public void invalidateCache() {
+    generation.incrementAndGet();
+    resolutionCache.clear();
+  }
+
+  /**
+   * Returns the registered factories which can provide the given type. Must be called with the read lock held.
+   * <p/>
+   * Answers from {@link IObservableObjectFactory}s are cached until they report a change, the others are asked every
+   * time.
+   */
+  private List<IPentahoObjectFactory> getFactoriesDefining( Class<?> clazz ) {
+    long currentGeneration = generation.get();
+    ResolvedFactories resolved = resolutionCache.get( clazz );
+    if ( resolved == null || resolved.generation != currentGeneration ) {
+      List<IPentahoObjectFactory> observable = new ArrayList<IPentahoObjectFactory>();
+      List<IPentahoObjectFactory> unobservable = new ArrayList<IPentahoObjectFactory>();
+      synchronized ( factories ) {
+        for ( IPentahoObjectFactory fact : factories ) {
+          if ( fact instanceof IObservableObjectFactory ) {
+            if ( fact.objectDefined( clazz ) ) {
+              observable.add( fact );
+            }
+          } else {
+            unobservable.add( fact );
+          }
+        }
+      }
+      // An invalidation which happened while we were resolving leaves this entry stale, as it should be.
+      resolved = new ResolvedFactories( currentGeneration, observable, unobservable );
+      resolutionCache.put( clazz, resolved );
+    }
+
+    if ( resolved.unobservable.isEmpty() ) {
+      return resolved.observable;
+    }
+    List<IPentahoObjectFactory> defining = new ArrayList<IPentahoObjectFactory>( resolved.observable );
+    for ( IPentahoObjectFactory fact : resolved.unobservable ) {
+      if ( fact.objectDefined( clazz ) ) {
+        defining.add( fact );
+      }
+    }
+    return defining;
+  }
+
   public Set<IPentahoObjectFactory> getFactories() {
     return new HashSet( factories );
   }
@@ -194,12 +268,10 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
 
     readLock.lock();
     try {
-      for ( IPentahoObjectFactory fact : factories ) {
-        if ( fact.objectDefined( interfaceClass ) ) {
-          List<IPentahoObjectReference<T>> refs = fact.getObjectReferences( interfaceClass, curSession, properties );
-          if ( refs != null ) {
-            referenceList.addAll( refs );
-          }
+      for ( IPentahoObjectFactory fact : getFactoriesDefining( interfaceClass ) ) {
+        List<IPentahoObjectReference<T>> refs = fact.getObjectReferences( interfaceClass, curSession, properties );
+        if ( refs != null ) {
+          referenceList.addAll( refs );
         }
       }
     } finally {
@@ -227,13 +299,10 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
 
     readLock.lock();
     try {
-      for ( IPentahoObjectFactory fact : factories ) {
-        if ( fact.objectDefined( clazz ) ) {
-          IPentahoObjectReference<T> found = fact.getObjectReference( clazz, curSession );
-          if ( found != null ) {
-            references.add( found );
-          }
-
+      for ( IPentahoObjectFactory fact : getFactoriesDefining( clazz ) ) {
+        IPentahoObjectReference<T> found = fact.getObjectReference( clazz, curSession );
+        if ( found != null ) {
+          references.add( found );
         }
       }
     } finally {
@@ -283,13 +352,11 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   public boolean objectDefined( Class<?> clazz ) {
     readLock.lock();
     try {
-      for ( IPentahoObjectFactory fact : factories ) {
-        if ( fact.objectDefined( clazz ) ) {
-
-          logger.debug( MessageFormat.format( "Found object for class: {0} in factory: {1}", clazz.getName(), fact
-              .getName() ) );
-          return true;
-        }
+      List<IPentahoObjectFactory> defining = getFactoriesDefining( clazz );
+      if ( !defining.isEmpty() ) {
+        logger.debug( MessageFormat.format( "Found object for class: {0} in factory: {1}", clazz.getName(), defining
+            .get( 0 ).getName() ) );
+        return true;
       }
     } finally {
       readLock.unlock();
@@ -305,12 +372,10 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
     Set<IPentahoObjectReference<T>> references = new HashSet<IPentahoObjectReference<T>>();
     readLock.lock();
     try {
-      for ( IPentahoObjectFactory fact : factories ) {
-        if ( fact.objectDefined( interfaceClass ) ) {
-          List<IPentahoObjectReference<T>> found = fact.getObjectReferences( interfaceClass, curSession, properties );
-          if ( found != null ) {
-            references.addAll( found );
-          }
+      for ( IPentahoObjectFactory fact : getFactoriesDefining( interfaceClass ) ) {
+        List<IPentahoObjectReference<T>> found = fact.getObjectReferences( interfaceClass, curSession, properties );
+        if ( found != null ) {
+          references.addAll( found );
         }
       }
     } finally {
@@ -332,7 +397,13 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
   public void clear() {
     writeLock.lock();
     try {
+      for ( IPentahoObjectFactory fact : factories ) {
+        if ( fact instanceof IObservableObjectFactory ) {
+          ( (IObservableObjectFactory) fact ).removeChangeListener( invalidator );
+        }
+      }
       this.factories.clear();
+      invalidateCache();
     } finally {
       writeLock.unlock();
     }
@@ -340,6 +411,19 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
 
   private static ReferencePriorityComparitor referencePriorityComparitor = new ReferencePriorityComparitor();
 
+  private static class ResolvedFactories {
+    private final long generation;
+    private final List<IPentahoObjectFactory> observable;
+    private final List<IPentahoObjectFactory> unobservable;
+
+    private ResolvedFactories( long generation, List<IPentahoObjectFactory> observable,
+                               List<IPentahoObjectFactory> unobservable ) {
+      this.generation = generation;
+      this.observable = Collections.unmodifiableList( observable );
+      this.unobservable = unobservable;
+    }
+  }
+
 
   private static class ReferencePriorityComparitor implements Comparator<IPentahoObjectReference> {
     private static final String PRIORITY = "priority";
@@ -388,12 +472,10 @@ public class AggregateObjectFactory implements IPentahoObjectFactory {
 
     readLock.lock();
     try {
-      for ( IPentahoObjectFactory fact : factories ) {
-        if ( fact.objectDefined( interfaceClass ) ) {
-          List<IPentahoObjectReference<T>> found = fact.getObjectReferences( interfaceClass, curSession, properties );
-          if ( found != null ) {
-            referenceSet.addAll( found );
-          }
+      for ( IPentahoObjectFactory fact : getFactoriesDefining( interfaceClass ) ) {
+        List<IPentahoObjectReference<T>> found = fact.getObjectReferences( interfaceClass, curSession, properties );
+        if ( found != null ) {
+          referenceSet.addAll( found );
         }
       }
     } finally {
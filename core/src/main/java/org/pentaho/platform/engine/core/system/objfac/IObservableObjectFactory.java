@@ -0,0 +1,33 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.core.system.objfac;
+
+import org.pentaho.platform.api.engine.IPentahoObjectFactory;
+
+/**
+ * An {@link IPentahoObjectFactory} whose contents can change after it has been registered, and which tells its
+ * listeners when that happens.
+ * <p/>
+ * {@link AggregateObjectFactory} remembers which of these factories can provide a given type, and forgets it when
+ * they report a change. Factories that do not implement this interface are asked every time.
+ */
+public interface IObservableObjectFactory extends IPentahoObjectFactory {
+
+  /**
+   * Registers a listener to be called whenever objects are added to or removed from this factory.
+   */
+  void addChangeListener( Runnable listener );
+
+  void removeChangeListener( Runnable listener );
+}
@@ -19,7 +19,6 @@ import org.osgi.framework.Constants;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.pentaho.platform.api.engine.IPentahoInitializer;
-import org.pentaho.platform.api.engine.IPentahoObjectFactory;
 import org.pentaho.platform.api.engine.IPentahoObjectReference;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.ObjectFactoryException;
@@ -36,6 +35,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This IPentahoObjectFactory implementation looks up objects in a configured OSGI BundleContext.
@@ -46,15 +46,40 @@ import java.util.Map;
  * User: nbaker Date: 10/31/13 Time: 11:43 AM
  */
 @SuppressWarnings( "unchecked" )
-public class OSGIObjectFactory implements IPentahoObjectFactory {
+public class OSGIObjectFactory implements IObservableObjectFactory {
 
   private BundleContext context;
   Logger log = LoggerFactory.getLogger( OSGIObjectFactory.class );
   public static final String REFERENCE_CLASS = "reference_class";
 
+  private final List<Runnable> changeListeners = new CopyOnWriteArrayList<Runnable>();
+
   public OSGIObjectFactory( final BundleContext context ) {
     this.context = context;
 
+    if ( context != null ) {
+      try {
+        context.addServiceListener( serviceEvent -> fireChange() );
+      } catch ( IllegalStateException e ) {
+        log.debug( "Unable to listen to service changes, the bundle context is no longer valid", e );
+      }
+    }
+  }
+
+  @Override
+  public void addChangeListener( Runnable listener ) {
+    changeListeners.add( listener );
+  }
+
+  @Override
+  public void removeChangeListener( Runnable listener ) {
+    changeListeners.remove( listener );
+  }
+
+  private void fireChange() {
+    for ( Runnable listener : changeListeners ) {
+      listener.run();
+    }
   }
 
   public <T> T get( Class<T> tClass, IPentahoSession session ) throws ObjectFactoryException {
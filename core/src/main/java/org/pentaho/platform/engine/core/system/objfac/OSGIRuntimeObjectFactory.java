@@ -67,7 +67,13 @@ public class OSGIRuntimeObjectFactory extends RuntimeObjectFactory {
     }
     osgiInitialized.set( true );
 
-
+    // From now on lookups go to the service registry, so changes to it are changes to this factory.
+    try {
+      bundleContext.addServiceListener( serviceEvent -> fireChange() );
+    } catch ( IllegalStateException e ) {
+      logger.debug( "Unable to listen to service changes, the bundle context is no longer valid", e );
+    }
+    fireChange();
   }
 
   public <T> IPentahoObjectRegistration registerReference( final IPentahoObjectReference<?> reference,
@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class supports the registration of Object implementations as well as {@link IPentahoObjectReference }s at
@@ -42,7 +43,7 @@ import java.util.concurrent.Callable;
  * <p/>
  * Created by nbaker on 2/19/14.
  */
-public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory {
+public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory, IObservableObjectFactory {
 
 
   private final Multimap<Class, IPentahoObjectReference<?>> registry =
@@ -50,10 +51,31 @@ public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory {
           .<Class, IPentahoObjectReference<?>>create() );
 
 
+  private final List<Runnable> changeListeners = new CopyOnWriteArrayList<Runnable>();
+
   public RuntimeObjectFactory() {
 
   }
 
+  @Override
+  public void addChangeListener( Runnable listener ) {
+    changeListeners.add( listener );
+  }
+
+  @Override
+  public void removeChangeListener( Runnable listener ) {
+    changeListeners.remove( listener );
+  }
+
+  /**
+   * Tells the change listeners that objects were added or removed.
+   */
+  protected void fireChange() {
+    for ( Runnable listener : changeListeners ) {
+      listener.run();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -132,6 +154,7 @@ public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory {
     for ( Class<?> aClass : classes ) {
       registry.get( aClass ).add( reference );
     }
+    fireChange();
     return new ObjectRegistration( reference, Arrays.asList( classes ) );
 
   }
@@ -426,6 +449,7 @@ public class RuntimeObjectFactory implements IPentahoRegistrableObjectFactory {
       for ( Class<?> aClass : publishedClasses ) {
         registry.get( aClass ).remove( reference );
       }
+      fireChange();
 
     }
   }
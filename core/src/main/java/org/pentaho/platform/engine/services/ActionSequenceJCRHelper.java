@@ -20,6 +20,7 @@ import org.apache.commons.logging.LogFactory;
 import org.dom4j.Document;
 import org.dom4j.Node;
 import org.pentaho.platform.api.engine.IActionSequence;
+import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.repository2.unified.IFileFilter;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
@@ -36,6 +37,7 @@ import org.pentaho.platform.util.xml.dom4j.XmlDom4JHelper;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -50,6 +52,17 @@ public class ActionSequenceJCRHelper {
   protected static final String PROPERTIES_SUFFIX = ".properties"; //$NON-NLS-1$
   protected static final Log logger = LogFactory.getLog( ActionSequenceJCRHelper.class );
 
+  /**
+   * Cache region holding parsed and localized action sequence documents, keyed by file id, version, last modified
+   * date and locale, so an update to the file produces a new key. Entries also expire after
+   * {@link #DOCUMENT_CACHE_TIME_TO_LIVE} seconds, which bounds how long a changed .properties file goes unnoticed.
+   */
+  public static final String DOCUMENT_CACHE_REGION = "action-sequence-documents"; //$NON-NLS-1$
+  protected static final long DOCUMENT_CACHE_MAX_ELEMENTS = 1000;
+  protected static final long DOCUMENT_CACHE_TIME_TO_LIVE = 300;
+
+  private static volatile ICacheManager documentCacheManager;
+
   private IPentahoSession pentahoSession;
   private IUnifiedRepository repository;
 
@@ -104,6 +117,15 @@ public class ActionSequenceJCRHelper {
     Document document = null;
     SimpleRepositoryFileData data = null;
     if ( file != null ) {
+      ICacheManager cacheManager = getDocumentCache();
+      String cacheKey = getDocumentCacheKey( file );
+      if ( cacheManager != null ) {
+        Document cached = (Document) cacheManager.getFromRegionCache( DOCUMENT_CACHE_REGION, cacheKey );
+        if ( cached != null ) {
+          // every execution gets its own copy to work on
+          return (Document) cached.clone();
+        }
+      }
       data = repository.getDataForRead( file.getId(), SimpleRepositoryFileData.class );
       if ( data != null ) {
         try {
@@ -125,11 +147,43 @@ public class ActionSequenceJCRHelper {
         return null;
       }
       localizeDoc( document, file );
+      if ( cacheManager != null ) {
+        cacheManager.putInRegionCache( DOCUMENT_CACHE_REGION, cacheKey, document.clone() );
+      }
     }
 
     return document;
   }
 
+  protected String getDocumentCacheKey( final RepositoryFile file ) {
+    Date lastModified = file.getLastModifiedDate();
+    return file.getId() + "|" + file.getVersionId() + "|" //$NON-NLS-1$ //$NON-NLS-2$
+        + ( lastModified != null ? lastModified.getTime() : "" ) + "|" + getLocale(); //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  /**
+   * @return the cache manager holding {@link #DOCUMENT_CACHE_REGION}, or null if documents are not to be cached
+   */
+  protected ICacheManager getDocumentCache() {
+    ICacheManager cacheManager = PentahoSystem.getCacheManager( pentahoSession );
+    if ( cacheManager == null || !cacheManager.cacheEnabled() ) {
+      return null;
+    }
+    if ( documentCacheManager != cacheManager ) {
+      // some cache managers create regions on first use, so add it once per manager with our own limits
+      synchronized ( ActionSequenceJCRHelper.class ) {
+        if ( documentCacheManager != cacheManager ) {
+          Properties cacheProperties = new Properties();
+          cacheProperties.setProperty( "maxElementsInMemory", String.valueOf( DOCUMENT_CACHE_MAX_ELEMENTS ) ); //$NON-NLS-1$
+          cacheProperties.setProperty( "timeToLiveSeconds", String.valueOf( DOCUMENT_CACHE_TIME_TO_LIVE ) ); //$NON-NLS-1$
+          cacheManager.addCacheRegion( DOCUMENT_CACHE_REGION, cacheProperties );
+          documentCacheManager = cacheManager;
+        }
+      }
+    }
+    return cacheManager;
+  }
+
   public String getURL( String filePath ) {
     RepositoryFile file = repository.getFile( filePath );
     if ( file == null || !file.getName().endsWith( ".url" ) ) { //$NON-NLS-1$
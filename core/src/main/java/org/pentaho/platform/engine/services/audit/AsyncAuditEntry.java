@@ -0,0 +1,339 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.pentaho.platform.api.engine.AuditException;
+import org.pentaho.platform.api.engine.IAuditEntry;
+import org.pentaho.platform.util.logging.Logger;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records audit events on a bounded queue and writes them from a background thread, so auditing does not add a file
+ * append or a database round trip to every action execution. Events are handed to the wrapped {@link IAuditEntry} in
+ * batches of up to {@code batchSize}; if it is an {@link IBatchAuditEntry} (as {@link AuditFileEntry} and
+ * {@link AuditSQLEntry} are) each batch is written at once, otherwise one event at a time. If a batch fails, its
+ * events are written one at a time, so that one bad event does not cost the others.
+ * <p/>
+ * When the queue is full the {@link OverflowPolicy} decides what happens to new events. Queue depth, drop and failure
+ * counts and flush latency are available through the getters.
+ * <p/>
+ * Events still queued are written by {@link #shutdown()}; register it as the bean's destroy method.
+ */
+public class AsyncAuditEntry implements IAuditEntry {
+
+  public enum OverflowPolicy {
+    /**
+     * Wait for room in the queue; no event is lost, but a backed up writer slows callers down
+     */
+    BLOCK,
+    /**
+     * Drop new events while the queue is full
+     */
+    DROP,
+    /**
+     * Once the queue is half full keep only one event in {@code sampleInterval}, and drop new events while it is full
+     */
+    SAMPLE
+  }
+
+  public static final int DEFAULT_CAPACITY = 10000;
+
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  public static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+  public static final int DEFAULT_SAMPLE_INTERVAL = 10;
+
+  private final IAuditEntry delegate;
+
+  private int capacity = DEFAULT_CAPACITY;
+
+  private int batchSize = DEFAULT_BATCH_SIZE;
+
+  private long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+  private int sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+  private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+  private volatile BlockingQueue<AuditRecord> queue;
+
+  private volatile Thread writer;
+
+  private final Object writeLock = new Object();
+
+  private volatile boolean shutdown;
+
+  private final AtomicLong sampleCounter = new AtomicLong();
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private final AtomicLong writtenCount = new AtomicLong();
+
+  private final AtomicLong failedCount = new AtomicLong();
+
+  private volatile long lastFlushLatency;
+
+  private volatile long maxFlushLatency;
+
+  public AsyncAuditEntry( final IAuditEntry delegate ) {
+    this.delegate = delegate;
+  }
+
+  public void auditAll( final String jobId, final String instId, final String objId, final String objType,
+      final String actor, final String messageType, final String messageName, final String messageTxtValue,
+      final BigDecimal messageNumValue, final double duration ) throws AuditException {
+    if ( shutdown ) {
+      delegate.auditAll( jobId, instId, objId, objType, actor, messageType, messageName, messageTxtValue,
+          messageNumValue, duration );
+      return;
+    }
+    AuditRecord record = new AuditRecord( jobId, instId, objId, objType, actor, messageType, messageName,
+        messageTxtValue, messageNumValue, duration, System.currentTimeMillis() );
+    BlockingQueue<AuditRecord> records = getQueue();
+    if ( overflowPolicy == OverflowPolicy.BLOCK ) {
+      try {
+        while ( !records.offer( record, flushInterval, TimeUnit.MILLISECONDS ) ) {
+          if ( isWriterStopped() ) {
+            // nobody else makes room
+            drainRemaining();
+          }
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+        throw new AuditException( e );
+      }
+    } else if ( overflowPolicy == OverflowPolicy.SAMPLE && records.size() > capacity / 2
+        && sampleCounter.incrementAndGet() % sampleInterval != 0 ) {
+      droppedCount.incrementAndGet();
+    } else if ( !records.offer( record ) ) {
+      droppedCount.incrementAndGet();
+    }
+    if ( isWriterStopped() ) {
+      // the writer may have written its last batch before this event was queued
+      drainRemaining();
+    }
+  }
+
+  private boolean isWriterStopped() {
+    Thread thread = writer;
+    return shutdown || thread == null || !thread.isAlive();
+  }
+
+  /**
+   * Stops the writer thread once the queued events are written. Events recorded afterwards are written right away.
+   */
+  public void shutdown() {
+    Thread thread;
+    synchronized ( this ) {
+      shutdown = true;
+      thread = writer;
+    }
+    if ( thread != null ) {
+      try {
+        thread.join();
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+      // anything that slipped in while the writer was stopping
+      drainRemaining();
+    }
+  }
+
+  private BlockingQueue<AuditRecord> getQueue() {
+    BlockingQueue<AuditRecord> records = queue;
+    if ( records == null ) {
+      synchronized ( this ) {
+        if ( queue == null ) {
+          queue = new ArrayBlockingQueue<>( capacity );
+          writer = new Thread( this::drain, "AuditWriter" ); //$NON-NLS-1$
+          writer.setDaemon( true );
+          writer.start();
+        }
+        records = queue;
+      }
+    }
+    return records;
+  }
+
+  private void drain() {
+    List<AuditRecord> batch = new ArrayList<>( batchSize );
+    try {
+      while ( true ) {
+        AuditRecord first = queue.poll( flushInterval, TimeUnit.MILLISECONDS );
+        if ( first == null ) {
+          if ( shutdown ) {
+            break;
+          }
+          continue;
+        }
+        batch.add( first );
+        queue.drainTo( batch, batchSize - 1 );
+        flush( batch );
+        batch.clear();
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    drainRemaining();
+  }
+
+  private void drainRemaining() {
+    List<AuditRecord> batch = new ArrayList<>( batchSize );
+    while ( queue.drainTo( batch, batchSize ) > 0 ) {
+      flush( batch );
+      batch.clear();
+    }
+  }
+
+  /**
+   * Writes a batch. Anything the delegate throws, errors included, is logged and counted, so the writer thread keeps
+   * running.
+   */
+  private void flush( final List<AuditRecord> batch ) {
+    synchronized ( writeLock ) {
+      if ( delegate instanceof IBatchAuditEntry ) {
+        try {
+          ( (IBatchAuditEntry) delegate ).auditBatch( batch );
+          writtenCount.addAndGet( batch.size() );
+        } catch ( Throwable t ) {
+          // the batch entries write all events or none of them
+          Logger.error( getClass().getName(), t.getMessage(), t );
+          writeEach( batch );
+        }
+      } else {
+        writeEach( batch );
+      }
+      long latency = System.currentTimeMillis() - batch.get( 0 ).getTimestamp();
+      lastFlushLatency = latency;
+      if ( latency > maxFlushLatency ) {
+        maxFlushLatency = latency;
+      }
+    }
+  }
+
+  private void writeEach( final List<AuditRecord> batch ) {
+    for ( AuditRecord record : batch ) {
+      try {
+        delegate.auditAll( record.getJobId(), record.getInstId(), record.getObjId(), record.getObjType(),
+            record.getActor(), record.getMessageType(), record.getMessageName(), record.getMessageTxtValue(),
+            record.getMessageNumValue(), record.getDuration() );
+        writtenCount.incrementAndGet();
+      } catch ( Throwable t ) {
+        failedCount.incrementAndGet();
+        Logger.error( getClass().getName(), t.getMessage(), t );
+      }
+    }
+  }
+
+  /**
+   * @return the number of events waiting to be written
+   */
+  public int getQueueDepth() {
+    BlockingQueue<AuditRecord> records = queue;
+    return records == null ? 0 : records.size();
+  }
+
+  /**
+   * @return the number of events discarded by the overflow policy
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * @return the number of events written by the wrapped entry
+   */
+  public long getWrittenCount() {
+    return writtenCount.get();
+  }
+
+  /**
+   * @return the number of events the wrapped entry failed to write
+   */
+  public long getFailedCount() {
+    return failedCount.get();
+  }
+
+  /**
+   * @return milliseconds between recording the oldest event of the last batch and that batch being written
+   */
+  public long getLastFlushLatency() {
+    return lastFlushLatency;
+  }
+
+  /**
+   * @return the highest {@link #getLastFlushLatency()} seen so far
+   */
+  public long getMaxFlushLatency() {
+    return maxFlushLatency;
+  }
+
+  public IAuditEntry getDelegate() {
+    return delegate;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Must be set before the first event is recorded.
+   */
+  public void setCapacity( final int capacity ) {
+    this.capacity = capacity;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  public void setBatchSize( final int batchSize ) {
+    this.batchSize = batchSize;
+  }
+
+  public long getFlushInterval() {
+    return flushInterval;
+  }
+
+  /**
+   * @param flushInterval milliseconds the writer waits for new events before checking whether it should stop
+   */
+  public void setFlushInterval( final long flushInterval ) {
+    this.flushInterval = flushInterval;
+  }
+
+  public int getSampleInterval() {
+    return sampleInterval;
+  }
+
+  public void setSampleInterval( final int sampleInterval ) {
+    this.sampleInterval = sampleInterval;
+  }
+
+  public OverflowPolicy getOverflowPolicy() {
+    return overflowPolicy;
+  }
+
+  public void setOverflowPolicy( final OverflowPolicy overflowPolicy ) {
+    this.overflowPolicy = overflowPolicy;
+  }
+}
@@ -14,7 +14,6 @@
 package org.pentaho.platform.engine.services.audit;
 
 import org.pentaho.platform.api.engine.AuditException;
-import org.pentaho.platform.api.engine.IAuditEntry;
 import org.pentaho.platform.engine.core.messages.Messages;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.util.logging.Logger;
@@ -26,7 +25,9 @@ import java.io.IOException;
 import java.math.BigDecimal;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 /**
  * @author mbatchel
@@ -34,7 +35,7 @@ import java.util.Date;
  *         TODO To change the template for this generated type comment go to Window - Preferences - Java - Code
  *         Style - Code Templates
  */
-public class AuditFileEntry implements IAuditEntry {
+public class AuditFileEntry implements IBatchAuditEntry {
   private static final String auditDirPath = "system/logs/audit"; //$NON-NLS-1$
 
   private static final String auditFileName = PentahoSystem.getSystemSetting(
@@ -62,9 +63,17 @@ public class AuditFileEntry implements IAuditEntry {
     }
   }
 
-  public synchronized void auditAll( final String jobId, final String instId, final String objId, final String objType,
+  public void auditAll( final String jobId, final String instId, final String objId, final String objType,
       final String actor, final String messageType, final String messageName, final String messageTxtValue,
       final BigDecimal messageNumValue, final double duration ) throws AuditException {
+    auditBatch( Collections.singletonList( new AuditRecord( jobId, instId, objId, objType, actor, messageType,
+        messageName, messageTxtValue, messageNumValue, duration, System.currentTimeMillis() ) ) );
+  }
+
+  /**
+   * Appends all records with the file opened once.
+   */
+  public synchronized void auditBatch( final List<AuditRecord> records ) throws AuditException {
 
     if ( AuditFileEntry.auditFile == null ) {
       return;
@@ -72,29 +81,9 @@ public class AuditFileEntry implements IAuditEntry {
     try {
       BufferedWriter fw = new BufferedWriter( new FileWriter( AuditFileEntry.auditFile, true ) );
       try {
-        Date dt = new Date();
-        fw.write( AuditFileEntry.auditDateFormat.format( dt ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( jobId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( instId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( objId ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( objType ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( actor ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageType ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageName ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageTxtValue ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( messageNumValue ) );
-        fw.write( AuditFileEntry.ID_SEPARATOR );
-        fw.write( getWritable( duration ) );
-        fw.newLine();
+        for ( AuditRecord record : records ) {
+          write( fw, record );
+        }
       } finally {
         fw.flush();
         fw.close();
@@ -104,6 +93,31 @@ public class AuditFileEntry implements IAuditEntry {
     }
   }
 
+  private void write( final BufferedWriter fw, final AuditRecord record ) throws IOException {
+    fw.write( AuditFileEntry.auditDateFormat.format( new Date( record.getTimestamp() ) ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getJobId() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getInstId() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getObjId() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getObjType() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getActor() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getMessageType() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getMessageName() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getMessageTxtValue() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getMessageNumValue() ) );
+    fw.write( AuditFileEntry.ID_SEPARATOR );
+    fw.write( getWritable( record.getDuration() ) );
+    fw.newLine();
+  }
+
   private String getWritable( final Object obj ) {
     if ( obj instanceof BigDecimal ) {
       DecimalFormat format = new DecimalFormat( "#.###" ); //$NON-NLS-1$
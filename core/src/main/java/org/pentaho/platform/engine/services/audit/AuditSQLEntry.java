@@ -14,7 +14,6 @@
 package org.pentaho.platform.engine.services.audit;
 
 import org.pentaho.platform.api.engine.AuditException;
-import org.pentaho.platform.api.engine.IAuditEntry;
 import org.pentaho.platform.engine.core.audit.AuditHelper;
 import org.pentaho.platform.engine.core.messages.Messages;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
@@ -29,13 +28,14 @@ import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.Timestamp;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * @author mbatchel
  * 
  */
-public class AuditSQLEntry implements IAuditEntry {
+public class AuditSQLEntry implements IBatchAuditEntry {
   private static AuditConnection audc;
 
   private Map<String, String> columnsSizeMap;
@@ -134,17 +134,8 @@ public class AuditSQLEntry implements IAuditEntry {
       try {
         PreparedStatement stmt = con.prepareStatement( AuditSQLEntry.INSERT_STMT );
         try {
-          setString( stmt, 1, jobId );
-          setString( stmt, 2, instId );
-          setString( stmt, 3, objId );
-          setString( stmt, 4, objType );
-          setString( stmt, 5, actor );
-          setString( stmt, 6, messageType );
-          setString( stmt, 7, messageName );
-          setObject( stmt, 8, messageTxtValue );
-          setBigDec( stmt, 9, messageNumValue );
-          setBigDec( stmt, 10, BigDecimal.valueOf( duration ) );
-          stmt.setTimestamp( 11, new Timestamp( System.currentTimeMillis() ) );
+          setParameters( stmt, new AuditRecord( jobId, instId, objId, objType, actor, messageType, messageName,
+              messageTxtValue, messageNumValue, duration, System.currentTimeMillis() ) );
           stmt.executeUpdate();
         } catch ( SQLException ex ) {
           Logger.error( this.getClass().getName(), ex.getMessage(), ex );
@@ -165,6 +156,57 @@ public class AuditSQLEntry implements IAuditEntry {
     }
   }
 
+  /**
+   * Inserts all records as one JDBC batch over a single connection.
+   */
+  public void auditBatch( final List<AuditRecord> records ) throws AuditException {
+    if ( records.isEmpty() ) {
+      return;
+    }
+    Connection con = null;
+    try {
+      con = AuditSQLEntry.audc.getAuditConnection();
+      try {
+        PreparedStatement stmt = con.prepareStatement( AuditSQLEntry.INSERT_STMT );
+        try {
+          for ( AuditRecord record : records ) {
+            setParameters( stmt, record );
+            stmt.addBatch();
+          }
+          stmt.executeBatch();
+        } catch ( SQLException ex ) {
+          Logger.error( this.getClass().getName(), ex.getMessage(), ex );
+          try {
+            con.rollback();
+          } catch ( Exception rollbackExc ) {
+            throw new AuditException( rollbackExc );
+          }
+          throw new AuditException( ex );
+        } finally {
+          stmt.close();
+        }
+      } finally {
+        con.close();
+      }
+    } catch ( SQLException ex ) {
+      throw new AuditException( ex );
+    }
+  }
+
+  private void setParameters( final PreparedStatement stmt, final AuditRecord record ) throws SQLException {
+    setString( stmt, 1, record.getJobId() );
+    setString( stmt, 2, record.getInstId() );
+    setString( stmt, 3, record.getObjId() );
+    setString( stmt, 4, record.getObjType() );
+    setString( stmt, 5, record.getActor() );
+    setString( stmt, 6, record.getMessageType() );
+    setString( stmt, 7, record.getMessageName() );
+    setObject( stmt, 8, record.getMessageTxtValue() );
+    setBigDec( stmt, 9, record.getMessageNumValue() );
+    setBigDec( stmt, 10, BigDecimal.valueOf( record.getDuration() ) );
+    stmt.setTimestamp( 11, new Timestamp( record.getTimestamp() ) );
+  }
+
   private Map<String, String> getColumnsSizeMap() {
     if ( columnsSizeMap == null && TABLE_NAME != null ) {
       Connection con = null;
@@ -0,0 +1,34 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services.audit;
+
+import org.pentaho.platform.api.engine.AuditException;
+import org.pentaho.platform.api.engine.IAuditEntry;
+
+import java.util.List;
+
+/**
+ * An {@link IAuditEntry} that can write several events at once, e.g. as one JDBC batch or one file append.
+ * {@link AsyncAuditEntry} uses it to flush the events it has queued.
+ */
+public interface IBatchAuditEntry extends IAuditEntry {
+
+  /**
+   * Writes the given events, in order, using the time stored in each record.
+   *
+   * @throws AuditException if the events could not be written
+   */
+  void auditBatch( List<AuditRecord> records ) throws AuditException;
+
+}
@@ -0,0 +1,409 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.uifoundation.chart;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Funnels;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.JFreeChart;
+import org.pentaho.platform.api.cache.ICacheExpirationRegistry;
+import org.pentaho.platform.api.cache.ILastModifiedCacheItem;
+import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.uifoundation.messages.Messages;
+import org.pentaho.platform.util.messages.LocaleHelper;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.TexturePaint;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps rendered chart images in memory, so that a chart drawn again with the same definition, data and size is not
+ * rendered again. An image is keyed by a digest of the serialized {@link JFreeChart}, which holds the chart
+ * definition and its dataset, together with the size, output type and locale. Charts that can't be serialized, for
+ * instance because of a background image that is not a {@link BufferedImage}, are not cached.
+ * <p/>
+ * Besides the image, the entities of the rendering info are kept, so a cached chart still gets its image map. The
+ * bytes kept over all images are bounded by <code>chart-image-cache/max-bytes</code> in pentaho.xml; 0 turns the
+ * cache off. The setting is read again by {@link #getInstance()}; when it changes, the cache is rebuilt and the old
+ * one emptied. The files an image was written to are remembered for a while, so that they can be served from memory.
+ */
+public class ChartImageCache implements ILastModifiedCacheItem {
+
+  public static final String CACHE_KEY = "chart-image-cache"; //$NON-NLS-1$
+
+  public static final String MAX_BYTES_SETTING = "chart-image-cache/max-bytes"; //$NON-NLS-1$
+
+  public static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+
+  private static final long MAX_FILES = 10000;
+
+  private static final long FILE_TTL_MINUTES = 60;
+
+  private static final Log logger = LogFactory.getLog( ChartImageCache.class );
+
+  private static volatile ChartImageCache instance;
+
+  private static volatile String[] instanceSettings;
+
+  private final Cache<String, ChartImage> images;
+
+  private final Cache<String, String> files;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong renderNanos = new AtomicLong();
+
+  private final AtomicLong savedNanos = new AtomicLong();
+
+  private final AtomicLong bytes = new AtomicLong();
+
+  private volatile long lastModified = System.currentTimeMillis();
+
+  public ChartImageCache( final long maxBytes ) {
+    images = CacheBuilder.newBuilder()
+      .maximumWeight( maxBytes )
+      .weigher( ( String key, ChartImage image ) -> image.bytes.length )
+      .<String, ChartImage>removalListener( notification -> bytes.addAndGet( -notification.getValue().bytes.length ) )
+      .build();
+    files = CacheBuilder.newBuilder()
+      .maximumSize( MAX_FILES )
+      .expireAfterWrite( FILE_TTL_MINUTES, TimeUnit.MINUTES )
+      .build();
+  }
+
+  /**
+   * Returns the shared cache, or null when it is turned off in pentaho.xml.
+   */
+  public static ChartImageCache getInstance() {
+    String[] settings = { PentahoSystem.getSystemSetting( MAX_BYTES_SETTING, null ) };
+    if ( !Arrays.equals( settings, instanceSettings ) ) {
+      synchronized ( ChartImageCache.class ) {
+        if ( !Arrays.equals( settings, instanceSettings ) ) {
+          ChartImageCache previous = instance;
+          instance = createFromSettings( settings );
+          instanceSettings = settings;
+          if ( previous != null ) {
+            ICacheExpirationRegistry registry = PentahoSystem.get( ICacheExpirationRegistry.class, null );
+            if ( registry != null ) {
+              registry.unRegister( previous );
+            }
+            previous.clear();
+          }
+        }
+      }
+    }
+    return instance;
+  }
+
+  private static ChartImageCache createFromSettings( final String[] settings ) {
+    long maxBytes = DEFAULT_MAX_BYTES;
+    String value = settings[ 0 ];
+    if ( value != null && value.trim().length() > 0 ) {
+      try {
+        maxBytes = Long.parseLong( value.trim() );
+      } catch ( NumberFormatException e ) {
+        logger.warn( Messages.getInstance().getString( "ChartImageCache.WARN_INVALID_SETTING", MAX_BYTES_SETTING, //$NON-NLS-1$
+            value ) );
+      }
+    }
+    if ( maxBytes <= 0 ) {
+      return null;
+    }
+    ChartImageCache imageCache = new ChartImageCache( maxBytes );
+    ICacheExpirationRegistry registry = PentahoSystem.get( ICacheExpirationRegistry.class, null );
+    if ( registry != null ) {
+      registry.register( imageCache );
+    }
+    return imageCache;
+  }
+
+  /**
+   * Identifies the image of <code>chart</code> drawn at the given size and output type, or returns null if the chart
+   * can't be serialized, in which case it should not be cached.
+   */
+  public String getKey( final JFreeChart chart, final int width, final int height, final int outputType ) {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putInt( width ).putInt( height ).putInt( outputType );
+    hasher.putUnencodedChars( String.valueOf( LocaleHelper.getLocale() ) );
+    hasher.putUnencodedChars( String.valueOf( LocaleHelper.getSystemEncoding() ) );
+    try {
+      ObjectOutputStream out = new ChartOutputStream( Funnels.asOutputStream( hasher ) );
+      out.writeObject( chart );
+      out.close();
+    } catch ( IOException | RuntimeException e ) {
+      logger.debug( e.getMessage(), e );
+      return null;
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Returns the image cached under <code>key</code>, and fills <code>info</code> with the entities it was drawn with.
+   * If there is none, <code>renderer</code> draws the chart into <code>info</code> and returns the image, which is
+   * cached. The returned bytes are shared and must not be changed.
+   */
+  public byte[] getImage( final String key, final ChartRenderingInfo info, final Callable<byte[]> renderer )
+    throws IOException {
+    final boolean[] rendered = new boolean[ 1 ];
+    ChartImage image;
+    try {
+      image = images.get( key, () -> {
+        rendered[ 0 ] = true;
+        long start = System.nanoTime();
+        byte[] data = renderer.call();
+        // the caller may still change the entities, for instance to add drill links
+        ChartImage loaded = new ChartImage( data, copy( info, new ChartRenderingInfo() ), System.nanoTime() - start );
+        // counted before the image is in the cache, so its removal can't be counted first
+        bytes.addAndGet( loaded.bytes.length );
+        return loaded;
+      } );
+    } catch ( ExecutionException | UncheckedExecutionException | ExecutionError e ) {
+      Throwable cause = e.getCause();
+      if ( cause instanceof IOException ) {
+        throw (IOException) cause;
+      }
+      if ( cause instanceof RuntimeException ) {
+        throw (RuntimeException) cause;
+      }
+      if ( cause instanceof Error ) {
+        throw (Error) cause;
+      }
+      throw new IOException( cause );
+    }
+    if ( rendered[ 0 ] ) {
+      misses.incrementAndGet();
+      renderNanos.addAndGet( image.renderNanos );
+    } else {
+      hits.incrementAndGet();
+      savedNanos.addAndGet( image.renderNanos );
+      copy( image.info, info );
+    }
+    return image.bytes;
+  }
+
+  /**
+   * Remembers that the image cached under <code>key</code> was written to <code>file</code>.
+   */
+  public void putFile( final File file, final String key ) {
+    files.put( file.getAbsolutePath(), key );
+  }
+
+  /**
+   * Returns the image that was written to <code>file</code>, if it is still cached. The returned bytes are shared and
+   * must not be changed.
+   */
+  public byte[] getFile( final File file ) {
+    String key = files.getIfPresent( file.getAbsolutePath() );
+    ChartImage image = key == null ? null : images.getIfPresent( key );
+    return image == null ? null : image.bytes;
+  }
+
+  /**
+   * Drops every cached image.
+   */
+  public void clear() {
+    images.invalidateAll();
+    files.invalidateAll();
+    lastModified = System.currentTimeMillis();
+  }
+
+  public long size() {
+    return images.size();
+  }
+
+  /**
+   * Hits, misses and render time spent and saved since the cache was created.
+   */
+  public Statistics getStatistics() {
+    return new Statistics( hits.get(), misses.get(), renderNanos.get(), savedNanos.get(), images.size(), bytes.get() );
+  }
+
+  @Override
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public String getCacheKey() {
+    return CACHE_KEY;
+  }
+
+  /**
+   * Copies the chart area and a clone of the entities of <code>from</code> into <code>to</code>.
+   */
+  static ChartRenderingInfo copy( final ChartRenderingInfo from, final ChartRenderingInfo to ) {
+    try {
+      ChartRenderingInfo clone = (ChartRenderingInfo) from.clone();
+      to.setChartArea( clone.getChartArea() );
+      to.setEntityCollection( clone.getEntityCollection() );
+      return to;
+    } catch ( CloneNotSupportedException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  /**
+   * Serializes a chart for its digest. The session a chart definition keeps is left out, and paints and images that
+   * are not serializable are replaced by their content.
+   */
+  private static class ChartOutputStream extends ObjectOutputStream {
+
+    ChartOutputStream( final OutputStream out ) throws IOException {
+      super( out );
+      enableReplaceObject( true );
+    }
+
+    @Override
+    protected Object replaceObject( final Object obj ) {
+      if ( obj instanceof IPentahoSession ) {
+        return null;
+      }
+      if ( obj instanceof GradientPaint ) {
+        GradientPaint paint = (GradientPaint) obj;
+        return "gradient:" + paint.getPoint1() + ":" + getRGB( paint.getColor1() ) + ":" + paint.getPoint2() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+          + ":" + getRGB( paint.getColor2() ) + ":" + paint.isCyclic(); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      if ( obj instanceof TexturePaint ) {
+        TexturePaint paint = (TexturePaint) obj;
+        return "texture:" + getDigest( paint.getImage() ) + ":" + paint.getAnchorRect(); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+      if ( obj instanceof BufferedImage ) {
+        return "image:" + getDigest( (BufferedImage) obj ); //$NON-NLS-1$
+      }
+      return obj;
+    }
+
+    private static int getRGB( final Color color ) {
+      return color == null ? 0 : color.getRGB();
+    }
+
+    private static String getDigest( final BufferedImage image ) {
+      int width = image.getWidth();
+      int height = image.getHeight();
+      Hasher hasher = Hashing.sha256().newHasher().putInt( width ).putInt( height );
+      for ( int pixel : image.getRGB( 0, 0, width, height, null, 0, width ) ) {
+        hasher.putInt( pixel );
+      }
+      return hasher.hash().toString();
+    }
+  }
+
+  private static class ChartImage {
+
+    private final byte[] bytes;
+
+    private final ChartRenderingInfo info;
+
+    private final long renderNanos;
+
+    ChartImage( final byte[] bytes, final ChartRenderingInfo info, final long renderNanos ) {
+      this.bytes = bytes;
+      this.info = info;
+      this.renderNanos = renderNanos;
+    }
+  }
+
+  /**
+   * A snapshot of the cache counters.
+   */
+  public static class Statistics {
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long renderNanos;
+
+    private final long savedNanos;
+
+    private final long size;
+
+    private final long bytes;
+
+    Statistics( final long hitCount, final long missCount, final long renderNanos, final long savedNanos,
+                final long size, final long bytes ) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.renderNanos = renderNanos;
+      this.savedNanos = savedNanos;
+      this.size = size;
+      this.bytes = bytes;
+    }
+
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    public long getMissCount() {
+      return missCount;
+    }
+
+    public double getHitRate() {
+      long requests = hitCount + missCount;
+      return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * Time spent rendering the charts that were not cached.
+     */
+    public long getTotalRenderTimeMillis() {
+      return renderNanos / 1000000;
+    }
+
+    /**
+     * Time that rendering the cached charts took when they were rendered, summed over all hits.
+     */
+    public long getRenderTimeSavedMillis() {
+      return savedNanos / 1000000;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    /**
+     * The bytes of all cached images.
+     */
+    public long getBytes() {
+      return bytes;
+    }
+
+    @Override
+    public String toString() {
+      return "ChartImageCache{hitCount=" + hitCount + ", missCount=" + missCount + ", hitRate=" + getHitRate() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        + ", totalRenderTimeMillis=" + getTotalRenderTimeMillis() + ", renderTimeSavedMillis=" //$NON-NLS-1$ //$NON-NLS-2$
+        + getRenderTimeSavedMillis() + ", size=" + size + ", bytes=" + bytes + "}"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+  }
+}
@@ -99,10 +99,12 @@ import java.awt.Stroke;
 import java.awt.TexturePaint;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Writer;
@@ -1093,50 +1095,42 @@ public class JFreeChartEngine {
   }
 
   /**
-   * Create a PNG image file from a JFreeChart object
+   * Write a JFreeChart object as a PNG image
    * 
    * @param chart
    *          The chart object to create an image from
-   * @param path
-   *          The path and name of the image file to create
+   * @param out
+   *          The stream to write the image to
    * @param width
    *          The width of the image in pixels
    * @param height
    *          The height of the image in pixels
-   * @param writer
-   *          A writer for the iamge map to be written to
    * @throws IOException
    */
-  private static void saveChartAsPNG( final JFreeChart chart, final String path, final int width, final int height,
-      final PrintWriter writer, final ChartRenderingInfo info ) throws IOException {
-    File file = new File( path + ".png" ); //$NON-NLS-1$
-    ChartUtilities.saveChartAsPNG( file, chart, width, height, info );
+  private static void writeChartAsPNG( final JFreeChart chart, final OutputStream out, final int width,
+      final int height, final ChartRenderingInfo info ) throws IOException {
+    ChartUtilities.writeChartAsPNG( out, chart, width, height, info );
 
     // TODO support tool tip generators
 
     // TODO support URL fragment generators
-
-    // TODO: make the image map name unique on the page
-    if ( writer != null ) {
-      ChartUtilities.writeImageMap( writer, "map-name", info, true ); //$NON-NLS-1$
-    }
   }
 
   /**
-   * Create an SVG image file from a JFreeChart object
+   * Write a JFreeChart object as an SVG image
    * 
    * @param chart
    *          The chart object to create an image from
-   * @param path
-   *          The path and name of the image file to create
+   * @param out
+   *          The stream to write the image to
    * @param width
    *          The width of the image in pixels
    * @param height
    *          The height of the image in pixels
    * @throws IOException
    */
-  private static void saveChartAsSVG( final JFreeChart chart, final String path, final int width, final int height,
-      final ChartRenderingInfo info ) throws IOException {
+  private static void writeChartAsSVG( final JFreeChart chart, final OutputStream out, final int width,
+      final int height, final ChartRenderingInfo info ) throws IOException {
     // THE FOLLOWING CODE BASED ON THE EXAMPLE IN THE BATIK DOCUMENTATION...
     // Get a DOMImplementation
     org.w3c.dom.DOMImplementation domImpl = GenericDOMImplementation.getDOMImplementation();
@@ -1148,16 +1142,42 @@ public class JFreeChartEngine {
     svgGenerator.getGeneratorContext().setPrecision( 6 );
     // Ask the chart to render into the SVG Graphics2D implementation
     chart.draw( svgGenerator, new Rectangle2D.Double( 0, 0, width, height ), info );
-    // Finally, stream out SVG to a file using UTF-8 character to byte
+    // Finally, stream out SVG using UTF-8 character to byte
     // encoding
     boolean useCSS = true;
-    Writer out =
-        new OutputStreamWriter( new FileOutputStream( new File( path + ".svg" ) ), LocaleHelper.getSystemEncoding() ); //$NON-NLS-1$
-    svgGenerator.stream( out, useCSS );
+    Writer writer = new OutputStreamWriter( out, LocaleHelper.getSystemEncoding() );
+    svgGenerator.stream( writer, useCSS );
+    writer.flush();
+  }
+
+  /**
+   * Render a JFreeChart object as an image
+   * 
+   * @param chart
+   *          The chart object to create an image from
+   * @param width
+   *          The width of the image in pixels
+   * @param height
+   *          The height of the image in pixels
+   * @param outputType
+   *          The type of the image to create, OUPUT_PNG or OUTPUT_SVG
+   * @return the image
+   * @throws IOException
+   */
+  private static byte[] renderChart( final JFreeChart chart, final int width, final int height,
+      final int outputType, final ChartRenderingInfo info ) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if ( outputType == JFreeChartEngine.OUTPUT_SVG ) {
+      JFreeChartEngine.writeChartAsSVG( chart, out, width, height, info );
+    } else {
+      JFreeChartEngine.writeChartAsPNG( chart, out, width, height, info );
+    }
+    return out.toByteArray();
   }
 
   /**
-   * Create an image file from a JFreeChart object
+   * Create an image file from a JFreeChart object. The image is taken from the {@link ChartImageCache} when the same
+   * chart was rendered before.
    * 
    * @param chart
    *          The chart object to create an image from
@@ -1174,12 +1194,43 @@ public class JFreeChartEngine {
    */
   private static void saveChart( final JFreeChart chart, final String path, final int width, final int height,
       final int outputType, final PrintWriter writer, final ChartRenderingInfo info ) throws IOException {
+    String extension;
     if ( outputType == JFreeChartEngine.OUTPUT_PNG ) {
-      JFreeChartEngine.saveChartAsPNG( chart, path, width, height, writer, info );
+      extension = ".png"; //$NON-NLS-1$
     } else if ( outputType == JFreeChartEngine.OUTPUT_SVG ) {
-      JFreeChartEngine.saveChartAsSVG( chart, path, width, height, info );
+      extension = ".svg"; //$NON-NLS-1$
+    } else {
+      // TODO support other image types, e.g. JPG, GIF
+      return;
+    }
+    final ChartRenderingInfo renderingInfo = info != null ? info : new ChartRenderingInfo();
+    ChartImageCache imageCache = ChartImageCache.getInstance();
+    String key = imageCache == null ? null : imageCache.getKey( chart, width, height, outputType );
+    byte[] image;
+    if ( key == null ) {
+      image = JFreeChartEngine.renderChart( chart, width, height, outputType, renderingInfo );
+    } else {
+      image =
+          imageCache.getImage( key, renderingInfo, () -> JFreeChartEngine.renderChart( chart, width, height,
+              outputType, renderingInfo ) );
+    }
+
+    // the file is still written, it is handed out by name to other components
+    File file = new File( path + extension );
+    OutputStream out = new FileOutputStream( file );
+    try {
+      out.write( image );
+    } finally {
+      out.close();
+    }
+    if ( key != null ) {
+      imageCache.putFile( file, key );
+    }
+
+    // TODO: make the image map name unique on the page
+    if ( writer != null && outputType == JFreeChartEngine.OUTPUT_PNG ) {
+      ChartUtilities.writeImageMap( writer, "map-name", renderingInfo, true ); //$NON-NLS-1$
     }
-    // TODO support other image types, e.g. JPG, GIF
   }
 
   /**
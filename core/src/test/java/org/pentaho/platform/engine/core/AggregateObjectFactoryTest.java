@@ -18,14 +18,17 @@ import static junit.framework.Assert.assertNotNull;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.pentaho.platform.api.engine.IMimeTypeListener;
 import org.pentaho.platform.api.engine.IPentahoDefinableObjectFactory;
+import org.pentaho.platform.api.engine.IPentahoObjectRegistration;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.core.system.StandaloneSession;
 import org.pentaho.platform.engine.core.system.objfac.AggregateObjectFactory;
+import org.pentaho.platform.engine.core.system.objfac.RuntimeObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.StandaloneObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.StandaloneSpringPentahoObjectFactory;
 import org.pentaho.platform.engine.core.system.objfac.spring.PublishedBeanRegistry;
@@ -192,4 +195,34 @@ public class AggregateObjectFactoryTest {
     assertEquals( 0, PublishedBeanRegistry.getRegisteredFactories().size() );
 
   }
+
+  @Test
+  public void testResolutionCachedUntilObservableFactoryChanges() throws Exception {
+
+    StandaloneSession session = new StandaloneSession();
+    final AtomicInteger lookups = new AtomicInteger();
+    RuntimeObjectFactory runtimeFactory = new RuntimeObjectFactory() {
+      @Override
+      public boolean objectDefined( Class<?> clazz ) {
+        lookups.incrementAndGet();
+        return super.objectDefined( clazz );
+      }
+    };
+
+    AggregateObjectFactory aggFactory = new AggregateObjectFactory();
+    aggFactory.registerObjectFactory( runtimeFactory );
+    runtimeFactory.registerObject( "hello", String.class );
+
+    assertEquals( "hello", aggFactory.get( String.class, session ) );
+    assertEquals( "hello", aggFactory.get( String.class, session ) );
+    assertEquals( 1, lookups.get() );
+
+    IPentahoObjectRegistration registration = runtimeFactory.registerObject( "world", CharSequence.class );
+    assertEquals( "world", aggFactory.get( CharSequence.class, session ) );
+    assertEquals( 2, lookups.get() );
+
+    registration.remove();
+    assertEquals( false, aggFactory.objectDefined( CharSequence.class ) );
+    assertEquals( 3, lookups.get() );
+  }
 }
@@ -0,0 +1,91 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.core.system;
+
+import org.dom4j.Document;
+import org.dom4j.DocumentHelper;
+import org.dom4j.Node;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SettingsIndexTest {
+
+  private static final String XML = "<pentaho-system>"
+    + "<log-level>DEBUG</log-level>"
+    + "<audit><auditLogFile>/PentahoAuditLog.log</auditLogFile><id_separator>,</id_separator></audit>"
+    + "<report-config><entry name=\"a\">1</entry><entry name=\"b\">2</entry></report-config>"
+    + "<nested><audit><auditLogFile>second</auditLogFile></audit></nested>"
+    + "<cache-provider><properties><property name=\"x\">y</property></properties></cache-provider>"
+    + "</pentaho-system>";
+
+  @Test
+  public void testLookupsMatchXPath() throws Exception {
+    Document document = DocumentHelper.parseText( XML );
+    SettingsIndex index = SettingsIndex.compile( document );
+
+    String[] names = { "log-level", "audit/auditLogFile", "auditLogFile", "pentaho-system/audit/id_separator",
+      "nested/audit/auditLogFile", "report-config/entry", "entry", "pentaho-system", "missing", "audit/missing",
+      "entry/@name", "report-config/entry[@name='b']", "cache-provider/properties/*" };
+    for ( String name : names ) {
+      Node node = document.selectSingleNode( "//" + name );
+      assertEquals( name, node == null ? "default" : node.getText(), index.getSetting( name, "default" ) );
+      List<?> expected = document.selectNodes( "//" + name );
+      assertEquals( name, expected, index.getSettings( name ) );
+    }
+  }
+
+  @Test
+  public void testPlainPaths() {
+    assertTrue( SettingsIndex.isPlainPath( "audit/auditLogFile" ) );
+    assertTrue( SettingsIndex.isPlainPath( "sql-result-cache/max-rows" ) );
+    assertFalse( SettingsIndex.isPlainPath( "/audit" ) );
+    assertFalse( SettingsIndex.isPlainPath( "audit/" ) );
+    assertFalse( SettingsIndex.isPlainPath( "audit//file" ) );
+    assertFalse( SettingsIndex.isPlainPath( "entry/@name" ) );
+    assertFalse( SettingsIndex.isPlainPath( "ns:entry" ) );
+    assertFalse( SettingsIndex.isPlainPath( "" ) );
+  }
+
+  @Test
+  public void testModifiedFileIsReadAgain() throws Exception {
+    final File file = File.createTempFile( "pentaho", ".xml" );
+    try {
+      Files.write( file.toPath(), XML.getBytes( StandardCharsets.UTF_8 ) );
+      SystemSettings settings = new SystemSettings() {
+        @Override
+        protected String getAbsolutePath( final String path ) {
+          return file.getAbsolutePath();
+        }
+      };
+      assertEquals( "DEBUG", settings.getSystemSetting( "log-level", null ) );
+
+      Files.write( file.toPath(), XML.replace( "DEBUG", "ERROR" ).getBytes( StandardCharsets.UTF_8 ) );
+      assertTrue( file.setLastModified( file.lastModified() + 2000 ) );
+      assertEquals( "DEBUG", settings.getSystemSetting( "log-level", null ) );
+
+      Thread.sleep( 1100 );
+      assertEquals( "ERROR", settings.getSystemSetting( "log-level", null ) );
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.core.system;
+
+import com.google.common.cache.CacheStats;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.engine.IPentahoSession;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SimpleMapCacheManagerTest {
+
+  private SimpleMapCacheManager cacheManager;
+
+  @Before
+  public void setUp() {
+    cacheManager = new SimpleMapCacheManager();
+  }
+
+  @Test
+  public void testRegionsAreIndependent() {
+    cacheManager.putInRegionCache( "a", "key", "valueA" );
+    cacheManager.putInRegionCache( "b", "key", "valueB" );
+
+    assertEquals( "valueA", cacheManager.getFromRegionCache( "a", "key" ) );
+    assertEquals( Collections.singleton( "key" ), cacheManager.getAllKeysFromRegionCache( "a" ) );
+    assertEquals( 1, cacheManager.getElementCountInRegionCache( "a" ) );
+
+    cacheManager.clearRegionCache( "a" );
+    assertNull( cacheManager.getFromRegionCache( "a", "key" ) );
+    assertEquals( "valueB", cacheManager.getFromRegionCache( "b", "key" ) );
+  }
+
+  @Test
+  public void testRegionIsBoundedAndTracksStats() {
+    Properties properties = new Properties();
+    properties.setProperty( SimpleMapCacheManager.MAX_ELEMENTS, "2" );
+    cacheManager.addCacheRegion( "bounded", properties );
+
+    cacheManager.putInRegionCache( "bounded", "one", 1 );
+    cacheManager.putInRegionCache( "bounded", "two", 2 );
+    cacheManager.getFromRegionCache( "bounded", "one" );
+    cacheManager.putInRegionCache( "bounded", "three", 3 );
+
+    assertEquals( 2, cacheManager.getElementCountInRegionCache( "bounded" ) );
+    assertEquals( new HashSet<Object>( Arrays.asList( "one", "three" ) ),
+      cacheManager.getAllKeysFromRegionCache( "bounded" ) );
+    assertNull( cacheManager.getFromRegionCache( "bounded", "two" ) );
+
+    CacheStats stats = cacheManager.getRegionCacheStats( "bounded" );
+    assertEquals( 1, stats.hitCount() );
+    assertEquals( 1, stats.missCount() );
+    assertEquals( 1, stats.evictionCount() );
+  }
+
+  @Test
+  public void testSessionAndGlobalRegionsIgnoreTheDefaultLimits() {
+    cacheManager.setDefaultMaxElements( 2 );
+    for ( int i = 0; i < 5; i++ ) {
+      cacheManager.putInGlobalCache( "key" + i, i );
+      cacheManager.putInRegionCache( "other", "key" + i, i );
+    }
+
+    assertEquals( 5, cacheManager.getElementCountInGlobalCache() );
+    assertEquals( 2, cacheManager.getElementCountInRegionCache( "other" ) );
+
+    cacheManager.setDefaultMaxElements( 0 );
+    for ( int i = 0; i < 5; i++ ) {
+      cacheManager.putInRegionCache( "unbounded", "key" + i, i );
+    }
+    assertEquals( 5, cacheManager.getElementCountInRegionCache( "unbounded" ) );
+  }
+
+  @Test
+  public void testKillSessionCacheOnlyRemovesThatSession() {
+    IPentahoSession session1 = new StandaloneSession( "joe", "session1" );
+    IPentahoSession session2 = new StandaloneSession( "suzy", "session2" );
+    cacheManager.putInSessionCache( session1, "key", "joe's" );
+    cacheManager.putInSessionCache( session2, "key", "suzy's" );
+
+    cacheManager.killSessionCache( session1 );
+
+    assertNull( cacheManager.getFromSessionCache( session1, "key" ) );
+    assertEquals( "suzy's", cacheManager.getFromSessionCache( session2, "key" ) );
+  }
+}
@@ -0,0 +1,88 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.dom4j.Document;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.engine.ICacheManager;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
+import org.pentaho.platform.api.repository2.unified.data.simple.SimpleRepositoryFileData;
+import org.pentaho.platform.engine.core.system.SimpleMapCacheManager;
+import org.pentaho.platform.engine.core.system.StandaloneSession;
+import org.pentaho.test.platform.engine.core.MicroPlatform;
+
+@SuppressWarnings( "nls" )
+public class ActionSequenceJCRHelperTest {
+
+  private static final String PATH = "/public/test.xaction";
+
+  private MicroPlatform booter;
+  private IUnifiedRepository repository;
+
+  @Before
+  public void setUp() throws Exception {
+    repository = mock( IUnifiedRepository.class );
+    when( repository.getDataForRead( eq( "fileId" ), eq( SimpleRepositoryFileData.class ) ) ).thenAnswer(
+        invocation -> new SimpleRepositoryFileData( new ByteArrayInputStream(
+            "<action-sequence><title>Test</title></action-sequence>".getBytes( StandardCharsets.UTF_8 ) ),
+            "UTF-8", "text/xml" ) );
+    booter = new MicroPlatform( "src/test/resources/solution" );
+    booter.defineInstance( IUnifiedRepository.class, repository );
+    booter.defineInstance( ICacheManager.class, new SimpleMapCacheManager() );
+    booter.start();
+  }
+
+  @After
+  public void tearDown() {
+    booter.stop();
+  }
+
+  @Test
+  public void testParsedDocumentCachedUntilFileChanges() {
+    when( repository.getFile( PATH ) ).thenReturn( createFile( 1000L ) );
+    ActionSequenceJCRHelper helper = new ActionSequenceJCRHelper( new StandaloneSession() );
+
+    Document first = helper.getSolutionDocument( PATH, RepositoryFilePermission.READ );
+    Document second = helper.getSolutionDocument( PATH, RepositoryFilePermission.READ );
+    assertEquals( "Test", second.valueOf( "/action-sequence/title" ) );
+    // each caller gets its own copy
+    assertNotSame( first, second );
+    verify( repository, times( 1 ) ).getDataForRead( "fileId", SimpleRepositoryFileData.class );
+
+    when( repository.getFile( PATH ) ).thenReturn( createFile( 2000L ) );
+    helper.getSolutionDocument( PATH, RepositoryFilePermission.READ );
+    verify( repository, times( 2 ) ).getDataForRead( "fileId", SimpleRepositoryFileData.class );
+  }
+
+  private RepositoryFile createFile( long lastModified ) {
+    return new RepositoryFile.Builder( "fileId", "test.xaction" ).path( PATH )
+        .lastModificationDate( new Date( lastModified ) ).build();
+  }
+}
@@ -0,0 +1,125 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.engine.services;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.pentaho.platform.engine.services.audit.AsyncAuditEntry;
+import org.pentaho.platform.engine.services.audit.AuditRecord;
+import org.pentaho.platform.engine.services.audit.IBatchAuditEntry;
+
+@SuppressWarnings( "nls" )
+public class AsyncAuditEntryTest {
+
+  @Test
+  public void testEventsWrittenInBatchesInOrder() {
+    RecordingEntry entry = new RecordingEntry( null );
+    AsyncAuditEntry asyncEntry = new AsyncAuditEntry( entry );
+    for ( int i = 0; i < 25; i++ ) {
+      asyncEntry.auditAll( "job", "inst" + i, "obj", "type", "actor", "type", "name", null, null, 0 );
+    }
+    asyncEntry.shutdown();
+
+    assertEquals( 25, entry.records.size() );
+    for ( int i = 0; i < 25; i++ ) {
+      assertEquals( "inst" + i, entry.records.get( i ).getInstId() );
+    }
+    assertEquals( 25, asyncEntry.getWrittenCount() );
+    assertEquals( 0, asyncEntry.getQueueDepth() );
+  }
+
+  @Test
+  public void testDropPolicyCountsDroppedEvents() throws Exception {
+    CountDownLatch release = new CountDownLatch( 1 );
+    RecordingEntry entry = new RecordingEntry( release );
+    AsyncAuditEntry asyncEntry = new AsyncAuditEntry( entry );
+    asyncEntry.setCapacity( 2 );
+    asyncEntry.setOverflowPolicy( AsyncAuditEntry.OverflowPolicy.DROP );
+
+    // the first event keeps the writer busy
+    asyncEntry.auditAll( "job", "inst0", "obj", "type", "actor", "type", "name", null, null, 0 );
+    entry.started.await();
+    for ( int i = 1; i <= 4; i++ ) {
+      asyncEntry.auditAll( "job", "inst" + i, "obj", "type", "actor", "type", "name", null, null, 0 );
+    }
+    assertEquals( 2, asyncEntry.getDroppedCount() );
+
+    release.countDown();
+    asyncEntry.shutdown();
+    assertEquals( 3, entry.records.size() );
+  }
+
+  @Test
+  public void testFailedBatchIsWrittenOneEventAtATime() {
+    final List<String> written = Collections.synchronizedList( new ArrayList<String>() );
+    AsyncAuditEntry asyncEntry = new AsyncAuditEntry( new IBatchAuditEntry() {
+      public void auditBatch( List<AuditRecord> batch ) {
+        throw new Error( "batch failed" );
+      }
+
+      public void auditAll( String jobId, String instId, String objId, String objType, String actor,
+                            String messageType, String messageName, String messageTxtValue,
+                            BigDecimal messageNumValue, double duration ) {
+        if ( "bad".equals( instId ) ) {
+          throw new IllegalStateException( "bad event" );
+        }
+        written.add( instId );
+      }
+    } );
+    asyncEntry.auditAll( "job", "inst0", "obj", "type", "actor", "type", "name", null, null, 0 );
+    asyncEntry.auditAll( "job", "bad", "obj", "type", "actor", "type", "name", null, null, 0 );
+    asyncEntry.auditAll( "job", "inst1", "obj", "type", "actor", "type", "name", null, null, 0 );
+    asyncEntry.shutdown();
+
+    assertEquals( Arrays.asList( "inst0", "inst1" ), written );
+    assertEquals( 2, asyncEntry.getWrittenCount() );
+    assertEquals( 1, asyncEntry.getFailedCount() );
+  }
+
+  private static class RecordingEntry implements IBatchAuditEntry {
+    private final List<AuditRecord> records = Collections.synchronizedList( new ArrayList<AuditRecord>() );
+    private final CountDownLatch started = new CountDownLatch( 1 );
+    private final CountDownLatch release;
+
+    RecordingEntry( CountDownLatch release ) {
+      this.release = release;
+    }
+
+    public void auditBatch( List<AuditRecord> batch ) {
+      started.countDown();
+      if ( release != null ) {
+        try {
+          release.await();
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      records.addAll( batch );
+    }
+
+    public void auditAll( String jobId, String instId, String objId, String objType, String actor,
+                          String messageType, String messageName, String messageTxtValue,
+                          BigDecimal messageNumValue, double duration ) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
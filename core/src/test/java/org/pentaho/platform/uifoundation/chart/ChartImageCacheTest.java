@@ -0,0 +1,161 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.uifoundation.chart;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.entity.ChartEntity;
+import org.jfree.data.general.DefaultPieDataset;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.engine.ISystemSettings;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Rectangle;
+import java.io.File;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ChartImageCacheTest {
+
+  private ChartImageCache cache;
+
+  @Before
+  public void setUp() {
+    cache = new ChartImageCache( 1024 );
+  }
+
+  @Test
+  public void testInstanceIsRebuiltWhenTheSettingChanges() {
+    ISystemSettings settings = mock( ISystemSettings.class );
+    when( settings.getSystemSetting( ChartImageCache.MAX_BYTES_SETTING, null ) ).thenReturn( "1024", "1024", "0",
+        "2048" );
+    PentahoSystem.setSystemSettingsService( settings );
+    try {
+      ChartImageCache first = ChartImageCache.getInstance();
+      assertNotNull( first );
+      assertSame( first, ChartImageCache.getInstance() );
+      assertNull( ChartImageCache.getInstance() );
+      ChartImageCache second = ChartImageCache.getInstance();
+      assertNotNull( second );
+      assertNotSame( first, second );
+    } finally {
+      PentahoSystem.setSystemSettingsService( null );
+    }
+  }
+
+  @Test
+  public void testKeyDependsOnTheDataAndTheSize() {
+    String key = cache.getKey( createChart( 10 ), 400, 300, JFreeChartEngine.OUTPUT_PNG );
+    assertNotNull( key );
+    assertEquals( key, cache.getKey( createChart( 10 ), 400, 300, JFreeChartEngine.OUTPUT_PNG ) );
+    assertNotEquals( key, cache.getKey( createChart( 11 ), 400, 300, JFreeChartEngine.OUTPUT_PNG ) );
+    assertNotEquals( key, cache.getKey( createChart( 10 ), 400, 200, JFreeChartEngine.OUTPUT_PNG ) );
+    assertNotEquals( key, cache.getKey( createChart( 10 ), 400, 300, JFreeChartEngine.OUTPUT_SVG ) );
+  }
+
+  @Test
+  public void testSessionIsLeftOutAndGradientsAreDigested() {
+    String key = cache.getKey( createChart( mock( IPentahoSession.class ), Color.BLUE ), 400, 300,
+        JFreeChartEngine.OUTPUT_PNG );
+    assertNotNull( key );
+    assertEquals( key, cache.getKey( createChart( mock( IPentahoSession.class ), Color.BLUE ), 400, 300,
+        JFreeChartEngine.OUTPUT_PNG ) );
+    assertNotEquals( key, cache.getKey( createChart( mock( IPentahoSession.class ), Color.RED ), 400, 300,
+        JFreeChartEngine.OUTPUT_PNG ) );
+  }
+
+  @Test
+  public void testCachedChartsAreNotRenderedAgain() throws Exception {
+    final AtomicInteger rendered = new AtomicInteger();
+    final byte[] image = { 1, 2, 3 };
+
+    ChartRenderingInfo first = new ChartRenderingInfo();
+    byte[] firstImage = cache.getImage( "key", first, () -> {
+      rendered.incrementAndGet();
+      first.getEntityCollection().add( new ChartEntity( new Rectangle( 0, 0, 10, 10 ), "tip" ) );
+      return image;
+    } );
+    // changes made by the caller of the render are not cached
+    ( (ChartEntity) first.getEntityCollection().getEntity( 0 ) ).setURLText( "drill" );
+
+    ChartRenderingInfo second = new ChartRenderingInfo();
+    byte[] secondImage = cache.getImage( "key", second, () -> {
+      rendered.incrementAndGet();
+      return image;
+    } );
+
+    assertEquals( 1, rendered.get() );
+    assertSame( firstImage, secondImage );
+    assertEquals( 1, second.getEntityCollection().getEntityCount() );
+    assertEquals( "tip", second.getEntityCollection().getEntity( 0 ).getToolTipText() );
+    assertNull( second.getEntityCollection().getEntity( 0 ).getURLText() );
+
+    ChartImageCache.Statistics statistics = cache.getStatistics();
+    assertEquals( 1, statistics.getHitCount() );
+    assertEquals( 1, statistics.getMissCount() );
+    assertEquals( 3, statistics.getBytes() );
+  }
+
+  @Test
+  public void testImagesAreFoundByTheirFile() throws Exception {
+    byte[] image = { 1, 2, 3 };
+    cache.getImage( "key", new ChartRenderingInfo(), () -> image );
+    File file = new File( "system/tmp/tmp_chart_1.png" );
+    cache.putFile( file, "key" );
+    assertArrayEquals( image, cache.getFile( new File( "system/tmp/tmp_chart_1.png" ) ) );
+    assertNull( cache.getFile( new File( "system/tmp/tmp_chart_2.png" ) ) );
+
+    cache.clear();
+    assertNull( cache.getFile( file ) );
+  }
+
+  @Test
+  public void testImagesAreBoundedByTheirSize() throws Exception {
+    for ( int i = 0; i < 10; i++ ) {
+      cache.getImage( "key" + i, new ChartRenderingInfo(), () -> new byte[ 300 ] );
+    }
+    assertTrue( cache.getStatistics().getBytes() <= 1024 );
+    assertTrue( cache.size() < 10 );
+  }
+
+  private static JFreeChart createChart( final int value ) {
+    DefaultPieDataset dataset = new DefaultPieDataset();
+    dataset.setValue( "East", value );
+    dataset.setValue( "West", 20 );
+    return ChartFactory.createPieChart( "Sales", dataset, true, true, false );
+  }
+
+  private static JFreeChart createChart( final IPentahoSession session, final Color color ) {
+    PieDatasetChartDefinition definition = new PieDatasetChartDefinition( session );
+    definition.setValue( "East", 10 );
+    definition.setValue( "West", 20 );
+    definition.setChartBackgroundPaint( new GradientPaint( 0, 0, Color.WHITE, 0, 100, color ) );
+    return JFreeChartEngine.getChart( definition, "Sales", "", 400, 300, null );
+  }
+}
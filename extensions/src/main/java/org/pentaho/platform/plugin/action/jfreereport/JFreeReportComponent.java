@@ -41,10 +41,10 @@ import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.plugin.action.jfreereport.components.JFreeReportValidateParametersComponent;
 import org.pentaho.platform.plugin.action.jfreereport.helper.PentahoDataFactory;
 import org.pentaho.platform.plugin.action.jfreereport.helper.PentahoResourceBundleFactory;
-import org.pentaho.platform.plugin.action.jfreereport.helper.PentahoResourceLoader;
 import org.pentaho.platform.plugin.action.jfreereport.helper.PentahoTableDataFactory;
 import org.pentaho.platform.plugin.action.jfreereport.helper.PentahoTableModel;
 import org.pentaho.platform.plugin.action.jfreereport.helper.PentahoURLRewriter;
+import org.pentaho.platform.plugin.action.jfreereport.helper.ReportTemplateCache;
 import org.pentaho.platform.plugin.action.jfreereport.helper.ReportUtils;
 import org.pentaho.platform.plugin.action.messages.Messages;
 import org.pentaho.platform.util.xml.XmlHelper;
@@ -85,8 +85,6 @@ import org.pentaho.reporting.libraries.repository.file.FileRepository;
 import org.pentaho.reporting.libraries.repository.stream.StreamRepository;
 import org.pentaho.reporting.libraries.resourceloader.FactoryParameterKey;
 import org.pentaho.reporting.libraries.resourceloader.ResourceException;
-import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
-import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
 import org.xml.sax.InputSource;
 
 import javax.activation.DataSource;
@@ -525,10 +523,6 @@ public class JFreeReportComponent extends AbstractJFreeReportComponent {
 
   private MasterReport parseReport( final IActionSequenceResource resource ) {
     try {
-      // define the resource url so that PentahoResourceLoader recognizes the path.
-      String resourceUrl =
-          PentahoResourceLoader.SOLUTION_SCHEMA_NAME + PentahoResourceLoader.SCHEMA_SEPARATOR + resource.getAddress();
-
       String fullyQualifiedServerURL = PentahoSystem.getApplicationContext().getFullyQualifiedServerURL();
 
       HashMap<FactoryParameterKey, Object> helperObjects = new HashMap<FactoryParameterKey, Object>();
@@ -551,31 +545,8 @@ public class JFreeReportComponent extends AbstractJFreeReportComponent {
             new FactoryParameterKey( "requestContextPath" ),
             PentahoRequestContextHolder.getRequestContext().getContextPath() ); //$NON-NLS-1$
 
-      Iterator it = getInputNames().iterator();
-      while ( it.hasNext() ) {
-        try {
-          String inputName = (String) it.next();
-
-          // do not store the data as it would always force a cache refresh and it has no bearing
-          // on how the report definition would be parsed
-          if ( AbstractJFreeReportComponent.DATACOMPONENT_DATAINPUT.equals( inputName ) ) {
-            continue;
-          }
-
-          String inputValue = getInputStringValue( inputName );
-          helperObjects.put( new FactoryParameterKey( inputName ), inputValue );
-        } catch ( Exception e ) {
-          //ignore
-        }
-      }
-
-      ResourceManager resourceManager = new ResourceManager();
-      resourceManager.registerDefaults();
-
-      ResourceKey contextKey = resourceManager.createKey( resourceUrl, helperObjects );
-      ResourceKey key = resourceManager.createKey( resourceUrl, helperObjects );
-
-      return ReportGenerator.getInstance().parseReport( resourceManager, key, contextKey );
+      // the action inputs are set on the copy as report parameters, they play no part in parsing it
+      return ReportTemplateCache.getInstance().getReport( resource.getAddress(), helperObjects );
 
     } catch ( Exception ex ) {
       error(
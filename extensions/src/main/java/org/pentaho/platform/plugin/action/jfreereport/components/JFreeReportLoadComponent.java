@@ -23,15 +23,13 @@ import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
 import org.pentaho.platform.engine.core.system.PentahoRequestContextHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.plugin.action.jfreereport.AbstractJFreeReportComponent;
-import org.pentaho.platform.plugin.action.jfreereport.helper.PentahoResourceLoader;
+import org.pentaho.platform.plugin.action.jfreereport.helper.ReportTemplateCache;
 import org.pentaho.platform.plugin.action.jfreereport.helper.ReportUtils;
 import org.pentaho.platform.plugin.action.messages.Messages;
 import org.pentaho.reporting.engine.classic.core.MasterReport;
 import org.pentaho.reporting.engine.classic.core.modules.parser.base.ReportGenerator;
 import org.pentaho.reporting.libraries.resourceloader.FactoryParameterKey;
 import org.pentaho.reporting.libraries.resourceloader.ResourceException;
-import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
-import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
 import org.pentaho.util.messages.LocaleHelper;
 import org.xml.sax.InputSource;
 
@@ -41,7 +39,6 @@ import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.util.HashMap;
-import java.util.Iterator;
 
 /**
  * A JFreeReport run contains at least three steps. Step 1: Parse the report definition. Step 2: Grab some data. Step 3:
@@ -270,10 +267,6 @@ public class JFreeReportLoadComponent extends AbstractJFreeReportComponent {
    */
   private MasterReport parseReport( final IActionSequenceResource resource ) {
     try {
-      // define the resource url so that PentahoResourceLoader recognizes the path.
-      String resourceUrl =
-          PentahoResourceLoader.SOLUTION_SCHEMA_NAME + PentahoResourceLoader.SCHEMA_SEPARATOR + resource.getAddress();
-
       String fullyQualifiedServerUrl = PentahoSystem.getApplicationContext().getFullyQualifiedServerURL();
 
       HashMap helperObjects = new HashMap();
@@ -295,24 +288,8 @@ public class JFreeReportLoadComponent extends AbstractJFreeReportComponent {
             new FactoryParameterKey( "requestContextPath" ),
             PentahoRequestContextHolder.getRequestContext().getContextPath() ); //$NON-NLS-1$
 
-      Iterator it = getInputNames().iterator();
-      while ( it.hasNext() ) {
-        try {
-          String inputName = (String) it.next();
-          String inputValue = getInputStringValue( inputName );
-          helperObjects.put( new FactoryParameterKey( inputName ), inputValue );
-        } catch ( Exception e ) {
-          //ignore
-        }
-      }
-
-      ResourceManager resourceManager = new ResourceManager();
-      resourceManager.registerDefaults();
-
-      ResourceKey contextKey = resourceManager.createKey( resourceUrl, helperObjects );
-      ResourceKey key = resourceManager.createKey( resourceUrl, helperObjects );
-
-      return ReportGenerator.getInstance().parseReport( resourceManager, key, contextKey );
+      // the action inputs are set on the copy as report parameters, they play no part in parsing it
+      return ReportTemplateCache.getInstance().getReport( resource.getAddress(), helperObjects );
 
     } catch ( Exception ex ) {
       error(
@@ -0,0 +1,245 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.jfreereport.helper;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.api.engine.ICacheManager;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.engine.services.actionsequence.ActionSequenceResource;
+import org.pentaho.platform.util.messages.LocaleHelper;
+import org.pentaho.reporting.engine.classic.core.MasterReport;
+import org.pentaho.reporting.engine.classic.core.modules.parser.base.ReportGenerator;
+import org.pentaho.reporting.libraries.resourceloader.FactoryParameterKey;
+import org.pentaho.reporting.libraries.resourceloader.ResourceKey;
+import org.pentaho.reporting.libraries.resourceloader.ResourceManager;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps parsed report definitions from the solution repository, so that running a report again only clones the
+ * parsed template instead of reading and parsing the definition. Templates are kept in the
+ * <code>report-template-cache</code> region of the {@link ICacheManager}, which bounds their size and is flushed
+ * with the other platform caches, and are keyed by the repository file id and version, the locale and the
+ * {@link #STATIC_PARAMETERS}. Only those factory parameters are used to parse a definition; the action inputs are set
+ * on the copy as report parameters. Definitions are parsed with one shared {@link ResourceManager}, so the resource
+ * caches of the reporting engine are used across requests.
+ * <p/>
+ * Only the file itself is versioned; a changed resource that the definition merely includes is picked up once the
+ * template is flushed or evicted.
+ */
+public class ReportTemplateCache {
+
+  public static final String CACHE_REGION = "report-template-cache"; //$NON-NLS-1$
+
+  /**
+   * The factory parameters that are the same for every run of a report, and so may be used to parse a template.
+   */
+  public static final List<String> STATIC_PARAMETERS = Collections.unmodifiableList( Arrays.asList(
+      "pentahoBaseURL", "serverBaseURL", "solutionRoot", "hostColonPort", "requestContextPath" ) ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+  private static final Log logger = LogFactory.getLog( ReportTemplateCache.class );
+
+  private static final ReportTemplateCache instance = new ReportTemplateCache();
+
+  private volatile ResourceManager resourceManager;
+
+  private volatile boolean regionChecked;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong savedNanos = new AtomicLong();
+
+  public static ReportTemplateCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * The resource manager used to parse all definitions, with the default loaders, factories and caches registered.
+   */
+  public ResourceManager getResourceManager() {
+    if ( resourceManager == null ) {
+      synchronized ( this ) {
+        if ( resourceManager == null ) {
+          ResourceManager manager = new ResourceManager();
+          manager.registerDefaults();
+          resourceManager = manager;
+        }
+      }
+    }
+    return resourceManager;
+  }
+
+  /**
+   * Returns a private copy of the report definition at <code>address</code> in the solution repository, parsing it
+   * only if there is no current template for it. Helper objects other than the {@link #STATIC_PARAMETERS} are ignored.
+   */
+  public MasterReport getReport( final String address, final Map<FactoryParameterKey, Object> parameters )
+    throws Exception {
+    Map<FactoryParameterKey, Object> helperObjects = getStaticParameters( parameters );
+    String key = getKey( address, helperObjects );
+    ICacheManager cacheManager = key == null ? null : getCacheManager();
+    if ( cacheManager != null ) {
+      Object cached = cacheManager.getFromRegionCache( CACHE_REGION, key );
+      if ( cached instanceof Template ) {
+        Template template = (Template) cached;
+        hits.incrementAndGet();
+        savedNanos.addAndGet( template.parseNanos );
+        return (MasterReport) template.report.clone();
+      }
+    }
+    long start = System.nanoTime();
+    MasterReport report = parse( address, helperObjects );
+    if ( cacheManager == null || report == null ) {
+      return report;
+    }
+    misses.incrementAndGet();
+    cacheManager.putInRegionCache( CACHE_REGION, key, new Template( report, System.nanoTime() - start ) );
+    // the template is never handed out, it could be changed by the report run
+    return (MasterReport) report.clone();
+  }
+
+  protected MasterReport parse( final String address, final Map<FactoryParameterKey, Object> helperObjects )
+    throws Exception {
+    // define the resource url so that PentahoResourceLoader recognizes the path.
+    String resourceUrl =
+        PentahoResourceLoader.SOLUTION_SCHEMA_NAME + PentahoResourceLoader.SCHEMA_SEPARATOR + address;
+    ResourceManager manager = getResourceManager();
+    ResourceKey contextKey = manager.createKey( resourceUrl, helperObjects );
+    ResourceKey key = manager.createKey( resourceUrl, helperObjects );
+    return ReportGenerator.getInstance().parseReport( manager, key, contextKey );
+  }
+
+  static Map<FactoryParameterKey, Object> getStaticParameters( final Map<FactoryParameterKey, Object> parameters ) {
+    Map<FactoryParameterKey, Object> helperObjects = new HashMap<FactoryParameterKey, Object>();
+    for ( Map.Entry<FactoryParameterKey, Object> entry : parameters.entrySet() ) {
+      if ( STATIC_PARAMETERS.contains( entry.getKey().getName() ) ) {
+        helperObjects.put( entry.getKey(), entry.getValue() );
+      }
+    }
+    return helperObjects;
+  }
+
+  /**
+   * Identifies a template, or returns null when the file has no version to tell a change by.
+   */
+  String getKey( final String address, final Map<FactoryParameterKey, Object> helperObjects ) {
+    String version = getVersion( address );
+    if ( version == null ) {
+      return null;
+    }
+    Map<String, Object> parameters = new TreeMap<String, Object>();
+    for ( Map.Entry<FactoryParameterKey, Object> entry : helperObjects.entrySet() ) {
+      parameters.put( entry.getKey().getName(), entry.getValue() );
+    }
+    return address + "\n" + version + "\n" + LocaleHelper.getLocale() + "\n" + parameters; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+  }
+
+  /**
+   * The id and version of the repository file, or the last modified time of a file in the system folder. Reading the
+   * file also checks that the current user may read it.
+   */
+  protected String getVersion( final String address ) {
+    if ( address == null || address.contains( "://" ) ) { //$NON-NLS-1$
+      return null;
+    }
+    try {
+      if ( address.startsWith( "system" ) ) { //$NON-NLS-1$
+        long lastModified = ActionSequenceResource.getLastModifiedDate( address, null );
+        return lastModified > 0 ? String.valueOf( lastModified ) : null;
+      }
+      IUnifiedRepository repository = PentahoSystem.get( IUnifiedRepository.class, null );
+      RepositoryFile file = repository == null ? null : repository.getFile( address );
+      if ( file == null || file.getLastModifiedDate() == null ) {
+        return null;
+      }
+      return file.getId() + ":" + file.getVersionId() + ":" + file.getLastModifiedDate().getTime(); //$NON-NLS-1$ //$NON-NLS-2$
+    } catch ( Exception e ) {
+      logger.debug( e.getMessage(), e );
+      return null;
+    }
+  }
+
+  /**
+   * The cache manager, once the region exists; null if it can't be created.
+   */
+  protected ICacheManager getCacheManager() {
+    ICacheManager cacheManager = PentahoSystem.getCacheManager( null );
+    if ( cacheManager == null ) {
+      return null;
+    }
+    if ( !regionChecked ) {
+      synchronized ( this ) {
+        if ( !regionChecked && !cacheManager.cacheEnabled( CACHE_REGION ) ) {
+          cacheManager.addCacheRegion( CACHE_REGION );
+        }
+        regionChecked = true;
+      }
+    }
+    return cacheManager.cacheEnabled( CACHE_REGION ) ? cacheManager : null;
+  }
+
+  /**
+   * Drops every template.
+   */
+  public void clear() {
+    ICacheManager cacheManager = getCacheManager();
+    if ( cacheManager != null ) {
+      cacheManager.clearRegionCache( CACHE_REGION );
+    }
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Time that parsing the cached templates took when they were parsed, summed over all hits.
+   */
+  public long getParseTimeSavedMillis() {
+    return savedNanos.get() / 1000000;
+  }
+
+  @Override
+  public String toString() {
+    return "ReportTemplateCache{hitCount=" + getHitCount() + ", missCount=" + getMissCount() //$NON-NLS-1$ //$NON-NLS-2$
+      + ", parseTimeSavedMillis=" + getParseTimeSavedMillis() + "}"; //$NON-NLS-1$ //$NON-NLS-2$
+  }
+
+  private static class Template {
+
+    private final MasterReport report;
+
+    private final long parseNanos;
+
+    Template( final MasterReport report, final long parseNanos ) {
+      this.report = report;
+      this.parseNanos = parseNanos;
+    }
+  }
+}
@@ -40,7 +40,9 @@ import org.pentaho.di.repository.RepositoriesMeta;
 import org.pentaho.di.repository.Repository;
 import org.pentaho.di.repository.RepositoryDirectoryInterface;
 import org.pentaho.di.repository.RepositoryMeta;
+import org.pentaho.di.repository.RepositoryObjectType;
 import org.pentaho.di.trans.Trans;
+import org.pentaho.di.trans.TransAdapter;
 import org.pentaho.di.trans.TransMeta;
 import org.pentaho.di.trans.step.RowListener;
 import org.pentaho.di.trans.step.StepMetaDataCombi;
@@ -49,15 +51,18 @@ import org.pentaho.platform.api.engine.ILogger;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.engine.services.solution.ComponentBase;
 import org.pentaho.platform.plugin.action.messages.Messages;
+import org.pentaho.platform.plugin.services.connections.sql.SpillableResultSet;
 import org.pentaho.platform.util.xml.w3c.XmlW3CHelper;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 /**
  * KettleComponent shows a list of available transformations in the root of the choosen repository.
@@ -87,6 +92,10 @@ import java.util.Map;
  * 
  * KETTLELOGLEVEL Sets the logging level to be used in the EXECUTION_LOG_OUTPUT Valid settings: basic detail error debug
  * minimal rowlevel
+ * 
+ * STREAMROWS - (stream-rows) [Requires MONITORSTEP to be defined] [TRANS] When true, TRANSFORM_SUCCESS_OUTPUT is a
+ * forward only result set that is read while the transformation runs, instead of holding all rows. Error rows and the
+ * counts are not available in this mode.
  */
 public class KettleComponent extends ComponentBase implements RowListener {
 
@@ -109,6 +118,12 @@ public class KettleComponent extends ComponentBase implements RowListener {
 
   private static final String KETTLELOGLEVEL = "kettle-logging-level"; //$NON-NLS-1$
 
+  private static final String STREAMROWS = "stream-rows"; //$NON-NLS-1$
+
+  private static final long DEFAULT_STREAM_QUEUE_SIZE = 1000;
+
+  private static final long DEFAULT_STREAM_TIMEOUT_SECONDS = 600;
+
   private static final String EXECUTION_STATUS_OUTPUT = "kettle-execution-status"; //$NON-NLS-1$
 
   private static final String EXECUTION_LOG_OUTPUT = "kettle-execution-log"; //$NON-NLS-1$
@@ -146,9 +161,13 @@ public class KettleComponent extends ComponentBase implements RowListener {
    */
   private String username;
 
-  private MemoryResultSet results;
+  private SpillableResultSet results;
+
+  private SpillableResultSet errorResults;
+
+  private StreamingResultSet streamedResults;
 
-  private MemoryResultSet errorResults;
+  private String streamedStepName;
 
   private String executionStatus;
 
@@ -321,6 +340,8 @@ public class KettleComponent extends ComponentBase implements RowListener {
       debug( Messages.getInstance().getString( "Kettle.DEBUG_START" ) ); //$NON-NLS-1$
     }
 
+    disposeResults();
+
     TransMeta transMeta = null;
     JobMeta jobMeta = null;
 
@@ -471,7 +492,12 @@ public class KettleComponent extends ComponentBase implements RowListener {
         try {
           if ( fileAddress != null ) { // We have an actual loadable
             // filesystem and file
-            transMeta = new TransMeta( fileAddress, repository, true );
+            final String transFile = fileAddress;
+            final Repository transRepository = repository;
+            File file = new File( fileAddress );
+            transMeta =
+                loadTransMeta( KettleMetaCache.getFileIdentity( file, repository ), KettleMetaCache
+                    .getFileVersion( file ), repository, () -> new TransMeta( transFile, transRepository, true ) );
             transMeta.setFilename( fileAddress );
           } else if ( repository != null && repository.isConnected() ) {
 
@@ -482,9 +508,15 @@ public class KettleComponent extends ComponentBase implements RowListener {
             String jobXmlStr = getResourceAsString( getResource( KettleComponent.TRANSFORMFILE ) );
             jobXmlStr = jobXmlStr.replaceAll( "\\$\\{pentaho.solutionpath\\}", solutionPath ); //$NON-NLS-1$
             jobXmlStr = jobXmlStr.replaceAll( "\\%\\%pentaho.solutionpath\\%\\%", solutionPath ); //$NON-NLS-1$
-            org.w3c.dom.Document doc = XmlW3CHelper.getDomFromString( jobXmlStr );
-            // create a tranformation from the document
-            transMeta = new TransMeta( doc.getFirstChild(), repository );
+            final String transXml = jobXmlStr;
+            final Repository transRepository = repository;
+            transMeta =
+                loadTransMeta( KettleMetaCache.getResourceIdentity( transformResource.getAddress(), repository ),
+                    KettleMetaCache.getContentVersion( transXml ), repository, () -> {
+                      org.w3c.dom.Document doc = XmlW3CHelper.getDomFromString( transXml );
+                      // create a tranformation from the document
+                      return new TransMeta( doc.getFirstChild(), transRepository );
+                    } );
           }
         } catch ( Exception e ) {
           error( Messages.getInstance().getErrorString(
@@ -549,7 +581,11 @@ public class KettleComponent extends ComponentBase implements RowListener {
               // if we get a valid repository its great, if not try it
               // without
 
-              jobMeta = new JobMeta( solutionPath + fileAddress, repository );
+              final String jobFile = solutionPath + fileAddress;
+              final Repository jobRepository = repository;
+              jobMeta =
+                  loadJobMeta( KettleMetaCache.getResourceIdentity( jobFile, repository ), KettleMetaCache
+                      .getContentVersion( jobXmlStr ), repository, () -> new JobMeta( jobFile, jobRepository ) );
             } catch ( Exception e ) {
               error( Messages.getInstance().getString( "Kettle.ERROR_0023_NO_META" ), e ); //$NON-NLS-1$
             } finally {
@@ -593,7 +629,7 @@ public class KettleComponent extends ComponentBase implements RowListener {
       // transformation or job
 
       if ( transMeta != null ) {
-        result = executeTransformation( transMeta );
+        result = executeTransformation( transMeta, repository );
       }
       if ( jobMeta != null ) {
         result = executeJob( jobMeta, repository );
@@ -601,7 +637,8 @@ public class KettleComponent extends ComponentBase implements RowListener {
 
     } finally {
 
-      if ( repository != null ) {
+      // a streaming transformation is still running and disconnects when it finishes
+      if ( repository != null && streamedResults == null ) {
         if ( ComponentBase.debug ) {
           debug( Messages.getInstance().getString( "Kettle.DEBUG_DISCONNECTING" ) ); //$NON-NLS-1$
         }
@@ -613,11 +650,13 @@ public class KettleComponent extends ComponentBase implements RowListener {
       }
 
       if ( transMeta != null ) {
-        try {
-          cleanLogChannel( transMeta );
-          transMeta.clear();
-        } catch ( Exception ignored ) {
-          //ignore
+        if ( streamedResults == null ) {
+          try {
+            cleanLogChannel( transMeta );
+            transMeta.clear();
+          } catch ( Exception ignored ) {
+            //ignore
+          }
         }
         transMeta = null;
       }
@@ -646,6 +685,24 @@ public class KettleComponent extends ComponentBase implements RowListener {
 
   }
 
+  /**
+   * Releases the rows captured by the previous run, which may have been moved to a temp file.
+   */
+  private void disposeResults() {
+    if ( results != null ) {
+      results.dispose();
+      results = null;
+    }
+    if ( errorResults != null ) {
+      errorResults.dispose();
+      errorResults = null;
+    }
+    if ( streamedResults != null ) {
+      streamedResults.dispose();
+      streamedResults = null;
+    }
+  }
+
   private void cleanLogChannel( LoggingObjectInterface loi ) {
     try {
       cleanLogChannelFromMap( loi );
@@ -696,7 +753,7 @@ public class KettleComponent extends ComponentBase implements RowListener {
     return true;
   }
 
-  private boolean executeTransformation( final TransMeta transMeta ) {
+  private boolean executeTransformation( final TransMeta transMeta, final Repository repository ) {
     boolean success = true;
     Trans trans = null;
 
@@ -753,14 +810,57 @@ public class KettleComponent extends ComponentBase implements RowListener {
             "Kettle.ERROR_0012_ROW_LISTENER_CREATE_FAILED" ), e ); //$NON-NLS-1$
       }
 
+      if ( streamedResults != null ) {
+        final StreamingResultSet stream = streamedResults;
+        final String streamedStepName = stepName;
+        trans.addTransListener( new TransAdapter() {
+          @Override
+          public void transFinished( final Trans finished ) {
+            // executeAction has returned by now and left the cleanup, and the repository, to this listener
+            if ( !stream.isClosed() && ( finished.getErrors() > 0 || finished.isStopped() ) ) {
+              String message = Messages.getInstance().getErrorString(
+                  "Kettle.ERROR_0035_STREAMED_TRANSFORMATION_FAILED", streamedStepName ); //$NON-NLS-1$
+              error( message );
+              stream.fail( message );
+            } else {
+              stream.finish();
+            }
+            cleanLogChannel( finished );
+            finished.cleanup();
+            cleanLogChannel( finished.getTransMeta() );
+            finished.getTransMeta().clear();
+            if ( repository != null ) {
+              try {
+                repository.disconnect();
+              } catch ( Exception ignored ) {
+                //ignore
+              }
+            }
+          }
+        } );
+      }
+
       try {
         debug( Messages.getInstance().getString( "Kettle.DEBUG_STARTING_TRANSFORMATION" ) ); //$NON-NLS-1$
         trans.startThreads();
       } catch ( Exception e ) {
+        // nothing is streamed, so executeAction cleans up as usual
+        streamedResults = null;
         throw new KettleComponentException( Messages.getInstance().getErrorString(
             "Kettle.ERROR_0013_TRANSFORMATION_START_FAILED" ), e ); //$NON-NLS-1$
       }
 
+      if ( streamedResults != null ) {
+        // the rows are read by the components that follow, while the transformation runs
+        setOutputValue( outputName, streamedResults );
+        if ( isDefinedOutput( TRANSFORM_ERROR_OUTPUT ) || isDefinedOutput( TRANSFORM_SUCCESS_COUNT_OUTPUT )
+            || isDefinedOutput( TRANSFORM_ERROR_COUNT_OUTPUT ) ) {
+          warn( Messages.getInstance().getString( "Kettle.WARN_STREAMED_ROWS_NOT_COUNTED" ) ); //$NON-NLS-1$
+        }
+        prepareKettleOutput( trans );
+        return success;
+      }
+
       try {
         // It's running in a separate thread to allow monitoring,
         // etc.
@@ -769,6 +869,10 @@ public class KettleComponent extends ComponentBase implements RowListener {
         trans.waitUntilFinished();
         cleanLogChannel( trans );
         trans.cleanup();
+        if ( results != null ) {
+          results.finish();
+          errorResults.finish();
+        }
       } catch ( Exception e ) {
         throw new KettleComponentException( Messages.getInstance().getErrorString(
             "Kettle.ERROR_0014_ERROR_DURING_EXECUTE" ), e ); //$NON-NLS-1$
@@ -789,12 +893,15 @@ public class KettleComponent extends ComponentBase implements RowListener {
 
       // Build error row output
       if ( errorResults != null ) {
-        if ( isDefinedOutput( TRANSFORM_ERROR_OUTPUT ) ) {
-          setOutputValue( TRANSFORM_ERROR_OUTPUT, errorResults );
-        }
         if ( isDefinedOutput( TRANSFORM_ERROR_COUNT_OUTPUT ) ) {
           setOutputValue( TRANSFORM_ERROR_COUNT_OUTPUT, errorResults.getRowCount() );
         }
+        if ( isDefinedOutput( TRANSFORM_ERROR_OUTPUT ) ) {
+          setOutputValue( TRANSFORM_ERROR_OUTPUT, errorResults );
+        } else {
+          errorResults.dispose();
+          errorResults = null;
+        }
       }
     } catch ( KettleComponentException e ) {
       success = false;
@@ -835,8 +942,21 @@ public class KettleComponent extends ComponentBase implements RowListener {
             }
 
             MemoryMetaData metaData = new MemoryMetaData( columns, null );
-            results = new MemoryResultSet( metaData );
-            errorResults = new MemoryResultSet( metaData );
+            if ( isStreamingRows() ) {
+              streamedStepName = stepName;
+              int queueSize = (int) getKettleSetting( "row-stream.queue-size", DEFAULT_STREAM_QUEUE_SIZE ); //$NON-NLS-1$
+              long timeoutSeconds =
+                  getKettleSetting( "row-stream.timeout-seconds", DEFAULT_STREAM_TIMEOUT_SECONDS ); //$NON-NLS-1$
+              streamedResults =
+                  new StreamingResultSet( metaData, fieldNames.length, queueSize, timeoutSeconds * 1000,
+                      trans::stopAll );
+            } else {
+              // rows past the budget go to a temp file rather than the heap
+              long memoryBudget =
+                  getKettleSetting( "row-capture.memory-budget", SpillableResultSet.DEFAULT_MEMORY_BUDGET ); //$NON-NLS-1$
+              results = new SpillableResultSet( metaData, fieldNames.length, memoryBudget );
+              errorResults = new SpillableResultSet( metaData, fieldNames.length, memoryBudget );
+            }
 
             // add ourself as a row listener
             step.step.addRowListener( this );
@@ -865,6 +985,23 @@ public class KettleComponent extends ComponentBase implements RowListener {
     return result;
   }
 
+  private boolean isStreamingRows() {
+    return isDefinedInput( KettleComponent.STREAMROWS )
+        && Boolean.parseBoolean( getInputStringValue( KettleComponent.STREAMROWS ) );
+  }
+
+  private long getKettleSetting( final String name, final long defaultValue ) {
+    String value = PentahoSystem.getSystemSetting( "kettle/settings.xml", name, null ); //$NON-NLS-1$
+    if ( value != null && value.trim().length() > 0 ) {
+      try {
+        return Long.parseLong( value.trim() );
+      } catch ( NumberFormatException e ) {
+        warn( Messages.getInstance().getString( "Kettle.WARN_INVALID_SETTING", name, value ) ); //$NON-NLS-1$
+      }
+    }
+    return defaultValue;
+  }
+
   private LogLevel getLogLevel() {
     if ( isDefinedInput( KettleComponent.KETTLELOGLEVEL ) ) {
       String logLevelStr = getInputStringValue( KettleComponent.KETTLELOGLEVEL );
@@ -1064,7 +1201,11 @@ public class KettleComponent extends ComponentBase implements RowListener {
         // Load the transformation from the repository
         RepositoryDirectoryInterface repositoryDirectory =
             repository.loadRepositoryDirectoryTree().findDirectory( directoryName );
-        transMeta = repository.loadTransformation( transformationName, repositoryDirectory, null, true, null );
+        transMeta =
+            loadTransMeta( KettleMetaCache.getRepositoryIdentity( repository, directoryName, transformationName,
+                RepositoryObjectType.TRANSFORMATION ), KettleMetaCache.getRepositoryVersion( repository,
+                repositoryDirectory, transformationName, RepositoryObjectType.TRANSFORMATION ), repository,
+                () -> repository.loadTransformation( transformationName, repositoryDirectory, null, true, null ) );
       } catch ( Exception e ) {
         error( Messages.getInstance().getErrorString(
             "Kettle.ERROR_0009_TRANSFROMATION_METADATA_NOT_FOUND", directoryName + "/" + transformationName ), e ); //$NON-NLS-1$ //$NON-NLS-2$
@@ -1108,7 +1249,11 @@ public class KettleComponent extends ComponentBase implements RowListener {
         // Load the job from the repository
         RepositoryDirectoryInterface repositoryDirectory =
             repository.loadRepositoryDirectoryTree().findDirectory( directoryName );
-        jobMeta = repository.loadJob( jobName, repositoryDirectory, null, null );
+        jobMeta =
+            loadJobMeta( KettleMetaCache.getRepositoryIdentity( repository, directoryName, jobName,
+                RepositoryObjectType.JOB ), KettleMetaCache.getRepositoryVersion( repository, repositoryDirectory,
+                jobName, RepositoryObjectType.JOB ), repository,
+                () -> repository.loadJob( jobName, repositoryDirectory, null, null ) );
       } catch ( Exception e ) {
         error( Messages.getInstance().getErrorString(
             "Kettle.ERROR_0020_JOB_METADATA_NOT_FOUND", directoryName + "/" + jobName ), e ); //$NON-NLS-1$ //$NON-NLS-2$
@@ -1129,6 +1274,41 @@ public class KettleComponent extends ComponentBase implements RowListener {
     return null;
   }
 
+  /**
+   * Loads a transformation through the {@link KettleMetaCache}, unless it is turned off or there is no version to
+   * tell a changed file by. The meta returned is this run's own.
+   */
+  private TransMeta loadTransMeta( final String identity, final String version, final Repository repository,
+                                   final Callable<TransMeta> loader ) throws Exception {
+    KettleMetaCache metaCache = KettleMetaCache.getInstance();
+    if ( metaCache == null || version == null ) {
+      return loader.call();
+    }
+    TransMeta meta = metaCache.getTransMeta( identity, version, loader );
+    if ( meta != null ) {
+      // the cached meta may have been read over a connection that is closed by now
+      meta.setRepository( repository );
+    }
+    return meta;
+  }
+
+  /**
+   * Loads a job through the {@link KettleMetaCache}, unless it is turned off or there is no version to tell a changed
+   * file by. The meta returned is this run's own.
+   */
+  private JobMeta loadJobMeta( final String identity, final String version, final Repository repository,
+                               final Callable<JobMeta> loader ) throws Exception {
+    KettleMetaCache metaCache = KettleMetaCache.getInstance();
+    if ( metaCache == null || version == null ) {
+      return loader.call();
+    }
+    JobMeta meta = metaCache.getJobMeta( identity, version, loader );
+    if ( meta != null ) {
+      meta.setRepository( repository );
+    }
+    return meta;
+  }
+
   private Repository connectToRepository() {
     boolean useRepository =
         PentahoSystem.getSystemSetting( "kettle/settings.xml", "repository.type", "files" ).equals( "rdbms" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
@@ -1235,53 +1415,89 @@ public class KettleComponent extends ComponentBase implements RowListener {
   }
 
   public void rowWrittenEvent( final RowMetaInterface rowMeta, final Object[] row ) throws KettleStepException {
-    processRow( results, rowMeta, row );
+    if ( streamedResults != null ) {
+      streamRow( rowMeta, row );
+    } else {
+      captureRow( results, rowMeta, row );
+    }
   }
 
   public void errorRowWrittenEvent( final RowMetaInterface rowMeta, final Object[] row ) throws KettleStepException {
-    processRow( errorResults, rowMeta, row );
+    captureRow( errorResults, rowMeta, row );
   }
 
-  public void processRow( MemoryResultSet memResults, final RowMetaInterface rowMeta, final Object[] row )
+  private void captureRow( final SpillableResultSet target, final RowMetaInterface rowMeta, final Object[] row )
     throws KettleStepException {
-    if ( memResults == null ) {
+    if ( target == null ) {
       return;
     }
     try {
-      Object[] pentahoRow = new Object[memResults.getColumnCount()];
-      for ( int columnNo = 0; columnNo < memResults.getColumnCount(); columnNo++ ) {
-        ValueMetaInterface valueMeta = rowMeta.getValueMeta( columnNo );
+      target.addRow( toPentahoRow( rowMeta, row, target.getColumnCount() ) );
+    } catch ( KettleValueException | IOException e ) {
+      throw new KettleStepException( e );
+    }
+  }
 
-        switch ( valueMeta.getType() ) {
-          case ValueMetaInterface.TYPE_BIGNUMBER:
-            pentahoRow[columnNo] = rowMeta.getBigNumber( row, columnNo );
-            break;
-          case ValueMetaInterface.TYPE_BOOLEAN:
-            pentahoRow[columnNo] = rowMeta.getBoolean( row, columnNo );
-            break;
-          case ValueMetaInterface.TYPE_DATE:
-            pentahoRow[columnNo] = rowMeta.getDate( row, columnNo );
-            break;
-          case ValueMetaInterface.TYPE_INTEGER:
-            pentahoRow[columnNo] = rowMeta.getInteger( row, columnNo );
-            break;
-          case ValueMetaInterface.TYPE_NONE:
-            pentahoRow[columnNo] = rowMeta.getString( row, columnNo );
-            break;
-          case ValueMetaInterface.TYPE_NUMBER:
-            pentahoRow[columnNo] = rowMeta.getNumber( row, columnNo );
-            break;
-          case ValueMetaInterface.TYPE_STRING:
-            pentahoRow[columnNo] = rowMeta.getString( row, columnNo );
-            break;
-          default:
-            pentahoRow[columnNo] = rowMeta.getString( row, columnNo );
-        }
+  private void streamRow( final RowMetaInterface rowMeta, final Object[] row ) throws KettleStepException {
+    try {
+      // waits while the consumer is behind
+      if ( !streamedResults.addRow( toPentahoRow( rowMeta, row, streamedResults.getColumnCount() ) ) ) {
+        throw new KettleStepException( Messages.getInstance().getErrorString(
+            "Kettle.ERROR_0034_ROW_STREAM_ABANDONED", streamedStepName ) ); //$NON-NLS-1$
       }
-      memResults.addRow( pentahoRow );
     } catch ( KettleValueException e ) {
       throw new KettleStepException( e );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new KettleStepException( e );
+    }
+  }
+
+  public void processRow( MemoryResultSet memResults, final RowMetaInterface rowMeta, final Object[] row )
+    throws KettleStepException {
+    if ( memResults == null ) {
+      return;
+    }
+    try {
+      memResults.addRow( toPentahoRow( rowMeta, row, memResults.getColumnCount() ) );
+    } catch ( KettleValueException e ) {
+      throw new KettleStepException( e );
+    }
+  }
+
+  private Object[] toPentahoRow( final RowMetaInterface rowMeta, final Object[] row, final int columnCount )
+    throws KettleValueException {
+    Object[] pentahoRow = new Object[columnCount];
+    for ( int columnNo = 0; columnNo < columnCount; columnNo++ ) {
+      ValueMetaInterface valueMeta = rowMeta.getValueMeta( columnNo );
+
+      switch ( valueMeta.getType() ) {
+        case ValueMetaInterface.TYPE_BIGNUMBER:
+          pentahoRow[columnNo] = rowMeta.getBigNumber( row, columnNo );
+          break;
+        case ValueMetaInterface.TYPE_BOOLEAN:
+          pentahoRow[columnNo] = rowMeta.getBoolean( row, columnNo );
+          break;
+        case ValueMetaInterface.TYPE_DATE:
+          pentahoRow[columnNo] = rowMeta.getDate( row, columnNo );
+          break;
+        case ValueMetaInterface.TYPE_INTEGER:
+          pentahoRow[columnNo] = rowMeta.getInteger( row, columnNo );
+          break;
+        case ValueMetaInterface.TYPE_NONE:
+          pentahoRow[columnNo] = rowMeta.getString( row, columnNo );
+          break;
+        case ValueMetaInterface.TYPE_NUMBER:
+          pentahoRow[columnNo] = rowMeta.getNumber( row, columnNo );
+          break;
+        case ValueMetaInterface.TYPE_STRING:
+          pentahoRow[columnNo] = rowMeta.getString( row, columnNo );
+          break;
+        default:
+          pentahoRow[columnNo] = rowMeta.getString( row, columnNo );
+      }
     }
+    return pentahoRow;
   }
 
 }
@@ -0,0 +1,382 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.kettle;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.RemovalCause;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.di.job.JobMeta;
+import org.pentaho.di.repository.ObjectId;
+import org.pentaho.di.repository.Repository;
+import org.pentaho.di.repository.RepositoryDirectoryInterface;
+import org.pentaho.di.repository.RepositoryObject;
+import org.pentaho.di.repository.RepositoryObjectType;
+import org.pentaho.di.trans.TransMeta;
+import org.pentaho.platform.api.cache.ICacheExpirationRegistry;
+import org.pentaho.platform.api.cache.ILastModifiedCacheItem;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.plugin.action.messages.Messages;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps parsed transformations and jobs so that an action sequence which runs the same .ktr or .kjb again does not
+ * parse it again. A meta is cached under the identity of its file (path, repository object or solution resource) and
+ * a version (last modified time and length, repository modified date, or a digest of the content); a new version
+ * replaces the cached one. The cached metas are never handed out, every caller gets a clone it may change and clear.
+ * <p/>
+ * The number of metas kept is <code>meta-cache.size</code> in kettle/settings.xml; 0 turns the cache off. It is
+ * registered with the {@link ICacheExpirationRegistry} so clients can tell when it was last flushed. The setting is
+ * read again by {@link #getInstance()}; when it changes, the cache is rebuilt and the old one emptied.
+ */
+public class KettleMetaCache implements ILastModifiedCacheItem {
+
+  public static final String CACHE_KEY = "kettle-meta-cache"; //$NON-NLS-1$
+
+  public static final String SETTINGS_FILE = "kettle/settings.xml"; //$NON-NLS-1$
+
+  public static final String SIZE_SETTING = "meta-cache.size"; //$NON-NLS-1$
+
+  public static final long DEFAULT_SIZE = 100;
+
+  private static final char SEPARATOR = '\n';
+
+  private static final Log logger = LogFactory.getLog( KettleMetaCache.class );
+
+  private static volatile KettleMetaCache instance;
+
+  private static volatile String[] instanceSettings;
+
+  private final Cache<String, Entry> cache;
+
+  private final ConcurrentMap<String, String> versions = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong loadNanos = new AtomicLong();
+
+  private final AtomicLong savedNanos = new AtomicLong();
+
+  private volatile long lastModified = System.currentTimeMillis();
+
+  public KettleMetaCache( final long size ) {
+    cache = CacheBuilder.newBuilder()
+      .maximumSize( size )
+      .<String, Entry>removalListener( notification -> {
+        if ( notification.getCause() != RemovalCause.REPLACED ) {
+          String key = notification.getKey();
+          // identities may contain the separator, versions never do
+          int separator = key.lastIndexOf( SEPARATOR );
+          versions.remove( key.substring( 0, separator ), key.substring( separator + 1 ) );
+        }
+      } )
+      .build();
+  }
+
+  /**
+   * Returns the shared cache, or null when it is turned off in kettle/settings.xml.
+   */
+  public static KettleMetaCache getInstance() {
+    String[] settings = { PentahoSystem.getSystemSetting( SETTINGS_FILE, SIZE_SETTING, null ) };
+    if ( !Arrays.equals( settings, instanceSettings ) ) {
+      synchronized ( KettleMetaCache.class ) {
+        if ( !Arrays.equals( settings, instanceSettings ) ) {
+          KettleMetaCache previous = instance;
+          instance = createFromSettings( settings );
+          instanceSettings = settings;
+          if ( previous != null ) {
+            ICacheExpirationRegistry registry = PentahoSystem.get( ICacheExpirationRegistry.class, null );
+            if ( registry != null ) {
+              registry.unRegister( previous );
+            }
+            previous.clear();
+          }
+        }
+      }
+    }
+    return instance;
+  }
+
+  private static KettleMetaCache createFromSettings( final String[] settings ) {
+    long size = DEFAULT_SIZE;
+    String value = settings[ 0 ];
+    if ( value != null && value.trim().length() > 0 ) {
+      try {
+        size = Long.parseLong( value.trim() );
+      } catch ( NumberFormatException e ) {
+        logger.warn( Messages.getInstance().getString( "Kettle.WARN_INVALID_SETTING", SIZE_SETTING, value ) ); //$NON-NLS-1$
+      }
+    }
+    if ( size <= 0 ) {
+      return null;
+    }
+    KettleMetaCache metaCache = new KettleMetaCache( size );
+    ICacheExpirationRegistry registry = PentahoSystem.get( ICacheExpirationRegistry.class, null );
+    if ( registry != null ) {
+      registry.register( metaCache );
+    }
+    return metaCache;
+  }
+
+  /**
+   * Returns a clone of the transformation cached for <code>identity</code> at <code>version</code>, loading it with
+   * <code>loader</code> if there is none. Returns null if the loader does.
+   */
+  public TransMeta getTransMeta( final String identity, final String version, final Callable<TransMeta> loader )
+    throws Exception {
+    return get( identity, version, loader, meta -> (TransMeta) meta.clone() );
+  }
+
+  /**
+   * Returns a clone of the job cached for <code>identity</code> at <code>version</code>, loading it with
+   * <code>loader</code> if there is none. Returns null if the loader does.
+   */
+  public JobMeta getJobMeta( final String identity, final String version, final Callable<JobMeta> loader )
+    throws Exception {
+    return get( identity, version, loader, meta -> (JobMeta) meta.clone() );
+  }
+
+  @SuppressWarnings( "unchecked" )
+  <T> T get( final String identity, final String version, final Callable<T> loader, final UnaryOperator<T> cloner )
+    throws Exception {
+    final boolean[] loaded = new boolean[ 1 ];
+    Entry entry;
+    try {
+      entry = cache.get( identity + SEPARATOR + version, () -> {
+        loaded[ 0 ] = true;
+        long start = System.nanoTime();
+        T meta = loader.call();
+        return meta == null ? null : new Entry( meta, System.nanoTime() - start );
+      } );
+    } catch ( CacheLoader.InvalidCacheLoadException e ) {
+      // the loader found nothing
+      return null;
+    } catch ( ExecutionException | UncheckedExecutionException | ExecutionError e ) {
+      Throwable cause = e.getCause();
+      if ( cause instanceof Exception ) {
+        throw (Exception) cause;
+      }
+      if ( cause instanceof Error ) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+    if ( loaded[ 0 ] ) {
+      misses.incrementAndGet();
+      loadNanos.addAndGet( entry.loadNanos );
+      String previous = versions.put( identity, version );
+      if ( previous != null && !previous.equals( version ) ) {
+        cache.invalidate( identity + SEPARATOR + previous );
+      }
+    } else {
+      hits.incrementAndGet();
+      savedNanos.addAndGet( entry.loadNanos );
+    }
+    return cloner.apply( (T) entry.meta );
+  }
+
+  /**
+   * Drops every cached meta.
+   */
+  public void clear() {
+    cache.invalidateAll();
+    lastModified = System.currentTimeMillis();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * The number of identities whose current version is known, for tests.
+   */
+  int versionCount() {
+    return versions.size();
+  }
+
+  /**
+   * Hits, misses and parse time spent and saved since the cache was created.
+   */
+  public Statistics getStatistics() {
+    return new Statistics( hits.get(), misses.get(), loadNanos.get(), savedNanos.get(), cache.size() );
+  }
+
+  @Override
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public String getCacheKey() {
+    return CACHE_KEY;
+  }
+
+  /**
+   * The identity of a file on disk, as read with the given repository.
+   */
+  public static String getFileIdentity( final File file, final Repository repository ) throws IOException {
+    return "file:" + getRepositoryName( repository ) + SEPARATOR + file.getCanonicalPath(); //$NON-NLS-1$
+  }
+
+  /**
+   * The version of a file on disk: its last modified time and length.
+   */
+  public static String getFileVersion( final File file ) {
+    return file.lastModified() + ":" + file.length(); //$NON-NLS-1$
+  }
+
+  /**
+   * The identity of a transformation or job in a repository.
+   */
+  public static String getRepositoryIdentity( final Repository repository, final String directoryName,
+                                              final String name, final RepositoryObjectType type ) {
+    return "repository:" + getRepositoryName( repository ) + SEPARATOR + type + ":" + directoryName + "/" + name; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+  }
+
+  /**
+   * The version of a transformation or job in a repository: its object id and modified date. Returns null when the
+   * repository does not tell, in which case the object should not be cached.
+   */
+  public static String getRepositoryVersion( final Repository repository,
+                                             final RepositoryDirectoryInterface directory, final String name,
+                                             final RepositoryObjectType type ) {
+    try {
+      ObjectId id =
+        type == RepositoryObjectType.JOB ? repository.getJobId( name, directory ) : repository.getTransformationID(
+          name, directory );
+      if ( id == null ) {
+        return null;
+      }
+      RepositoryObject information = repository.getObjectInformation( id, type );
+      if ( information == null || information.getModifiedDate() == null ) {
+        return null;
+      }
+      return id.getId() + ":" + information.getModifiedDate().getTime(); //$NON-NLS-1$
+    } catch ( Exception e ) {
+      logger.debug( e.getMessage(), e );
+      return null;
+    }
+  }
+
+  /**
+   * The identity of a solution resource whose content was read, as read with the given repository.
+   */
+  public static String getResourceIdentity( final String address, final Repository repository ) {
+    return "resource:" + getRepositoryName( repository ) + SEPARATOR + address; //$NON-NLS-1$
+  }
+
+  /**
+   * The version of a solution resource whose content was read: a digest of the content.
+   */
+  public static String getContentVersion( final String content ) {
+    return Hashing.sha256().hashString( content, StandardCharsets.UTF_8 ).toString();
+  }
+
+  private static String getRepositoryName( final Repository repository ) {
+    // shared objects and connections may come from the repository, so metas read with another one are not the same
+    return repository == null ? "" : String.valueOf( repository.getName() ).replace( SEPARATOR, ' ' ); //$NON-NLS-1$
+  }
+
+  private static class Entry {
+
+    private final Object meta;
+
+    private final long loadNanos;
+
+    Entry( final Object meta, final long loadNanos ) {
+      this.meta = meta;
+      this.loadNanos = loadNanos;
+    }
+  }
+
+  /**
+   * A snapshot of the cache counters.
+   */
+  public static class Statistics {
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long loadNanos;
+
+    private final long savedNanos;
+
+    private final long size;
+
+    Statistics( final long hitCount, final long missCount, final long loadNanos, final long savedNanos,
+                final long size ) {
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.loadNanos = loadNanos;
+      this.savedNanos = savedNanos;
+      this.size = size;
+    }
+
+    public long getHitCount() {
+      return hitCount;
+    }
+
+    public long getMissCount() {
+      return missCount;
+    }
+
+    public double getHitRate() {
+      long requests = hitCount + missCount;
+      return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * Time spent parsing the metas that were not cached.
+     */
+    public long getTotalLoadTimeMillis() {
+      return loadNanos / 1000000;
+    }
+
+    /**
+     * Time that parsing the cached metas took when they were loaded, summed over all hits.
+     */
+    public long getParseTimeSavedMillis() {
+      return savedNanos / 1000000;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public String toString() {
+      return "KettleMetaCache{hitCount=" + hitCount + ", missCount=" + missCount + ", hitRate=" + getHitRate() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        + ", totalLoadTimeMillis=" + getTotalLoadTimeMillis() + ", parseTimeSavedMillis=" //$NON-NLS-1$ //$NON-NLS-2$
+        + getParseTimeSavedMillis() + ", size=" + size + "}"; //$NON-NLS-1$ //$NON-NLS-2$
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.kettle;
+
+import org.pentaho.commons.connection.IPentahoMetaData;
+import org.pentaho.commons.connection.IPentahoResultSet;
+import org.pentaho.platform.plugin.services.connections.sql.SpillableResultSet;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A forward only {@link IPentahoResultSet} that is read while it is being written: the transformation adds rows from
+ * its step thread, and the component that consumes the output reads them with {@link #next()}. At most a fixed
+ * number of rows are held; a transformation that gets ahead of its consumer waits until rows are read, so memory use
+ * does not depend on the number of rows.
+ * <p/>
+ * If the consumer does not read for longer than the timeout, or closes the result set, the rows are dropped and
+ * {@link #addRow(Object[])} returns false, after which the transformation should be stopped. If the writer
+ * {@link #fail(String) fails}, the reader gets an exception after the last row instead of the end of the rows.
+ */
+public class StreamingResultSet implements IPentahoResultSet {
+
+  private static final long POLL_MILLIS = 100;
+
+  private final IPentahoMetaData metaData;
+
+  private final int columnCount;
+
+  private final BlockingQueue<Object[]> queue;
+
+  private final long timeoutMillis;
+
+  private final Runnable onClose;
+
+  private volatile boolean finished;
+
+  private volatile boolean closed;
+
+  private volatile String failure;
+
+  private final List<SpillableResultSet> copies = new ArrayList<>();
+
+  /**
+   * @param capacity
+   *          the number of rows held before the writer has to wait
+   * @param timeoutMillis
+   *          how long the writer waits for the reader before giving up
+   * @param onClose
+   *          run once when the reader closes the result set, for instance to stop the transformation; may be null
+   */
+  public StreamingResultSet( final IPentahoMetaData metaData, final int columnCount, final int capacity,
+                             final long timeoutMillis, final Runnable onClose ) {
+    this.metaData = metaData;
+    this.columnCount = columnCount;
+    this.queue = new ArrayBlockingQueue<>( capacity );
+    this.timeoutMillis = timeoutMillis;
+    this.onClose = onClose;
+  }
+
+  /**
+   * Adds a row, waiting while the result set is full.
+   *
+   * @return false if the reader went away, either by closing the result set or by not reading within the timeout
+   */
+  public boolean addRow( final Object[] row ) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    while ( !closed ) {
+      if ( queue.offer( row, POLL_MILLIS, TimeUnit.MILLISECONDS ) ) {
+        return true;
+      }
+      if ( System.currentTimeMillis() > deadline ) {
+        closed = true;
+        queue.clear();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Called by the writer once all rows were added.
+   */
+  public void finish() {
+    finished = true;
+  }
+
+  /**
+   * Called by the writer when it failed, or was stopped, before all rows were added. Once the rows added so far are
+   * read, {@link #next()} throws an {@link IllegalStateException} with <code>message</code>.
+   */
+  public void fail( final String message ) {
+    failure = message;
+    finished = true;
+  }
+
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * @return whether the reader went away before all rows were read
+   */
+  public boolean isClosed() {
+    return closed;
+  }
+
+  /**
+   * Returns the next row, waiting for the writer if needed, or null when all rows have been read.
+   *
+   * @throws IllegalStateException
+   *           if the writer failed before adding all rows
+   */
+  public Object[] next() {
+    try {
+      while ( !closed ) {
+        Object[] row = queue.poll( POLL_MILLIS, TimeUnit.MILLISECONDS );
+        if ( row != null ) {
+          return row;
+        }
+        // rows are added before finish() is called, so an empty queue after it means there are no more
+        if ( finished && queue.isEmpty() ) {
+          if ( failure != null ) {
+            throw new IllegalStateException( failure );
+          }
+          return null;
+        }
+      }
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      close();
+    }
+    return null;
+  }
+
+  public IPentahoMetaData getMetaData() {
+    return metaData;
+  }
+
+  public boolean isScrollable() {
+    return false;
+  }
+
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  /**
+   * The row count is not known before all rows are read.
+   */
+  public int getRowCount() {
+    return -1;
+  }
+
+  public Object getValueAt( final int row, final int column ) {
+    return null;
+  }
+
+  public Object[] getDataColumn( final int column ) {
+    return null;
+  }
+
+  public Object[] getDataRow( final int row ) {
+    return null;
+  }
+
+  public void beforeFirst() {
+    // forward only
+  }
+
+  /**
+   * Reads the remaining rows into a scrollable copy, which spills to disk when it grows large. Copies are released by
+   * {@link #dispose()}.
+   */
+  public synchronized IPentahoResultSet memoryCopy() {
+    try {
+      SpillableResultSet copy = SpillableResultSet.copyOf( this, SpillableResultSet.DEFAULT_MEMORY_BUDGET );
+      copies.add( copy );
+      return copy;
+    } catch ( IOException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  /**
+   * Drops the rows not yet read; the writer stops waiting.
+   */
+  public void close() {
+    if ( !closed ) {
+      closed = true;
+      queue.clear();
+      if ( onClose != null && !finished ) {
+        onClose.run();
+      }
+    }
+  }
+
+  public void closeConnection() {
+    close();
+  }
+
+  /**
+   * Closes the result set and releases the rows of its {@link #memoryCopy() copies}.
+   */
+  public synchronized void dispose() {
+    close();
+    for ( SpillableResultSet copy : copies ) {
+      copy.dispose();
+    }
+    copies.clear();
+  }
+}
@@ -14,18 +14,25 @@ package org.pentaho.platform.plugin.action.mondrian.catalog;
 
 import java.io.Serializable;
 import java.time.Instant;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * represents the entire regional cache structure for caching Mondrian Catalogs.  The cache is optimized so it can be
  * built incrementally, one catalog at a time, or fully depending upon demands.  The {@Link MondrianCatalogCacheState}
  * tracks whether and and when the cache was fully loaded.
+ * <p>
+ * Catalogs are kept in a concurrent map so lookups never lock, and every change bumps a version number that callers
+ * can use to detect that the index changed.
  */
 public class MondrianCatalogCache implements Serializable {
 
   private MondrianCatalogCacheState mondrianCatalogCacheState = new MondrianCatalogCacheState();
-  private Map<String, MondrianCatalog> catalogs = new HashMap<>();
+  private Map<String, MondrianCatalog> catalogs = new ConcurrentHashMap<>();
+  private final Set<String> staleCatalogs = ConcurrentHashMap.newKeySet();
+  private final AtomicLong version = new AtomicLong();
 
   public MondrianCatalogCacheState getMondrianCatalogCacheState() {
     return mondrianCatalogCacheState;
@@ -41,19 +48,66 @@ public class MondrianCatalogCache implements Serializable {
   }
 
   public void setCatalogs( Map<String, MondrianCatalog> catalogs ) {
-    this.catalogs = catalogs;
+    this.catalogs = new ConcurrentHashMap<>( catalogs );
+    version.incrementAndGet();
   }
 
   public void putCatalog( String key, MondrianCatalog catalog ) {
-    catalogs.put( key, catalog );
+    if ( key != null && catalog != null ) {
+      catalogs.put( key, catalog );
+      staleCatalogs.remove( key );
+      version.incrementAndGet();
+    }
   }
 
   public MondrianCatalog getCatalog( String context ) {
-    return catalogs.get( context );
+    return context == null ? null : catalogs.get( context );
+  }
+
+  public boolean containsCatalog( String context ) {
+    return context != null && catalogs.containsKey( context );
+  }
+
+  /**
+   * Removes a catalog, both under its name and its definition, leaving every other catalog in place.
+   *
+   * @param catalogName name of the catalog to remove
+   * @return true if anything was removed
+   */
+  public boolean removeCatalog( String catalogName ) {
+    MondrianCatalog catalog = getCatalog( catalogName );
+    if ( catalog == null ) {
+      return false;
+    }
+    catalogs.remove( catalogName );
+    if ( catalog.getDefinition() != null ) {
+      catalogs.remove( catalog.getDefinition() );
+    }
+    version.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Flags a catalog that changed in the repository and must be reloaded, on its own, before this cache is considered
+   * fully loaded again. Putting the catalog back clears the flag.
+   *
+   * @param catalogName name of the changed catalog
+   */
+  public void markStale( String catalogName ) {
+    if ( catalogName != null ) {
+      staleCatalogs.add( catalogName );
+    }
+  }
+
+  public Set<String> getStaleCatalogs() {
+    return staleCatalogs;
+  }
+
+  public long getVersion() {
+    return version.get();
   }
 
   public void setFullLoad() {
-    mondrianCatalogCacheState.isFullyLoaded();
-    mondrianCatalogCacheState.setLastFullUpdate( Instant.now() );
+    mondrianCatalogCacheState.setFullyLoaded();
   }
 }
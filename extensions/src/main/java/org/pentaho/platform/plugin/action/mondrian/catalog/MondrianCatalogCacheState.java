@@ -23,8 +23,8 @@ public class MondrianCatalogCacheState implements Serializable {
   public static final String MONDRIAN_CATALOG_CACHE_STATE_KEY_PREFIX = "cache-state"; //$NON-NLS-1$
 
   private static final long serialVersionUID = 1L;
-  private boolean isFullyLoaded = false;
-  private Instant lastFullUpdate;
+  private volatile boolean isFullyLoaded = false;
+  private volatile Instant lastFullUpdate;
 
   public boolean isFullyLoaded() {
     return isFullyLoaded;
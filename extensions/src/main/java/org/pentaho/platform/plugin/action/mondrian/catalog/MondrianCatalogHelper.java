@@ -14,6 +14,7 @@
 package org.pentaho.platform.plugin.action.mondrian.catalog;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.Striped;
 import mondrian.i18n.LocalizingDynamicSchemaProcessor;
 import mondrian.olap.Connection;
 import mondrian.olap.MondrianDef;
@@ -102,6 +103,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Reads in file containing Mondrian data sources and catalogs. (Contains code copied from <code>XmlaServlet</code>.)
@@ -114,6 +116,11 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
 
   private static final Log logger = LogFactory.getLog( MondrianCatalogHelper.class );
 
+  /**
+   * Number of locks shared by all catalog names.
+   */
+  private static final int CATALOG_LOCK_STRIPES = 64;
+
   // ~ Instance fields =================================================================================================
 
   private String dataSourcesConfig;
@@ -137,6 +144,18 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
 
   private IAclNodeHelper aclHelper;
 
+  /**
+   * Guards full loads of the catalog cache and the creation of a locale's cache. Kept apart from the helper's own
+   * monitor so that a slow load does not block callers that only need the helper.
+   */
+  private final Object cacheLock = new Object();
+
+  /**
+   * Locks for catalog names, so loading or adding a catalog only waits for work on catalogs sharing its stripe. A
+   * fixed number of stripes keeps the locks from growing with every catalog name ever asked for.
+   */
+  private final Striped<Lock> catalogLocks = Striped.lock( CATALOG_LOCK_STRIPES );
+
   @VisibleForTesting
   MondrianCatalogRepositoryHelper catalogRepositoryHelper;
 
@@ -214,7 +233,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
     MondrianCatalogCache mondrianCatalogCache =
       (MondrianCatalogCache) PentahoSystem.getCacheManager( pentahoSession ).getFromRegionCache(
         MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString() );
-    return mondrianCatalogCache.getCatalog( context );
+    return mondrianCatalogCache == null ? null : mondrianCatalogCache.getCatalog( context );
   }
 
   /**
@@ -258,28 +277,82 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
 
   // ~ Methods =========================================================================================================
 
-  protected synchronized void init( final IPentahoSession pentahoSession ) {
-    // First check if the catalogs are initialized and fully loaded for the current locale
-    MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( pentahoSession );
-    if ( mondrianCatalogCache.getMondrianCatalogCacheState().isFullyLoaded() ) {
+  protected void init( final IPentahoSession pentahoSession ) {
+    // First check if the catalogs are initialized and fully loaded for the current locale. Readers do not lock.
+    if ( isUpToDate( getCacheForRegion( pentahoSession ) ) ) {
       return;
     }
 
-    if ( MondrianCatalogHelper.logger.isDebugEnabled() ) {
-      MondrianCatalogHelper.logger.debug( "init" ); //$NON-NLS-1$
+    synchronized ( cacheLock ) {
+      MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( pentahoSession );
+      if ( isUpToDate( mondrianCatalogCache ) ) {
+        return;
+      }
+
+      if ( mondrianCatalogCache.getMondrianCatalogCacheState().isFullyLoaded() ) {
+        // only catalogs changed since the full load need reloading
+        for ( String catalogName : new ArrayList<>( mondrianCatalogCache.getStaleCatalogs() ) ) {
+          findDatasourceWithCatalog( catalogName, mondrianCatalogCache );
+          mondrianCatalogCache.getStaleCatalogs().remove( catalogName );
+        }
+        return;
+      }
+
+      if ( MondrianCatalogHelper.logger.isDebugEnabled() ) {
+        MondrianCatalogHelper.logger.debug( "init" ); //$NON-NLS-1$
+      }
+      // By default, we will use the system to load all schemas into the cache.
+      // access to these schemas is controlled later via the hasAccess() method
+      loadCatalogsIntoCache( makeDataSources(), PentahoSessionHolder.getSession() );
     }
-    // By default, we will use the system to load all schemas into the cache.
-    // access to these schemas is controlled later via the hasAccess() method
-    loadCatalogsIntoCache( makeDataSources(), PentahoSessionHolder.getSession() );
   }
 
-  @Override
-  public synchronized void reInit( final IPentahoSession pentahoSession ) {
+  private boolean isUpToDate( MondrianCatalogCache mondrianCatalogCache ) {
+    return mondrianCatalogCache.getMondrianCatalogCacheState().isFullyLoaded()
+      && mondrianCatalogCache.getStaleCatalogs().isEmpty();
+  }
+
+  /**
+   * Drops a single catalog from the catalog cache of every locale, leaving all other catalogs in place. When the
+   * catalog still exists in the repository it is flagged so that each locale reloads just that catalog the next time
+   * it is needed, instead of rebuilding the whole cache.
+   *
+   * @param catalogName    name of the catalog that changed
+   * @param reload         true if the catalog was added or updated, false if it was removed
+   * @param pentahoSession current session
+   */
+  protected void invalidateCatalog( final String catalogName, final boolean reload,
+                                    final IPentahoSession pentahoSession ) {
     final ICacheManager cacheMgr = PentahoSystem.getCacheManager( pentahoSession );
-    if ( cacheMgr.cacheEnabled( MONDRIAN_CATALOG_CACHE_REGION ) ) {
-      cacheMgr.clearRegionCache( MONDRIAN_CATALOG_CACHE_REGION );
+    final Set<?> keys = cacheMgr.getAllKeysFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION );
+    if ( keys == null ) {
+      return;
+    }
+    for ( Object key : keys ) {
+      Object value = cacheMgr.getFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION, key );
+      if ( value instanceof MondrianCatalogCache ) {
+        MondrianCatalogCache mondrianCatalogCache = (MondrianCatalogCache) value;
+        mondrianCatalogCache.removeCatalog( catalogName );
+        if ( reload ) {
+          mondrianCatalogCache.markStale( catalogName );
+        }
+      }
+    }
+  }
+
+  @Override
+  public void reInit( final IPentahoSession pentahoSession ) {
+    synchronized ( cacheLock ) {
+      final ICacheManager cacheMgr = PentahoSystem.getCacheManager( pentahoSession );
+      if ( cacheMgr.cacheEnabled( MONDRIAN_CATALOG_CACHE_REGION ) ) {
+        cacheMgr.clearRegionCache( MONDRIAN_CATALOG_CACHE_REGION );
+      }
+      init( pentahoSession );
     }
-    init( pentahoSession );
+  }
+
+  private Lock getCatalogLock( final String catalogName ) {
+    return catalogLocks.get( catalogName );
   }
 
   private static Locale getLocale() {
@@ -565,7 +638,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
    * use the in memory session value of input stream (used by test harness)
    */
   @Override
-  public synchronized void addCatalog( final MondrianCatalog catalog, final boolean overwrite,
+  public void addCatalog( final MondrianCatalog catalog, final boolean overwrite,
                                        final IPentahoSession pentahoSession ) throws MondrianCatalogServiceException {
     String mondrianSchema = (String) pentahoSession.getAttribute( "MONDRIAN_SCHEMA_XML_CONTENT" ); //$NON-NLS-1$
     InputStream schemaInputStream = IOUtils.toInputStream( mondrianSchema );
@@ -592,14 +665,28 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
    * @throws MondrianCatalogServiceException
    */
   @Override
-  public synchronized void addCatalog( InputStream schemaInputStream, final MondrianCatalog catalog,
-                                       final boolean overwrite, RepositoryFileAcl acl,
-                                       final IPentahoSession pentahoSession )
+  public void addCatalog( InputStream schemaInputStream, final MondrianCatalog catalog,
+                          final boolean overwrite, RepositoryFileAcl acl,
+                          final IPentahoSession pentahoSession )
       throws MondrianCatalogServiceException {
     if ( MondrianCatalogHelper.logger.isDebugEnabled() ) {
       MondrianCatalogHelper.logger.debug( "addCatalog" ); //$NON-NLS-1$
     }
 
+    final Lock catalogLock = getCatalogLock( catalog.getName() );
+    catalogLock.lock();
+    try {
+      doAddCatalog( schemaInputStream, catalog, overwrite, acl, pentahoSession );
+    } finally {
+      catalogLock.unlock();
+    }
+  }
+
+  private void doAddCatalog( InputStream schemaInputStream, final MondrianCatalog catalog,
+                             final boolean overwrite, RepositoryFileAcl acl,
+                             final IPentahoSession pentahoSession )
+      throws MondrianCatalogServiceException {
+
     if ( isUsingRepository() ) {
       loadCatalogIntoCache( catalog.getName(), pentahoSession );
     } else {
@@ -648,6 +735,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
           "MondrianCatalogHelper.ERROR_0008_ERROR_OCCURRED" ), //$NON-NLS-1$
           Reason.valueOf( e.getMessage() ) );
     }
+    invalidateCatalog( catalog.getName(), true, pentahoSession );
     loadCatalogIntoCache( catalog.getName(), pentahoSession );
 
     try {
@@ -744,7 +832,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
               .get( IUnifiedRepository.class ) );
       helper.addSchema( schemaInputStream, catalogName, datasourceInfo );
 
-      reInit( PentahoSessionHolder.getSession() );
+      invalidateCatalog( catalogName, true, PentahoSessionHolder.getSession() );
 
       flushCacheForCatalog( catalogName, PentahoSessionHolder.getSession() );
     } catch ( SAXParseException e ) {
@@ -1178,11 +1266,7 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
     RepositoryFile deletingFile = solutionRepository.getFile( RepositoryFile.SEPARATOR + "etc" //$NON-NLS-1$
         + RepositoryFile.SEPARATOR + "mondrian" + RepositoryFile.SEPARATOR + catalog.getName() ); //$NON-NLS-1$
     solutionRepository.deleteFile( deletingFile.getId(), true, "" ); //$NON-NLS-1$
-    MondrianCatalogCache mondrianCatalogCache =
-      (MondrianCatalogCache) PentahoSystem.getCacheManager( pentahoSession ).getFromRegionCache(
-        MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString() );
-    mondrianCatalogCache.getCatalogs().remove( catalog.getDefinition() );
-    mondrianCatalogCache.getCatalogs().remove( catalog.getName() );
+    invalidateCatalog( catalog.getName(), false, pentahoSession );
 
   }
 
@@ -1194,21 +1278,31 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
     return builder.parse( is );
   }
 
-  private synchronized void loadCatalogIntoCache( String catalogName, final IPentahoSession pentahoSession ) {
+  private void loadCatalogIntoCache( String catalogName, final IPentahoSession pentahoSession ) {
 
     ICacheManager cacheMgr = PentahoSystem.getCacheManager( pentahoSession );
-    MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( cacheMgr );
-    if ( mondrianCatalogCache.getCatalogs().containsKey( catalogName ) ) {
-      return;  //We already have it
+    if ( getCacheForRegion( cacheMgr ).containsCatalog( catalogName ) ) {
+      return;  //We already have it, no need to lock
     }
 
-    findDatasourceWithCatalog( catalogName, mondrianCatalogCache );
-    cacheMgr.putInRegionCache( MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString(), mondrianCatalogCache );
+    final Lock catalogLock = getCatalogLock( catalogName );
+    catalogLock.lock();
+    try {
+      MondrianCatalogCache mondrianCatalogCache = getCacheForRegion( cacheMgr );
+      if ( mondrianCatalogCache.containsCatalog( catalogName ) ) {
+        return;  //Another thread loaded it meanwhile
+      }
 
-    if ( mondrianCatalogCache.getCatalog( catalogName ) == null && !mondrianCatalogCache.getMondrianCatalogCacheState()
-      .isFullyLoaded() && isCatalogDefinitionString( catalogName ) ) {
-      //We could not find quickly by name, but if its a definition string perhaps we can find it with a full load
-      init( pentahoSession );
+      findDatasourceWithCatalog( catalogName, mondrianCatalogCache );
+      cacheMgr.putInRegionCache( MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString(), mondrianCatalogCache );
+
+      if ( mondrianCatalogCache.getCatalog( catalogName ) == null && !mondrianCatalogCache
+        .getMondrianCatalogCacheState().isFullyLoaded() && isCatalogDefinitionString( catalogName ) ) {
+        //We could not find quickly by name, but if its a definition string perhaps we can find it with a full load
+        init( pentahoSession );
+      }
+    } finally {
+      catalogLock.unlock();
     }
 
   }
@@ -1229,8 +1323,14 @@ public class MondrianCatalogHelper implements IAclAwareMondrianCatalogService {
       (MondrianCatalogCache) cacheMgr.getFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION,
         getLocale().toString() );
     if ( mondrianCatalogCache == null ) {
-      mondrianCatalogCache = new MondrianCatalogCache();
-      cacheMgr.putInRegionCache( MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString(), mondrianCatalogCache );
+      synchronized ( cacheLock ) {
+        mondrianCatalogCache = (MondrianCatalogCache) cacheMgr.getFromRegionCache( MONDRIAN_CATALOG_CACHE_REGION,
+          getLocale().toString() );
+        if ( mondrianCatalogCache == null ) {
+          mondrianCatalogCache = new MondrianCatalogCache();
+          cacheMgr.putInRegionCache( MONDRIAN_CATALOG_CACHE_REGION, getLocale().toString(), mondrianCatalogCache );
+        }
+      }
     }
 
     return mondrianCatalogCache;
@@ -59,15 +59,34 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -101,6 +120,35 @@ public class OlapServiceImpl implements IOlapService {
 
   private static final Log LOG = getLogger();
 
+  private static final Comparator<IOlapService.Catalog> CATALOG_ORDER = new Comparator<IOlapService.Catalog>() {
+    public int compare( Catalog o1, Catalog o2 ) {
+      return o1.name.compareTo( o2.name );
+    }
+  };
+
+  /*
+   * Warm-ups in progress, by cache sub-region key.
+   */
+  private final ConcurrentMap<Object, CompletableFuture<Void>> warmUps =
+    new ConcurrentHashMap<Object, CompletableFuture<Void>>();
+  private final ConcurrentMap<String, CatalogLoadState> catalogLoadStates =
+    new ConcurrentHashMap<String, CatalogLoadState>();
+  /*
+   * Catalog loads submitted to the executor, by generation, cache sub-region
+   * key and catalog name. A load that timed out keeps running; the next
+   * warm-up waits for it instead of queuing the catalog again.
+   */
+  private final ConcurrentMap<List<Object>, Future<?>> pendingLoads =
+    new ConcurrentHashMap<List<Object>, Future<?>>();
+  /*
+   * Bumped by every flushAll(). A load started before a flush does not
+   * publish its catalog once the flush happened.
+   */
+  private final AtomicLong cacheGeneration = new AtomicLong();
+  private volatile ExecutorService loadExecutor;
+  private volatile long catalogLoadTimeout = 30000;
+  private volatile int catalogLoadThreads = 4;
+
   /*
    * Do not access these two fields directly. They need to be accessed through
    * getRepository and getHelper because we can't init them before spring is
@@ -193,13 +241,23 @@ public class OlapServiceImpl implements IOlapService {
    * {@link #CATALOG_CACHE_REGION}. It is also segmented by
    * locale, but we only return the correct sub-region according to the
    * session passed as a parameter.
+   *
+   * <p>Lookups are lock free. The write lock is only taken when the
+   * region or the locale's sub-region has to be created. The sub-region
+   * is a copy-on-write list, so readers can iterate over it while the
+   * warm-up is still adding catalogs.
    */
   @SuppressWarnings( "unchecked" )
-  protected synchronized List<IOlapService.Catalog> getCache( IPentahoSession session ) {
-    // Create the cache region if necessary.
+  protected List<IOlapService.Catalog> getCache( IPentahoSession session ) {
     final ICacheManager cacheMgr = PentahoSystem.getCacheManager( session );
     final Object cacheKey = makeCacheSubRegionKey( getLocale() );
 
+    if ( cacheMgr.cacheEnabled( CATALOG_CACHE_REGION ) ) {
+      final Object cache = cacheMgr.getFromRegionCache( CATALOG_CACHE_REGION, cacheKey );
+      if ( cache != null ) {
+        return (List<IOlapService.Catalog>) cache;
+      }
+    }
 
     final Lock writeLock = cacheLock.writeLock();
     try {
@@ -216,7 +274,7 @@ public class OlapServiceImpl implements IOlapService {
         cacheMgr.putInRegionCache(
           CATALOG_CACHE_REGION,
           cacheKey,
-          new ArrayList<IOlapService.Catalog>() );
+          new CopyOnWriteArrayList<IOlapService.Catalog>() );
       }
 
       return (List<IOlapService.Catalog>)
@@ -248,98 +306,197 @@ public class OlapServiceImpl implements IOlapService {
   /**
    * Initializes the cache. Only the cache specific to the sesison's locale
    * will be populated.
+   *
+   * <p>A single thread warms up a given locale. Other callers asking for
+   * the same locale wait for that warm-up instead of starting their own.
+   * Catalogs are loaded in parallel, and the warm-up waits at most
+   * {@link #setCatalogLoadTimeout(long)} milliseconds for them. A catalog
+   * which fails or is too slow does not hold back the others; see
+   * {@link #getCatalogLoadStates()}.
    */
   protected void initCache( IPentahoSession session ) {
 
     final List<Catalog> cache = getCache( session );
 
-    final boolean needUpdate;
-    final Lock readLock = cacheLock.readLock();
+    // Check if the cache is empty.
+    if ( !cache.isEmpty() ) {
+      return;
+    }
+
+    final Object cacheKey = makeCacheSubRegionKey( getLocale() );
+    final CompletableFuture<Void> warmUp = new CompletableFuture<Void>();
+    final CompletableFuture<Void> running = warmUps.putIfAbsent( cacheKey, warmUp );
+
+    if ( running != null ) {
+      // Somebody else is already building this cache.
+      try {
+        running.join();
+      } catch ( CompletionException e ) {
+        throw new IOlapServiceException( e.getCause() );
+      }
+      return;
+    }
 
     try {
-      readLock.lock();
-      // Check if the cache is empty.
-      if ( cache.size() == 0 ) {
-        needUpdate = true;
-      } else {
-        needUpdate = false;
+      if ( cache.isEmpty() ) {
+        warmUpCache( cache, PentahoSessionHolder.getSession() );
       }
+      warmUp.complete( null );
+    } catch ( Throwable t ) {
+
+      LOG.error(
+        "Failed to initialize the connection cache",
+        t );
+
+      warmUp.completeExceptionally( t );
+      throw new IOlapServiceException( t );
+
     } finally {
-      readLock.unlock();
+      warmUps.remove( cacheKey, warmUp );
     }
+  }
+
+  /**
+   * Loads every hosted and remote catalog into the cache passed as a
+   * parameter, one task per catalog.
+   */
+  private void warmUpCache( final List<Catalog> cache, final IPentahoSession callerSession ) throws Exception {
+
+    final Callable<List<String>> listCall = new Callable<List<String>>() {
+      public List<String> call() throws Exception {
+        final List<String> names = new ArrayList<String>( getHelper().getHostedCatalogs() );
+        names.addAll( getHelper().getOlap4jServers() );
+        return names;
+      }
+    };
 
-    if ( needUpdate ) {
-      final Lock writeLock = cacheLock.writeLock();
+    final List<String> names =
+      isSecurityEnabled()
+        ? SecurityHelper.getInstance().runAsSystem( listCall )
+        : listCall.call();
+
+    final Locale locale = getLocale();
+    final Object cacheKey = makeCacheSubRegionKey( locale );
+    final long generation = cacheGeneration.get();
+    final Map<String, Future<?>> loads = new LinkedHashMap<String, Future<?>>();
+    for ( final String name : names ) {
+      if ( generation != cacheGeneration.get() ) {
+        // Flushed meanwhile, nothing of this warm-up would be published.
+        return;
+      }
+      final List<Object> loadKey = Arrays.<Object>asList( generation, cacheKey, name );
+      final Future<?> pending = pendingLoads.get( loadKey );
+      if ( pending != null && !pending.isDone() ) {
+        // Still loading since an earlier warm-up timed out on it.
+        loads.put( name, pending );
+        continue;
+      }
+      catalogLoadStates.put( name, new CatalogLoadState( CatalogLoadState.Status.LOADING, 0, null ) );
       try {
-        writeLock.lock();
-
-        // First clear the cache
-        cache.clear();
-
-        final Callable<Void> call = new Callable<Void>() {
-          public Void call() throws Exception {
-            // Now build the cache. Use the system session in the holder.
-            for ( String name : getHelper().getHostedCatalogs() ) {
-              try {
-                addCatalogToCache( PentahoSessionHolder.getSession(), name );
-              } catch ( Throwable t ) {
-                LOG.error(
-                  "Failed to initialize the cache for OLAP connection "
-                  + name,
-                  t );
-              }
-            }
-            for ( String name : getHelper().getOlap4jServers() ) {
-              try {
-                addCatalogToCache( PentahoSessionHolder.getSession(), name );
-              } catch ( Throwable t ) {
-                LOG.error(
-                  "Failed to initialize the cache for OLAP connection "
-                  + name,
-                  t );
-              }
-            }
-            return null;
+        final Future<?> load = getLoadExecutor().submit( new Runnable() {
+          public void run() {
+            loadCatalogIntoCache( cache, name, locale, callerSession, generation );
           }
-        };
+        } );
+        pendingLoads.put( loadKey, load );
+        loads.put( name, load );
+      } catch ( RejectedExecutionException e ) {
+        // The executor was shut down by a flush.
+        return;
+      }
+    }
 
-        if ( isSecurityEnabled() ) {
-          SecurityHelper.getInstance().runAsSystem( call );
-        } else {
-          call.call();
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( catalogLoadTimeout );
+    for ( Map.Entry<String, Future<?>> load : loads.entrySet() ) {
+      try {
+        load.getValue().get( Math.max( 0, deadline - System.nanoTime() ), TimeUnit.NANOSECONDS );
+      } catch ( TimeoutException e ) {
+        // Leave it running. It will be added to the cache once it is done,
+        // and the next warm-up waits for it rather than loading it again.
+        final CatalogLoadState loading = catalogLoadStates.get( load.getKey() );
+        if ( loading != null && loading.getStatus() == CatalogLoadState.Status.LOADING ) {
+          catalogLoadStates.replace(
+            load.getKey(),
+            loading,
+            new CatalogLoadState( CatalogLoadState.Status.TIMED_OUT, catalogLoadTimeout, null ) );
         }
+        LOG.warn(
+          "Timed out after " + catalogLoadTimeout + "ms while loading the olap connection cache for catalog "
+          + load.getKey() );
+      } catch ( ExecutionException e ) {
+        // Already logged and recorded by the task itself.
+      } catch ( CancellationException e ) {
+        // Cancelled by a flush before it started.
+      }
+    }
+    pendingLoads.values().removeIf( Future::isDone );
+  }
 
-        // Sort it all.
-        Collections.sort(
-          cache,
-          new Comparator<IOlapService.Catalog>() {
-            public int compare( Catalog o1, Catalog o2 ) {
-              return o1.name.compareTo( o2.name );
-            }
-          } );
+  /**
+   * Loads a single catalog and adds it to the cache. This runs on one of
+   * the warm-up threads, which is why the locale and session are passed
+   * explicitly. The catalog is dropped if the cache was flushed since the
+   * warm-up started.
+   */
+  private void loadCatalogIntoCache(
+    final List<Catalog> cache,
+    final String catalogName,
+    final Locale locale,
+    final IPentahoSession callerSession,
+    final long generation ) {
 
-      } catch ( Throwable t ) {
+    final long start = System.currentTimeMillis();
+    try {
 
-        LOG.error(
-          "Failed to initialize the connection cache",
-          t );
+      final Callable<Catalog> call = new Callable<Catalog>() {
+        public Catalog call() throws Exception {
+          LocaleHelper.setLocale( locale );
+          // Use the system session in the holder when running as system.
+          return loadCatalog(
+            isSecurityEnabled() ? PentahoSessionHolder.getSession() : callerSession,
+            catalogName );
+        }
+      };
 
-        throw new IOlapServiceException( t );
+      final Catalog catalog =
+        isSecurityEnabled()
+          ? SecurityHelper.getInstance().runAsSystem( call )
+          : call.call();
 
-      } finally {
-        writeLock.unlock();
+      synchronized ( cache ) {
+        if ( generation != cacheGeneration.get() ) {
+          LOG.debug( "Discarding catalog " + catalogName + " loaded before the cache was flushed" );
+          return;
+        }
+        // A timed out load can finish after another warm-up loaded it again.
+        cache.removeIf( cached -> cached.name.equals( catalogName ) );
+        cache.add( catalog );
+        cache.sort( CATALOG_ORDER );
       }
+
+      catalogLoadStates.put(
+        catalogName,
+        new CatalogLoadState( CatalogLoadState.Status.LOADED, System.currentTimeMillis() - start, null ) );
+
+    } catch ( Throwable t ) {
+
+      LOG.warn(
+        "Failed to initialize the olap connection cache for catalog "
+        + catalogName,
+        t );
+
+      catalogLoadStates.put(
+        catalogName,
+        new CatalogLoadState( CatalogLoadState.Status.FAILED, System.currentTimeMillis() - start, t.getMessage() ) );
     }
   }
 
   /**
-   * Adds a catalog and its children to the cache.
-   * Do not use directly. This must be called with a write lock
-   * on the cache.
+   * Builds a catalog and its children.
    *
-   * @param catalogName The name of the catalog to load in cache.
+   * @param catalogName The name of the catalog to load.
    */
-  private void addCatalogToCache( IPentahoSession session, String catalogName ) {
+  private Catalog loadCatalog( IPentahoSession session, String catalogName ) throws OlapException {
 
     final IOlapService.Catalog catalog =
       new Catalog( catalogName, new ArrayList<IOlapService.Schema>() );
@@ -371,14 +528,7 @@ public class OlapServiceImpl implements IOlapService {
       }
 
       // We're done.
-      getCache( session ).add( catalog );
-
-    } catch ( OlapException e ) {
-
-      LOG.warn(
-        "Failed to initialize the olap connection cache for catalog "
-        + catalogName,
-        e );
+      return catalog;
 
     } finally {
       try {
@@ -394,6 +544,113 @@ public class OlapServiceImpl implements IOlapService {
     }
   }
 
+  private ExecutorService getLoadExecutor() {
+    ExecutorService executor = loadExecutor;
+    if ( executor == null ) {
+      synchronized ( this ) {
+        executor = loadExecutor;
+        if ( executor == null ) {
+          executor = Executors.newFixedThreadPool( catalogLoadThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread( Runnable r ) {
+              final Thread thread = new Thread( r, "olap-catalog-loader-" + count.incrementAndGet() );
+              thread.setDaemon( true );
+              return thread;
+            }
+          } );
+          loadExecutor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  private synchronized void shutdownLoadExecutor() {
+    if ( loadExecutor != null ) {
+      for ( Runnable pending : loadExecutor.shutdownNow() ) {
+        if ( pending instanceof Future ) {
+          ( (Future<?>) pending ).cancel( false );
+        }
+      }
+      loadExecutor = null;
+    }
+  }
+
+  /**
+   * Stops the threads loading catalogs. Called by the container when the
+   * service is disposed of.
+   */
+  public void destroy() {
+    cacheGeneration.incrementAndGet();
+    shutdownLoadExecutor();
+    pendingLoads.clear();
+  }
+
+  /**
+   * Sets how long, in milliseconds, a cache warm-up waits for the
+   * catalogs to load before returning what it has.
+   */
+  public void setCatalogLoadTimeout( long catalogLoadTimeout ) {
+    this.catalogLoadTimeout = catalogLoadTimeout;
+  }
+
+  /**
+   * Sets the number of threads used to load catalogs during a warm-up.
+   * Must be called before the first warm-up.
+   */
+  public void setCatalogLoadThreads( int catalogLoadThreads ) {
+    this.catalogLoadThreads = catalogLoadThreads;
+  }
+
+  /**
+   * Returns the outcome of the last load of each catalog. Useful to find
+   * out which catalogs are slow or broken.
+   */
+  public Map<String, CatalogLoadState> getCatalogLoadStates() {
+    return Collections.unmodifiableMap( new HashMap<String, CatalogLoadState>( catalogLoadStates ) );
+  }
+
+  /**
+   * The outcome of loading a catalog into the cache.
+   */
+  public static final class CatalogLoadState {
+
+    public enum Status {
+      LOADING, LOADED, FAILED, TIMED_OUT
+    }
+
+    private final Status status;
+    private final long loadTimeMillis;
+    private final String error;
+
+    CatalogLoadState( Status status, long loadTimeMillis, String error ) {
+      this.status = status;
+      this.loadTimeMillis = loadTimeMillis;
+      this.error = error;
+    }
+
+    public Status getStatus() {
+      return status;
+    }
+
+    /**
+     * How long the load took, or how long we waited for it when it timed out.
+     */
+    public long getLoadTimeMillis() {
+      return loadTimeMillis;
+    }
+
+    public String getError() {
+      return error;
+    }
+
+    @Override
+    public String toString() {
+      return status + " in " + loadTimeMillis + "ms" + ( error == null ? "" : ": " + error );
+    }
+  }
+
   public void addHostedCatalog(
     String name,
     String dataSourceInfo,
@@ -516,7 +773,12 @@ public class OlapServiceImpl implements IOlapService {
     try {
       writeLock.lock();
 
-      // Start by flushing the local cache.
+      // Start by flushing the local cache. Loads still running belong to
+      // the old cache, so stop them and let the next warm-up start afresh.
+      cacheGeneration.incrementAndGet();
+      warmUps.clear();
+      shutdownLoadExecutor();
+      pendingLoads.clear();
       resetCache( session );
 
       flushHostedCatalogs();
@@ -612,17 +874,9 @@ public class OlapServiceImpl implements IOlapService {
     initCache( session );
     final List<Catalog> cache = getCache( session );
 
-    final Lock readLock = cacheLock.readLock();
-    try {
-      readLock.lock();
-
-      return cache.stream()
-        .filter( catalog -> hasAccess( catalog.name, EnumSet.of( RepositoryFilePermission.READ ), session ) )
-        .collect( Collectors.toList() );
-
-    } finally {
-      readLock.unlock();
-    }
+    return cache.stream()
+      .filter( catalog -> hasAccess( catalog.name, EnumSet.of( RepositoryFilePermission.READ ), session ) )
+      .collect( Collectors.toList() );
   }
 
   public List<IOlapService.Schema> getSchemas(
@@ -28,12 +28,16 @@ import org.pentaho.commons.connection.memory.MemoryMetaData;
 import org.pentaho.platform.api.data.IDataComponent;
 import org.pentaho.platform.api.data.IPreparedComponent;
 import org.pentaho.platform.api.engine.IParameterResolver;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.engine.security.SecurityHelper;
 import org.pentaho.platform.engine.services.connection.PentahoConnectionFactory;
 import org.pentaho.platform.engine.services.runtime.TemplateUtil;
 import org.pentaho.platform.engine.services.solution.ComponentBase;
 import org.pentaho.platform.plugin.action.messages.Messages;
 import org.pentaho.platform.plugin.services.connections.sql.SQLConnection;
+import org.pentaho.platform.plugin.services.connections.sql.SpillableResultSet;
 
+import java.io.IOException;
 import java.text.Format;
 import java.util.ArrayList;
 import java.util.List;
@@ -54,6 +58,11 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
 
   public static final String PREPARE_PARAMETER_PREFIX = "PREPARE"; //$NON-NLS-1$
 
+  /**
+   * pentaho.xml setting with the number of bytes a detached result set may keep on the heap
+   */
+  public static final String RESULT_SET_MEMORY_BUDGET_SETTING = "sql-result-set-memory-budget"; //$NON-NLS-1$
+
   /** stores the prepared query for later use */
   protected String preparedQuery = null;
 
@@ -66,6 +75,9 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
   /** reference to latest result set */
   private IPentahoResultSet rSet;
 
+  /** the detached result set of the latest query, unless the result cache holds it */
+  private SpillableResultSet detachedResultSet;
+
   /** reference to connection object */
   protected IPentahoConnection connection;
 
@@ -294,6 +306,76 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
     }
   }
 
+  /**
+   * Reads the rest of the result set so it can outlive its connection. If <code>sql-result-set-memory-budget</code>
+   * is set in pentaho.xml the rows go into a {@link SpillableResultSet} that moves to a temp file past that many
+   * bytes; otherwise they are copied into memory with {@link IPentahoResultSet#memoryCopy()}.
+   */
+  protected IPentahoResultSet detachResultSet( final IPentahoResultSet resultSet ) throws IOException {
+    String budget = PentahoSystem.getSystemSetting( RESULT_SET_MEMORY_BUDGET_SETTING, null );
+    if ( budget != null && budget.trim().length() > 0 ) {
+      try {
+        return SpillableResultSet.copyOf( resultSet, Long.parseLong( budget.trim() ) );
+      } catch ( NumberFormatException e ) {
+        warn( Messages.getInstance().getString( "SQLBaseComponent.WARN_INVALID_RESULT_SET_MEMORY_BUDGET", budget ) ); //$NON-NLS-1$
+      }
+    }
+    return resultSet.memoryCopy();
+  }
+
+  /**
+   * Keeps track of a detached result set this component owns, and releases the one of its previous query, whose rows
+   * may have been moved to a temp file.
+   */
+  private IPentahoResultSet ownDetachedResultSet( final IPentahoResultSet resultSet ) {
+    disposeDetachedResultSet();
+    if ( resultSet instanceof SpillableResultSet ) {
+      detachedResultSet = (SpillableResultSet) resultSet;
+    }
+    return resultSet;
+  }
+
+  private void disposeDetachedResultSet() {
+    if ( detachedResultSet != null ) {
+      detachedResultSet.dispose();
+      detachedResultSet = null;
+    }
+  }
+
+  /**
+   * Returns the key the detached result of <code>query</code> is cached under, or null when the result cache is not
+   * enabled or the datasource or the current user's roles are unknown.
+   */
+  protected SQLResultCache.Key getResultCacheKey( final String query, final List parameters ) {
+    if ( SQLResultCache.getInstance() == null ) {
+      return null;
+    }
+    String datasource = getResultCacheDatasource();
+    String securityContext = SQLResultCache.getSecurityContext( SecurityHelper.getInstance().getAuthentication() );
+    if ( datasource == null || securityContext == null ) {
+      return null;
+    }
+    return new SQLResultCache.Key( datasource, query, parameters, securityContext );
+  }
+
+  /**
+   * Names the datasource of this action, along with the row limit that shapes its results.
+   */
+  private String getResultCacheDatasource() {
+    String datasource = null;
+    if ( getActionDefinition() instanceof AbstractRelationalDbAction ) {
+      AbstractRelationalDbAction relationalDbAction = (AbstractRelationalDbAction) getActionDefinition();
+      String jndiName = relationalDbAction.getJndi().getStringValue();
+      String connectionInfo = relationalDbAction.getDbUrl().getStringValue();
+      if ( jndiName != null ) {
+        datasource = "jndi:" + jndiName; //$NON-NLS-1$
+      } else if ( connectionInfo != null ) {
+        datasource = "url:" + connectionInfo + "|" + relationalDbAction.getUserId().getStringValue(); //$NON-NLS-1$ //$NON-NLS-2$
+      }
+    }
+    return datasource == null ? null : datasource + "|maxRows=" + getMaxRows(); //$NON-NLS-1$
+  }
+
   /**
    * This inner class is used as a resolver for TemplateUtil.
    */
@@ -457,19 +539,6 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
       }
 
       // evaluate
-      IPentahoResultSet resultSet = null;
-      if ( preparedParameters.size() > 0 ) {
-        resultSet = connection.prepareAndExecuteQuery( query, copyOfPreparedParameters );
-      } else {
-        resultSet = connection.executeQuery( query );
-      }
-
-      if ( connection instanceof SQLConnection ) {
-        if ( ( (SQLConnection) connection ).isForcedForwardOnly() ) {
-          warn( Messages.getInstance().getString( "SQLBaseComponent.WARN_FALL_BACK_TO_NONSCROLLABLE" ) ); //$NON-NLS-1$
-        }
-      }
-
       boolean live = true;
       IActionDefinition actionDefinition = getActionDefinition();
       if ( actionDefinition instanceof AbstractRelationalDbAction ) {
@@ -477,11 +546,20 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
         live = relationalDbAction.getLive().getBooleanValue( false );
       }
 
+      SQLResultCache.Key cacheKey = live ? null : getResultCacheKey( query, copyOfPreparedParameters );
+      if ( cacheKey != null ) {
+        rSet = SQLResultCache.getInstance().get( cacheKey,
+          () -> detachResultSet( executePreparedQuery( query, copyOfPreparedParameters ) ) );
+        return rSet;
+      }
+
+      IPentahoResultSet resultSet = executePreparedQuery( query, copyOfPreparedParameters );
+
       IPentahoResultSet rs = resultSet;
 
       // BISERVER-5915, BISERVER-5875 - if the live setting is false, return an in memory resultset.
       if ( !live ) {
-        rs = resultSet.memoryCopy();
+        rs = ownDetachedResultSet( detachResultSet( resultSet ) );
       }
 
       rSet = rs;
@@ -493,6 +571,22 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
     return null;
   }
 
+  private IPentahoResultSet executePreparedQuery( final String query, final List parameters ) throws Exception {
+    IPentahoResultSet resultSet;
+    if ( preparedParameters.size() > 0 ) {
+      resultSet = connection.prepareAndExecuteQuery( query, parameters );
+    } else {
+      resultSet = connection.executeQuery( query );
+    }
+
+    if ( connection instanceof SQLConnection ) {
+      if ( ( (SQLConnection) connection ).isForcedForwardOnly() ) {
+        warn( Messages.getInstance().getString( "SQLBaseComponent.WARN_FALL_BACK_TO_NONSCROLLABLE" ) ); //$NON-NLS-1$
+      }
+    }
+    return resultSet;
+  }
+
   /**
    * called when in prepared-component mode, this method populates the preparedQuery string and preparedParameters
    * object.
@@ -563,7 +657,15 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
       IPentahoResultSet resultSet = null;
       boolean isForwardOnly = relationalDbAction.getUseForwardOnlyResultSet().getBooleanValue( false );
 
-      resultSet = doQuery( sqlConnection, query, isForwardOnly );
+      SQLResultCache.Key cacheKey = live ? null : getResultCacheKey( query, preparedParameters );
+      if ( cacheKey != null ) {
+        final SQLConnection queryConnection = sqlConnection;
+        final boolean forwardOnly = isForwardOnly;
+        resultSet = SQLResultCache.getInstance().get( cacheKey,
+          () -> detachResultSet( doQuery( queryConnection, query, forwardOnly ) ) );
+      } else {
+        resultSet = doQuery( sqlConnection, query, isForwardOnly );
+      }
 
       if ( sqlConnection.isForcedForwardOnly() ) {
         isForwardOnly = true;
@@ -603,7 +705,8 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
           // prepared parameters.
           preparedParameters.clear();
 
-          IPentahoResultSet cachedResultSet = resultSet.memoryCopy();
+          IPentahoResultSet cachedResultSet =
+              cacheKey != null ? resultSet : ownDetachedResultSet( detachResultSet( resultSet ) );
           rSet = cachedResultSet;
 
           IActionOutput actionOutput = relationalDbAction.getOutputResultSet();
@@ -675,6 +778,7 @@ public abstract class SQLBaseComponent extends ComponentBase implements IDataCom
   public void dispose() {
 
     rSet = null;
+    disposeDetachedResultSet();
 
     // close connection if owner
     if ( connectionOwner ) {
@@ -0,0 +1,395 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.commons.connection.IPentahoMetaData;
+import org.pentaho.commons.connection.IPentahoResultSet;
+import org.pentaho.commons.connection.memory.MemoryResultSet;
+import org.pentaho.platform.api.cache.ICacheExpirationRegistry;
+import org.pentaho.platform.api.cache.ILastModifiedCacheItem;
+import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.plugin.action.messages.Messages;
+import org.pentaho.platform.plugin.services.connections.sql.SpillableResultSet;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the rows of non-live SQL results so that the same query, run again with the same parameters by a user with
+ * the same roles, does not go back to the database. Entries expire after a fixed time and the cache holds at most a
+ * configured number of rows in total; a result with more rows than that is returned without being cached. Concurrent requests for a query that is being loaded wait for that load instead
+ * of running the query themselves.
+ * <p/>
+ * The cache is off unless <code>sql-result-cache/enabled</code> is true in pentaho.xml. It is registered with the
+ * {@link ICacheExpirationRegistry} so clients can tell when it was last flushed. The settings are read again on every
+ * {@link #getInstance()}; when they change, the cache is rebuilt and the old one emptied.
+ */
+public class SQLResultCache implements ILastModifiedCacheItem {
+
+  public static final String CACHE_KEY = "sql-result-cache"; //$NON-NLS-1$
+
+  public static final String ENABLED_SETTING = "sql-result-cache/enabled"; //$NON-NLS-1$
+
+  public static final String MAX_ROWS_SETTING = "sql-result-cache/max-rows"; //$NON-NLS-1$
+
+  public static final String TTL_SETTING = "sql-result-cache/ttl-seconds"; //$NON-NLS-1$
+
+  public static final long DEFAULT_MAX_ROWS = 100000;
+
+  public static final long DEFAULT_TTL_SECONDS = 60;
+
+  private static final Log logger = LogFactory.getLog( SQLResultCache.class );
+
+  private static volatile SQLResultCache instance;
+
+  private static volatile String[] instanceSettings;
+
+  private final Cache<Key, Snapshot> cache;
+
+  private final long maxRows;
+
+  private volatile long lastModified = System.currentTimeMillis();
+
+  public SQLResultCache( final long maxRows, final long ttlSeconds ) {
+    this.maxRows = maxRows;
+    cache = CacheBuilder.newBuilder()
+      // a single segment, so that the row budget is not split and one result can use all of it
+      .concurrencyLevel( 1 )
+      .maximumWeight( maxRows )
+      .weigher( ( Key key, Snapshot snapshot ) -> Math.max( 1, snapshot.getRowCount() ) )
+      .expireAfterWrite( ttlSeconds, TimeUnit.SECONDS )
+      .removalListener( ( RemovalNotification<Key, Snapshot> notification ) -> notification.getValue().dispose() )
+      .recordStats()
+      .build();
+  }
+
+  /**
+   * Returns the shared cache, or null when it is not enabled in pentaho.xml. If the settings changed since the cache
+   * was built, for instance after the system settings were refreshed, a new cache is built from them.
+   */
+  public static SQLResultCache getInstance() {
+    String[] settings = {
+      PentahoSystem.getSystemSetting( ENABLED_SETTING, "false" ), //$NON-NLS-1$
+      PentahoSystem.getSystemSetting( MAX_ROWS_SETTING, null ),
+      PentahoSystem.getSystemSetting( TTL_SETTING, null ) };
+    if ( !Arrays.equals( settings, instanceSettings ) ) {
+      synchronized ( SQLResultCache.class ) {
+        if ( !Arrays.equals( settings, instanceSettings ) ) {
+          SQLResultCache previous = instance;
+          instance = createFromSettings( settings );
+          instanceSettings = settings;
+          if ( previous != null ) {
+            ICacheExpirationRegistry registry = PentahoSystem.get( ICacheExpirationRegistry.class, null );
+            if ( registry != null ) {
+              registry.unRegister( previous );
+            }
+            previous.clear();
+          }
+        }
+      }
+    }
+    return instance;
+  }
+
+  private static SQLResultCache createFromSettings( final String[] settings ) {
+    if ( !Boolean.parseBoolean( settings[ 0 ] ) ) {
+      return null;
+    }
+    SQLResultCache resultCache =
+      new SQLResultCache( getLongSetting( MAX_ROWS_SETTING, settings[ 1 ], DEFAULT_MAX_ROWS ), getLongSetting(
+        TTL_SETTING, settings[ 2 ], DEFAULT_TTL_SECONDS ) );
+    ICacheExpirationRegistry registry = PentahoSystem.get( ICacheExpirationRegistry.class, null );
+    if ( registry != null ) {
+      registry.register( resultCache );
+    }
+    return resultCache;
+  }
+
+  private static long getLongSetting( final String name, final String value, final long defaultValue ) {
+    if ( value != null && value.trim().length() > 0 ) {
+      try {
+        return Long.parseLong( value.trim() );
+      } catch ( NumberFormatException e ) {
+        logger.warn( Messages.getInstance().getString( "SQLResultCache.WARN_INVALID_SETTING", name, value ) ); //$NON-NLS-1$
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Returns a result set with the rows cached under <code>key</code>. If there are none, <code>loader</code> runs the
+   * query and returns a detached (non-live) result set, which is read into the cache. Every caller gets its own
+   * result set, so cursors are never shared. A result with more rows than the cache holds is returned as loaded.
+   */
+  public IPentahoResultSet get( final Key key, final Callable<IPentahoResultSet> loader ) throws Exception {
+    final IPentahoResultSet[] tooLarge = new IPentahoResultSet[ 1 ];
+    Snapshot snapshot;
+    try {
+      snapshot = cache.get( key, () -> {
+        IPentahoResultSet resultSet = loader.call();
+        if ( resultSet.getRowCount() > maxRows ) {
+          // the cache would evict it right away
+          tooLarge[ 0 ] = resultSet;
+          throw new TooLargeException();
+        }
+        return Snapshot.of( resultSet );
+      } );
+    } catch ( ExecutionException | UncheckedExecutionException | ExecutionError e ) {
+      Throwable cause = e.getCause();
+      if ( cause instanceof TooLargeException ) {
+        // requests that waited for another one's load run the query themselves, as they can't share its cursor
+        return tooLarge[ 0 ] != null ? tooLarge[ 0 ] : loader.call();
+      }
+      if ( cause instanceof Exception ) {
+        throw (Exception) cause;
+      }
+      if ( cause instanceof Error ) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+    IPentahoResultSet resultSet = snapshot.newResultSet();
+    if ( resultSet == null ) {
+      // the entry was evicted, and its rows released, before they could be read; run the query without the cache
+      return loader.call();
+    }
+    return resultSet;
+  }
+
+  /**
+   * Drops every cached result.
+   */
+  public void clear() {
+    cache.invalidateAll();
+    lastModified = System.currentTimeMillis();
+  }
+
+  public long size() {
+    return cache.size();
+  }
+
+  /**
+   * Hit, miss and load counts since the cache was created.
+   */
+  public CacheStats getStatistics() {
+    return cache.stats();
+  }
+
+  @Override
+  public long getLastModified() {
+    return lastModified;
+  }
+
+  @Override
+  public String getCacheKey() {
+    return CACHE_KEY;
+  }
+
+  /**
+   * Collapses runs of whitespace outside quoted literals and identifiers into a single blank, so that queries which
+   * only differ in their formatting share a cache entry.
+   */
+  public static String normalizeQuery( final String query ) {
+    StringBuilder sb = new StringBuilder( query.length() );
+    char quote = 0;
+    boolean pendingSpace = false;
+    for ( int i = 0; i < query.length(); i++ ) {
+      char c = query.charAt( i );
+      if ( quote == 0 && Character.isWhitespace( c ) ) {
+        pendingSpace = sb.length() > 0;
+        continue;
+      }
+      if ( pendingSpace ) {
+        sb.append( ' ' );
+        pendingSpace = false;
+      }
+      if ( quote == 0 && ( c == '\'' || c == '"' ) ) {
+        quote = c;
+      } else if ( c == quote ) {
+        quote = 0;
+      }
+      sb.append( c );
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Describes what a user may see: the sorted names of the granted roles. Returns null when there is no
+   * authentication, in which case nothing should be cached.
+   */
+  public static String getSecurityContext( final Authentication authentication ) {
+    if ( authentication == null ) {
+      return null;
+    }
+    TreeSet<String> roles = new TreeSet<>();
+    if ( authentication.getAuthorities() != null ) {
+      for ( GrantedAuthority authority : authentication.getAuthorities() ) {
+        roles.add( authority.getAuthority() );
+      }
+    }
+    return roles.toString();
+  }
+
+  /**
+   * Identifies a cached result: datasource, normalized query text, prepared parameter values and security context.
+   */
+  public static class Key {
+
+    private final String datasource;
+
+    private final String query;
+
+    private final Object[] parameters;
+
+    private final String securityContext;
+
+    private final int hashCode;
+
+    public Key( final String datasource, final String query, final List parameters, final String securityContext ) {
+      this.datasource = datasource;
+      this.query = normalizeQuery( query );
+      this.parameters = parameters == null ? new Object[ 0 ] : parameters.toArray();
+      this.securityContext = securityContext;
+      this.hashCode =
+        Objects.hash( datasource, this.query, Arrays.deepHashCode( this.parameters ), securityContext );
+    }
+
+    @Override
+    public boolean equals( final Object o ) {
+      if ( this == o ) {
+        return true;
+      }
+      if ( !( o instanceof Key ) ) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hashCode == other.hashCode && Objects.equals( datasource, other.datasource )
+        && query.equals( other.query ) && Arrays.deepEquals( parameters, other.parameters )
+        && Objects.equals( securityContext, other.securityContext );
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * Thrown by a load whose result has more rows than the whole cache holds.
+   */
+  private static class TooLargeException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    TooLargeException() {
+      super( null, null, false, false );
+    }
+  }
+
+  /**
+   * The rows of a detached result set; read only once it is built. Rows of a {@link SpillableResultSet} are kept in
+   * it, rather than copied to the heap: each request reads them through its own {@link SpillableResultSet#newReader()
+   * reader}. They are released when the entry is removed from the cache.
+   */
+  private static class Snapshot {
+
+    private final IPentahoMetaData metaData;
+
+    private final List<Object[]> rows;
+
+    private final SpillableResultSet spillable;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private boolean disposed;
+
+    private Snapshot( final IPentahoMetaData metaData, final List<Object[]> rows, final SpillableResultSet spillable ) {
+      this.metaData = metaData;
+      this.rows = rows;
+      this.spillable = spillable;
+    }
+
+    static Snapshot of( final IPentahoResultSet resultSet ) {
+      if ( resultSet instanceof SpillableResultSet ) {
+        return new Snapshot( resultSet.getMetaData(), null, (SpillableResultSet) resultSet );
+      }
+      try {
+        List<Object[]> rows = new ArrayList<>();
+        Object[] row;
+        while ( ( row = resultSet.next() ) != null ) {
+          rows.add( row );
+        }
+        return new Snapshot( resultSet.getMetaData(), rows, null );
+      } finally {
+        resultSet.close();
+      }
+    }
+
+    int getRowCount() {
+      return rows != null ? rows.size() : spillable.getRowCount();
+    }
+
+    /**
+     * @return a result set over the rows, or null if they were already released
+     */
+    IPentahoResultSet newResultSet() {
+      lock.readLock().lock();
+      try {
+        if ( disposed ) {
+          return null;
+        }
+        if ( spillable != null ) {
+          return spillable.newReader();
+        }
+        MemoryResultSet resultSet = new MemoryResultSet( metaData );
+        for ( Object[] row : rows ) {
+          resultSet.addRow( row.clone() );
+        }
+        return resultSet;
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    void dispose() {
+      lock.writeLock().lock();
+      try {
+        disposed = true;
+        if ( spillable != null ) {
+          spillable.dispose();
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    }
+  }
+}
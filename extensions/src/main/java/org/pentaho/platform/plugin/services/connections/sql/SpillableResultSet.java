@@ -0,0 +1,490 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.connections.sql;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.commons.connection.IPeekable;
+import org.pentaho.commons.connection.IPentahoMetaData;
+import org.pentaho.commons.connection.IPentahoResultSet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A detached, read-only {@link IPentahoResultSet} that can hold more rows than fit on the heap.
+ * <p/>
+ * Rows are stored in a compact binary form rather than as an <code>Object[]</code> of boxed values: numbers, booleans,
+ * dates and strings are written as primitives, and only values of other types are kept as objects. While the
+ * encoded rows fit in the memory budget they stay on the heap; past it they are moved to a temp file, which is memory
+ * mapped once loading is complete, so the operating system rather than the heap holds the data. Values are decoded
+ * when a row is read; nothing else is copied.
+ * <p/>
+ * Like <code>MemoryResultSet</code> it stays usable after {@link #close()}; {@link #dispose()} releases the data.
+ */
+public class SpillableResultSet implements IPentahoResultSet, IPeekable {
+
+  private static final Log log = LogFactory.getLog( SpillableResultSet.class );
+
+  public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+
+  /**
+   * Size of each mapping of the spill file; rows never cross a segment boundary.
+   */
+  static final int SEGMENT_SIZE = 1 << 30;
+
+  private static final String TEMP_FILE_PREFIX = "resultset"; //$NON-NLS-1$
+
+  private static final byte NULL = 0;
+  private static final byte INTEGER = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte FLOAT = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte BOOLEAN = 7;
+  private static final byte STRING = 8;
+  private static final byte BIG_DECIMAL = 9;
+  private static final byte TIMESTAMP = 10;
+  private static final byte SQL_DATE = 11;
+  private static final byte TIME = 12;
+  private static final byte DATE = 13;
+  private static final byte OBJECT = 14;
+
+  private final IPentahoMetaData metaData;
+
+  private final int columnCount;
+
+  private final long memoryBudget;
+
+  private long[] rowOffsets = new long[ 1024 ];
+
+  private int rowCount;
+
+  /**
+   * Values that are not stored in binary form, referenced by index.
+   */
+  private final List<Object> objects;
+
+  private final ByteArrayOutputStream rowBuffer = new ByteArrayOutputStream();
+
+  private final DataOutputStream rowOutput = new DataOutputStream( rowBuffer );
+
+  private ExposedByteArrayOutputStream heapStore = new ExposedByteArrayOutputStream();
+
+  private File spillFile;
+
+  private boolean spilled;
+
+  private OutputStream spillOutput;
+
+  private long length;
+
+  private ByteBuffer[] segments;
+
+  private int cursor;
+
+  /**
+   * Creates an empty result set to be filled with {@link #addRow(Object[])} and completed with {@link #finish()}.
+   */
+  public SpillableResultSet( final IPentahoMetaData metaData, final int columnCount, final long memoryBudget ) {
+    this.metaData = metaData;
+    this.columnCount = columnCount;
+    this.memoryBudget = Math.min( memoryBudget, SEGMENT_SIZE );
+    this.objects = new ArrayList<>();
+  }
+
+  private SpillableResultSet( final SpillableResultSet source ) {
+    this.metaData = source.metaData;
+    this.columnCount = source.columnCount;
+    this.memoryBudget = source.memoryBudget;
+    this.objects = new ArrayList<>( source.objects );
+    this.rowOffsets = source.rowOffsets;
+    this.rowCount = source.rowCount;
+    this.length = source.length;
+    this.spilled = source.spilled;
+    this.segments = source.segments;
+    this.heapStore = null;
+  }
+
+  /**
+   * Reads all remaining rows of <code>source</code> into a new result set and closes the source.
+   */
+  public static SpillableResultSet copyOf( final IPentahoResultSet source, final long memoryBudget )
+    throws IOException {
+    try {
+      SpillableResultSet copy =
+        new SpillableResultSet( source.getMetaData(), source.getColumnCount(), memoryBudget );
+      try {
+        Object[] row = source.next();
+        while ( row != null ) {
+          copy.addRow( row );
+          row = source.next();
+        }
+        copy.finish();
+      } catch ( IOException | RuntimeException e ) {
+        copy.dispose();
+        throw e;
+      }
+      return copy;
+    } finally {
+      source.close();
+    }
+  }
+
+  public void addRow( final Object[] row ) throws IOException {
+    if ( segments != null ) {
+      throw new IllegalStateException( "Result set is complete" ); //$NON-NLS-1$
+    }
+    rowBuffer.reset();
+    for ( int column = 0; column < columnCount; column++ ) {
+      writeValue( column < row.length ? row[ column ] : null );
+    }
+    int rowLength = rowBuffer.size();
+    if ( rowLength > SEGMENT_SIZE ) {
+      throw new IOException( "Row " + rowCount + " is too large to store" ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    if ( spillOutput == null && heapStore.size() + rowLength > memoryBudget ) {
+      spill();
+    }
+    if ( spillOutput != null ) {
+      long segmentRemaining = SEGMENT_SIZE - ( length % SEGMENT_SIZE );
+      if ( rowLength > segmentRemaining ) {
+        // start the row in the next segment
+        spillOutput.write( new byte[ (int) segmentRemaining ] );
+        length += segmentRemaining;
+      }
+      rowBuffer.writeTo( spillOutput );
+    } else {
+      rowBuffer.writeTo( heapStore );
+    }
+    if ( rowCount == rowOffsets.length ) {
+      rowOffsets = Arrays.copyOf( rowOffsets, rowCount * 2 );
+    }
+    rowOffsets[ rowCount++ ] = length;
+    length += rowLength;
+  }
+
+  /**
+   * Ends loading; rows can be read from here on.
+   */
+  public void finish() throws IOException {
+    if ( segments != null ) {
+      return;
+    }
+    rowOffsets = Arrays.copyOf( rowOffsets, rowCount );
+    if ( spillOutput == null ) {
+      segments = new ByteBuffer[] { heapStore.toByteBuffer() };
+    } else {
+      spillOutput.close();
+      spillOutput = null;
+      try ( RandomAccessFile file = new RandomAccessFile( spillFile, "r" ) ) { //$NON-NLS-1$
+        // the mappings stay valid after the file is closed
+        FileChannel channel = file.getChannel();
+        int count = (int) ( ( length + SEGMENT_SIZE - 1 ) / SEGMENT_SIZE );
+        ByteBuffer[] mapped = new ByteBuffer[ Math.max( count, 1 ) ];
+        for ( int i = 0; i < count; i++ ) {
+          long position = (long) i * SEGMENT_SIZE;
+          mapped[ i ] =
+            channel.map( FileChannel.MapMode.READ_ONLY, position, Math.min( SEGMENT_SIZE, length - position ) );
+        }
+        if ( count == 0 ) {
+          mapped[ 0 ] = ByteBuffer.allocate( 0 );
+        }
+        segments = mapped;
+      }
+      // the mapping keeps the data reachable, so on most platforms the file can go right away
+      deleteSpillFile();
+    }
+    heapStore = null;
+  }
+
+  /**
+   * Returns a result set with its own cursor over the rows of this complete one, without copying them. Its rows stay
+   * readable after this result set is disposed, and disposing it does not affect this one.
+   */
+  public SpillableResultSet newReader() {
+    if ( segments == null ) {
+      throw new IllegalStateException( "Result set is not complete" ); //$NON-NLS-1$
+    }
+    return new SpillableResultSet( this );
+  }
+
+  /**
+   * @return true if the rows did not fit in the memory budget and were moved to a temp file
+   */
+  public boolean isSpilled() {
+    return spilled;
+  }
+
+  private void spill() throws IOException {
+    spillFile = File.createTempFile( TEMP_FILE_PREFIX, ".tmp" ); //$NON-NLS-1$
+    spilled = true;
+    if ( log.isDebugEnabled() ) {
+      log.debug( "Result set exceeded " + memoryBudget + " bytes, spilling to " + spillFile ); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+    spillOutput = new BufferedOutputStream( new FileOutputStream( spillFile ), 64 * 1024 );
+    heapStore.writeTo( spillOutput );
+    heapStore = new ExposedByteArrayOutputStream( 0 );
+  }
+
+  private void writeValue( final Object value ) throws IOException {
+    if ( value == null ) {
+      rowOutput.writeByte( NULL );
+    } else if ( value instanceof String ) {
+      writeBytes( STRING, ( (String) value ).getBytes( StandardCharsets.UTF_8 ) );
+    } else if ( value instanceof Integer ) {
+      rowOutput.writeByte( INTEGER );
+      rowOutput.writeInt( (Integer) value );
+    } else if ( value instanceof Long ) {
+      rowOutput.writeByte( LONG );
+      rowOutput.writeLong( (Long) value );
+    } else if ( value instanceof Double ) {
+      rowOutput.writeByte( DOUBLE );
+      rowOutput.writeDouble( (Double) value );
+    } else if ( value instanceof Float ) {
+      rowOutput.writeByte( FLOAT );
+      rowOutput.writeFloat( (Float) value );
+    } else if ( value instanceof Short ) {
+      rowOutput.writeByte( SHORT );
+      rowOutput.writeShort( (Short) value );
+    } else if ( value instanceof Byte ) {
+      rowOutput.writeByte( BYTE );
+      rowOutput.writeByte( (Byte) value );
+    } else if ( value instanceof Boolean ) {
+      rowOutput.writeByte( BOOLEAN );
+      rowOutput.writeBoolean( (Boolean) value );
+    } else if ( value instanceof BigDecimal ) {
+      writeBytes( BIG_DECIMAL, value.toString().getBytes( StandardCharsets.US_ASCII ) );
+    } else if ( value.getClass() == Timestamp.class ) {
+      rowOutput.writeByte( TIMESTAMP );
+      rowOutput.writeLong( ( (Timestamp) value ).getTime() );
+      rowOutput.writeInt( ( (Timestamp) value ).getNanos() );
+    } else if ( value.getClass() == java.sql.Date.class ) {
+      rowOutput.writeByte( SQL_DATE );
+      rowOutput.writeLong( ( (Date) value ).getTime() );
+    } else if ( value.getClass() == Time.class ) {
+      rowOutput.writeByte( TIME );
+      rowOutput.writeLong( ( (Date) value ).getTime() );
+    } else if ( value.getClass() == Date.class ) {
+      rowOutput.writeByte( DATE );
+      rowOutput.writeLong( ( (Date) value ).getTime() );
+    } else {
+      rowOutput.writeByte( OBJECT );
+      rowOutput.writeInt( objects.size() );
+      objects.add( value );
+    }
+  }
+
+  private void writeBytes( final byte type, final byte[] bytes ) throws IOException {
+    rowOutput.writeByte( type );
+    rowOutput.writeInt( bytes.length );
+    rowOutput.write( bytes );
+  }
+
+  /**
+   * Decodes the values of a row, up to and including <code>lastColumn</code>.
+   */
+  private Object[] readRow( final int row, final int lastColumn ) {
+    if ( segments == null ) {
+      throw new IllegalStateException( "Result set is not complete" ); //$NON-NLS-1$
+    }
+    long offset = rowOffsets[ row ];
+    ByteBuffer buffer = segments[ (int) ( offset / SEGMENT_SIZE ) ].duplicate();
+    buffer.position( (int) ( offset % SEGMENT_SIZE ) );
+    Object[] values = new Object[ lastColumn + 1 ];
+    for ( int column = 0; column <= lastColumn; column++ ) {
+      values[ column ] = readValue( buffer );
+    }
+    return values;
+  }
+
+  private Object readValue( final ByteBuffer buffer ) {
+    byte type = buffer.get();
+    switch ( type ) {
+      case NULL:
+        return null;
+      case INTEGER:
+        return buffer.getInt();
+      case LONG:
+        return buffer.getLong();
+      case DOUBLE:
+        return buffer.getDouble();
+      case FLOAT:
+        return buffer.getFloat();
+      case SHORT:
+        return buffer.getShort();
+      case BYTE:
+        return buffer.get();
+      case BOOLEAN:
+        return buffer.get() != 0;
+      case STRING:
+        return new String( readBytes( buffer ), StandardCharsets.UTF_8 );
+      case BIG_DECIMAL:
+        return new BigDecimal( new String( readBytes( buffer ), StandardCharsets.US_ASCII ) );
+      case TIMESTAMP:
+        Timestamp timestamp = new Timestamp( buffer.getLong() );
+        timestamp.setNanos( buffer.getInt() );
+        return timestamp;
+      case SQL_DATE:
+        return new java.sql.Date( buffer.getLong() );
+      case TIME:
+        return new Time( buffer.getLong() );
+      case DATE:
+        return new Date( buffer.getLong() );
+      case OBJECT:
+        return objects.get( buffer.getInt() );
+      default:
+        throw new IllegalStateException( "Unknown value type " + type ); //$NON-NLS-1$
+    }
+  }
+
+  private byte[] readBytes( final ByteBuffer buffer ) {
+    byte[] bytes = new byte[ buffer.getInt() ];
+    buffer.get( bytes );
+    return bytes;
+  }
+
+  public IPentahoMetaData getMetaData() {
+    return metaData;
+  }
+
+  public Object[] peek() {
+    return cursor < rowCount ? readRow( cursor, columnCount - 1 ) : null;
+  }
+
+  public Object[] next() {
+    return cursor < rowCount ? readRow( cursor++, columnCount - 1 ) : null;
+  }
+
+  public boolean isScrollable() {
+    return true;
+  }
+
+  public int getColumnCount() {
+    return columnCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public Object getValueAt( final int row, final int column ) {
+    if ( row < 0 || row >= rowCount || column < 0 || column >= columnCount ) {
+      return null;
+    }
+    return readRow( row, column )[ column ];
+  }
+
+  public Object[] getDataColumn( final int column ) {
+    Object[] result = new Object[ rowCount ];
+    for ( int row = 0; row < rowCount; row++ ) {
+      result[ row ] = getValueAt( row, column );
+    }
+    return result;
+  }
+
+  public Object[] getDataRow( final int row ) {
+    if ( row < 0 || row >= rowCount ) {
+      return null;
+    }
+    return readRow( row, columnCount - 1 );
+  }
+
+  public void beforeFirst() {
+    cursor = 0;
+  }
+
+  /**
+   * The rows are already detached from any connection, so this result set is returned as is.
+   */
+  public IPentahoResultSet memoryCopy() {
+    return this;
+  }
+
+  public void close() {
+    // nothing to close, the data is detached
+  }
+
+  public void closeConnection() {
+    // no connection
+  }
+
+  public void dispose() {
+    segments = null;
+    heapStore = null;
+    objects.clear();
+    rowOffsets = new long[ 0 ];
+    rowCount = 0;
+    cursor = 0;
+    if ( spillOutput != null ) {
+      try {
+        spillOutput.close();
+      } catch ( IOException e ) {
+        log.debug( e.getMessage(), e );
+      }
+      spillOutput = null;
+    }
+    deleteSpillFile();
+    if ( spillFile != null ) {
+      // only files that could not be removed are left to the JVM, so its list of them doesn't grow with every spill
+      spillFile.deleteOnExit();
+      spillFile = null;
+    }
+  }
+
+  private void deleteSpillFile() {
+    if ( spillFile != null ) {
+      // a mapped file can't be removed on some platforms; dispose tries again
+      if ( spillFile.delete() ) {
+        spillFile = null;
+      } else if ( log.isDebugEnabled() ) {
+        log.debug( "Could not delete " + spillFile ); //$NON-NLS-1$
+      }
+    }
+  }
+
+  /**
+   * Gives access to the buffer without copying it.
+   */
+  private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+    ExposedByteArrayOutputStream() {
+      super( 8192 );
+    }
+
+    ExposedByteArrayOutputStream( int size ) {
+      super( size );
+    }
+
+    ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap( buf, 0, count );
+    }
+  }
+}
@@ -14,6 +14,7 @@
 package org.pentaho.platform.plugin.services.exporter;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.pentaho.database.model.IDatabaseConnection;
 import org.pentaho.di.core.exception.KettleException;
@@ -65,6 +66,7 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -106,7 +108,7 @@ public class PentahoPlatformExporter extends ZipExportProcessor implements IPent
   }
 
   public File performExport() throws ExportException, IOException {
-    return this.performExport( null );
+    return this.performExport( (RepositoryFile) null );
   }
 
   public void addExportHelper( IExportHelper helper ) {
@@ -130,55 +132,72 @@ public class PentahoPlatformExporter extends ZipExportProcessor implements IPent
    */
   @Override
   public File performExport( RepositoryFile exportRepositoryFile ) throws ExportException, IOException {
-
-    getRepositoryExportLogger().info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_START_EXPORT_PROCESS" ) );
-    // always export root
-    exportRepositoryFile = getUnifiedRepository().getFile( ROOT );
-
     // create temp file
     File exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
     exportFile.deleteOnExit();
 
-    zos = new ZipOutputStream( new FileOutputStream( exportFile ) );
-
-    try {
-      exportFileContent( exportRepositoryFile );
-    } catch ( ExportException | IOException exception ) {
-      getRepositoryExportLogger().error( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_EXPORT_FILE_CONTENT", exception.getLocalizedMessage() ) );
+    try ( OutputStream outputStream = new FileOutputStream( exportFile ) ) {
+      performExport( outputStream );
     }
 
-    exportDatasources();
-    exportMondrianSchemas();
-    exportMetadataModels();
-    runExportHelpers();
-    exportUsersAndRoles();
-    exportMetastore();
+    return exportFile;
+  }
+
+  /**
+   * Performs the export process, writing the zip straight to the given stream so the first entries are sent while
+   * the rest of the system is still being exported. The root folder is always exported and the manifest is written
+   * last. The stream is not closed.
+   *
+   * @throws ExportException indicates an error in import processing
+   */
+  public void performExport( OutputStream outputStream ) throws ExportException, IOException {
+
+    getRepositoryExportLogger().info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_START_EXPORT_PROCESS" ) );
+    // always export root
+    RepositoryFile exportRepositoryFile = getUnifiedRepository().getFile( ROOT );
 
-    if ( this.withManifest ) {
-      // write manifest to zip output stream
-      ZipEntry entry = new ZipEntry( EXPORT_MANIFEST_FILENAME );
-      zos.putNextEntry( entry );
+    // the shield keeps the caller's stream open when the zip stream is closed to release its deflater
+    zos = new ZipOutputStream( new CloseShieldOutputStream( outputStream ) );
 
-      // pass output stream to manifest class for writing
+    try {
       try {
-        getExportManifest().toXml( zos );
-      } catch ( Exception e ) {
-        // todo: add to messages.properties
-        getRepositoryExportLogger().error( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_GENERATING_EXPORT_XML" ) );
+        exportFileContent( exportRepositoryFile );
+      } catch ( ExportException | IOException exception ) {
+        getRepositoryExportLogger().error( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_EXPORT_FILE_CONTENT", exception.getLocalizedMessage() ) );
       }
 
-      zos.closeEntry();
-    }
+      exportDatasources();
+      exportMondrianSchemas();
+      exportMetadataModels();
+      runExportHelpers();
+      exportUsersAndRoles();
+      exportMetastore();
+
+      if ( this.withManifest ) {
+        // write manifest to zip output stream
+        ZipEntry entry = new ZipEntry( EXPORT_MANIFEST_FILENAME );
+        zos.putNextEntry( entry );
+
+        // pass output stream to manifest class for writing
+        try {
+          getExportManifest().toXml( zos );
+        } catch ( Exception e ) {
+          // todo: add to messages.properties
+          getRepositoryExportLogger().error( Messages.getInstance().getString( "PentahoPlatformExporter.ERROR_GENERATING_EXPORT_XML" ) );
+        }
 
-    zos.close();
+        zos.closeEntry();
+      }
 
-    // clean up
-    initManifest();
-    zos = null;
+      zos.close();
+    } finally {
+      // clean up
+      IOUtils.closeQuietly( zos );
+      initManifest();
+      zos = null;
+    }
 
     getRepositoryExportLogger().info( Messages.getInstance().getString( "PentahoPlatformExporter.INFO_END_EXPORT_PROCESS" ) );
-
-    return exportFile;
   }
 
   protected void exportDatasources() {
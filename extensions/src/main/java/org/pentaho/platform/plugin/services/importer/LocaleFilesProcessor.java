@@ -66,6 +66,15 @@ public class LocaleFilesProcessor {
     localeFiles = new ArrayList<LocaleFileDescriptor>();
   }
 
+  /**
+   * Tells from the name alone whether {@link #isLocaleFile(IRepositoryFileBundle, String, byte[])} could accept the
+   * file, so that other files do not have to be read into memory first.
+   */
+  public boolean isLocaleFileCandidate( String fileName ) {
+    return fileName != null
+        && ( fileName.endsWith( PROPERTIES_EXT ) || fileName.endsWith( LOCALE_EXT ) || fileName.endsWith( XML_LOCALE ) );
+  }
+
   /**
    * @param file
    * @param parentPath
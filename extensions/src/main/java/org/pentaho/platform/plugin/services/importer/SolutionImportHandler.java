@@ -47,9 +47,9 @@ import org.pentaho.platform.plugin.services.importexport.ImportSession;
 import org.pentaho.platform.plugin.services.importexport.ImportSession.ManifestFile;
 import org.pentaho.platform.plugin.services.importexport.ImportSource.IRepositoryFileBundle;
 import org.pentaho.platform.plugin.services.importexport.Log4JRepositoryImportLogger;
-import org.pentaho.platform.plugin.services.importexport.RepositoryFileBundle;
 import org.pentaho.platform.plugin.services.importexport.RoleExport;
 import org.pentaho.platform.plugin.services.importexport.UserExport;
+import org.pentaho.platform.plugin.services.importexport.ZipEntryRepositoryFileBundle;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportManifest;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.Parameters;
 import org.pentaho.platform.plugin.services.importexport.exportManifest.bindings.ExportManifestMetaStore;
@@ -68,13 +68,14 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 public class SolutionImportHandler implements IPlatformImportHandler {
 
@@ -91,6 +92,8 @@ public class SolutionImportHandler implements IPlatformImportHandler {
   private List<IMimeType> mimeTypes;
   public boolean overwriteFile;
   private List<IRepositoryFileBundle> files;
+  private File archiveFile;
+  private ZipFile archive;
   private boolean isPerformingRestore = false;
 
   private List<IImportHelper> importHelpers = new ArrayList<>();
@@ -140,6 +143,15 @@ public class SolutionImportHandler implements IPlatformImportHandler {
       // Something went wrong, do not proceed!
       return;
     }
+    try {
+      importArchive( bundle );
+    } finally {
+      closeArchive();
+    }
+  }
+
+  private void importArchive( IPlatformImportBundle bundle ) throws PlatformImportException, DomainIdNullException,
+      DomainAlreadyExistsException, DomainStorageException, IOException {
     if ( isPerformingRestore ) {
       getLogger().debug( " End:  pre processing files and folder from the bundle" );
     }
@@ -205,11 +217,10 @@ public class SolutionImportHandler implements IPlatformImportHandler {
 
       if ( cachedImports.containsKey( repositoryFilePath ) ) {
         getLogger().debug( "Repository object with path [ " + repositoryFilePath + " ] found in the cache" );
-        byte[] bytes = IOUtils.toByteArray( fileBundle.getInputStream() );
         RepositoryFileImportBundle.Builder builder = cachedImports.get( repositoryFilePath );
-        builder.input( new ByteArrayInputStream( bytes ) );
 
-        try {
+        try ( InputStream cachedInputStream = fileBundle.getInputStream() ) {
+          builder.input( cachedInputStream );
           importer.importFile( build( builder ) );
           if ( isPerformingRestore ) {
             getLogger().debug( "Successfully restored repository object with path [ " + repositoryFilePath + " ] from the cache" );
@@ -239,13 +250,18 @@ public class SolutionImportHandler implements IPlatformImportHandler {
         fileName = repositoryFilePath;
         repositoryFilePath = importBundle.getPath();
       } else {
-        byte[] bytes = IOUtils.toByteArray( fileBundle.getInputStream() );
-        bundleInputStream = new ByteArrayInputStream( bytes );
-        // If is locale file store it for later processing.
-        if ( localeFilesProcessor.isLocaleFile( fileBundle, importBundle.getPath(), bytes ) ) {
-          getLogger().trace( Messages.getInstance()
-              .getString( "SolutionImportHandler.SkipLocaleFile", repositoryFilePath ) );
-          continue;
+        if ( localeFilesProcessor.isLocaleFileCandidate( fileName ) ) {
+          byte[] bytes = IOUtils.toByteArray( fileBundle.getInputStream() );
+          bundleInputStream = new ByteArrayInputStream( bytes );
+          // If is locale file store it for later processing.
+          if ( localeFilesProcessor.isLocaleFile( fileBundle, importBundle.getPath(), bytes ) ) {
+            getLogger().trace( Messages.getInstance()
+                .getString( "SolutionImportHandler.SkipLocaleFile", repositoryFilePath ) );
+            continue;
+          }
+        } else {
+          // everything else streams from the archive into the repository
+          bundleInputStream = fileBundle.getInputStream();
         }
         bundleBuilder.input( bundleInputStream );
         bundleBuilder.mime( solutionHelper.getMime( fileName ) );
@@ -306,10 +322,10 @@ public class SolutionImportHandler implements IPlatformImportHandler {
         if ( isPerformingRestore ) {
           getLogger().error( Messages.getInstance().getString( "SolutionImportHandler.ERROR_IMPORTING_REPOSITORY_OBJECT", repositoryFilePath, e.getLocalizedMessage() ) );
         }
-      }
-
-      if ( bundleInputStream != null ) {
-        bundleInputStream.close();
+      } finally {
+        if ( bundleInputStream != null ) {
+          bundleInputStream.close();
+        }
       }
     }
 
@@ -961,24 +977,29 @@ public class SolutionImportHandler implements IPlatformImportHandler {
     return path;
   }
 
-  private boolean processZip( InputStream inputStream ) {
+  /**
+   * Indexes the archive without extracting it. The upload is copied once to a temporary file so that it can be read
+   * as a {@link ZipFile}: the manifest is loaded first, wherever it is in the archive, and every other entry becomes a
+   * bundle that streams its content from the archive when it is imported.
+   */
+  @VisibleForTesting
+  boolean processZip( InputStream inputStream ) {
     this.files = new ArrayList<>();
     if ( isPerformingRestore ) {
       getLogger().info( Messages.getInstance().getString( "SolutionImportHandler.INFO_START_IMPORT_REPOSITORY_OBJECT" ) );
     }
-    try ( ZipInputStream zipInputStream = new ZipInputStream( inputStream ) ) {
+    try {
+      openArchive( inputStream );
       FileService fileService = new FileService();
-      ZipEntry entry = zipInputStream.getNextEntry();
-      while ( entry != null ) {
+      Enumeration<? extends ZipEntry> entries = archive.entries();
+      while ( entries.hasMoreElements() ) {
+        ZipEntry entry = entries.nextElement();
         final String entryName = RepositoryFilenameUtils.separatorsToRepository( entry.getName() );
         getLogger().debug( Messages.getInstance().getString( "ZIPFILE.ProcessingEntry", entryName ) );
         final String decodedEntryName = ExportFileNameEncoder.decodeZipFileName( entryName );
-        File tempFile = null;
         boolean isDir = entry.isDirectory();
         if ( !isDir ) {
           if ( !solutionHelper.isInApprovedExtensionList( entryName ) ) {
-            zipInputStream.closeEntry();
-            entry = zipInputStream.getNextEntry();
             continue;
           }
 
@@ -988,12 +1009,6 @@ public class SolutionImportHandler implements IPlatformImportHandler {
                 Messages.getInstance().getString( "DefaultImportHandler.ERROR_0011_INVALID_FILE_NAME",
                     entryName ), PlatformImportException.PUBLISH_PROHIBITED_SYMBOLS_ERROR );
           }
-
-          tempFile = File.createTempFile( "zip", null );
-          tempFile.deleteOnExit();
-          try ( FileOutputStream fos = new FileOutputStream( tempFile ) ) {
-            IOUtils.copy( zipInputStream, fos );
-          }
         } else {
           if ( !fileService.isValidFileName( decodedEntryName ) ) {
             getLogger().error( Messages.getInstance().getString( "DefaultImportHandler.ERROR_0011_INVALID_FILE_NAME", decodedEntryName ) );
@@ -1009,7 +1024,7 @@ public class SolutionImportHandler implements IPlatformImportHandler {
             file.getParent() == null ? RepositoryFile.SEPARATOR : file.getParent()
                 + RepositoryFile.SEPARATOR;
         IRepositoryFileBundle repoFileBundle =
-            new RepositoryFileBundle( repoFile, null, parentDir, tempFile, UTF_8, null );
+            new ZipEntryRepositoryFileBundle( archive, entry, repoFile, null, parentDir, UTF_8, null );
 
         if ( EXPORT_MANIFEST_XML_FILE.equals( file.getName() ) ) {
           initializeAclManifest( repoFileBundle );
@@ -1019,12 +1034,11 @@ public class SolutionImportHandler implements IPlatformImportHandler {
           }
           files.add( repoFileBundle );
         }
-        zipInputStream.closeEntry();
-        entry = zipInputStream.getNextEntry();
       }
     } catch ( IOException | PlatformImportException e ) {
       getLogger().error( Messages.getInstance()
           .getErrorString( "ZIPFILE.ExceptionOccurred", e.getLocalizedMessage() ), e );
+      closeArchive();
       return false;
     }
     if ( isPerformingRestore ) {
@@ -1033,6 +1047,39 @@ public class SolutionImportHandler implements IPlatformImportHandler {
     return true;
   }
 
+  private void openArchive( InputStream inputStream ) throws IOException {
+    closeArchive();
+    archiveFile = File.createTempFile( "import", ".zip" );
+    archiveFile.deleteOnExit();
+    try ( FileOutputStream fos = new FileOutputStream( archiveFile ) ) {
+      IOUtils.copy( inputStream, fos );
+    }
+    archive = new ZipFile( archiveFile, StandardCharsets.UTF_8 );
+  }
+
+  @VisibleForTesting
+  List<IRepositoryFileBundle> getFiles() {
+    return files;
+  }
+
+  @VisibleForTesting
+  void closeArchive() {
+    if ( archive != null ) {
+      try {
+        archive.close();
+      } catch ( IOException e ) {
+        getLogger().debug( e );
+      }
+      archive = null;
+    }
+    if ( archiveFile != null ) {
+      if ( !archiveFile.delete() ) {
+        getLogger().debug( "Unable to delete " + archiveFile );
+      }
+      archiveFile = null;
+    }
+  }
+
   private void initializeAclManifest( IRepositoryFileBundle file ) {
     try {
       byte[] bytes = IOUtils.toByteArray( file.getInputStream() );
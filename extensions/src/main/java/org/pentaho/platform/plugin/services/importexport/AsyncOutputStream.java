@@ -0,0 +1,184 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.importexport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands the bytes written to it over to a background thread, which writes them to the wrapped stream. The producer
+ * (e.g. an export reading the repository and compressing entries) keeps working while the previous chunks are still
+ * being sent. At most {@code maxPendingChunks} chunks are queued, so a slow client slows the producer down instead of
+ * filling the heap.
+ * <p/>
+ * All writes must come from a single thread. {@link #close()} waits for the queued chunks to be written and rethrows
+ * any failure of the background writer; the wrapped stream is flushed but not closed.
+ */
+public class AsyncOutputStream extends OutputStream {
+
+  public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+  public static final int DEFAULT_MAX_PENDING_CHUNKS = 16;
+
+  private static final byte[] END = new byte[ 0 ];
+
+  private final OutputStream out;
+
+  private final int chunkSize;
+
+  private final BlockingQueue<byte[]> queue;
+
+  private final Thread writer;
+
+  private volatile IOException failure;
+
+  private byte[] buffer;
+
+  private int count;
+
+  private boolean closed;
+
+  public AsyncOutputStream( OutputStream out ) {
+    this( out, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PENDING_CHUNKS );
+  }
+
+  public AsyncOutputStream( OutputStream out, int chunkSize, int maxPendingChunks ) {
+    this.out = out;
+    this.chunkSize = chunkSize;
+    this.queue = new ArrayBlockingQueue<>( maxPendingChunks );
+    this.buffer = new byte[ chunkSize ];
+    this.writer = new Thread( this::drain, "AsyncOutputStream-" + Thread.currentThread().getName() ); //$NON-NLS-1$
+    this.writer.setDaemon( true );
+    this.writer.start();
+  }
+
+  @Override
+  public void write( int b ) throws IOException {
+    ensureOpen();
+    if ( count == chunkSize ) {
+      handOff();
+    }
+    buffer[ count++ ] = (byte) b;
+  }
+
+  @Override
+  public void write( byte[] b, int off, int len ) throws IOException {
+    ensureOpen();
+    while ( len > 0 ) {
+      if ( count == chunkSize ) {
+        handOff();
+      }
+      int n = Math.min( len, chunkSize - count );
+      System.arraycopy( b, off, buffer, count, n );
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  /**
+   * Queues what has been buffered so far; it does not wait for it to be written.
+   */
+  @Override
+  public void flush() throws IOException {
+    ensureOpen();
+    if ( count > 0 ) {
+      handOff();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if ( closed ) {
+      return;
+    }
+    try {
+      if ( count > 0 ) {
+        handOff();
+      }
+      enqueue( END );
+      writer.join();
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } finally {
+      closed = true;
+      buffer = null;
+    }
+    rethrowFailure();
+  }
+
+  private void handOff() throws IOException {
+    byte[] chunk = count == chunkSize ? buffer : Arrays.copyOf( buffer, count );
+    try {
+      enqueue( chunk );
+    } catch ( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    // the queued chunk now belongs to the writer thread
+    buffer = new byte[ chunkSize ];
+    count = 0;
+  }
+
+  private void enqueue( byte[] chunk ) throws InterruptedException, IOException {
+    while ( !queue.offer( chunk, 1, TimeUnit.SECONDS ) ) {
+      if ( !writer.isAlive() ) {
+        rethrowFailure();
+        throw new IOException( "Writer thread is gone" ); //$NON-NLS-1$
+      }
+    }
+  }
+
+  private void ensureOpen() throws IOException {
+    if ( closed ) {
+      throw new IOException( "Stream closed" ); //$NON-NLS-1$
+    }
+    rethrowFailure();
+  }
+
+  private void rethrowFailure() throws IOException {
+    if ( failure != null ) {
+      throw failure;
+    }
+  }
+
+  private void drain() {
+    try {
+      byte[] chunk;
+      while ( ( chunk = queue.take() ) != END ) {
+        // after a failure keep taking chunks so the producer never blocks; it sees the failure on its next call
+        if ( failure == null ) {
+          try {
+            out.write( chunk );
+          } catch ( IOException e ) {
+            failure = e;
+          }
+        }
+      }
+      if ( failure == null ) {
+        out.flush();
+      }
+    } catch ( IOException e ) {
+      failure = e;
+    } catch ( InterruptedException e ) {
+      failure = new InterruptedIOException();
+    }
+  }
+}
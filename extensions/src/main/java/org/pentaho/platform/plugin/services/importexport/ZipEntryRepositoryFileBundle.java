@@ -0,0 +1,82 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.importexport;
+
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
+import org.pentaho.platform.plugin.services.importexport.ImportSource.IRepositoryFileBundle;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An {@link IRepositoryFileBundle} that reads its content straight from an entry of an open {@link ZipFile}, so
+ * nothing has to be extracted before it is imported. The zip file must stay open while the bundle is in use.
+ */
+public class ZipEntryRepositoryFileBundle implements IRepositoryFileBundle {
+
+  private final ZipFile zipFile;
+  private final ZipEntry entry;
+  private final RepositoryFile file;
+  private final RepositoryFileAcl acl;
+  private String path;
+  private final String charset;
+  private final String mimeType;
+
+  public ZipEntryRepositoryFileBundle( final ZipFile zipFile, final ZipEntry entry, final RepositoryFile file,
+                                       final RepositoryFileAcl acl, final String path, final String charset,
+                                       final String mimeType ) {
+    this.zipFile = zipFile;
+    this.entry = entry;
+    this.file = file;
+    this.acl = acl;
+    this.path = path;
+    this.charset = charset;
+    this.mimeType = mimeType;
+  }
+
+  public RepositoryFile getFile() {
+    return file;
+  }
+
+  public RepositoryFileAcl getAcl() {
+    return acl;
+  }
+
+  /**
+   * Opens a new stream over the entry on each call; the caller closes it.
+   */
+  public InputStream getInputStream() throws IOException {
+    return new BufferedInputStream( zipFile.getInputStream( entry ) );
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath( String path ) {
+    this.path = path;
+  }
+
+  public String getCharset() {
+    return charset;
+  }
+
+  public String getMimeType() {
+    return mimeType;
+  }
+}
@@ -15,6 +15,7 @@ package org.pentaho.platform.plugin.services.importexport;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -111,13 +112,27 @@ public class ZipExportProcessor extends BaseExportProcessor {
    * @throws ExportException indicates an error in import processing
    */
   public File performExport( RepositoryFile exportRepositoryFile ) throws ExportException, IOException {
-    logger = getRepositoryExportLogger();
-    File exportFile = null;
-
     // create temp file
-    exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
+    File exportFile = File.createTempFile( EXPORT_TEMP_FILENAME_PREFIX, EXPORT_TEMP_FILENAME_EXT );
     exportFile.deleteOnExit();
 
+    try ( OutputStream outputStream = new FileOutputStream( exportFile ) ) {
+      performExport( exportRepositoryFile, outputStream );
+    }
+
+    return exportFile;
+  }
+
+  /**
+   * Performs the export process, writing the zip straight to the given stream as the repository is walked. The
+   * stream is not closed.
+   *
+   * @throws ExportException indicates an error in import processing
+   */
+  public void performExport( RepositoryFile exportRepositoryFile, OutputStream outputStream )
+    throws ExportException, IOException {
+    logger = getRepositoryExportLogger();
+
     // get the file path
     String filePath = new File( this.path ).getParent();
     if ( filePath == null ) {
@@ -130,7 +145,8 @@ public class ZipExportProcessor extends BaseExportProcessor {
       throw new FileNotFoundException( "JCR file not found: " + this.path );
     }
 
-    try ( ZipOutputStream zos = new ZipOutputStream( new FileOutputStream( exportFile ) ) ) {
+    // closing the zip ends its deflater and frees the native memory, the shield keeps the caller's stream open
+    try ( ZipOutputStream zos = new ZipOutputStream( new CloseShieldOutputStream( outputStream ) ) ) {
       if ( exportRepositoryFile.isFolder() ) { // Handle recursive export
         exportManifest.getManifestInformation().setRootFolder( path.substring( 0, path.lastIndexOf( "/" ) + 1 ) );
 
@@ -164,8 +180,6 @@ public class ZipExportProcessor extends BaseExportProcessor {
 
     // clean up
     exportManifest = null;
-
-    return exportFile;
   }
 
   /**
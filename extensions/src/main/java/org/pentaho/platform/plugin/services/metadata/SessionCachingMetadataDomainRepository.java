@@ -17,9 +17,15 @@ import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.pentaho.metadata.model.Category;
 import org.pentaho.metadata.model.Domain;
+import org.pentaho.metadata.model.LogicalColumn;
 import org.pentaho.metadata.model.LogicalModel;
+import org.pentaho.metadata.model.LogicalTable;
+import org.pentaho.metadata.model.concept.Concept;
 import org.pentaho.metadata.model.concept.IConcept;
+import org.pentaho.metadata.model.concept.security.Security;
+import org.pentaho.metadata.model.concept.security.SecurityOwner;
 import org.pentaho.metadata.repository.DomainAlreadyExistsException;
 import org.pentaho.metadata.repository.DomainIdNullException;
 import org.pentaho.metadata.repository.DomainStorageException;
@@ -29,9 +35,11 @@ import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.ILogoutListener;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.ISystemConfig;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.springframework.security.core.GrantedAuthority;
 
 import java.io.InputStream;
 import java.io.Serializable;
@@ -41,11 +49,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -74,6 +85,11 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
 
   ICacheManager cacheManager;
   boolean domainIdsCacheEnabled = true;
+  boolean sharedDomainCacheEnabled = true;
+
+  private final AtomicLong sharedCacheHits = new AtomicLong();
+  private final AtomicLong sharedCacheMisses = new AtomicLong();
+  private final AtomicLong canonicalDomainLoads = new AtomicLong();
 
   int numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
 
@@ -131,6 +147,59 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     }
   }
 
+  /**
+   * Key for entries shared by every session: the canonical parsed domain (when {@code securityContext} is null) and
+   * the secured views of it, one per distinct security context (the sorted roles of the user, plus the user name when
+   * the domain grants rights to individual users). Shared entries have no session id, so they survive logouts. The
+   * version of the stored domain, when known, is part of the key so that a re-published domain is parsed again.
+   */
+  public static class SharedCacheKey extends CacheKey {
+    private static final long serialVersionUID = -2206465530412546270L;
+    public String securityContext;
+    public String version;
+
+    protected SharedCacheKey() {
+    }
+
+    public SharedCacheKey( String securityContext, String domainId ) {
+      this( securityContext, domainId, null );
+    }
+
+    public SharedCacheKey( String securityContext, String domainId, String version ) {
+      super( null, domainId );
+      this.securityContext = securityContext;
+      this.version = version;
+    }
+
+    public boolean isCanonical() {
+      return securityContext == null;
+    }
+
+    @Override
+    public boolean equals( final Object o ) {
+      if ( !super.equals( o ) ) {
+        return false;
+      }
+      SharedCacheKey cacheKey = (SharedCacheKey) o;
+      if ( version != null ? !version.equals( cacheKey.version ) : cacheKey.version != null ) {
+        return false;
+      }
+      return securityContext != null ? securityContext.equals( cacheKey.securityContext )
+        : cacheKey.securityContext == null;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = 31 * super.hashCode() + ( securityContext != null ? securityContext.hashCode() : 0 );
+      return 31 * result + ( version != null ? version.hashCode() : 0 );
+    }
+
+    @Override
+    public String toString() {
+      return "(shared:" + securityContext + "," + domainId + "@" + version + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+  }
+
   /**
    * Wraps the provided domain repository to provide session-based caching of domains.
    */
@@ -157,6 +226,8 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     if ( systemConfig != null ) {
       String enableDomainIdCache = systemConfig.getProperty( "system.enableDomainIdCache" );
       domainIdsCacheEnabled = ( enableDomainIdCache == null ) || Boolean.valueOf( enableDomainIdCache );
+      String enableSharedDomainCache = systemConfig.getProperty( "system.enableSharedDomainCache" );
+      sharedDomainCacheEnabled = ( enableSharedDomainCache == null ) || Boolean.valueOf( enableSharedDomainCache );
       numberOfThreads = getNumberOfThreads( systemConfig );
     }
   }
@@ -262,6 +333,9 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
   @Override
   public Domain getDomain( final String id ) {
     final IPentahoSession session = PentahoSessionHolder.getSession();
+    if ( sharedDomainCacheEnabled && getRoleNames( session ) != null ) {
+      return getSharedDomain( session, id );
+    }
     final CacheKey key = new CacheKey( session.getId(), id );
     Domain domain = (Domain) cacheManager.getFromRegionCache( CACHE_REGION, key );
     if ( domain != null ) {
@@ -296,6 +370,229 @@ public class SessionCachingMetadataDomainRepository implements IMetadataDomainRe
     return domain;
   }
 
+  /**
+   * Looks a domain up in the part of the cache shared by all sessions. The domain is parsed once by the delegate and
+   * kept as a canonical instance; the secured view of it is built once per security context and shared by every
+   * session with that context. Neither is handed out: callers get their own copy of the secured view, which they may
+   * change without affecting other sessions.
+   *
+   * @param session Session requesting the domain
+   * @param id      Domain id
+   * @return the secured domain or null if it does not exist or the user has no access to it
+   */
+  Domain getSharedDomain( final IPentahoSession session, final String id ) {
+    if ( !hasAccessFor( id ) ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "User has no access to Domain, not serving it from the shared cache: " + id ); //$NON-NLS-1$
+      }
+      return null;
+    }
+    final String version = getDomainVersion( id );
+    final SharedCacheKey canonicalKey = new SharedCacheKey( null, id, version );
+    Domain canonical = (Domain) cacheManager.getFromRegionCache( CACHE_REGION, canonicalKey );
+    if ( canonical == null ) {
+      canonical = delegate.getDomain( id );
+      if ( canonical == null ) {
+        return null;
+      }
+      canonicalDomainLoads.incrementAndGet();
+      if ( version != null ) {
+        purgeSharedVersions( id, version );
+      }
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Caching canonical domain: " + canonicalKey ); //$NON-NLS-1$
+      }
+      cacheManager.putInRegionCache( CACHE_REGION, canonicalKey, canonical );
+    }
+
+    final SharedCacheKey key = new SharedCacheKey( getSecurityContext( session, canonical ), id, version );
+    Domain domain = (Domain) cacheManager.getFromRegionCache( CACHE_REGION, key );
+    if ( domain != null ) {
+      sharedCacheHits.incrementAndGet();
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Found domain in shared cache: " + key ); //$NON-NLS-1$
+      }
+      return (Domain) domain.clone();
+    }
+    sharedCacheMisses.incrementAndGet();
+    domain = new SecurityHelper().createSecureDomain( this, canonical );
+    if ( logger.isDebugEnabled() ) {
+      logger.debug( "Caching domain by security context: " + key ); //$NON-NLS-1$
+    }
+    cacheManager.putInRegionCache( CACHE_REGION, key, domain );
+    return (Domain) domain.clone();
+  }
+
+  /**
+   * The version is read from the metadata mapping of the delegate rather than from the repository, so a cache hit
+   * costs no repository call. The delegate reads the mapping again whenever a domain is stored or removed and when
+   * the domains are flushed or reloaded, so the version changes with every re-published domain it sees.
+   *
+   * @return the version id and modification time of the file the domain is stored in, or null when the delegate does
+   * not keep domains in the repository
+   */
+  String getDomainVersion( final String id ) {
+    if ( !( delegate instanceof PentahoMetadataDomainRepository ) ) {
+      return null;
+    }
+    PentahoMetadataDomainRepository repository = (PentahoMetadataDomainRepository) delegate;
+    try {
+      RepositoryFile file = repository.getMetadataRepositoryFile( id );
+      if ( file == null || file.getLastModifiedDate() == null ) {
+        return null;
+      }
+      return file.getVersionId() + ":" + file.getLastModifiedDate().getTime(); //$NON-NLS-1$
+    } catch ( RuntimeException e ) {
+      if ( logger.isDebugEnabled() ) {
+        logger.debug( "Cannot tell the version of domain " + id, e ); //$NON-NLS-1$
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Drops the shared entries of a domain that were cached for another version of it.
+   */
+  private void purgeSharedVersions( final String domainId, final String version ) {
+    forAllKeys( new CacheIteratorCallback() {
+      @Override
+      public Boolean call( final ICacheManager cacheManager, final CacheKey key ) {
+        if ( key instanceof SharedCacheKey && domainId.equals( key.domainId )
+          && !version.equals( ( (SharedCacheKey) key ).version ) ) {
+          cacheManager.removeFromRegionCache( CACHE_REGION, key );
+        }
+        return true; // continue
+      }
+    } );
+  }
+
+  /**
+   * Builds the identity under which secured domain views are shared. Domain ACLs may grant rights to roles or to
+   * individual users, so the user name only becomes part of the context when the domain has user entries.
+   *
+   * @param session Session requesting the domain
+   * @param domain  Canonical domain
+   * @return security context string
+   */
+  String getSecurityContext( final IPentahoSession session, final Domain domain ) {
+    StringBuilder context = new StringBuilder( "roles:" ); //$NON-NLS-1$
+    context.append( getRoleNames( session ) );
+    if ( hasUserSecurityOwners( domain ) ) {
+      context.append( ";user:" ).append( session.getName() ); //$NON-NLS-1$
+    }
+    return context.toString();
+  }
+
+  /**
+   * @return the sorted role names of the session, or null when the session carries no roles and therefore can only
+   * use the session cache
+   */
+  @SuppressWarnings( "unchecked" )
+  Set<String> getRoleNames( final IPentahoSession session ) {
+    Object roles = session == null ? null : session.getAttribute( IPentahoSession.SESSION_ROLES );
+    if ( !( roles instanceof Collection ) ) {
+      return null;
+    }
+    Set<String> roleNames = new TreeSet<>();
+    for ( Object role : (Collection<Object>) roles ) {
+      roleNames.add( role instanceof GrantedAuthority ? ( (GrantedAuthority) role ).getAuthority()
+        : String.valueOf( role ) );
+    }
+    return roleNames;
+  }
+
+  boolean hasUserSecurityOwners( final Domain domain ) {
+    for ( LogicalModel model : domain.getLogicalModels() ) {
+      if ( hasUserSecurityOwner( model ) ) {
+        return true;
+      }
+      for ( Category category : model.getCategories() ) {
+        if ( hasUserSecurityOwner( category ) ) {
+          return true;
+        }
+        for ( LogicalColumn column : category.getLogicalColumns() ) {
+          if ( hasUserSecurityOwner( column ) ) {
+            return true;
+          }
+        }
+      }
+      for ( LogicalTable table : model.getLogicalTables() ) {
+        if ( hasUserSecurityOwner( table ) ) {
+          return true;
+        }
+        for ( LogicalColumn column : table.getLogicalColumns() ) {
+          if ( hasUserSecurityOwner( column ) ) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean hasUserSecurityOwner( final IConcept concept ) {
+    Object security = concept.getProperty( Concept.SECURITY_PROPERTY );
+    if ( security instanceof Security ) {
+      for ( SecurityOwner owner : ( (Security) security ).getOwnerAclMap().keySet() ) {
+        if ( owner.getOwnerType() == SecurityOwner.OwnerType.USER ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return number of lookups served by an already secured, shared domain view
+   */
+  public long getSharedCacheHitCount() {
+    return sharedCacheHits.get();
+  }
+
+  /**
+   * @return number of lookups which had to build a secured view of a canonical domain
+   */
+  public long getSharedCacheMissCount() {
+    return sharedCacheMisses.get();
+  }
+
+  /**
+   * @return hit rate of the shared domain cache, between 0 and 1
+   */
+  public double getSharedCacheHitRate() {
+    long hits = sharedCacheHits.get();
+    long total = hits + sharedCacheMisses.get();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * @return number of times a domain was parsed by the delegate to become a canonical cached domain
+   */
+  public long getCanonicalDomainLoadCount() {
+    return canonicalDomainLoads.get();
+  }
+
+  /**
+   * Reports, for each domain id, how many domain instances the cache currently holds for it (the canonical domain,
+   * its shared secured views and any session-specific copies). This is the figure that drives the memory used per
+   * domain.
+   *
+   * @return instances held per domain id
+   */
+  public Map<String, Integer> getCachedDomainCounts() {
+    final Map<String, Integer> counts = new TreeMap<>();
+    forAllKeys( new CacheIteratorCallback() {
+      @Override
+      public Boolean call( final ICacheManager cacheManager, final CacheKey key ) {
+        if ( key.domainId != null ) {
+          counts.merge( key.domainId, 1, Integer::sum );
+        }
+        return true; // continue
+      }
+    } );
+    return counts;
+  }
+
   /**
    * Remove all cache entries whose domain's id is equal to {@code domainId}.
    *
@@ -61,6 +61,7 @@ import org.pentaho.platform.api.repository2.unified.webservices.StringKeyStringV
 import org.pentaho.platform.security.policy.rolebased.actions.PublishAction;
 import org.pentaho.platform.util.xml.XMLParserFactoryProducer;
 import org.pentaho.platform.web.http.api.resources.services.FileService;
+import org.pentaho.platform.web.http.api.resources.utils.DownloadUtils;
 import org.pentaho.platform.web.http.api.resources.utils.FileUtils;
 import org.pentaho.platform.web.http.api.resources.utils.SystemUtils;
 import org.pentaho.platform.web.http.messages.Messages;
@@ -109,6 +110,7 @@ import java.nio.channels.IllegalSelectorException;
 import java.security.GeneralSecurityException;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -129,6 +131,7 @@ public class FileResource extends AbstractJaxRSResource {
 
   public static final String APPLICATION_ZIP = "application/zip";
   public static final String REPOSITORY_ADMIN_USERNAME = "pentahoRepoAdmin";
+  public static final String CONTINUATION_TOKEN_HEADER = "X-Continuation-Token";
 
   protected static final Log logger = LogFactory.getLog( FileResource.class );
 
@@ -1952,6 +1955,11 @@ public class FileResource extends AbstractJaxRSResource {
    *                    excludeMembers= clause in the same service call.
    * @param showHidden  Include or exclude hidden files from the file list.
    * @param includeAcls Include permission information about the file in the output.
+   * @param offset      Number of children to skip (after the continuation token, if any). Only used with a limit.
+   * @param limit       Maximum number of children to return. When set, the children are sorted by title and only the
+   *                    requested page is returned; if more children follow, the token of the next page is returned in
+   *                    the X-Continuation-Token response header.
+   * @param continuationToken The X-Continuation-Token of the previous page, to resume the listing after it.
    * @return A RepositoryFileTreeDto object containing the files at the selected repository path of the repository. Will return files but not folders under the "/" folder. The fields returned will include the name, filesize, description, id and title.
    *
    * <p><b>Example Response:</b></p>
@@ -1985,8 +1993,27 @@ public class FileResource extends AbstractJaxRSResource {
       @ResponseCode( code = 500, condition = "Server Error." )} )
   public List<RepositoryFileDto> doGetChildren( @PathParam( "pathId" ) String pathId,
                                                 @QueryParam( "filter" ) String filter, @QueryParam( "showHidden" ) Boolean showHidden,
-                                                @DefaultValue( "false" ) @QueryParam( "includeAcls" ) Boolean includeAcls ) {
+                                                @DefaultValue( "false" ) @QueryParam( "includeAcls" ) Boolean includeAcls,
+                                                @QueryParam( "offset" ) Integer offset,
+                                                @QueryParam( "limit" ) Integer limit,
+                                                @QueryParam( "continuationToken" ) String continuationToken ) {
+    if ( offset == null && limit == null && continuationToken == null ) {
+      return doGetChildren( pathId, filter, showHidden, includeAcls );
+    }
 
+    FileService.ChildrenPage page;
+    try {
+      page = fileService.doGetChildren( pathId, filter, showHidden, includeAcls, offset, limit, continuationToken );
+    } catch ( IllegalArgumentException e ) {
+      throw new WebApplicationException( e, Response.Status.BAD_REQUEST );
+    }
+    if ( page.getNextContinuationToken() != null && httpServletResponse != null ) {
+      httpServletResponse.setHeader( CONTINUATION_TOKEN_HEADER, page.getNextContinuationToken() );
+    }
+    return page.getChildren();
+  }
+
+  public List<RepositoryFileDto> doGetChildren( String pathId, String filter, Boolean showHidden, Boolean includeAcls ) {
     return fileService.doGetChildren( pathId, filter, showHidden, includeAcls );
   }
 
@@ -2379,7 +2406,32 @@ public class FileResource extends AbstractJaxRSResource {
   }
 
   protected Response buildOkResponse( FileService.RepositoryFileToStreamWrapper wrapper ) {
-    Response.ResponseBuilder builder = Response.ok( wrapper.getOutputStream() );
+    RepositoryFile repositoryFile = wrapper.getRepositoryFile();
+    String eTag = DownloadUtils.getETag( repositoryFile );
+    Date lastModified = repositoryFile.getLastModifiedDate();
+
+    if ( httpServletRequest != null && DownloadUtils.isNotModified( httpServletRequest, eTag, lastModified ) ) {
+      IOUtils.closeQuietly( wrapper.getInputStream() );
+      return addValidators( Response.notModified(), eTag, lastModified ).build();
+    }
+
+    Object entity = wrapper.getOutputStream();
+    // the stored file size is not exact, so parts are only sent when the repository knows the length of the content
+    long size = wrapper.getInputStream() != null ? wrapper.getContentLength() : -1;
+    DownloadUtils.ByteRange range = null;
+    if ( httpServletRequest != null && size > 0 ) {
+      range = DownloadUtils.getRange( httpServletRequest, eTag, size );
+      if ( range == DownloadUtils.ByteRange.UNSATISFIABLE ) {
+        IOUtils.closeQuietly( wrapper.getInputStream() );
+        return Response.status( DownloadUtils.REQUESTED_RANGE_NOT_SATISFIABLE )
+            .header( DownloadUtils.CONTENT_RANGE, DownloadUtils.BYTES + " */" + size ).build();
+      }
+      if ( range != null ) {
+        entity = DownloadUtils.getRangeOutput( wrapper.getInputStream(), range );
+      }
+    }
+
+    Response.ResponseBuilder builder = Response.ok( entity );
 
     if ( wrapper.getMimetype() != null ) {
 
@@ -2392,11 +2444,30 @@ public class FileResource extends AbstractJaxRSResource {
         mediaType = MediaType.APPLICATION_OCTET_STREAM_TYPE;
       }
 
-      builder = Response.ok( wrapper.getOutputStream(), mediaType );
+      builder = Response.ok( entity, mediaType );
+    }
+
+    if ( range != null ) {
+      builder.status( DownloadUtils.PARTIAL_CONTENT )
+          .header( DownloadUtils.CONTENT_RANGE, range.toContentRange( size ) )
+          .header( DownloadUtils.CONTENT_LENGTH, range.getLength() );
     }
+    if ( size > 0 ) {
+      builder.header( DownloadUtils.ACCEPT_RANGES, DownloadUtils.BYTES );
+    }
+
+    return addValidators( builder, eTag, lastModified ).header( "Content-Disposition",
+        HttpMimeTypeListener.buildContentDispositionValue( repositoryFile.getName(), false ) ).build();
+  }
 
-    return builder.header( "Content-Disposition", HttpMimeTypeListener.buildContentDispositionValue( wrapper
-        .getRepositoryFile().getName(), false ) ).build();
+  private Response.ResponseBuilder addValidators( Response.ResponseBuilder builder, String eTag, Date lastModified ) {
+    if ( eTag != null ) {
+      builder.header( DownloadUtils.ETAG, eTag );
+    }
+    if ( lastModified != null ) {
+      builder.lastModified( lastModified );
+    }
+    return builder;
   }
 
   protected Response buildZipOkResponse( FileService.DownloadFileWrapper wrapper ) {
@@ -0,0 +1,232 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.json.JSONJAXBContext;
+import com.sun.jersey.api.json.JSONMarshaller;
+import org.pentaho.platform.api.repository2.unified.webservices.RepositoryFileDto;
+import org.pentaho.platform.api.repository2.unified.webservices.RepositoryFileTreeDto;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes a {@link RepositoryFileTreeDto} one node at a time instead of marshalling the whole tree at once. Only the
+ * {@code file} of each node goes through JAXB, so the output is the same XML, or mapped JSON, as the default JAXB
+ * providers produce, but the response starts right away. The tree is walked with an explicit stack rather than by
+ * recursion, so deep trees cannot overflow the thread's stack, and it is left untouched for the caller.
+ */
+@Provider
+@Produces( { MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON } )
+public class RepositoryFileTreeDtoProvider implements MessageBodyWriter<RepositoryFileTreeDto> {
+
+  private static final String ROOT = "repositoryFileTreeDto"; //$NON-NLS-1$
+  private static final String CHILDREN = "children"; //$NON-NLS-1$
+  private static final String FILE = "file"; //$NON-NLS-1$
+  private static final int FLUSH_INTERVAL = 100;
+
+  @Context
+  private Providers providers;
+
+  private JAXBContext jsonFallbackContext;
+
+  public boolean isWriteable( Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType ) {
+    return RepositoryFileTreeDto.class.isAssignableFrom( type )
+      && ( isXml( mediaType ) || mediaType.isCompatible( MediaType.APPLICATION_JSON_TYPE ) );
+  }
+
+  public long getSize( RepositoryFileTreeDto tree, Class<?> type, Type genericType, Annotation[] annotations,
+                       MediaType mediaType ) {
+    return -1;
+  }
+
+  public void writeTo( RepositoryFileTreeDto tree, Class<?> type, Type genericType, Annotation[] annotations,
+                       MediaType mediaType, MultivaluedMap<String, Object> httpHeaders, OutputStream entityStream )
+    throws IOException, WebApplicationException {
+    Writer writer = new BufferedWriter( new OutputStreamWriter( entityStream, StandardCharsets.UTF_8 ) );
+    try {
+      if ( isXml( mediaType ) ) {
+        writeXml( tree, writer );
+      } else {
+        writeJson( tree, writer );
+      }
+    } catch ( JAXBException | XMLStreamException e ) {
+      throw new WebApplicationException( e );
+    }
+    writer.flush();
+  }
+
+  void writeXml( RepositoryFileTreeDto tree, Writer writer ) throws JAXBException, XMLStreamException, IOException {
+    Marshaller marshaller = getContext( MediaType.APPLICATION_XML_TYPE ).createMarshaller();
+    marshaller.setProperty( Marshaller.JAXB_FRAGMENT, true );
+    writer.write( "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" ); //$NON-NLS-1$
+    XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter( writer );
+    int written = 0;
+    Deque<Frame> stack = new ArrayDeque<Frame>();
+    xml.writeStartElement( ROOT );
+    stack.push( new Frame( tree ) );
+    while ( !stack.isEmpty() ) {
+      Frame frame = stack.peek();
+      RepositoryFileTreeDto child = frame.nextChild();
+      if ( child != null ) {
+        xml.writeStartElement( CHILDREN );
+        stack.push( new Frame( child ) );
+        continue;
+      }
+      // all children written, close the node with its file
+      stack.pop();
+      if ( frame.node.getFile() != null ) {
+        marshaller.marshal( toElement( frame.node.getFile() ), xml );
+      }
+      xml.writeEndElement();
+      if ( ++written % FLUSH_INTERVAL == 0 ) {
+        xml.flush();
+        writer.flush();
+      }
+    }
+    xml.flush();
+  }
+
+  void writeJson( RepositoryFileTreeDto tree, Writer writer ) throws JAXBException, IOException {
+    JAXBContext context = getContext( MediaType.APPLICATION_JSON_TYPE );
+    if ( !( context instanceof JSONJAXBContext ) ) {
+      context = getJsonFallbackContext();
+    }
+    JSONMarshaller marshaller = ( (JSONJAXBContext) context ).createJSONMarshaller();
+    int written = 0;
+    Deque<Frame> stack = new ArrayDeque<Frame>();
+    writer.write( '{' );
+    stack.push( new Frame( tree ) );
+    while ( !stack.isEmpty() ) {
+      Frame frame = stack.peek();
+      RepositoryFileTreeDto child = frame.nextChild();
+      if ( child != null ) {
+        writer.write( frame.childrenWritten == 1 ? "\"" + CHILDREN + "\":[{" : ",{" ); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        stack.push( new Frame( child ) );
+        continue;
+      }
+      // all children written, close the node with its file
+      stack.pop();
+      if ( frame.childrenWritten > 0 ) {
+        writer.write( ']' );
+      }
+      if ( frame.node.getFile() != null ) {
+        if ( frame.childrenWritten > 0 ) {
+          writer.write( ',' );
+        }
+        writer.write( "\"" + FILE + "\":" ); //$NON-NLS-1$ //$NON-NLS-2$
+        marshaller.marshallToJSON( toElement( frame.node.getFile() ), writer );
+      }
+      writer.write( '}' );
+      if ( ++written % FLUSH_INTERVAL == 0 ) {
+        writer.flush();
+      }
+    }
+  }
+
+  /**
+   * A node being written, with the position reached in its children.
+   */
+  private static class Frame {
+    private final RepositoryFileTreeDto node;
+    private final Iterator<RepositoryFileTreeDto> children;
+    private int childrenWritten;
+
+    Frame( RepositoryFileTreeDto node ) {
+      this.node = node;
+      List<RepositoryFileTreeDto> list = node.getChildren();
+      this.children = list != null ? list.iterator() : Collections.<RepositoryFileTreeDto>emptyIterator();
+    }
+
+    /**
+     * Returns the next child to write, or null once all of them have been.
+     */
+    RepositoryFileTreeDto nextChild() {
+      while ( children.hasNext() ) {
+        RepositoryFileTreeDto child = children.next();
+        if ( child != null ) {
+          childrenWritten++;
+          return child;
+        }
+      }
+      return null;
+    }
+  }
+
+  private JAXBElement<RepositoryFileDto> toElement( RepositoryFileDto file ) {
+    return new JAXBElement<RepositoryFileDto>( new QName( FILE ), RepositoryFileDto.class, file );
+  }
+
+  /**
+   * Uses the application's {@link JAXBContext} (see {@link JAXBContextResolver}) so files are written exactly as they
+   * would be as part of the whole tree.
+   */
+  private JAXBContext getContext( MediaType mediaType ) throws JAXBException {
+    JAXBContext context = null;
+    if ( providers != null ) {
+      ContextResolver<JAXBContext> resolver = providers.getContextResolver( JAXBContext.class, mediaType );
+      if ( resolver != null ) {
+        context = resolver.getContext( RepositoryFileTreeDto.class );
+      }
+    }
+    if ( context == null ) {
+      context = mediaType.isCompatible( MediaType.APPLICATION_JSON_TYPE )
+        ? getJsonFallbackContext() : JAXBContext.newInstance( RepositoryFileTreeDto.class );
+    }
+    return context;
+  }
+
+  private synchronized JAXBContext getJsonFallbackContext() throws JAXBException {
+    if ( jsonFallbackContext == null ) {
+      JSONConfiguration config =
+        JSONConfiguration.mapped().rootUnwrapping( true ).arrays( CHILDREN, ROOT ).build();
+      jsonFallbackContext = new JSONJAXBContext( config, RepositoryFileTreeDto.class );
+    }
+    return jsonFallbackContext;
+  }
+
+  private static boolean isXml( MediaType mediaType ) {
+    return mediaType.isCompatible( MediaType.APPLICATION_XML_TYPE )
+      || mediaType.isCompatible( MediaType.TEXT_XML_TYPE );
+  }
+}
@@ -18,8 +18,11 @@ import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.plugin.action.kettle.KettleMetaCache;
 import org.pentaho.platform.plugin.action.mondrian.catalog.IMondrianCatalogService;
 import org.pentaho.platform.plugin.action.olap.IOlapService;
+import org.pentaho.platform.plugin.action.sql.SQLResultCache;
+import org.pentaho.platform.uifoundation.chart.ChartImageCache;
 import org.pentaho.platform.web.http.api.resources.utils.SystemUtils;
 
 import javax.ws.rs.GET;
@@ -129,6 +132,70 @@ public class SystemRefreshResource extends AbstractJaxRSResource {
     }
   }
 
+  /**
+   * Flushes the SQL result cache, when it is enabled, and answers with its statistics from before the flush.
+   */
+  @GET
+  @Path( "/sqlResultCache" )
+  @Produces( TEXT_PLAIN )
+  @Facet( name = "Unsupported" )
+  public Response flushSqlResultCache() {
+    if ( canAdminister() ) {
+      SQLResultCache resultCache = SQLResultCache.getInstance();
+      String statistics = "";
+      if ( resultCache != null ) {
+        statistics = resultCache.getStatistics().toString();
+        resultCache.clear();
+      }
+      return Response.ok( statistics ).type( MediaType.TEXT_PLAIN ).build();
+    } else {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+  }
+
+  /**
+   * Flushes the cache of parsed Kettle transformations and jobs, when it is on, and answers with its statistics from
+   * before the flush.
+   */
+  @GET
+  @Path( "/kettleMetaCache" )
+  @Produces( TEXT_PLAIN )
+  @Facet( name = "Unsupported" )
+  public Response flushKettleMetaCache() {
+    if ( canAdminister() ) {
+      KettleMetaCache metaCache = KettleMetaCache.getInstance();
+      String statistics = "";
+      if ( metaCache != null ) {
+        statistics = metaCache.getStatistics().toString();
+        metaCache.clear();
+      }
+      return Response.ok( statistics ).type( MediaType.TEXT_PLAIN ).build();
+    } else {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+  }
+
+  /**
+   * Flushes the cache of rendered chart images, when it is on, and answers with its statistics from before the flush.
+   */
+  @GET
+  @Path( "/chartImageCache" )
+  @Produces( TEXT_PLAIN )
+  @Facet( name = "Unsupported" )
+  public Response flushChartImageCache() {
+    if ( canAdminister() ) {
+      ChartImageCache imageCache = ChartImageCache.getInstance();
+      String statistics = "";
+      if ( imageCache != null ) {
+        statistics = imageCache.getStatistics().toString();
+        imageCache.clear();
+      }
+      return Response.ok( statistics ).type( MediaType.TEXT_PLAIN ).build();
+    } else {
+      return Response.status( UNAUTHORIZED ).build();
+    }
+  }
+
   /**
    * @deprecated use org.pentaho.reporting.platform.plugin.CacheManagerEndpoint instead
    */
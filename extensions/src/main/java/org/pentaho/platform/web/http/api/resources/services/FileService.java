@@ -49,6 +49,7 @@ import org.pentaho.platform.plugin.services.exporter.PentahoPlatformExporter;
 import org.pentaho.platform.plugin.services.importer.IPlatformImporter;
 import org.pentaho.platform.plugin.services.importer.PlatformImportException;
 import org.pentaho.platform.plugin.services.importer.RepositoryFileImportBundle;
+import org.pentaho.platform.plugin.services.importexport.AsyncOutputStream;
 import org.pentaho.platform.plugin.services.importexport.BaseExportProcessor;
 import org.pentaho.platform.plugin.services.importexport.DefaultExportHandler;
 import org.pentaho.platform.plugin.services.importexport.RepositoryTextLayout;
@@ -159,7 +160,6 @@ public class FileService {
           throw new ExportException( fileNotFoundException );
         }
       }
-      ByteArrayOutputStream exportLoggerSream = new ByteArrayOutputStream();
       IPentahoPlatformExporter exporter = PentahoSystem.get( IPentahoPlatformExporter.class );
       if ( exporter == null ) {
         logger.error( Messages.getInstance().getString( "FileService.ERROR_UNABLE_TO_GET_PLATFORM_EXPORTER" ) );
@@ -171,15 +171,7 @@ public class FileService {
         logger.error( Messages.getInstance().getString( "FileService.ERROR_UNABLE_TO_GET_EXPORT_LOGGER" ) );
         throw new ExportException( Messages.getInstance().getString( "FileService.ERROR_UNABLE_TO_GET_EXPORT_LOGGER" ) );
       }
-      RepositoryTextLayout stringLayout = new RepositoryTextLayout( level );
-      exportLogger.startJob( exportLoggerSream, level, stringLayout );
-      StreamingOutput streamingOutput = getBackupStream();
-      exportLogger.endJob();
-      try {
-        exportLoggerSream.writeTo( fileOutputStream );
-      } catch ( IOException e ) {
-        logger.error( e.getLocalizedMessage() );
-      }
+      StreamingOutput streamingOutput = getBackupStream( exportLogger, level, fileOutputStream );
       final String attachment = HttpMimeTypeListener.buildContentDispositionValue( outputFile, true );
       return new DownloadFileWrapper( streamingOutput, attachment, encodedFileName );
     } else {
@@ -253,14 +245,32 @@ public class FileService {
     }
   }
 
-  private StreamingOutput getBackupStream() throws IOException, ExportException {
-    File zipFile = getBackupExporter().performExport();
-    final FileInputStream inputStream = new FileInputStream( zipFile );
-
+  /**
+   * The export only runs once the response is written, so the download starts right away and nothing is spooled to
+   * a temp file. Compressed chunks are sent by a background thread while the next entries are read and compressed;
+   * the repository itself is read on the request thread, which owns the session.
+   */
+  private StreamingOutput getBackupStream( final IRepositoryExportLogger exportLogger, final Level level,
+                                           final OutputStream logOutputStream ) {
     return new StreamingOutput() {
       @Override
       public void write( OutputStream output ) throws IOException {
-        IOUtils.copy( inputStream, output );
+        ByteArrayOutputStream exportLoggerStream = new ByteArrayOutputStream();
+        exportLogger.startJob( exportLoggerStream, level, new RepositoryTextLayout( level ) );
+        try ( OutputStream zipOutput = new AsyncOutputStream( output ) ) {
+          getBackupExporter().performExport( zipOutput );
+        } catch ( ExportException e ) {
+          throw new IOException( e );
+        } finally {
+          exportLogger.endJob();
+          try {
+            exportLoggerStream.writeTo( logOutputStream );
+          } catch ( IOException e ) {
+            logger.error( e.getLocalizedMessage() );
+          } finally {
+            IOUtils.closeQuietly( logOutputStream );
+          }
+        }
       }
     };
   }
@@ -716,6 +726,8 @@ public class FileService {
 
       RepositoryFileToStreamWrapper wrapper = new RepositoryFileToStreamWrapper();
       wrapper.setOutputStream( streamingOutput );
+      wrapper.setInputStream( is );
+      wrapper.setContentLength( fileData.getSize() );
       wrapper.setRepositoryFile( repositoryFile );
 
       return wrapper;
@@ -830,6 +842,8 @@ public class FileService {
 
     RepositoryFileToStreamWrapper wrapper = new RepositoryFileToStreamWrapper();
     wrapper.setOutputStream( streamingOutput );
+    wrapper.setInputStream( is );
+    wrapper.setContentLength( is.getSize() );
     wrapper.setRepositoryFile( repoFile );
     wrapper.setMimetype( is.getMimeType() );
 
@@ -1889,13 +1903,37 @@ public class FileService {
 
   public class RepositoryFileToStreamWrapper {
     private StreamingOutput outputStream;
+    private InputStream inputStream;
     private RepositoryFile repositoryFile;
     private String mimetype;
+    private long contentLength = -1;
 
     public void setOutputStream( StreamingOutput outputStream ) {
       this.outputStream = outputStream;
     }
 
+    /**
+     * The content the output stream copies from; lets a caller send part of it, or close it unread.
+     */
+    public void setInputStream( InputStream inputStream ) {
+      this.inputStream = inputStream;
+    }
+
+    public InputStream getInputStream() {
+      return inputStream;
+    }
+
+    /**
+     * The exact length of the content, or -1 if it is not known; parts of the content are only sent when it is known.
+     */
+    public void setContentLength( long contentLength ) {
+      this.contentLength = contentLength;
+    }
+
+    public long getContentLength() {
+      return contentLength;
+    }
+
     public void setRepositoryFile( RepositoryFile repositoryFile ) {
       this.repositoryFile = repositoryFile;
     }
@@ -1919,13 +1957,27 @@ public class FileService {
 
   public List<RepositoryFileDto> doGetChildren( String pathId, String filter, Boolean showHidden,
                                                 Boolean includeAcls ) {
+    return doGetChildren( pathId, filter, showHidden, includeAcls, null, null, null ).getChildren();
+  }
+
+  /**
+   * Lists one page of the children of a folder. When a limit is given the repository sorts the children by locale
+   * title and returns the requested page only, along with the token of the next page.
+   */
+  public ChildrenPage doGetChildren( String pathId, String filter, Boolean showHidden, Boolean includeAcls,
+                                     Integer offset, Integer limit, String continuationToken ) {
 
     List<RepositoryFileDto> repositoryFileDtoList = new ArrayList<RepositoryFileDto>();
+    String nextContinuationToken = null;
     RepositoryFileDto repositoryFileDto = getRepoWs().getFile( FileUtils.idToPath( pathId ) );
 
     if ( repositoryFileDto != null && isPathValid( repositoryFileDto.getPath() ) ) {
       RepositoryRequest repositoryRequest = getRepositoryRequest( repositoryFileDto, showHidden, filter, includeAcls );
+      repositoryRequest.setOffset( offset );
+      repositoryRequest.setLimit( limit );
+      repositoryRequest.setContinuationToken( continuationToken );
       repositoryFileDtoList = getRepoWs().getChildrenFromRequest( repositoryRequest );
+      nextContinuationToken = repositoryRequest.getNextContinuationToken();
 
       // BISERVER-9599 - Use special sort order
       if ( isShowingTitle( repositoryRequest ) ) {
@@ -1933,7 +1985,28 @@ public class FileService {
         sortByLocaleTitle( collator, repositoryFileDtoList );
       }
     }
-    return repositoryFileDtoList;
+    return new ChildrenPage( repositoryFileDtoList, nextContinuationToken );
+  }
+
+  public static class ChildrenPage {
+    private final List<RepositoryFileDto> children;
+    private final String nextContinuationToken;
+
+    public ChildrenPage( List<RepositoryFileDto> children, String nextContinuationToken ) {
+      this.children = children;
+      this.nextContinuationToken = nextContinuationToken;
+    }
+
+    public List<RepositoryFileDto> getChildren() {
+      return children;
+    }
+
+    /**
+     * @return token of the next page, or null when this is the last one (or the listing was not paged)
+     */
+    public String getNextContinuationToken() {
+      return nextContinuationToken;
+    }
   }
 
   public boolean isShowingTitle( RepositoryRequest repositoryRequest ) {
@@ -0,0 +1,222 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources.utils;
+
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+
+/**
+ * Conditional and partial GET support for repository file downloads. Validators are derived from the repository file
+ * (id, version id and last modified date), so a client that already has the current content gets a 304, and a client
+ * resuming a download gets just the bytes it asks for.
+ */
+public class DownloadUtils {
+
+  public static final String ETAG = "ETag"; //$NON-NLS-1$
+  public static final String LAST_MODIFIED = "Last-Modified"; //$NON-NLS-1$
+  public static final String ACCEPT_RANGES = "Accept-Ranges"; //$NON-NLS-1$
+  public static final String CONTENT_RANGE = "Content-Range"; //$NON-NLS-1$
+  public static final String CONTENT_LENGTH = "Content-Length"; //$NON-NLS-1$
+  public static final String IF_NONE_MATCH = "If-None-Match"; //$NON-NLS-1$
+  public static final String IF_MODIFIED_SINCE = "If-Modified-Since"; //$NON-NLS-1$
+  public static final String IF_RANGE = "If-Range"; //$NON-NLS-1$
+  public static final String RANGE = "Range"; //$NON-NLS-1$
+  public static final String BYTES = "bytes"; //$NON-NLS-1$
+
+  public static final int PARTIAL_CONTENT = 206;
+  public static final int REQUESTED_RANGE_NOT_SATISFIABLE = 416;
+
+  private static final String BYTES_PREFIX = BYTES + "="; //$NON-NLS-1$
+
+  /**
+   * Returns a strong entity tag that changes whenever a new version of the file is saved, or null if the file has
+   * no id.
+   */
+  public static String getETag( RepositoryFile file ) {
+    if ( file == null || file.getId() == null ) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder( "\"" ).append( file.getId() ); //$NON-NLS-1$
+    if ( file.getVersionId() != null ) {
+      sb.append( '-' ).append( file.getVersionId() );
+    }
+    if ( file.getLastModifiedDate() != null ) {
+      sb.append( '-' ).append( Long.toHexString( file.getLastModifiedDate().getTime() ) );
+    }
+    return sb.append( '"' ).toString();
+  }
+
+  /**
+   * Whether the client's copy is current. <code>If-None-Match</code> takes precedence over
+   * <code>If-Modified-Since</code>, as in RFC 7232.
+   */
+  public static boolean isNotModified( HttpServletRequest request, String eTag, Date lastModified ) {
+    String ifNoneMatch = request.getHeader( IF_NONE_MATCH );
+    if ( ifNoneMatch != null ) {
+      return eTag != null && matches( ifNoneMatch, eTag );
+    }
+    if ( lastModified == null ) {
+      return false;
+    }
+    long ifModifiedSince;
+    try {
+      ifModifiedSince = request.getDateHeader( IF_MODIFIED_SINCE );
+    } catch ( IllegalArgumentException e ) {
+      return false;
+    }
+    // HTTP dates have a resolution of one second
+    return ifModifiedSince >= 0 && lastModified.getTime() / 1000 <= ifModifiedSince / 1000;
+  }
+
+  /**
+   * Returns the single byte range the client asked for, {@link ByteRange#UNSATISFIABLE} if it lies outside the
+   * content, or null if the whole content should be sent: there is no (or a malformed, or a multi part)
+   * <code>Range</code> header, <code>If-Range</code> names another version, or the size is unknown.
+   *
+   * @param size the exact length of the content, or -1 if it is not known
+   */
+  public static ByteRange getRange( HttpServletRequest request, String eTag, long size ) {
+    String range = request.getHeader( RANGE );
+    if ( range == null || size <= 0 ) {
+      return null;
+    }
+    String ifRange = request.getHeader( IF_RANGE );
+    if ( ifRange != null && ( eTag == null || !eTag.equals( ifRange.trim() ) ) ) {
+      return null;
+    }
+    range = range.trim();
+    if ( !range.startsWith( BYTES_PREFIX ) || range.indexOf( ',' ) >= 0 ) {
+      return null;
+    }
+    String spec = range.substring( BYTES_PREFIX.length() ).trim();
+    int dash = spec.indexOf( '-' );
+    if ( dash < 0 ) {
+      return null;
+    }
+    try {
+      String first = spec.substring( 0, dash ).trim();
+      String last = spec.substring( dash + 1 ).trim();
+      if ( first.isEmpty() ) {
+        // suffix range: the last n bytes
+        long suffix = Long.parseLong( last );
+        if ( suffix <= 0 ) {
+          return ByteRange.UNSATISFIABLE;
+        }
+        return new ByteRange( Math.max( 0, size - suffix ), size - 1 );
+      }
+      long start = Long.parseLong( first );
+      long end = last.isEmpty() ? size - 1 : Math.min( Long.parseLong( last ), size - 1 );
+      if ( start < 0 || end < start ) {
+        return start >= size ? ByteRange.UNSATISFIABLE : null;
+      }
+      return new ByteRange( start, end );
+    } catch ( NumberFormatException e ) {
+      return null;
+    }
+  }
+
+  /**
+   * Writes the bytes of <code>range</code> from <code>is</code> and closes it. Skipping to the start seeks when the
+   * content is backed by a file. Fails if the content ends before the range does, rather than sending fewer bytes
+   * than announced.
+   */
+  public static StreamingOutput getRangeOutput( final InputStream is, final ByteRange range ) {
+    return new StreamingOutput() {
+      @Override
+      public void write( OutputStream output ) throws IOException {
+        try ( InputStream in = is ) {
+          long toSkip = range.getStart();
+          while ( toSkip > 0 ) {
+            long skipped = in.skip( toSkip );
+            if ( skipped <= 0 ) {
+              if ( in.read() == -1 ) {
+                throw new EOFException();
+              }
+              skipped = 1;
+            }
+            toSkip -= skipped;
+          }
+          byte[] buffer = new byte[ 8192 ];
+          long remaining = range.getLength();
+          while ( remaining > 0 ) {
+            int n = in.read( buffer, 0, (int) Math.min( buffer.length, remaining ) );
+            if ( n == -1 ) {
+              throw new EOFException();
+            }
+            output.write( buffer, 0, n );
+            remaining -= n;
+          }
+        }
+      }
+    };
+  }
+
+  private static boolean matches( String ifNoneMatch, String eTag ) {
+    String opaqueTag = eTag.startsWith( "W/" ) ? eTag.substring( 2 ) : eTag; //$NON-NLS-1$
+    for ( String candidate : ifNoneMatch.split( "," ) ) { //$NON-NLS-1$
+      candidate = candidate.trim();
+      if ( candidate.equals( "*" ) ) { //$NON-NLS-1$
+        return true;
+      }
+      // weak comparison, as RFC 7232 requires for If-None-Match
+      if ( candidate.startsWith( "W/" ) ) { //$NON-NLS-1$
+        candidate = candidate.substring( 2 );
+      }
+      if ( candidate.equals( opaqueTag ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * An inclusive byte range of the content.
+   */
+  public static class ByteRange {
+
+    public static final ByteRange UNSATISFIABLE = new ByteRange( -1, -1 );
+
+    private final long start;
+
+    private final long end;
+
+    public ByteRange( long start, long end ) {
+      this.start = start;
+      this.end = end;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    public long getLength() {
+      return end - start + 1;
+    }
+
+    public String toContentRange( long size ) {
+      return BYTES + " " + start + "-" + end + "/" + size; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+  }
+}
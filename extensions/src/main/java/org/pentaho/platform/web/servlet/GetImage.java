@@ -16,12 +16,14 @@ package org.pentaho.platform.web.servlet;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.uifoundation.chart.ChartImageCache;
 import org.pentaho.platform.util.StringUtil;
 import org.pentaho.platform.web.servlet.messages.Messages;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -108,8 +110,12 @@ public class GetImage extends ServletBase {
         return;
       }
 
+      // charts are still in memory while they are viewed
+      ChartImageCache imageCache = ChartImageCache.getInstance();
+      byte[] cached = imageCache == null ? null : imageCache.getFile( tmpFile );
+
       // Open the file and output streams
-      InputStream in = new FileInputStream( tmpFile );
+      InputStream in = cached != null ? new ByteArrayInputStream( cached ) : new FileInputStream( tmpFile );
 
       String mimeType = getServletContext().getMimeType( image );
       if ( ( null == mimeType ) || ( mimeType.length() <= 0 ) ) {
@@ -0,0 +1,135 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.jfreereport.helper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+import org.pentaho.platform.api.engine.ICacheManager;
+import org.pentaho.reporting.engine.classic.core.MasterReport;
+import org.pentaho.reporting.libraries.resourceloader.FactoryParameterKey;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReportTemplateCacheTest {
+
+  private TestCache cache;
+  private Map<FactoryParameterKey, Object> helperObjects;
+
+  @Before
+  public void setUp() {
+    final Map<Object, Object> region = new HashMap<Object, Object>();
+    ICacheManager cacheManager = mock( ICacheManager.class );
+    when( cacheManager.getFromRegionCache( anyString(), any() ) ).thenAnswer(
+        (Answer<Object>) invocation -> region.get( invocation.getArguments()[ 1 ] ) );
+    doAnswer( invocation -> region.put( invocation.getArguments()[ 1 ], invocation.getArguments()[ 2 ] ) )
+        .when( cacheManager ).putInRegionCache( anyString(), any(), any() );
+
+    cache = new TestCache( cacheManager );
+    helperObjects = new HashMap<FactoryParameterKey, Object>();
+    helperObjects.put( new FactoryParameterKey( "solutionRoot" ), "/pentaho-solutions" );
+  }
+
+  @Test
+  public void testWarmReportsAreClonedNotParsed() throws Exception {
+    MasterReport first = cache.getReport( "/public/report.xml", helperObjects );
+    MasterReport second = cache.getReport( "/public/report.xml", helperObjects );
+
+    assertEquals( 1, cache.parsed );
+    assertSame( cache.copies[ 0 ], first );
+    assertSame( cache.copies[ 1 ], second );
+    assertEquals( 1, cache.getHitCount() );
+    assertEquals( 1, cache.getMissCount() );
+  }
+
+  @Test
+  public void testChangedFilesAndParametersAreParsedAgain() throws Exception {
+    cache.getReport( "/public/report.xml", helperObjects );
+    cache.version = "2";
+    cache.getReport( "/public/report.xml", helperObjects );
+    assertEquals( 2, cache.parsed );
+
+    helperObjects.put( new FactoryParameterKey( "solutionRoot" ), "/other-solutions" );
+    cache.getReport( "/public/report.xml", helperObjects );
+    assertEquals( 3, cache.parsed );
+  }
+
+  @Test
+  public void testActionInputsAreNotPartOfTheTemplate() throws Exception {
+    helperObjects.put( new FactoryParameterKey( "region" ), "east" );
+    cache.getReport( "/public/report.xml", helperObjects );
+    helperObjects.put( new FactoryParameterKey( "region" ), "west" );
+    cache.getReport( "/public/report.xml", helperObjects );
+
+    assertEquals( 1, cache.parsed );
+    assertEquals( 1, cache.getHitCount() );
+    assertEquals( Collections.singleton( "solutionRoot" ), cache.parsedWith );
+  }
+
+  @Test
+  public void testFilesWithoutVersionAreNotCached() throws Exception {
+    cache.version = null;
+    cache.getReport( "/public/report.xml", helperObjects );
+    cache.getReport( "/public/report.xml", helperObjects );
+    assertEquals( 2, cache.parsed );
+    assertEquals( 0, cache.getMissCount() );
+  }
+
+  private static class TestCache extends ReportTemplateCache {
+
+    private final ICacheManager cacheManager;
+    private final MasterReport[] copies = { mock( MasterReport.class ), mock( MasterReport.class ) };
+    private String version = "1";
+    private int parsed;
+    private Set<String> parsedWith;
+
+    TestCache( ICacheManager cacheManager ) {
+      this.cacheManager = cacheManager;
+    }
+
+    @Override
+    protected MasterReport parse( String address, Map<FactoryParameterKey, Object> helperObjects ) throws Exception {
+      parsed++;
+      parsedWith = new HashSet<String>();
+      for ( FactoryParameterKey key : helperObjects.keySet() ) {
+        parsedWith.add( key.getName() );
+      }
+      MasterReport template = mock( MasterReport.class );
+      when( template.clone() ).thenReturn( copies[ 0 ], copies[ 1 ] );
+      return template;
+    }
+
+    @Override
+    protected String getVersion( String address ) {
+      return version;
+    }
+
+    @Override
+    protected ICacheManager getCacheManager() {
+      return cacheManager;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.kettle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.di.trans.TransMeta;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class KettleMetaCacheTest {
+
+  private KettleMetaCache cache;
+  private AtomicInteger loads;
+
+  @Before
+  public void setUp() {
+    cache = new KettleMetaCache( 10 );
+    loads = new AtomicInteger();
+  }
+
+  @Test
+  public void testEveryRunGetsAClone() throws Exception {
+    TransMeta master = mock( TransMeta.class );
+    TransMeta first = mock( TransMeta.class );
+    TransMeta second = mock( TransMeta.class );
+    when( master.clone() ).thenReturn( first, second );
+
+    assertSame( first, cache.getTransMeta( "file:/a.ktr", "1:10", loader( master ) ) );
+    assertSame( second, cache.getTransMeta( "file:/a.ktr", "1:10", loader( master ) ) );
+    assertEquals( 1, loads.get() );
+
+    KettleMetaCache.Statistics statistics = cache.getStatistics();
+    assertEquals( 1, statistics.getHitCount() );
+    assertEquals( 1, statistics.getMissCount() );
+    assertEquals( 0.5, statistics.getHitRate(), 0 );
+  }
+
+  @Test
+  public void testNewVersionReplacesTheCachedOne() throws Exception {
+    TransMeta oldMeta = mock( TransMeta.class );
+    TransMeta newMeta = mock( TransMeta.class );
+    when( oldMeta.clone() ).thenReturn( mock( TransMeta.class ) );
+    TransMeta newClone = mock( TransMeta.class );
+    when( newMeta.clone() ).thenReturn( newClone );
+
+    cache.getTransMeta( "file:/a.ktr", "1:10", loader( oldMeta ) );
+    assertSame( newClone, cache.getTransMeta( "file:/a.ktr", "2:12", loader( newMeta ) ) );
+    assertEquals( 2, loads.get() );
+    assertEquals( 1, cache.size() );
+  }
+
+  @Test
+  public void testDroppedMetasForgetTheirVersion() throws Exception {
+    TransMeta meta = mock( TransMeta.class );
+    String identity = KettleMetaCache.getFileIdentity( new File( "/public/a.ktr" ), null );
+    cache.getTransMeta( identity, "1:10", loader( meta ) );
+    assertEquals( 1, cache.versionCount() );
+    cache.clear();
+    assertEquals( 0, cache.versionCount() );
+  }
+
+  @Test
+  public void testNothingIsCachedWhenTheLoaderFindsNothing() throws Exception {
+    assertNull( cache.getTransMeta( "repository:/home/a", "1", loader( null ) ) );
+    assertNull( cache.getTransMeta( "repository:/home/a", "1", loader( null ) ) );
+    assertEquals( 2, loads.get() );
+  }
+
+  @Test
+  public void testLoadErrorsArePassedOn() throws Exception {
+    Callable<TransMeta> failing = () -> {
+      throw new IOException( "broken" );
+    };
+    try {
+      cache.getTransMeta( "file:/a.ktr", "1:10", failing );
+      fail();
+    } catch ( IOException e ) {
+      assertEquals( "broken", e.getMessage() );
+    }
+  }
+
+  @Test
+  public void testVersions() throws Exception {
+    File file = File.createTempFile( "kettle", ".ktr" );
+    try {
+      assertEquals( KettleMetaCache.getFileIdentity( file, null ), KettleMetaCache.getFileIdentity(
+        new File( file.getParentFile(), "./" + file.getName() ), null ) );
+      String version = KettleMetaCache.getFileVersion( file );
+      file.setLastModified( file.lastModified() + 2000 );
+      assertNotEquals( version, KettleMetaCache.getFileVersion( file ) );
+    } finally {
+      file.delete();
+    }
+    assertEquals( KettleMetaCache.getContentVersion( "<transformation/>" ), KettleMetaCache
+      .getContentVersion( "<transformation/>" ) );
+    assertNotEquals( KettleMetaCache.getContentVersion( "<transformation/>" ), KettleMetaCache
+      .getContentVersion( "<transformation> </transformation>" ) );
+    assertNotEquals( KettleMetaCache.getResourceIdentity( "/public/a.ktr", null ), KettleMetaCache
+      .getFileIdentity( new File( "/public/a.ktr" ), null ) );
+  }
+
+  private Callable<TransMeta> loader( final TransMeta meta ) {
+    return () -> {
+      loads.incrementAndGet();
+      return meta;
+    };
+  }
+}
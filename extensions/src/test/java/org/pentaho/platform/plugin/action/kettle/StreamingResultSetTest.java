@@ -0,0 +1,113 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.kettle;
+
+import org.junit.Test;
+import org.pentaho.commons.connection.IPentahoResultSet;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamingResultSetTest {
+
+  @Test
+  public void testRowsAreReadWhileTheyAreWritten() throws Exception {
+    final StreamingResultSet resultSet = new StreamingResultSet( null, 1, 10, 60000, null );
+    final AtomicInteger written = new AtomicInteger();
+    Thread writer = new Thread( () -> {
+      try {
+        for ( int i = 0; i < 10000; i++ ) {
+          resultSet.addRow( new Object[] { i } );
+          written.incrementAndGet();
+        }
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      } finally {
+        resultSet.finish();
+      }
+    } );
+    writer.start();
+
+    // the writer waits for the reader once the result set is full
+    Thread.sleep( 200 );
+    assertTrue( written.get() <= 10 );
+
+    int rows = 0;
+    Object[] row;
+    while ( ( row = resultSet.next() ) != null ) {
+      assertArrayEquals( new Object[] { rows }, row );
+      rows++;
+    }
+    writer.join();
+    assertEquals( 10000, rows );
+    assertEquals( -1, resultSet.getRowCount() );
+    assertFalse( resultSet.isScrollable() );
+  }
+
+  @Test
+  public void testClosingStopsTheWriter() throws Exception {
+    final AtomicBoolean stopped = new AtomicBoolean();
+    StreamingResultSet resultSet = new StreamingResultSet( null, 1, 1, 60000, () -> stopped.set( true ) );
+    assertTrue( resultSet.addRow( new Object[] { 1 } ) );
+    resultSet.close();
+    assertTrue( stopped.get() );
+    assertFalse( resultSet.addRow( new Object[] { 2 } ) );
+    assertNull( resultSet.next() );
+  }
+
+  @Test
+  public void testWriterGivesUpWhenNobodyReads() throws Exception {
+    StreamingResultSet resultSet = new StreamingResultSet( null, 1, 1, 200, null );
+    assertTrue( resultSet.addRow( new Object[] { 1 } ) );
+    assertFalse( resultSet.addRow( new Object[] { 2 } ) );
+    assertTrue( resultSet.isClosed() );
+  }
+
+  @Test
+  public void testFailureIsReportedAfterTheLastRow() throws Exception {
+    StreamingResultSet resultSet = new StreamingResultSet( null, 1, 10, 60000, null );
+    resultSet.addRow( new Object[] { "a" } );
+    resultSet.fail( "failed" );
+    assertArrayEquals( new Object[] { "a" }, resultSet.next() );
+    try {
+      resultSet.next();
+      fail( "the failure should not look like the end of the rows" );
+    } catch ( IllegalStateException e ) {
+      assertEquals( "failed", e.getMessage() );
+    }
+  }
+
+  @Test
+  public void testMemoryCopyReadsTheRemainingRows() throws Exception {
+    StreamingResultSet resultSet = new StreamingResultSet( null, 1, 10, 60000, null );
+    resultSet.addRow( new Object[] { "a" } );
+    resultSet.addRow( new Object[] { "b" } );
+    resultSet.finish();
+    assertArrayEquals( new Object[] { "a" }, resultSet.next() );
+
+    IPentahoResultSet copy = resultSet.memoryCopy();
+    assertEquals( 1, copy.getRowCount() );
+    assertEquals( "b", copy.getValueAt( 0, 0 ) );
+
+    resultSet.dispose();
+    assertEquals( 0, copy.getRowCount() );
+  }
+}
@@ -0,0 +1,76 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.mondrian.catalog;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MondrianCatalogCacheTest {
+
+  @Test
+  public void testRemoveCatalogKeepsOtherCatalogs() {
+    MondrianCatalogCache cache = new MondrianCatalogCache();
+    MondrianCatalog sales = new MondrianCatalog( "Sales", "Provider=mondrian", "mondrian:/Sales", null );
+    MondrianCatalog hr = new MondrianCatalog( "HR", "Provider=mondrian", "mondrian:/HR", null );
+    cache.putCatalog( sales.getName(), sales );
+    cache.putCatalog( sales.getDefinition(), sales );
+    cache.putCatalog( hr.getName(), hr );
+    cache.putCatalog( hr.getDefinition(), hr );
+    long version = cache.getVersion();
+
+    assertTrue( cache.removeCatalog( "Sales" ) );
+
+    assertNull( cache.getCatalog( "Sales" ) );
+    assertNull( cache.getCatalog( "mondrian:/Sales" ) );
+    assertNotNull( cache.getCatalog( "HR" ) );
+    assertNotNull( cache.getCatalog( "mondrian:/HR" ) );
+    assertTrue( cache.getVersion() > version );
+    assertFalse( cache.removeCatalog( "Sales" ) );
+  }
+
+  @Test
+  public void testStaleCatalogClearedWhenPutBack() {
+    MondrianCatalogCache cache = new MondrianCatalogCache();
+    MondrianCatalog sales = new MondrianCatalog( "Sales", "Provider=mondrian", "mondrian:/Sales", null );
+
+    cache.markStale( "Sales" );
+    assertTrue( cache.getStaleCatalogs().contains( "Sales" ) );
+
+    cache.putCatalog( sales.getName(), sales );
+    assertTrue( cache.getStaleCatalogs().isEmpty() );
+  }
+
+  @Test
+  public void testNullKeysAreIgnored() {
+    MondrianCatalogCache cache = new MondrianCatalogCache();
+    cache.putCatalog( null, new MondrianCatalog( null, null, "mondrian:", null ) );
+
+    assertNull( cache.getCatalog( null ) );
+    assertFalse( cache.containsCatalog( null ) );
+    assertTrue( cache.getCatalogs().isEmpty() );
+  }
+
+  @Test
+  public void testSetFullLoadMarksCacheFullyLoaded() {
+    MondrianCatalogCache cache = new MondrianCatalogCache();
+    cache.setFullLoad();
+
+    assertTrue( cache.getMondrianCatalogCacheState().isFullyLoaded() );
+    assertNotNull( cache.getMondrianCatalogCacheState().getLastFullUpdate() );
+  }
+}
@@ -0,0 +1,162 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.action.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.pentaho.commons.connection.IPentahoResultSet;
+import org.pentaho.commons.connection.memory.MemoryMetaData;
+import org.pentaho.commons.connection.memory.MemoryResultSet;
+import org.pentaho.platform.plugin.services.connections.sql.SpillableResultSet;
+
+public class SQLResultCacheTest {
+
+  @Test
+  public void testKeyIgnoresFormattingButNotLiterals() {
+    SQLResultCache.Key key =
+      new SQLResultCache.Key( "jndi:SampleData", "select *\n  from  customers where name = 'a  b'", Arrays.asList(
+        "x", 1 ), "[Authenticated]" );
+
+    assertEquals( key, new SQLResultCache.Key( "jndi:SampleData",
+      " select * from customers\twhere name = 'a  b' ", Arrays.asList( "x", 1 ), "[Authenticated]" ) );
+    assertNotEquals( key, new SQLResultCache.Key( "jndi:SampleData",
+      "select * from customers where name = 'a b'", Arrays.asList( "x", 1 ), "[Authenticated]" ) );
+    assertNotEquals( key, new SQLResultCache.Key( "jndi:SampleData",
+      "select * from customers where name = 'a  b'", Arrays.asList( "x", 2 ), "[Authenticated]" ) );
+    assertNotEquals( key, new SQLResultCache.Key( "jndi:SampleData",
+      "select * from customers where name = 'a  b'", Arrays.asList( "x", 1 ), "[Administrator]" ) );
+  }
+
+  @Test
+  public void testConcurrentRequestsRunQueryOnce() throws Exception {
+    final SQLResultCache resultCache = new SQLResultCache( 1000, 60 );
+    final SQLResultCache.Key key = new SQLResultCache.Key( "jndi:SampleData", "select 1", null, "[]" );
+    final AtomicInteger queries = new AtomicInteger();
+    final CountDownLatch release = new CountDownLatch( 1 );
+    final Callable<IPentahoResultSet> loader = () -> {
+      queries.incrementAndGet();
+      release.await( 10, TimeUnit.SECONDS );
+      return createResultSet();
+    };
+
+    ExecutorService executor = Executors.newFixedThreadPool( 4 );
+    try {
+      Future<IPentahoResultSet>[] results = new Future[ 4 ];
+      for ( int i = 0; i < results.length; i++ ) {
+        results[ i ] = executor.submit( () -> resultCache.get( key, loader ) );
+      }
+      Thread.sleep( 200 );
+      release.countDown();
+
+      IPentahoResultSet first = results[ 0 ].get( 10, TimeUnit.SECONDS );
+      for ( Future<IPentahoResultSet> result : results ) {
+        IPentahoResultSet resultSet = result.get( 10, TimeUnit.SECONDS );
+        assertArrayEquals( new Object[] { "a", 1 }, resultSet.next() );
+        assertArrayEquals( new Object[] { "b", 2 }, resultSet.next() );
+        assertNull( resultSet.next() );
+        if ( result != results[ 0 ] ) {
+          assertNotSame( first, resultSet );
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertEquals( 1, queries.get() );
+    assertEquals( 1, resultCache.getStatistics().loadCount() );
+
+    resultCache.get( key, loader );
+    assertEquals( 1, queries.get() );
+    assertEquals( 1, resultCache.getStatistics().hitCount() );
+  }
+
+  @Test
+  public void testClearRunsQueryAgain() throws Exception {
+    SQLResultCache resultCache = new SQLResultCache( 1000, 60 );
+    SQLResultCache.Key key = new SQLResultCache.Key( "jndi:SampleData", "select 1", null, "[]" );
+    AtomicInteger queries = new AtomicInteger();
+    Callable<IPentahoResultSet> loader = () -> {
+      queries.incrementAndGet();
+      return createResultSet();
+    };
+
+    resultCache.get( key, loader );
+    resultCache.get( key, loader );
+    assertEquals( 1, queries.get() );
+
+    long lastModified = resultCache.getLastModified();
+    Thread.sleep( 5 );
+    resultCache.clear();
+    resultCache.get( key, loader );
+    assertEquals( 2, queries.get() );
+    assertNotEquals( lastModified, resultCache.getLastModified() );
+  }
+
+  @Test
+  public void testSpilledRowsAreDisposedWhenRemoved() throws Exception {
+    SQLResultCache resultCache = new SQLResultCache( 1000, 60 );
+    SQLResultCache.Key key = new SQLResultCache.Key( "jndi:SampleData", "select 1", null, "[]" );
+    SpillableResultSet spillable = SpillableResultSet.copyOf( createResultSet(), 16 );
+
+    IPentahoResultSet resultSet = resultCache.get( key, () -> spillable );
+    assertEquals( 2, spillable.getRowCount() );
+
+    resultCache.clear();
+    assertEquals( 0, spillable.getRowCount() );
+    // rows already handed out stay readable
+    assertArrayEquals( new Object[] { "a", 1 }, resultSet.next() );
+    assertArrayEquals( new Object[] { "b", 2 }, resultSet.next() );
+    assertNull( resultSet.next() );
+  }
+
+  @Test
+  public void testResultsLargerThanTheCacheAreNotCached() throws Exception {
+    SQLResultCache resultCache = new SQLResultCache( 1, 60 );
+    SQLResultCache.Key key = new SQLResultCache.Key( "jndi:SampleData", "select 1", null, "[]" );
+    AtomicInteger queries = new AtomicInteger();
+    Callable<IPentahoResultSet> loader = () -> {
+      queries.incrementAndGet();
+      return createResultSet();
+    };
+
+    IPentahoResultSet resultSet = resultCache.get( key, loader );
+    assertEquals( 1, queries.get() );
+    assertArrayEquals( new Object[] { "a", 1 }, resultSet.next() );
+    assertEquals( 0, resultCache.size() );
+
+    resultCache.get( key, loader );
+    assertEquals( 2, queries.get() );
+  }
+
+  private static IPentahoResultSet createResultSet() {
+    MemoryResultSet resultSet = new MemoryResultSet( new MemoryMetaData( new Object[][] { { "NAME", "ID" } }, null ) );
+    resultSet.addRow( new Object[] { "a", 1 } );
+    resultSet.addRow( new Object[] { "b", 2 } );
+    return resultSet;
+  }
+}
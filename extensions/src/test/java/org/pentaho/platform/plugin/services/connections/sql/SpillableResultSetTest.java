@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.connections.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.junit.Test;
+import org.pentaho.commons.connection.memory.MemoryMetaData;
+import org.pentaho.commons.connection.memory.MemoryResultSet;
+
+public class SpillableResultSetTest {
+
+  private static final int ROWS = 2000;
+
+  private final Object marker = new Object();
+
+  @Test
+  public void testRowsStayOnHeapWithinBudget() throws Exception {
+    SpillableResultSet resultSet = SpillableResultSet.copyOf( createSource(), SpillableResultSet.DEFAULT_MEMORY_BUDGET );
+    try {
+      assertFalse( resultSet.isSpilled() );
+      assertRows( resultSet );
+    } finally {
+      resultSet.dispose();
+    }
+  }
+
+  @Test
+  public void testRowsSpillPastBudget() throws Exception {
+    SpillableResultSet resultSet = SpillableResultSet.copyOf( createSource(), 1024 );
+    try {
+      assertTrue( resultSet.isSpilled() );
+      assertRows( resultSet );
+    } finally {
+      resultSet.dispose();
+    }
+  }
+
+  @Test
+  public void testReadersShareTheRowsButNotTheCursor() throws Exception {
+    SpillableResultSet resultSet = SpillableResultSet.copyOf( createSource(), 1024 );
+    SpillableResultSet reader = resultSet.newReader();
+    resultSet.next();
+    resultSet.dispose();
+
+    assertRows( reader );
+    reader.dispose();
+  }
+
+  private void assertRows( SpillableResultSet resultSet ) {
+    assertEquals( ROWS, resultSet.getRowCount() );
+    assertEquals( 5, resultSet.getColumnCount() );
+    assertEquals( "row1999", resultSet.getValueAt( 1999, 1 ) );
+    assertNull( resultSet.getValueAt( 3, 2 ) );
+    assertEquals( new BigDecimal( "4.5" ), resultSet.getValueAt( 4, 2 ) );
+    assertSame( marker, resultSet.getValueAt( 7, 4 ) );
+
+    int row = 0;
+    Object[] values = resultSet.next();
+    while ( values != null ) {
+      assertArrayEquals( createRow( row++ ), values );
+      values = resultSet.next();
+    }
+    assertEquals( ROWS, row );
+    resultSet.beforeFirst();
+    assertEquals( 0, resultSet.peek()[ 0 ] );
+  }
+
+  private MemoryResultSet createSource() {
+    MemoryResultSet source = new MemoryResultSet(
+        new MemoryMetaData( new Object[][] { { "id", "name", "amount", "created", "other" } }, null ) );
+    for ( int row = 0; row < ROWS; row++ ) {
+      source.addRow( createRow( row ) );
+    }
+    return source;
+  }
+
+  private Object[] createRow( int row ) {
+    return new Object[] { row, "row" + row, row % 3 == 0 ? null : new BigDecimal( row + ".5" ),
+      new Timestamp( 1000L * row ), marker };
+  }
+}
@@ -13,6 +13,7 @@
 
 package org.pentaho.platform.plugin.services.importer;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.logging.Log;
 import org.junit.After;
 import org.junit.Assert;
@@ -26,6 +27,7 @@ import org.pentaho.platform.api.engine.security.userroledao.IUserRoleDao;
 import org.pentaho.platform.api.mimetype.IMimeType;
 import org.pentaho.platform.api.mimetype.IPlatformMimeResolver;
 import org.pentaho.platform.api.mt.ITenant;
+import org.pentaho.platform.api.repository2.unified.Converter;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
 import org.pentaho.platform.api.scheduler2.ICronJobTrigger;
@@ -48,10 +50,16 @@ import org.pentaho.platform.plugin.services.importexport.exportManifest.ExportMa
 import org.pentaho.platform.plugin.services.importexport.exportManifest.bindings.ExportManifestMetaStore;
 import org.pentaho.platform.security.policy.rolebased.IRoleAuthorizationPolicyRoleBindingDao;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -526,6 +534,37 @@ public class SolutionImportHandlerTest {
     Assert.assertTrue( importHandler.fileIsScheduleInputSource( manifest, "/public/test/file3" ) );
     Assert.assertTrue( importHandler.fileIsScheduleInputSource( manifest, "public/test/file3" ) );
   }
+
+  @Test
+  public void testProcessZipStreamsEntriesWithoutExtracting() throws Exception {
+    IMimeType mimeType = mock( IMimeType.class );
+    when( mimeType.getConverter() ).thenReturn( mock( Converter.class ) );
+    when( mockMimeResolver.resolveMimeTypeForFileName( ArgumentMatchers.anyString() ) ).thenReturn( mimeType );
+
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try ( ZipOutputStream out = new ZipOutputStream( zip ) ) {
+      out.putNextEntry( new ZipEntry( "public/" ) );
+      out.putNextEntry( new ZipEntry( "public/report.prpt" ) );
+      out.write( "report".getBytes( StandardCharsets.UTF_8 ) );
+      out.putNextEntry( new ZipEntry( "exportManifest.xml" ) );
+      out.write( "<manifest/>".getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    try {
+      Assert.assertTrue( importHandler.processZip( new ByteArrayInputStream( zip.toByteArray() ) ) );
+      List<IRepositoryFileBundle> files = importHandler.getFiles();
+      Assert.assertEquals( 2, files.size() );
+      Assert.assertTrue( files.get( 0 ).getFile().isFolder() );
+      Assert.assertEquals( "report.prpt", files.get( 1 ).getFile().getName() );
+      Assert.assertEquals( "public/", files.get( 1 ).getPath() );
+      try ( InputStream in = files.get( 1 ).getInputStream() ) {
+        Assert.assertEquals( "report", IOUtils.toString( in, StandardCharsets.UTF_8 ) );
+      }
+    } finally {
+      importHandler.closeArchive();
+    }
+  }
+
   @After
   public void tearDown() throws Exception {
     ImportSession.getSession().getImportedScheduleJobIds().clear();
@@ -0,0 +1,63 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.plugin.services.importexport;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class AsyncOutputStreamTest {
+
+  @Test
+  public void testWritesAllBytesInOrder() throws Exception {
+    byte[] data = new byte[ 10000 ];
+    for ( int i = 0; i < data.length; i++ ) {
+      data[ i ] = (byte) i;
+    }
+    ByteArrayOutputStream target = new ByteArrayOutputStream();
+    try ( AsyncOutputStream out = new AsyncOutputStream( target, 64, 2 ) ) {
+      out.write( data[ 0 ] );
+      out.write( data, 1, 4000 );
+      out.flush();
+      out.write( data, 4001, data.length - 4001 );
+    }
+    assertArrayEquals( data, target.toByteArray() );
+  }
+
+  @Test
+  public void testWriterFailureReachesProducer() throws Exception {
+    OutputStream broken = new OutputStream() {
+      @Override
+      public void write( int b ) throws IOException {
+        throw new IOException( "client went away" );
+      }
+    };
+    AsyncOutputStream out = new AsyncOutputStream( broken, 16, 1 );
+    try {
+      for ( int i = 0; i < 1000; i++ ) {
+        out.write( new byte[ 16 ] );
+      }
+      out.close();
+      fail();
+    } catch ( IOException e ) {
+      assertEquals( "client went away", e.getMessage() );
+    }
+  }
+}
@@ -24,14 +24,20 @@ import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.IConfiguration;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.engine.ISystemConfig;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
 import org.pentaho.platform.config.SystemConfig;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
+import org.pentaho.platform.engine.core.system.SimpleMapCacheManager;
 import org.pentaho.platform.engine.core.system.StandaloneSession;
 import org.pentaho.test.platform.plugin.services.metadata.MockSessionAwareMetadataDomainRepository;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
@@ -53,6 +59,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.pentaho.platform.plugin.services.metadata.SessionCachingMetadataDomainRepository.DEFAULT_NUMBER_OF_THREADS;
 
@@ -139,6 +146,110 @@ public class SessionCachingMetadataDomainRepositoryTest {
             "domain-id-cache-for-session:1" );
   }
 
+  @Test
+  public void shouldShareSecuredDomainBetweenSessionsWithSameRoles() throws Exception {
+    IMetadataDomainRepository delegate = mock( IMetadataDomainRepository.class );
+    Domain domain = new Domain();
+    domain.setId( "id" );
+    when( delegate.getDomain( "id" ) ).thenReturn( domain );
+    when( delegate.hasAccess( Mockito.anyInt(), Mockito.any() ) ).thenReturn( true );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, new SimpleMapCacheManager(), true, 1 );
+
+    PentahoSessionHolder.setSession( createSessionWithRoles( "suzy", "1", "Power User" ) );
+    Domain fromFirstSession = repo.getDomain( "id" );
+    PentahoSessionHolder.setSession( createSessionWithRoles( "tiffany", "2", "Power User" ) );
+    Domain fromSecondSession = repo.getDomain( "id" );
+    PentahoSessionHolder.setSession( createSessionWithRoles( "admin", "3", "Administrator" ) );
+    Domain fromThirdSession = repo.getDomain( "id" );
+
+    assertNotNull( fromFirstSession );
+    assertNotSame( fromFirstSession, fromSecondSession );
+    assertNotSame( fromFirstSession, fromThirdSession );
+    verify( delegate, times( 1 ) ).getDomain( "id" );
+    assertEquals( 1, repo.getCanonicalDomainLoadCount() );
+    assertEquals( 1, repo.getSharedCacheHitCount() );
+    assertEquals( 2, repo.getSharedCacheMissCount() );
+  }
+
+  @Test
+  public void shouldHandOutCopiesOfSharedDomains() throws Exception {
+    IMetadataDomainRepository delegate = mock( IMetadataDomainRepository.class );
+    Domain domain = new Domain();
+    domain.setId( "id" );
+    when( delegate.getDomain( "id" ) ).thenReturn( domain );
+    when( delegate.hasAccess( Mockito.anyInt(), Mockito.any() ) ).thenReturn( true );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, new SimpleMapCacheManager(), true, 1 );
+
+    PentahoSessionHolder.setSession( createSessionWithRoles( "suzy", "1", "Power User" ) );
+    repo.getDomain( "id" ).setId( "changed" );
+    PentahoSessionHolder.setSession( createSessionWithRoles( "tiffany", "2", "Power User" ) );
+
+    assertEquals( "id", repo.getDomain( "id" ).getId() );
+    assertEquals( "id", domain.getId() );
+    assertEquals( 1, repo.getSharedCacheHitCount() );
+  }
+
+  @Test
+  public void shouldUseSessionCacheWhenSharedDomainCacheDisabled() throws Exception {
+    IMetadataDomainRepository delegate = mock( IMetadataDomainRepository.class );
+    Domain domain = new Domain();
+    domain.setId( "id" );
+    when( delegate.getDomain( "id" ) ).thenReturn( domain );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, new SimpleMapCacheManager(), true, 1 );
+    repo.sharedDomainCacheEnabled = false;
+
+    PentahoSessionHolder.setSession( createSessionWithRoles( "suzy", "1", "Power User" ) );
+    repo.getDomain( "id" );
+    PentahoSessionHolder.setSession( createSessionWithRoles( "tiffany", "2", "Power User" ) );
+    repo.getDomain( "id" );
+
+    verify( delegate, times( 2 ) ).getDomain( "id" );
+    assertEquals( 0, repo.getSharedCacheMissCount() );
+  }
+
+  @Test
+  public void shouldParseRepublishedDomainAgain() throws Exception {
+    PentahoMetadataDomainRepository delegate = mock( PentahoMetadataDomainRepository.class );
+    IUnifiedRepository repository = mock( IUnifiedRepository.class );
+    RepositoryFile file = new RepositoryFile.Builder( "fileId", "id.xmi" ).build();
+    when( delegate.getRepository() ).thenReturn( repository );
+    when( delegate.getMetadataRepositoryFile( "id" ) ).thenReturn(
+      new RepositoryFile.Builder( file ).versionId( "1.0" ).lastModificationDate( new Date( 1000 ) ).build() );
+    Domain domain = new Domain();
+    domain.setId( "id" );
+    when( delegate.getDomain( "id" ) ).thenReturn( domain );
+    when( delegate.hasAccessFor( "id" ) ).thenReturn( true );
+    when( delegate.hasAccess( Mockito.anyInt(), Mockito.any() ) ).thenReturn( true );
+    SessionCachingMetadataDomainRepository repo =
+      new SessionCachingMetadataDomainRepository( delegate, new SimpleMapCacheManager(), true, 1 );
+
+    PentahoSessionHolder.setSession( createSessionWithRoles( "suzy", "1", "Power User" ) );
+    repo.getDomain( "id" );
+    repo.getDomain( "id" );
+    verify( delegate, times( 1 ) ).getDomain( "id" );
+
+    when( delegate.getMetadataRepositoryFile( "id" ) ).thenReturn(
+      new RepositoryFile.Builder( file ).versionId( "1.1" ).lastModificationDate( new Date( 2000 ) ).build() );
+    repo.getDomain( "id" );
+    verify( delegate, times( 2 ) ).getDomain( "id" );
+    assertEquals( Integer.valueOf( 2 ), repo.getCachedDomainCounts().get( "id" ) );
+    // the version comes from the metadata mapping, a cache hit does not read the repository
+    verifyNoInteractions( repository );
+  }
+
+  private IPentahoSession createSessionWithRoles( String name, String id, String... roles ) {
+    IPentahoSession session = new StandaloneSession( name, id );
+    List<GrantedAuthority> authorities = new ArrayList<>();
+    for ( String role : roles ) {
+      authorities.add( new SimpleGrantedAuthority( role ) );
+    }
+    session.setAttribute( IPentahoSession.SESSION_ROLES, authorities );
+    return session;
+  }
+
   @Test
   public void testCreateCallablesGetDomain() throws Exception {
     MockSessionAwareMetadataDomainRepository mock = Mockito.mock( MockSessionAwareMetadataDomainRepository.class );
@@ -27,6 +27,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.olap4j.OlapConnection;
+import org.olap4j.metadata.NamedList;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.repository2.unified.IRepositoryFileData;
 import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
@@ -42,10 +43,14 @@ import org.pentaho.platform.util.messages.LocaleHelper;
 import java.io.InputStream;
 import java.io.PrintWriter;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -55,7 +60,9 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -827,6 +834,88 @@ public class OlapServiceImplTest {
     }
   }
 
+  @Test
+  public void getCatalogsLoadsOtherCatalogsWhenOneFails() throws Exception {
+    stubHostedServers( "goodServer", "badServer" );
+    final List<IOlapService.Catalog> cache = new CopyOnWriteArrayList<IOlapService.Catalog>();
+    final OlapServiceImpl service = spy( new OlapServiceImpl( repository, server ) {
+      public boolean hasAccess(
+        String path,
+        EnumSet<RepositoryFilePermission> perms,
+        IPentahoSession session ) {
+        return true;
+      }
+
+      @Override
+      protected List<IOlapService.Catalog> getCache( IPentahoSession session ) {
+        return cache;
+      }
+    } );
+    final OlapConnection connection = mock( OlapConnection.class );
+    final NamedList<org.olap4j.metadata.Schema> schemas = mock( NamedList.class );
+    doReturn( Collections.emptyIterator() ).when( schemas ).iterator();
+    doReturn( schemas ).when( connection ).getOlapSchemas();
+    doReturn( connection ).when( service ).getConnection( eq( "goodServer" ), nullable( IPentahoSession.class ) );
+    doThrow( new IOlapServiceException( "broken" ) )
+      .when( service ).getConnection( eq( "badServer" ), nullable( IPentahoSession.class ) );
+
+    final List<IOlapService.Catalog> catalogs = service.getCatalogs( session );
+
+    assertEquals( 1, catalogs.size() );
+    assertEquals( "goodServer", catalogs.get( 0 ).name );
+    final Map<String, OlapServiceImpl.CatalogLoadState> states = service.getCatalogLoadStates();
+    assertEquals( OlapServiceImpl.CatalogLoadState.Status.LOADED, states.get( "goodServer" ).getStatus() );
+    assertEquals( OlapServiceImpl.CatalogLoadState.Status.FAILED, states.get( "badServer" ).getStatus() );
+    assertEquals( "broken", states.get( "badServer" ).getError() );
+  }
+
+  @Test
+  public void getCatalogsWaitsForATimedOutCatalogInsteadOfLoadingItAgain() throws Exception {
+    stubHostedServers( "slowServer" );
+    final List<IOlapService.Catalog> cache = new CopyOnWriteArrayList<IOlapService.Catalog>();
+    final OlapServiceImpl service = spy( new OlapServiceImpl( repository, server ) {
+      public boolean hasAccess(
+        String path,
+        EnumSet<RepositoryFilePermission> perms,
+        IPentahoSession session ) {
+        return true;
+      }
+
+      @Override
+      protected List<IOlapService.Catalog> getCache( IPentahoSession session ) {
+        return cache;
+      }
+    } );
+    service.setCatalogLoadTimeout( 50 );
+    final CountDownLatch release = new CountDownLatch( 1 );
+    final OlapConnection connection = mock( OlapConnection.class );
+    final NamedList<org.olap4j.metadata.Schema> schemas = mock( NamedList.class );
+    doReturn( Collections.emptyIterator() ).when( schemas ).iterator();
+    doReturn( schemas ).when( connection ).getOlapSchemas();
+    doAnswer( invocation -> {
+      release.await();
+      return connection;
+    } ).when( service ).getConnection( eq( "slowServer" ), nullable( IPentahoSession.class ) );
+
+    try {
+      assertTrue( service.getCatalogs( session ).isEmpty() );
+      assertEquals( OlapServiceImpl.CatalogLoadState.Status.TIMED_OUT,
+        service.getCatalogLoadStates().get( "slowServer" ).getStatus() );
+      assertTrue( service.getCatalogs( session ).isEmpty() );
+
+      release.countDown();
+      final long deadline = System.currentTimeMillis() + 5000;
+      while ( cache.isEmpty() && System.currentTimeMillis() < deadline ) {
+        Thread.sleep( 10 );
+      }
+      assertEquals( 1, cache.size() );
+      verify( service, times( 1 ) ).getConnection( eq( "slowServer" ), nullable( IPentahoSession.class ) );
+    } finally {
+      release.countDown();
+      service.destroy();
+    }
+  }
+
   private static Locale getLocale() {
     return LocaleHelper.getLocale();
   }
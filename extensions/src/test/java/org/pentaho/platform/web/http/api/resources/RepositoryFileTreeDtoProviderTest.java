@@ -0,0 +1,112 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources;
+
+import com.sun.jersey.api.json.JSONJAXBContext;
+import org.junit.Test;
+import org.pentaho.platform.api.repository2.unified.webservices.RepositoryFileDto;
+import org.pentaho.platform.api.repository2.unified.webservices.RepositoryFileTreeDto;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.Providers;
+import javax.xml.bind.JAXBContext;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+public class RepositoryFileTreeDtoProviderTest {
+
+  @Test
+  public void testXmlMatchesJaxbOutput() throws Exception {
+    StringWriter expected = new StringWriter();
+    JAXBContext.newInstance( RepositoryFileTreeDto.class ).createMarshaller().marshal( createTree(), expected );
+
+    RepositoryFileTreeDto tree = createTree();
+    assertEquals( expected.toString(), write( tree ) );
+    // the caller's tree is left as it was, so it can be written again
+    assertEquals( expected.toString(), write( tree ) );
+  }
+
+  @Test
+  public void testJsonMatchesJaxbOutput() throws Exception {
+    JAXBContextResolver resolver = new JAXBContextResolver();
+    JSONJAXBContext context = (JSONJAXBContext) resolver.getContext( RepositoryFileTreeDto.class );
+    RepositoryFileTreeDtoProvider provider = new RepositoryFileTreeDtoProvider();
+    Providers providers = mock( Providers.class );
+    doReturn( resolver ).when( providers ).getContextResolver( JAXBContext.class, MediaType.APPLICATION_JSON_TYPE );
+    Field field = RepositoryFileTreeDtoProvider.class.getDeclaredField( "providers" );
+    field.setAccessible( true );
+    field.set( provider, providers );
+
+    // an empty children list, a single child, a node with no file and a node with several children
+    RepositoryFileTreeDto noFile = new RepositoryFileTreeDto();
+    noFile.setChildren( new ArrayList<>( Arrays.asList( createNode( "empty", new ArrayList<RepositoryFileTreeDto>() ) ) ) );
+    RepositoryFileTreeDto tree = createTree();
+    tree.getChildren().add( noFile );
+
+    StringWriter expected = new StringWriter();
+    context.createJSONMarshaller().marshallToJSON( tree, expected );
+
+    assertEquals( expected.toString(), write( provider, tree, MediaType.APPLICATION_JSON_TYPE ) );
+  }
+
+  private String write( RepositoryFileTreeDto tree ) throws Exception {
+    return write( new RepositoryFileTreeDtoProvider(), tree, MediaType.APPLICATION_XML_TYPE );
+  }
+
+  private String write( RepositoryFileTreeDtoProvider provider, RepositoryFileTreeDto tree, MediaType mediaType )
+    throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    provider.writeTo( tree, RepositoryFileTreeDto.class, RepositoryFileTreeDto.class, null, mediaType, null, out );
+    return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+  }
+
+  @Test
+  public void testIsWriteable() {
+    RepositoryFileTreeDtoProvider provider = new RepositoryFileTreeDtoProvider();
+    assertTrue( provider.isWriteable( RepositoryFileTreeDto.class, null, null, MediaType.APPLICATION_JSON_TYPE ) );
+    assertTrue( provider.isWriteable( RepositoryFileTreeDto.class, null, null, MediaType.APPLICATION_XML_TYPE ) );
+    assertFalse( provider.isWriteable( RepositoryFileDto.class, null, null, MediaType.APPLICATION_XML_TYPE ) );
+  }
+
+  private RepositoryFileTreeDto createTree() {
+    RepositoryFileTreeDto leaf = createNode( "leaf", new ArrayList<RepositoryFileTreeDto>() );
+    RepositoryFileTreeDto folder = createNode( "folder", new ArrayList<>( Arrays.asList( leaf ) ) );
+    RepositoryFileTreeDto file = createNode( "file", null );
+    return createNode( "root", new ArrayList<>( Arrays.asList( folder, file ) ) );
+  }
+
+  private RepositoryFileTreeDto createNode( String name, List<RepositoryFileTreeDto> children ) {
+    RepositoryFileDto file = new RepositoryFileDto();
+    file.setId( name + "Id" );
+    file.setName( name );
+    file.setPath( "/" + name );
+    file.setTitle( name );
+    file.setFolder( children != null );
+    RepositoryFileTreeDto node = new RepositoryFileTreeDto();
+    node.setFile( file );
+    node.setChildren( children );
+    return node;
+  }
+}
@@ -0,0 +1,115 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.web.http.api.resources.utils;
+
+import org.junit.Test;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DownloadUtilsTest {
+
+  private static final Date LAST_MODIFIED = new Date( 1700000000000L );
+
+  @Test
+  public void testETagFollowsVersion() {
+    String eTag = DownloadUtils.getETag( file( "1.0" ) );
+    assertTrue( eTag.startsWith( "\"id-1.0-" ) );
+    assertEquals( eTag, DownloadUtils.getETag( file( "1.0" ) ) );
+    assertNotEquals( eTag, DownloadUtils.getETag( file( "1.1" ) ) );
+  }
+
+  @Test
+  public void testNotModified() {
+    String eTag = DownloadUtils.getETag( file( "1.0" ) );
+
+    HttpServletRequest request = mock( HttpServletRequest.class );
+    when( request.getHeader( DownloadUtils.IF_NONE_MATCH ) ).thenReturn( "\"other\", W/" + eTag );
+    assertTrue( DownloadUtils.isNotModified( request, eTag, LAST_MODIFIED ) );
+
+    when( request.getHeader( DownloadUtils.IF_NONE_MATCH ) ).thenReturn( "\"other\"" );
+    // If-None-Match wins over a matching If-Modified-Since
+    when( request.getDateHeader( DownloadUtils.IF_MODIFIED_SINCE ) ).thenReturn( LAST_MODIFIED.getTime() + 999 );
+    assertFalse( DownloadUtils.isNotModified( request, eTag, LAST_MODIFIED ) );
+
+    when( request.getHeader( DownloadUtils.IF_NONE_MATCH ) ).thenReturn( null );
+    assertTrue( DownloadUtils.isNotModified( request, eTag, LAST_MODIFIED ) );
+    when( request.getDateHeader( DownloadUtils.IF_MODIFIED_SINCE ) ).thenReturn( LAST_MODIFIED.getTime() - 1000 );
+    assertFalse( DownloadUtils.isNotModified( request, eTag, LAST_MODIFIED ) );
+  }
+
+  @Test
+  public void testRanges() {
+    assertRange( "bytes=0-99", 0, 99 );
+    assertRange( "bytes=900-", 900, 999 );
+    assertRange( "bytes=-100", 900, 999 );
+    assertRange( "bytes=990-2000", 990, 999 );
+    assertNull( DownloadUtils.getRange( request( "bytes=0-1,5-6", null ), "\"a\"", 1000 ) );
+    assertNull( DownloadUtils.getRange( request( "items=0-1", null ), "\"a\"", 1000 ) );
+    assertNull( DownloadUtils.getRange( request( "bytes=0-99", null ), "\"a\"", 0 ) );
+    assertNull( DownloadUtils.getRange( request( "bytes=0-99", "\"b\"" ), "\"a\"", 1000 ) );
+    assertEquals( 100, DownloadUtils.getRange( request( "bytes=0-99", "\"a\"" ), "\"a\"", 1000 ).getLength() );
+    assertSame( DownloadUtils.ByteRange.UNSATISFIABLE,
+      DownloadUtils.getRange( request( "bytes=1000-", null ), "\"a\"", 1000 ) );
+  }
+
+  @Test
+  public void testRangeOutput() throws Exception {
+    byte[] data = "0123456789".getBytes( StandardCharsets.UTF_8 );
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    DownloadUtils.getRangeOutput( new ByteArrayInputStream( data ), new DownloadUtils.ByteRange( 3, 6 ) ).write( out );
+    assertEquals( "3456", out.toString( "UTF-8" ) );
+    assertEquals( "bytes 3-6/10", new DownloadUtils.ByteRange( 3, 6 ).toContentRange( 10 ) );
+
+    try {
+      DownloadUtils.getRangeOutput( new ByteArrayInputStream( data ), new DownloadUtils.ByteRange( 8, 11 ) ).write(
+        new ByteArrayOutputStream() );
+      assertTrue( "a short content must not be sent as if it were complete", false );
+    } catch ( EOFException e ) {
+      // expected
+    }
+  }
+
+  private static void assertRange( String header, long start, long end ) {
+    DownloadUtils.ByteRange range = DownloadUtils.getRange( request( header, null ), "\"a\"", 1000 );
+    assertEquals( start, range.getStart() );
+    assertEquals( end, range.getEnd() );
+  }
+
+  private static HttpServletRequest request( String range, String ifRange ) {
+    HttpServletRequest request = mock( HttpServletRequest.class );
+    when( request.getHeader( DownloadUtils.RANGE ) ).thenReturn( range );
+    when( request.getHeader( DownloadUtils.IF_RANGE ) ).thenReturn( ifRange );
+    return request;
+  }
+
+  private static RepositoryFile file( String versionId ) {
+    return new RepositoryFile.Builder( "id", "report.csv" ).versionId( versionId ).lastModificationDate(
+      LAST_MODIFIED ).build();
+  }
+}
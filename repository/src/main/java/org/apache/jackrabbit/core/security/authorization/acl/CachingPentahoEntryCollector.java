@@ -13,33 +13,42 @@
 
 package org.apache.jackrabbit.core.security.authorization.acl;
 
-import org.apache.commons.collections4.map.LRUMap;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.SessionImpl;
-import org.apache.jackrabbit.core.cache.GrowingLRUMap;
 import org.apache.jackrabbit.core.id.NodeId;
 import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
-import org.pentaho.platform.api.engine.ICacheManager;
 import org.pentaho.platform.api.engine.ILogoutListener;
 import org.pentaho.platform.api.engine.IPentahoSession;
+import org.pentaho.platform.api.mt.ITenant;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
 import org.pentaho.platform.engine.core.system.PentahoSystem;
+import org.pentaho.platform.repository2.unified.jcr.JcrTenantUtils;
+import org.pentaho.platform.security.policy.rolebased.AbstractJcrBackedRoleBindingDao;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.jcr.RepositoryException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * <code>CachingEntryCollector</code> extends <code>PentahoEntryCollector</code> by keeping a cache of ACEs per access
  * controlled nodeId.
  * <p/>
+ * The ACEs collected for a node only depend on the tenant and the runtime roles of the current user, except for
+ * magic ACEs, which name the current user. Caches are therefore kept per principal set (tenant plus sorted roles) and
+ * shared by all sessions with that set; entries that name the current user are kept in a separate cache for that user.
+ * Lookups do not lock. When an ACL changes, the entries of the node and of its descendants are dropped.
+ * <p/>
  * This class is a copy of the one in trunk of Jackrabbit. Backported here for performance reasons.
  */
 public class CachingPentahoEntryCollector extends PentahoEntryCollector {
@@ -48,12 +57,32 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    * logger instance
    */
   private static final Logger log = LoggerFactory.getLogger( CachingEntryCollector.class );
-  public static final String ENTRY_COLLECTOR = "ENTRY_COLLECTOR";
-  private final ICacheManager cacheManager;
 
+  private static final String PROPERTY_PREFIX = "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.";
+
+  private static final String NO_SESSION_KEY = "";
+
+  private static final String VERSION_STORAGE_PATH = "/jcr:system/jcr:versionStorage";
+
+  /**
+   * Entry caches shared by the sessions of users with the same principal set
+   */
+  private final Cache<String, EntryCache> sharedCaches;
+
+  /**
+   * Entry caches holding the entries that name a single user, keyed by principal set and user
+   */
+  private final Cache<String, EntryCache> userCaches;
+
+  /**
+   * Bumped on every invalidation so that entries read before an ACL change are not cached after it
+   */
+  private final AtomicLong invalidations = new AtomicLong();
 
-  private final Map<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>> futuresBySession = Collections
-      .synchronizedMap( new LRUMap<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>>( 512, 128 ) );
+  /**
+   * Magic ACEs depend on the role bindings, so the caches are cleared when they change
+   */
+  private volatile long bindingsRevision = AbstractJcrBackedRoleBindingDao.getBindingsRevision();
 
   /**
    * Create a new instance.
@@ -66,69 +95,86 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
       throws RepositoryException {
     super( systemSession, rootID, configuration );
 
-    // Flush caches of session on logout
+    sharedCaches = CacheBuilder.newBuilder().maximumSize( getIntProperty( "maxPrincipalSets", 256 ) ).build();
+    userCaches = CacheBuilder.newBuilder().maximumSize( getIntProperty( "maxUsers", 1024 ) )
+      .expireAfterAccess( getIntProperty( "userExpiryMinutes", 30 ), TimeUnit.MINUTES ).build();
+
+    // Flush the entries of the user on logout; shared entries stay
     PentahoSystem.addLogoutListener( new ILogoutListener() {
       @Override
       public void onLogout( IPentahoSession iPentahoSession ) {
 
         log.debug( "Flushing ACL Entries due to logout for session: " + iPentahoSession.getName() );
-        flushCachesOfSession( iPentahoSession );
+        flushCachesOfUser( iPentahoSession.getName() );
       }
     } );
-
-    cacheManager = PentahoSystem.getCacheManager( null ); // not session instanced
   }
 
-  private void flushCachesOfSession( IPentahoSession iPentahoSession ) {
-
-    cacheManager.removeFromSessionCache( iPentahoSession, ENTRY_COLLECTOR );
+  private static int getIntProperty( String name, int defaultValue ) {
+    String propname = PROPERTY_PREFIX + name;
+    try {
+      return Integer.parseInt( System.getProperty( propname, Integer.toString( defaultValue ) ) );
+    } catch ( NumberFormatException ex ) {
+      log.debug( "Parsing system property " + propname + " with value: " + System.getProperty( propname ), ex );
+      return defaultValue;
+    }
+  }
 
-    synchronized ( futuresBySession ) {
-      if ( futuresBySession.containsKey( iPentahoSession ) ) {
-        futuresBySession.get( iPentahoSession ).clear();
-        futuresBySession.remove( iPentahoSession );
-      }
+  private void flushCachesOfUser( String userName ) {
+    if ( userName == null ) {
+      return;
     }
+    String suffix;
+    try {
+      suffix = "\t" + JcrTenantUtils.getTenantedUser( userName );
+    } catch ( RuntimeException e ) {
+      // the entries expire on their own
+      log.debug( "Cannot resolve the tenanted name of " + userName, e );
+      return;
+    }
+    userCaches.asMap().keySet().removeIf( key -> key.endsWith( suffix ) );
   }
 
-  private EntryCache getCache() {
+  /**
+   * Returns the key of the principal set of the current user: the tenant and the sorted runtime roles. Without a
+   * session no magic ACEs apply, so all such lookups share one key.
+   */
+  protected String getPrincipalSetKey() {
     IPentahoSession session = PentahoSessionHolder.getSession();
-    EntryCache cache = (EntryCache) cacheManager.getFromSessionCache( session, ENTRY_COLLECTOR );
-    if ( cache == null ) {
-      cache = new EntryCache();
-      cacheManager.putInSessionCache( session, ENTRY_COLLECTOR, cache );
+    if ( session == null || session.getId() == null || session.getId().trim().isEmpty() ) {
+      return NO_SESSION_KEY;
     }
-
-    return cache;
+    ITenant tenant = JcrTenantUtils.getTenant();
+    StringBuilder key = new StringBuilder( tenant != null && tenant.getId() != null ? tenant.getId() : "" );
+    for ( String role : new TreeSet<String>( getRuntimeRoleNames() ) ) {
+      key.append( '\n' ).append( role );
+    }
+    return key.toString();
   }
 
-  private ConcurrentMap<NodeId, FutureEntries> getFutures() {
+  /**
+   * Returns the tenanted name of the current user, or null without a session.
+   */
+  protected String getCurrentUser() {
     IPentahoSession session = PentahoSessionHolder.getSession();
-    if ( futuresBySession.containsKey( session ) ) {
-      return futuresBySession.get( session );
+    return session == null || session.getName() == null ? null : JcrTenantUtils.getTenantedUser( session.getName() );
+  }
+
+  private EntryCache getOrCreate( Cache<String, EntryCache> caches, String key ) {
+    try {
+      return caches.get( key, () -> new EntryCache() );
+    } catch ( ExecutionException e ) {
+      // EntryCache's constructor does not throw
+      throw new IllegalStateException( e );
     }
-    ConcurrentMap<NodeId, FutureEntries> futures = new ConcurrentHashMap<NodeId, FutureEntries>();
-    futuresBySession.put( session, futures );
-    return futures;
   }
 
   @Override
   protected void close() {
     super.close();
 
-    performAgainstAllInCache( new CacheCallable() {
-      @Override public void call( EntryCache cache ) {
-        cache.clear();
-      }
-    } );
-
-    synchronized ( futuresBySession ) {
-      for ( Map.Entry<IPentahoSession, ConcurrentMap<NodeId, FutureEntries>> entry : this.futuresBySession
-          .entrySet() ) {
-        entry.getValue().clear();
-      }
-      futuresBySession.clear();
-    }
+    sharedCaches.invalidateAll();
+    userCaches.invalidateAll();
   }
 
   // -----------------------------------------------------< EntryCollector >---
@@ -138,12 +184,7 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    */
   @Override
   protected PentahoEntries getEntries( NodeImpl node ) throws RepositoryException {
-    NodeId nodeId = node.getNodeId();
-    Entries entries = getCache().get( nodeId );
-    if ( entries == null ) {
-      // fetch entries and update the cache
-      entries = updateCache( node );
-    }
+    Entries entries = getCachedEntries( node.getNodeId(), node );
     return entries instanceof PentahoEntries ? (PentahoEntries) entries : new PentahoEntries( entries );
   }
 
@@ -152,106 +193,122 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
    */
   @Override
   protected Entries getEntries( NodeId nodeId ) throws RepositoryException {
-    Entries entries = getCache().get( nodeId );
-    if ( entries == null ) {
-      // fetch entries and update the cache
-      NodeImpl n = getNodeById( nodeId );
-      entries = updateCache( n );
+    return getCachedEntries( nodeId, null );
+  }
+
+  private Entries getCachedEntries( NodeId nodeId, NodeImpl node ) throws RepositoryException {
+    long revision = AbstractJcrBackedRoleBindingDao.getBindingsRevision();
+    if ( revision != bindingsRevision ) {
+      log.debug( "Role bindings changed, clearing the cache" );
+      bindingsRevision = revision;
+      clearAll();
+    }
+    String principalSetKey = getPrincipalSetKey();
+    EntryCache sharedCache = getOrCreate( sharedCaches, principalSetKey );
+    Entries entries = sharedCache.get( nodeId );
+    if ( entries != null ) {
+      return entries;
+    }
+    String user = getCurrentUser();
+    String userKey = user == null ? null : principalSetKey + "\t" + user;
+    if ( userKey != null ) {
+      EntryCache userCache = userCaches.getIfPresent( userKey );
+      entries = userCache == null ? null : userCache.get( nodeId );
+      if ( entries != null ) {
+        return entries;
+      }
     }
-    return entries;
+    // fetch entries and update the cache
+    return throttledUpdateCache( node != null ? node : getNodeById( nodeId ), sharedCache, userKey, user );
   }
 
   /**
    * Read the entries defined for the specified node and update the cache accordingly.
    *
    * @param node The target node
-   * @return The list of entries present on the specified node or an empty list.
+   * @return The entries present on the specified node or an empty list, and whether they name the current user.
    * @throws RepositoryException If an error occurs.
    */
-  private Entries internalUpdateCache( NodeImpl node ) throws RepositoryException {
-    Entries entries = super.getEntries( node );
-    if ( ( isRootId( node.getNodeId() ) && getCache().specialCasesRoot() ) || !entries.isEmpty() ) {
+  private FutureEntries internalUpdateCache( NodeImpl node, EntryCache sharedCache, String userKey, String user )
+    throws RepositoryException {
+    long invalidationCount = invalidations.get();
+    Entries entries = collectEntries( node );
+    boolean personal = user != null && namesUser( entries, user );
+    if ( ( isRootId( node.getNodeId() ) && sharedCache.specialCasesRoot() ) || !entries.isEmpty() ) {
       // adjust the 'nextId' to point to the next access controlled
       // ancestor node instead of the parent and remember the entries.
       // entries.setNextId(getNextID(node));
-      getCache().put( node.getNodeId(), entries );
+      EntryCache cache = personal ? getOrCreate( userCaches, userKey ) : sharedCache;
+      cache.put( node.getNodeId(), node.getPath(), entries );
+      if ( invalidationCount != invalidations.get() ) {
+        // an ACL changed while the entries were read
+        cache.remove( node.getNodeId() );
+      }
     } // else: not access controlled -> ignore.
-    return entries;
+    FutureEntries result = new FutureEntries();
+    result.setResult( entries, personal ? user : null );
+    return result;
   }
 
   /**
-   * Update cache for the given node id
-   *
-   * @param node The target node
-   * @return The list of entries present on the specified node or an empty list.
-   * @throws RepositoryException
+   * Collects the entries of the node without looking at the cache.
    */
-  private Entries updateCache( NodeImpl node ) throws RepositoryException {
-    return throttledUpdateCache( node );
+  protected PentahoEntries collectEntries( NodeImpl node ) throws RepositoryException {
+    return super.getEntries( node );
+  }
+
+  /**
+   * Whether any user (non-group) entry names the given user. Magic ACEs do, which makes the entries specific to that
+   * user; ACEs naming the user in the ACL itself are treated the same way, to be on the safe side.
+   */
+  @SuppressWarnings( "unchecked" )
+  private static boolean namesUser( Entries entries, String user ) {
+    List<Object> aces = entries.getACEs();
+    if ( aces != null ) {
+      for ( Object ace : aces ) {
+        if ( ace instanceof PentahoEntry && !( (PentahoEntry) ace ).isGroupEntry()
+            && user.equals( ( (PentahoEntry) ace ).getPrincipalName() ) ) {
+          return true;
+        }
+      }
+    }
+    return false;
   }
 
   /**
    * See {@link CachingEntryCollector#updateCache(NodeImpl)} ; this variant blocks the current thread if a concurrent
-   * update for the same node id takes place
+   * update for the same node id and principal set takes place
    */
-  private Entries throttledUpdateCache( NodeImpl node ) throws RepositoryException {
+  private Entries throttledUpdateCache( NodeImpl node, EntryCache sharedCache, String userKey, String user )
+    throws RepositoryException {
     NodeId id = node.getNodeId();
-    FutureEntries fe = null;
     FutureEntries nfe = new FutureEntries();
-    boolean found = true;
 
-    fe = getFutures().putIfAbsent( id, nfe );
-    if ( fe == null ) {
-      found = false;
-      fe = nfe;
-    }
-
-    if ( found ) {
-      // we have found a previous FutureEntries object, so use it
-      return fe.get();
-    } else {
-      // otherwise obtain result and when done notify waiting FutureEntries
-      try {
-        Entries e = internalUpdateCache( node );
-        getFutures().remove( id );
-        fe.setResult( e );
+    FutureEntries fe = sharedCache.futures.putIfAbsent( id, nfe );
+    if ( fe != null ) {
+      // we have found a previous FutureEntries object, so use it unless it names another user
+      Entries e = fe.get();
+      if ( fe.user == null || fe.user.equals( user ) ) {
         return e;
-      } catch ( Throwable problem ) {
-        getFutures().remove( id );
-        fe.setProblem( problem );
-        if ( problem instanceof RepositoryException ) {
-          throw (RepositoryException) problem;
-        } else {
-          throw new RuntimeException( problem );
-        }
       }
+      return internalUpdateCache( node, sharedCache, userKey, user ).get();
     }
-  }
 
-  /**
-   * Find the next access control ancestor in the hierarchy 'null' indicates that there is no ac-controlled ancestor.
-   *
-   * @param node The target node for which the cache needs to be updated.
-   * @return The NodeId of the next access controlled ancestor in the hierarchy or null
-   */
-  private NodeId getNextID( NodeImpl node ) throws RepositoryException {
-    NodeImpl n = node;
-    NodeId nextId = null;
-    while ( nextId == null && !isRootId( n.getNodeId() ) ) {
-      NodeId parentId = n.getParentId();
-      if ( getCache().containsKey( parentId ) ) {
-        nextId = parentId;
+    // otherwise obtain result and when done notify waiting FutureEntries
+    try {
+      FutureEntries result = internalUpdateCache( node, sharedCache, userKey, user );
+      sharedCache.futures.remove( id );
+      nfe.setResult( result.result, result.user );
+      return result.result;
+    } catch ( Throwable problem ) {
+      sharedCache.futures.remove( id );
+      nfe.setProblem( problem );
+      if ( problem instanceof RepositoryException ) {
+        throw (RepositoryException) problem;
       } else {
-        NodeImpl parent = (NodeImpl) n.getParent();
-        if ( hasEntries( parent ) ) {
-          nextId = parentId;
-        } else {
-          // try next ancestor
-          n = parent;
-        }
+        throw new RuntimeException( problem );
       }
     }
-    return nextId;
   }
 
   /**
@@ -264,48 +321,6 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
     return rootID.equals( nodeId );
   }
 
-  /**
-   * Evaluates if the given node is access controlled and holds a non-empty rep:policy child node.
-   *
-   * @param n The node to test.
-   * @return true if the specified node is access controlled and holds a non-empty policy child node.
-   * @throws RepositoryException If an error occurs.
-   */
-  private static boolean hasEntries( NodeImpl n ) throws RepositoryException {
-    if ( ACLProvider.isAccessControlled( n ) ) {
-      NodeImpl aclNode = n.getNode( N_POLICY );
-      return aclNode.hasNodes();
-    }
-
-    // no ACL defined here
-    return false;
-  }
-
-  /**
-   * Utility SMI
-   */
-  private interface CacheCallable {
-    void call( EntryCache cache );
-  }
-
-  private static final Pattern SESSION_KEY_PATTERN = Pattern.compile( "[^\\t]*\\t(.*)" );
-
-  private void performAgainstAllInCache( CacheCallable callable ) {
-    Set allKeysFromRegionCache = cacheManager.getAllKeysFromRegionCache( ICacheManager.SESSION );
-    for ( Object compositeKey : allKeysFromRegionCache ) {
-      Matcher matcher = SESSION_KEY_PATTERN.matcher( compositeKey.toString() );
-      if ( matcher.matches() ) {
-        String key = matcher.toMatchResult().group( 1 );
-        if ( ENTRY_COLLECTOR.equals( key ) ) {
-          Object fromRegionCache = cacheManager.getFromRegionCache( ICacheManager.SESSION, compositeKey );
-          if ( EntryCache.class.isAssignableFrom( fromRegionCache.getClass() ) ) {
-            callable.call( (EntryCache) fromRegionCache );
-          }
-        }
-      }
-    }
-  }
-
   /**
    * @see EntryCollector#notifyListeners(org.apache.jackrabbit.core.security.authorization.AccessControlModifications)
    */
@@ -321,57 +336,60 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
       final NodeId nodeId = (NodeId) key;
       int type = modifications.getType( nodeId );
 
-      if ( ( type & POLICY_ADDED ) == POLICY_ADDED ) {
-
-        // clear the complete cache since the nextAcNodeId may
-        // have changed due to the added ACL.
-        log.debug( "Policy added, clearing the cache" );
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.clear();
-          }
-        } );
-        break; // no need for further processing.
-      } else if ( ( type & POLICY_REMOVED ) == POLICY_REMOVED ) {
-
-        // clear the entry and change the entries having a nextID
-        // pointing to this node.
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.remove( nodeId, true );
-          }
-        } );
-
-      } else if ( ( type & POLICY_MODIFIED ) == POLICY_MODIFIED ) {
-        // simply clear the cache entry -> reload upon next access.
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.remove( nodeId, false );
-          }
-        } );
-
+      if ( ( type & ( POLICY_ADDED | POLICY_REMOVED | POLICY_MODIFIED ) ) != 0 ) {
+        // the node and all nodes below it may inherit from the changed ACL, and so may version histories
+        String path = getPath( nodeId );
+        if ( path == null ) {
+          log.debug( "Policy changed on a node that cannot be resolved, clearing the cache" );
+          clearAll();
+          break; // no need for further processing.
+        }
+        log.debug( "Policy changed, removing entries at and below {}", path );
+        invalidations.incrementAndGet();
+        for ( EntryCache cache : allCaches() ) {
+          cache.removeSubtree( path );
+          cache.removeSubtree( VERSION_STORAGE_PATH );
+        }
       } else if ( ( type & MOVE ) == MOVE ) {
         // some sort of move operation that may affect the cache
         log.debug( "Move operation, clearing the cache" );
-
-        performAgainstAllInCache( new CacheCallable() {
-          @Override public void call( EntryCache cache ) {
-            cache.clear();
-          }
-        } );
+        clearAll();
         break; // no need for further processing.
       }
     }
     super.notifyListeners( modifications );
   }
 
+  private String getPath( NodeId nodeId ) {
+    try {
+      return isRootId( nodeId ) ? "/" : getNodeById( nodeId ).getPath();
+    } catch ( RepositoryException e ) {
+      log.debug( "Cannot resolve the path of node " + nodeId, e );
+      return null;
+    }
+  }
+
+  private Iterable<EntryCache> allCaches() {
+    List<EntryCache> caches = new ArrayList<EntryCache>( sharedCaches.asMap().values() );
+    caches.addAll( userCaches.asMap().values() );
+    return caches;
+  }
+
+  private void clearAll() {
+    invalidations.incrementAndGet();
+    for ( EntryCache cache : allCaches() ) {
+      cache.clear();
+    }
+  }
+
   /**
    * A place holder for a yet to be computed {@link Entries} result
    */
-  private class FutureEntries {
+  private static class FutureEntries {
 
     private boolean ready = false;
     private Entries result = null;
+    private String user = null;
     private Throwable problem = null;
 
     public synchronized Entries get() throws RepositoryException {
@@ -392,8 +410,12 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
       return result;
     }
 
-    public synchronized void setResult( Entries e ) {
+    /**
+     * @param user the user named by the entries, or null if they may be shared
+     */
+    public synchronized void setResult( Entries e, String user ) {
       result = e;
+      this.user = user;
       ready = true;
       notifyAll();
     }
@@ -408,29 +430,24 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
   /**
    * A cache to lookup the ACEs defined on a given (access controlled) node. The internal map uses the ID of the node as
    * key while the value consists of {@Entries} objects that not only provide the ACEs defined for that node but also
-   * the ID of the next access controlled parent node.
+   * the ID of the next access controlled parent node. The path of the node is kept with the entries so that a subtree
+   * can be dropped when an ACL changes.
    */
   private class EntryCache {
 
-    private final Map<NodeId, Entries> cache;
-    private Entries rootEntries;
-    private boolean specialCaseRoot = true;
+    private final Cache<NodeId, CachedEntries> cache;
+    private final ConcurrentMap<NodeId, FutureEntries> futures = new ConcurrentHashMap<NodeId, FutureEntries>();
+    private volatile CachedEntries rootEntries;
+    private final boolean specialCaseRoot;
 
-    @SuppressWarnings( "unchecked" )
     public EntryCache() {
-      int maxsize = 5000;
-      String propname = "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.maxsize";
-      try {
-        maxsize = Integer.parseInt( System.getProperty( propname, Integer.toString( maxsize ) ) );
-      } catch ( NumberFormatException ex ) {
-        log.debug( "Parsing system property " + propname + " with value: " + System.getProperty( propname ), ex );
-      }
+      int maxsize = getIntProperty( "maxsize", 5000 );
 
       log.info( "Creating cache with max size of: " + maxsize );
 
-      cache = new GrowingLRUMap( 1024, maxsize );
+      cache = CacheBuilder.newBuilder().maximumSize( maxsize ).build();
 
-      String propsrname = "org.apache.jackrabbit.core.security.authorization.acl.CachingEntryCollector.scroot";
+      String propsrname = PROPERTY_PREFIX + "scroot";
       specialCaseRoot = Boolean.parseBoolean( System.getProperty( propsrname, "true" ) );
 
       log.info( "Root is special-cased: " + specialCaseRoot );
@@ -440,44 +457,30 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
       return specialCaseRoot;
     }
 
-    public boolean containsKey( NodeId id ) {
-      if ( specialCaseRoot && isRootId( id ) ) {
-        return rootEntries != null;
-      } else {
-        synchronized ( cache ) {
-          return cache.containsKey( id );
-        }
-      }
-    }
-
     public void clear() {
       rootEntries = null;
-      synchronized ( cache ) {
-        cache.clear();
-      }
+      cache.invalidateAll();
     }
 
     public Entries get( NodeId id ) {
-      Entries result;
+      CachedEntries result;
 
       if ( specialCaseRoot && isRootId( id ) ) {
         result = rootEntries;
       } else {
-        synchronized ( cache ) {
-          result = cache.get( id );
-        }
+        result = cache.getIfPresent( id );
       }
 
       if ( result != null ) {
         log.debug( "Cache hit for nodeId {}", id );
+        return result.entries;
       } else {
         log.debug( "Cache miss for nodeId {}", id );
+        return null;
       }
-
-      return result;
     }
 
-    public void put( NodeId id, Entries entries ) {
+    public void put( NodeId id, String path, Entries entries ) {
       log.debug( "Updating cache for nodeId {}", id );
 
       // fail early on potential cache corruption
@@ -486,39 +489,53 @@ public class CachingPentahoEntryCollector extends PentahoEntryCollector {
       }
 
       if ( specialCaseRoot && isRootId( id ) ) {
-        rootEntries = entries;
+        rootEntries = new CachedEntries( path, entries );
       } else {
-        synchronized ( cache ) {
-          cache.put( id, entries );
-        }
+        cache.put( id, new CachedEntries( path, entries ) );
       }
     }
 
-    public void remove( NodeId id, boolean adjustNextIds ) {
+    public void remove( NodeId id ) {
       log.debug( "Removing nodeId {} from cache", id );
-      Entries result;
-      synchronized ( cache ) {
-        if ( specialCaseRoot && isRootId( id ) ) {
-          result = rootEntries;
-          rootEntries = null;
-        } else {
-          result = cache.remove( id );
-        }
+      if ( specialCaseRoot && isRootId( id ) ) {
+        rootEntries = null;
+      } else {
+        cache.invalidate( id );
+      }
+    }
 
-        if ( adjustNextIds && result != null ) {
-          NodeId nextId = result.getNextId();
-          for ( Entries entry : cache.values() ) {
-            if ( id.equals( entry.getNextId() ) ) {
-              // fail early on potential cache corruption
-              if ( id.equals( nextId ) ) {
-                throw new IllegalArgumentException( "Trying to update cache entry for " + id
-                    + " with a circular reference" );
-              }
-              entry.setNextId( nextId );
-            }
-          }
-        }
+    /**
+     * Removes the entries of the node at <code>path</code> and of all nodes below it.
+     */
+    public void removeSubtree( String path ) {
+      if ( "/".equals( path ) ) {
+        clear();
+        return;
+      }
+      String prefix = path + "/";
+      CachedEntries root = rootEntries;
+      if ( root != null && isInSubtree( root.path, path, prefix ) ) {
+        rootEntries = null;
       }
+      cache.asMap().values().removeIf( cached -> isInSubtree( cached.path, path, prefix ) );
+    }
+
+    private boolean isInSubtree( String candidate, String path, String prefix ) {
+      return candidate == null || candidate.equals( path ) || candidate.startsWith( prefix );
+    }
+  }
+
+  /**
+   * Cached entries along with the path of the node they were collected for
+   */
+  private static class CachedEntries {
+
+    private final String path;
+    private final Entries entries;
+
+    CachedEntries( String path, Entries entries ) {
+      this.path = path;
+      this.entries = entries;
     }
   }
 }
@@ -0,0 +1,855 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.jcr.Credentials;
+import javax.jcr.Repository;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.pentaho.platform.api.locale.IPentahoLocale;
+import org.pentaho.platform.api.repository2.unified.IRepositoryFileData;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAce;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
+import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
+import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
+import org.pentaho.platform.api.repository2.unified.VersionSummary;
+import org.pentaho.platform.repository2.unified.jcr.JcrStringHelper;
+import org.pentaho.platform.repository2.unified.jcr.RepositoryFileProxy;
+import org.pentaho.platform.repository2.unified.jcr.sejcr.CredentialsStrategy;
+import org.pentaho.platform.util.messages.LocaleHelper;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.util.Assert;
+
+/**
+ * Decorates another {@code IUnifiedRepository} instance and caches folder listings and file lookups per path, per
+ * principal set (user name plus granted authorities) and per locale, so users with the same access share nothing they
+ * should not, and localized titles and descriptions are only served to users of the same locale.
+ *
+ * <p>
+ * Entries are invalidated precisely: by the JCR observation events (node added, removed or moved, property added,
+ * changed or removed) of the file they depend on, and right away for writes made through this decorator. Loads that
+ * overlap with an invalidation are not cached, so a stale listing is never served. The decorator is opt-in: wire it
+ * around the repository bean and call {@link #init()} to start observing.
+ * </p>
+ */
+public class CachingRepositoryDecorator implements IUnifiedRepository, EventListener {
+
+  // ~ Static fields/initializers
+  // ======================================================================================
+
+  private static final Log logger = LogFactory.getLog( CachingRepositoryDecorator.class );
+
+  private static final int OBSERVED_EVENTS = Event.NODE_ADDED | Event.NODE_REMOVED | Event.NODE_MOVED
+      | Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+  private static final String ACL_NODE = "rep:policy"; //$NON-NLS-1$
+
+  private static final String ACL_PROPERTY_PREFIX = "pho:acl"; //$NON-NLS-1$
+
+  // ~ Instance fields
+  // =================================================================================================
+
+  private final IUnifiedRepository delegatee;
+
+  private final Cache<CacheKey, CacheEntry> cache;
+
+  /**
+   * Bumped on every invalidation; a load only populates the cache if no invalidation happened while it ran.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  private Repository jcrRepository;
+
+  private CredentialsStrategy credentialsStrategy;
+
+  private Session observationSession;
+
+  // ~ Constructors
+  // ====================================================================================================
+
+  public CachingRepositoryDecorator( final IUnifiedRepository delegatee ) {
+    this( delegatee, 10000, 600 );
+  }
+
+  public CachingRepositoryDecorator( final IUnifiedRepository delegatee, final long maxEntries,
+      final long expireAfterSeconds ) {
+    super();
+    Assert.notNull( delegatee );
+    this.delegatee = delegatee;
+    // the expiry is only a safety net in case events are lost, e.g. while the observation session is reconnecting
+    this.cache = CacheBuilder.newBuilder().maximumSize( maxEntries ).expireAfterWrite( expireAfterSeconds,
+        TimeUnit.SECONDS ).recordStats().build();
+  }
+
+  // ~ Observation
+  // =====================================================================================================
+
+  /**
+   * @param jcrRepository
+   *          repository to observe; typically the {@code jcrRepository} bean
+   */
+  public void setJcrRepository( final Repository jcrRepository ) {
+    this.jcrRepository = jcrRepository;
+  }
+
+  /**
+   * @param credentialsStrategy
+   *          credentials of the observation session, of a user that sees every change; typically
+   *          {@code jcrAdminCredentialsStrategy}
+   */
+  public void setCredentialsStrategy( final CredentialsStrategy credentialsStrategy ) {
+    this.credentialsStrategy = credentialsStrategy;
+  }
+
+  /**
+   * Opens the session used to receive observation events. Without it, only writes made through this decorator
+   * invalidate the cache.
+   */
+  public synchronized void init() throws RepositoryException {
+    if ( jcrRepository == null || observationSession != null ) {
+      return;
+    }
+    Credentials credentials = credentialsStrategy != null ? credentialsStrategy.getCredentials() : null;
+    observationSession = jcrRepository.login( credentials );
+    observationSession.getWorkspace().getObservationManager().addEventListener( this, OBSERVED_EVENTS,
+        ServerRepositoryPaths.getPentahoRootFolderPath(), true, null, null, false );
+  }
+
+  public synchronized void destroy() {
+    if ( observationSession != null ) {
+      try {
+        observationSession.getWorkspace().getObservationManager().removeEventListener( this );
+      } catch ( RepositoryException e ) {
+        logger.warn( "Unable to remove the repository cache listener", e ); //$NON-NLS-1$
+      } finally {
+        observationSession.logout();
+        observationSession = null;
+      }
+    }
+    invalidateAll();
+  }
+
+  @Override
+  public void onEvent( final EventIterator events ) {
+    Set<String> paths = new HashSet<String>();
+    Set<String> subtrees = new HashSet<String>();
+    while ( events.hasNext() ) {
+      Event event = events.nextEvent();
+      try {
+        collectAffectedPath( event, paths, subtrees );
+      } catch ( RepositoryException | RuntimeException e ) {
+        // cannot tell what changed, so assume everything did
+        logger.warn( "Unable to read repository event; clearing the repository cache", e ); //$NON-NLS-1$
+        invalidateAll();
+        return;
+      }
+    }
+    invalidate( paths, subtrees );
+  }
+
+  /**
+   * Maps the JCR path of an event to the repository path of the file or folder that owns the changed item. Changes
+   * to internal nodes (content, metadata, locales, ACLs, whose names are all namespaced) belong to the enclosing file.
+   */
+  void collectAffectedPath( final Event event, final Set<String> paths, final Set<String> subtrees )
+    throws RepositoryException {
+    String absPath = event.getPath();
+    String root = ServerRepositoryPaths.getPentahoRootFolderPath() + RepositoryFile.SEPARATOR;
+    if ( absPath == null || !absPath.startsWith( root ) ) {
+      return;
+    }
+    List<String> segments =
+        new ArrayList<String>( Arrays.asList( absPath.substring( root.length() ).split( RepositoryFile.SEPARATOR ) ) );
+    boolean subtree = event.getType() == Event.NODE_REMOVED || event.getType() == Event.NODE_MOVED;
+    if ( event.getType() == Event.PROPERTY_ADDED || event.getType() == Event.PROPERTY_CHANGED
+        || event.getType() == Event.PROPERTY_REMOVED ) {
+      String property = segments.remove( segments.size() - 1 );
+      subtree |= property.startsWith( ACL_PROPERTY_PREFIX );
+    }
+    // drop the tenant folder, unless the item belongs to the root folder above the tenants, e.g. its mixin types
+    if ( !segments.isEmpty() && segments.get( 0 ).indexOf( ':' ) < 0 ) {
+      segments.remove( 0 );
+    }
+    StringBuilder path = new StringBuilder();
+    for ( String segment : segments ) {
+      if ( segment.indexOf( ':' ) >= 0 ) {
+        // ACL changes may change what descendants are visible too
+        subtree |= segment.equals( ACL_NODE );
+        break;
+      }
+      path.append( RepositoryFile.SEPARATOR ).append( JcrStringHelper.fileNameDecode( segment ) );
+    }
+    String relPath = path.length() == 0 ? RepositoryFile.SEPARATOR : path.toString();
+    paths.add( relPath );
+    if ( subtree ) {
+      subtrees.add( relPath );
+    }
+    if ( event.getType() == Event.NODE_MOVED && event.getInfo() != null ) {
+      Object srcAbsPath = event.getInfo().get( "srcAbsPath" ); //$NON-NLS-1$
+      if ( srcAbsPath instanceof String ) {
+        collectAffectedPath( new MovedFromEvent( event, (String) srcAbsPath ), paths, subtrees );
+      }
+    }
+  }
+
+  // ~ Invalidation
+  // ====================================================================================================
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  /**
+   * Drops the entries of the given paths and the listings of their parent folders, plus everything below the paths
+   * in {@code subtrees}.
+   */
+  void invalidate( final Collection<String> paths, final Collection<String> subtrees ) {
+    if ( paths.isEmpty() && subtrees.isEmpty() ) {
+      return;
+    }
+    generation.incrementAndGet();
+    Set<String> exact = new HashSet<String>();
+    for ( String path : paths ) {
+      exact.add( path );
+      exact.add( getParentPath( path ) );
+    }
+    cache.asMap().values().removeIf( entry -> exact.contains( entry.path ) || isUnderAny( entry.path, subtrees ) );
+  }
+
+  private void invalidateIds( final Serializable... fileIds ) {
+    List<String> paths = new ArrayList<String>();
+    for ( Serializable fileId : fileIds ) {
+      if ( fileId != null ) {
+        RepositoryFile file = delegatee.getFileById( fileId );
+        if ( file != null ) {
+          paths.add( file.getPath() );
+        }
+      }
+    }
+    invalidate( paths, paths );
+  }
+
+  private void invalidatePaths( final String... paths ) {
+    List<String> list = new ArrayList<String>();
+    for ( String path : paths ) {
+      if ( path != null ) {
+        list.add( path );
+      }
+    }
+    invalidate( list, list );
+  }
+
+  /**
+   * Runs {@code write}, then drops every entry depending on the files given by id or path. Ids are resolved before
+   * the write since deleted or moved files cannot be found afterwards.
+   */
+  private <T> T write( final Supplier<T> write, final Serializable[] fileIds, final String... paths ) {
+    List<String> resolved = new ArrayList<String>( Arrays.asList( paths ) );
+    for ( Serializable fileId : fileIds ) {
+      if ( fileId != null ) {
+        RepositoryFile file = delegatee.getFileById( fileId );
+        if ( file != null ) {
+          resolved.add( file.getPath() );
+        }
+      }
+    }
+    try {
+      return write.get();
+    } finally {
+      invalidatePaths( resolved.toArray( new String[ resolved.size() ] ) );
+    }
+  }
+
+  private static boolean isUnderAny( final String path, final Collection<String> folders ) {
+    if ( path == null ) {
+      return false;
+    }
+    for ( String folder : folders ) {
+      String prefix = folder.endsWith( RepositoryFile.SEPARATOR ) ? folder : folder + RepositoryFile.SEPARATOR;
+      if ( path.startsWith( prefix ) ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static String getParentPath( final String path ) {
+    int index = path.lastIndexOf( RepositoryFile.SEPARATOR );
+    return index <= 0 ? RepositoryFile.SEPARATOR : path.substring( 0, index );
+  }
+
+  public CacheStats getCacheStats() {
+    return cache.stats();
+  }
+
+  // ~ Cached reads
+  // ====================================================================================================
+
+  private RepositoryFile cachedFile( final String operation, final Supplier<RepositoryFile> loader,
+      final Object... args ) {
+    String principals = getPrincipals();
+    if ( principals == null ) {
+      return loader.get();
+    }
+    CacheKey key = new CacheKey( principals, getLocale(), operation, args );
+    CacheEntry entry = cache.getIfPresent( key );
+    if ( entry != null ) {
+      return (RepositoryFile) entry.value;
+    }
+    long loadGeneration = generation.get();
+    RepositoryFile file = loader.get();
+    RepositoryFile detached = file != null ? detach( file, null ) : null;
+    if ( detached == null ) {
+      return file;
+    }
+    putIfCurrent( key, new CacheEntry( detached.getPath(), detached, null ), loadGeneration );
+    return detached;
+  }
+
+  private List<RepositoryFile> cachedChildren( final Serializable folderId, final RepositoryRequest request,
+      final Supplier<List<RepositoryFile>> loader, final Object... args ) {
+    String principals = getPrincipals();
+    if ( principals == null || folderId == null ) {
+      return loader.get();
+    }
+    CacheKey key = new CacheKey( principals, getLocale(), "getChildren", args ); //$NON-NLS-1$
+    CacheEntry entry = cache.getIfPresent( key );
+    if ( entry != null ) {
+      if ( request != null ) {
+        request.setNextContinuationToken( entry.nextContinuationToken );
+      }
+      @SuppressWarnings( "unchecked" )
+      List<RepositoryFile> children = (List<RepositoryFile>) entry.value;
+      return new ArrayList<RepositoryFile>( children );
+    }
+    long loadGeneration = generation.get();
+    RepositoryFile folder = delegatee.getFileById( folderId );
+    List<RepositoryFile> children = loader.get();
+    if ( folder != null && children != null ) {
+      // listings read their members while the session was open, copying just those does not need it again
+      Set<String> members = request != null ? request.getHydrateMemberSet() : null;
+      List<RepositoryFile> detached = new ArrayList<RepositoryFile>( children.size() );
+      for ( RepositoryFile child : children ) {
+        RepositoryFile copy = child == null ? null : detach( child, members );
+        if ( child != null && copy == null ) {
+          return children;
+        }
+        detached.add( copy );
+      }
+      putIfCurrent( key, new CacheEntry( folder.getPath(), Collections.unmodifiableList( detached ),
+          request != null ? request.getNextContinuationToken() : null ), loadGeneration );
+      return new ArrayList<RepositoryFile>( detached );
+    }
+    return children;
+  }
+
+  /**
+   * Copies a file so that it can be cached without keeping its JCR node. Files loaded lazily from the repository are
+   * copied with the given members only, or in one session when all of them are needed.
+   *
+   * @return the copy, or null if the file could no longer be read
+   */
+  private static RepositoryFile detach( final RepositoryFile file, final Set<String> members ) {
+    if ( file instanceof RepositoryFileProxy ) {
+      return ( (RepositoryFileProxy) file ).detach( members );
+    }
+    return new RepositoryFile.Builder( file ).build();
+  }
+
+  private static String getLocale() {
+    Locale locale = LocaleHelper.getLocale();
+    return locale != null ? locale.toString() : ""; //$NON-NLS-1$
+  }
+
+  private void putIfCurrent( final CacheKey key, final CacheEntry entry, final long loadGeneration ) {
+    cache.put( key, entry );
+    if ( generation.get() != loadGeneration ) {
+      // something changed while loading; the value may already be stale
+      cache.invalidate( key );
+    }
+  }
+
+  /**
+   * @return the user name and authorities of the caller, or null when there is no authentication to key on
+   */
+  String getPrincipals() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if ( authentication == null || authentication.getName() == null ) {
+      return null;
+    }
+    Set<String> authorities = new TreeSet<String>();
+    if ( authentication.getAuthorities() != null ) {
+      for ( GrantedAuthority authority : authentication.getAuthorities() ) {
+        authorities.add( authority.getAuthority() );
+      }
+    }
+    return authentication.getName() + authorities;
+  }
+
+  public RepositoryFile getFile( final String path ) {
+    return cachedFile( "getFile", () -> delegatee.getFile( path ), path ); //$NON-NLS-1$
+  }
+
+  public RepositoryFile getFileById( final Serializable fileId ) {
+    return cachedFile( "getFileById", () -> delegatee.getFileById( fileId ), fileId ); //$NON-NLS-1$
+  }
+
+  @Deprecated
+  public List<RepositoryFile> getChildren( final Serializable folderId ) {
+    return cachedChildren( folderId, null, () -> delegatee.getChildren( folderId ), folderId );
+  }
+
+  @Deprecated
+  public List<RepositoryFile> getChildren( final Serializable folderId, final String filter ) {
+    return cachedChildren( folderId, null, () -> delegatee.getChildren( folderId, filter ), folderId, filter );
+  }
+
+  @Deprecated
+  public List<RepositoryFile> getChildren( final Serializable folderId, final String filter,
+      final Boolean showHiddenFiles ) {
+    return cachedChildren( folderId, null, () -> delegatee.getChildren( folderId, filter, showHiddenFiles ),
+        folderId, filter, showHiddenFiles );
+  }
+
+  public List<RepositoryFile> getChildren( final RepositoryRequest repositoryRequest ) {
+    return cachedChildren( repositoryRequest.getPath(), repositoryRequest,
+        () -> delegatee.getChildren( repositoryRequest ), repositoryRequest.getPath(),
+        repositoryRequest.isShowHidden(), repositoryRequest.isIncludeAcls(),
+        repositoryRequest.isIncludeSystemFolders(), repositoryRequest.getDepth(), repositoryRequest.getTypes(),
+        repositoryRequest.getIncludeMemberSet(), repositoryRequest.getExcludeMemberSet(),
+        repositoryRequest.getChildNodeFilter(), repositoryRequest.getOffset(), repositoryRequest.getLimit(),
+        repositoryRequest.getContinuationToken(), repositoryRequest.getHydrateMemberSet() );
+  }
+
+  // ~ Uncached reads
+  // ==================================================================================================
+
+  public RepositoryFileTree getTree( final String path, final int depth, final String filter,
+      final boolean showHidden ) {
+    return delegatee.getTree( path, depth, filter, showHidden );
+  }
+
+  public RepositoryFileTree getTree( final RepositoryRequest repositoryRequest ) {
+    return delegatee.getTree( repositoryRequest );
+  }
+
+  public RepositoryFile getFileAtVersion( final Serializable fileId, final Serializable versionId ) {
+    return delegatee.getFileAtVersion( fileId, versionId );
+  }
+
+  public RepositoryFile getFile( final String path, final boolean loadLocaleMaps ) {
+    return delegatee.getFile( path, loadLocaleMaps );
+  }
+
+  public RepositoryFile getFileById( final Serializable fileId, final boolean loadLocaleMaps ) {
+    return delegatee.getFileById( fileId, loadLocaleMaps );
+  }
+
+  public RepositoryFile getFile( final String path, final IPentahoLocale locale ) {
+    return delegatee.getFile( path, locale );
+  }
+
+  public RepositoryFile getFileById( final Serializable fileId, final IPentahoLocale locale ) {
+    return delegatee.getFileById( fileId, locale );
+  }
+
+  public RepositoryFile getFile( final String path, final boolean loadLocaleMaps, final IPentahoLocale locale ) {
+    return delegatee.getFile( path, loadLocaleMaps, locale );
+  }
+
+  public RepositoryFile getFileById( final Serializable fileId, final boolean loadLocaleMaps,
+      final IPentahoLocale locale ) {
+    return delegatee.getFileById( fileId, loadLocaleMaps, locale );
+  }
+
+  public <T extends IRepositoryFileData> T getDataForRead( final Serializable fileId, final Class<T> dataClass ) {
+    return delegatee.getDataForRead( fileId, dataClass );
+  }
+
+  public <T extends IRepositoryFileData> T getDataAtVersionForRead( final Serializable fileId,
+      final Serializable versionId, final Class<T> dataClass ) {
+    return delegatee.getDataAtVersionForRead( fileId, versionId, dataClass );
+  }
+
+  public <T extends IRepositoryFileData> T getDataForExecute( final Serializable fileId, final Class<T> dataClass ) {
+    return delegatee.getDataForExecute( fileId, dataClass );
+  }
+
+  public <T extends IRepositoryFileData> T getDataAtVersionForExecute( final Serializable fileId,
+      final Serializable versionId, final Class<T> dataClass ) {
+    return delegatee.getDataAtVersionForExecute( fileId, versionId, dataClass );
+  }
+
+  public <T extends IRepositoryFileData> List<T> getDataForReadInBatch( final List<RepositoryFile> files,
+      final Class<T> dataClass ) {
+    return delegatee.getDataForReadInBatch( files, dataClass );
+  }
+
+  public <T extends IRepositoryFileData> List<T> getDataForExecuteInBatch( final List<RepositoryFile> files,
+      final Class<T> dataClass ) {
+    return delegatee.getDataForExecuteInBatch( files, dataClass );
+  }
+
+  public List<RepositoryFile> getDeletedFiles( final String origParentFolderPath ) {
+    return delegatee.getDeletedFiles( origParentFolderPath );
+  }
+
+  public List<RepositoryFile> getDeletedFiles( final String origParentFolderPath, final String filter ) {
+    return delegatee.getDeletedFiles( origParentFolderPath, filter );
+  }
+
+  public List<RepositoryFile> getDeletedFiles() {
+    return delegatee.getDeletedFiles();
+  }
+
+  public List<RepositoryFile> getAllDeletedFiles() {
+    return delegatee.getAllDeletedFiles();
+  }
+
+  public boolean canUnlockFile( final Serializable fileId ) {
+    return delegatee.canUnlockFile( fileId );
+  }
+
+  public RepositoryFileAcl getAcl( final Serializable fileId ) {
+    return delegatee.getAcl( fileId );
+  }
+
+  public boolean hasAccess( final String path, final EnumSet<RepositoryFilePermission> permissions ) {
+    return delegatee.hasAccess( path, permissions );
+  }
+
+  public List<RepositoryFileAce> getEffectiveAces( final Serializable fileId ) {
+    return delegatee.getEffectiveAces( fileId );
+  }
+
+  public List<RepositoryFileAce> getEffectiveAces( final Serializable fileId, final boolean forceEntriesInheriting ) {
+    return delegatee.getEffectiveAces( fileId, forceEntriesInheriting );
+  }
+
+  public VersionSummary getVersionSummary( final Serializable fileId, final Serializable versionId ) {
+    return delegatee.getVersionSummary( fileId, versionId );
+  }
+
+  public List<VersionSummary> getVersionSummaryInBatch( final List<RepositoryFile> files ) {
+    return delegatee.getVersionSummaryInBatch( files );
+  }
+
+  public List<VersionSummary> getVersionSummaries( final Serializable fileId ) {
+    return delegatee.getVersionSummaries( fileId );
+  }
+
+  public List<RepositoryFile> getReferrers( final Serializable fileId ) {
+    return delegatee.getReferrers( fileId );
+  }
+
+  public Map<String, Serializable> getFileMetadata( final Serializable fileId ) {
+    return delegatee.getFileMetadata( fileId );
+  }
+
+  public List<Character> getReservedChars() {
+    return delegatee.getReservedChars();
+  }
+
+  public List<Locale> getAvailableLocalesForFileById( final Serializable fileId ) {
+    return delegatee.getAvailableLocalesForFileById( fileId );
+  }
+
+  public List<Locale> getAvailableLocalesForFileByPath( final String relPath ) {
+    return delegatee.getAvailableLocalesForFileByPath( relPath );
+  }
+
+  public List<Locale> getAvailableLocalesForFile( final RepositoryFile repositoryFile ) {
+    return delegatee.getAvailableLocalesForFile( repositoryFile );
+  }
+
+  public Properties getLocalePropertiesForFileById( final Serializable fileId, final String locale ) {
+    return delegatee.getLocalePropertiesForFileById( fileId, locale );
+  }
+
+  public Properties getLocalePropertiesForFileByPath( final String relPath, final String locale ) {
+    return delegatee.getLocalePropertiesForFileByPath( relPath, locale );
+  }
+
+  public Properties getLocalePropertiesForFile( final RepositoryFile repositoryFile, final String locale ) {
+    return delegatee.getLocalePropertiesForFile( repositoryFile, locale );
+  }
+
+  // ~ Writes
+  // ==========================================================================================================
+
+  public RepositoryFile createFile( final Serializable parentFolderId, final RepositoryFile file,
+      final IRepositoryFileData data, final String versionMessage ) {
+    return write( () -> delegatee.createFile( parentFolderId, file, data, versionMessage ),
+        ids( parentFolderId ) );
+  }
+
+  public RepositoryFile createFile( final Serializable parentFolderId, final RepositoryFile file,
+      final IRepositoryFileData data, final RepositoryFileAcl acl, final String versionMessage ) {
+    return write( () -> delegatee.createFile( parentFolderId, file, data, acl, versionMessage ),
+        ids( parentFolderId ) );
+  }
+
+  public RepositoryFile createFolder( final Serializable parentFolderId, final RepositoryFile file,
+      final String versionMessage ) {
+    return write( () -> delegatee.createFolder( parentFolderId, file, versionMessage ), ids( parentFolderId ) );
+  }
+
+  public RepositoryFile createFolder( final Serializable parentFolderId, final RepositoryFile file,
+      final RepositoryFileAcl acl, final String versionMessage ) {
+    return write( () -> delegatee.createFolder( parentFolderId, file, acl, versionMessage ),
+        ids( parentFolderId ) );
+  }
+
+  public RepositoryFile updateFolder( final RepositoryFile folder, final String versionMessage ) {
+    return write( () -> delegatee.updateFolder( folder, versionMessage ), ids( folder.getId() ) );
+  }
+
+  public RepositoryFile updateFile( final RepositoryFile file, final IRepositoryFileData data,
+      final String versionMessage ) {
+    return write( () -> delegatee.updateFile( file, data, versionMessage ), ids( file.getId() ) );
+  }
+
+  public void deleteFile( final Serializable fileId, final boolean permanent, final String versionMessage ) {
+    write( () -> {
+      delegatee.deleteFile( fileId, permanent, versionMessage );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public void deleteFile( final Serializable fileId, final String versionMessage ) {
+    write( () -> {
+      delegatee.deleteFile( fileId, versionMessage );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public void moveFile( final Serializable fileId, final String destAbsPath, final String versionMessage ) {
+    write( () -> {
+      delegatee.moveFile( fileId, destAbsPath, versionMessage );
+      return null;
+    }, ids( fileId ), destAbsPath );
+  }
+
+  public void copyFile( final Serializable fileId, final String destAbsPath, final String versionMessage ) {
+    write( () -> {
+      delegatee.copyFile( fileId, destAbsPath, versionMessage );
+      return null;
+    }, ids(), destAbsPath );
+  }
+
+  public void undeleteFile( final Serializable fileId, final String versionMessage ) {
+    delegatee.undeleteFile( fileId, versionMessage );
+    // the file is back at its original location, which we only know now
+    invalidateIds( fileId );
+  }
+
+  public void lockFile( final Serializable fileId, final String message ) {
+    write( () -> {
+      delegatee.lockFile( fileId, message );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public void unlockFile( final Serializable fileId ) {
+    write( () -> {
+      delegatee.unlockFile( fileId );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public RepositoryFileAcl updateAcl( final RepositoryFileAcl acl ) {
+    return write( () -> delegatee.updateAcl( acl ), ids( acl.getId() ) );
+  }
+
+  public void deleteFileAtVersion( final Serializable fileId, final Serializable versionId ) {
+    write( () -> {
+      delegatee.deleteFileAtVersion( fileId, versionId );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public void restoreFileAtVersion( final Serializable fileId, final Serializable versionId,
+      final String versionMessage ) {
+    write( () -> {
+      delegatee.restoreFileAtVersion( fileId, versionId, versionMessage );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public void setFileMetadata( final Serializable fileId, final Map<String, Serializable> metadataMap ) {
+    write( () -> {
+      delegatee.setFileMetadata( fileId, metadataMap );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public void setLocalePropertiesForFileById( final Serializable fileId, final String locale,
+      final Properties properties ) {
+    write( () -> {
+      delegatee.setLocalePropertiesForFileById( fileId, locale, properties );
+      return null;
+    }, ids( fileId ) );
+  }
+
+  public void setLocalePropertiesForFileByPath( final String relPath, final String locale,
+      final Properties properties ) {
+    write( () -> {
+      delegatee.setLocalePropertiesForFileByPath( relPath, locale, properties );
+      return null;
+    }, ids(), relPath );
+  }
+
+  public void setLocalePropertiesForFile( final RepositoryFile repoFile, final String locale,
+      final Properties properties ) {
+    write( () -> {
+      delegatee.setLocalePropertiesForFile( repoFile, locale, properties );
+      return null;
+    }, ids(), repoFile.getPath() );
+  }
+
+  public void deleteLocalePropertiesForFile( final RepositoryFile repositoryFile, final String locale ) {
+    write( () -> {
+      delegatee.deleteLocalePropertiesForFile( repositoryFile, locale );
+      return null;
+    }, ids(), repositoryFile.getPath() );
+  }
+
+  private static Serializable[] ids( final Serializable... ids ) {
+    return ids;
+  }
+
+  // ~ Helper classes
+  // ==================================================================================================
+
+  private static final class CacheKey {
+    private final String principals;
+    private final String locale;
+    private final String operation;
+    private final List<Object> args;
+
+    CacheKey( final String principals, final String locale, final String operation, final Object... args ) {
+      this.principals = principals;
+      this.locale = locale;
+      this.operation = operation;
+      this.args = Arrays.asList( args );
+    }
+
+    @Override
+    public boolean equals( final Object obj ) {
+      if ( this == obj ) {
+        return true;
+      }
+      if ( !( obj instanceof CacheKey ) ) {
+        return false;
+      }
+      CacheKey other = (CacheKey) obj;
+      return principals.equals( other.principals ) && locale.equals( other.locale )
+          && operation.equals( other.operation ) && args.equals( other.args );
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash( principals, locale, operation, args );
+    }
+  }
+
+  private static final class CacheEntry {
+    /**
+     * Repository path of the file, or of the folder for listings, that the entry depends on.
+     */
+    private final String path;
+    private final Object value;
+    private final String nextContinuationToken;
+
+    CacheEntry( final String path, final Object value, final String nextContinuationToken ) {
+      this.path = path;
+      this.value = value;
+      this.nextContinuationToken = nextContinuationToken;
+    }
+  }
+
+  /**
+   * The source side of a move, which observation only reports as part of the {@link Event#NODE_MOVED} event.
+   */
+  private static final class MovedFromEvent implements Event {
+    private final Event event;
+    private final String srcAbsPath;
+
+    MovedFromEvent( final Event event, final String srcAbsPath ) {
+      this.event = event;
+      this.srcAbsPath = srcAbsPath;
+    }
+
+    public int getType() {
+      return Event.NODE_REMOVED;
+    }
+
+    public String getPath() {
+      return srcAbsPath;
+    }
+
+    public String getUserID() {
+      return event.getUserID();
+    }
+
+    public String getIdentifier() throws RepositoryException {
+      return event.getIdentifier();
+    }
+
+    public Map getInfo() throws RepositoryException {
+      return null;
+    }
+
+    public String getUserData() throws RepositoryException {
+      return event.getUserData();
+    }
+
+    public long getDate() throws RepositoryException {
+      return event.getDate();
+    }
+  }
+}
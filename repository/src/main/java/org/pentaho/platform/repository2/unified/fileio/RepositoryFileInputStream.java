@@ -108,6 +108,16 @@ public class RepositoryFileInputStream extends InputStream {
     return fileData.getMimeType();
   }
 
+  /**
+   * @return the exact size of the file content, or -1 if it is not known
+   */
+  public long getSize() {
+    if ( fileData == null ) {
+      fileData = repository.getDataForRead( file.getId(), SimpleRepositoryFileData.class );
+    }
+    return fileData.getSize();
+  }
+
   public IUnifiedRepository getRepository() {
     return repository;
   }
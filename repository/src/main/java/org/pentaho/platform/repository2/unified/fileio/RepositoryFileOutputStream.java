@@ -25,18 +25,34 @@ import org.pentaho.platform.engine.core.system.PentahoSystem;
 import org.pentaho.platform.repository.RepositoryFilenameUtils;
 import org.pentaho.platform.util.web.MimeHelper;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Collects the bytes written to it and saves them to a repository file on {@link #flush()}. Up to
+ * {@link #getMemoryThreshold()} bytes are kept on the heap; once more is written, everything is moved to a temp file,
+ * so that the heap use of a large upload does not grow with its size. The repository reads the content straight from
+ * that file.
+ */
 public class RepositoryFileOutputStream extends ByteArrayOutputStream implements ISourcesStreamEvents {
 
+  public static final int DEFAULT_MEMORY_THRESHOLD = 1024 * 1024;
+
   private static final String TRANS_EXT = "ktr";
   private static final String JOB_EXT = "kjb";
 
@@ -50,6 +66,10 @@ public class RepositoryFileOutputStream extends ByteArrayOutputStream implements
   protected boolean flushed = false;
   protected boolean forceFlush = true;
   protected ArrayList<IStreamListener> listeners = new ArrayList<>();
+  private int memoryThreshold = DEFAULT_MEMORY_THRESHOLD;
+  private File spillFile;
+  private OutputStream spillStream;
+  private long spilledCount;
 
   public RepositoryFileOutputStream( final String path, final boolean autoCreateUniqueFileName,
       final boolean autoCreateDirStructure, final IUnifiedRepository repository, final boolean hidden ) {
@@ -156,17 +176,13 @@ public class RepositoryFileOutputStream extends ByteArrayOutputStream implements
     }
     super.flush();
 
-    byte[] data = toByteArray();
-
-    if ( !forceFlush && data.length == 0 ) {
+    if ( !forceFlush && size() == 0 ) {
       for ( IStreamListener listener : listeners ) {
         listener.streamComplete();
       }
       flushed = true;
       return;
     }
-    ByteArrayInputStream bis = new ByteArrayInputStream( data );
-
     // make an effort to determine the correct mime type, default to application/octet-stream
     String extension = RepositoryFilenameUtils.getExtension( path );
     String mimeType = "application/octet-stream"; //$NON-NLS-1$
@@ -197,7 +213,17 @@ public class RepositoryFileOutputStream extends ByteArrayOutputStream implements
     } else {
       converter = null;
     }
-    payload = convert( converter, bis, mimeType );
+    InputStream content = openContent();
+    try {
+      payload = convert( converter, content, mimeType );
+      save( payload, extension );
+    } finally {
+      content.close();
+    }
+    flushed = true;
+  }
+
+  private void save( final IRepositoryFileData payload, final String extension ) throws IOException {
     if ( !flushed ) {
       RepositoryFile file = repository.getFile( path );
       RepositoryFile parentFolder = getParent( path );
@@ -283,19 +309,160 @@ public class RepositoryFileOutputStream extends ByteArrayOutputStream implements
       RepositoryFile file = repository.getFile( path );
       repository.updateFile( file, payload, "New File" ); //$NON-NLS-1$
     }
-    flushed = true;
   }
 
   @Override
   public void close() throws IOException {
     if ( !closed ) {
-      flush();
-      closed = true;
-      reset();
+      try {
+        flush();
+      } finally {
+        closed = true;
+        reset();
+      }
+    }
+  }
+
+  @Override
+  public synchronized void write( int b ) {
+    if ( spillStream == null && count + 1 > memoryThreshold ) {
+      spill();
+    }
+    if ( spillStream != null ) {
+      try {
+        spillStream.write( b );
+      } catch ( IOException e ) {
+        throw new UncheckedIOException( e );
+      }
+      spilledCount++;
+    } else {
+      super.write( b );
+    }
+  }
+
+  @Override
+  public synchronized void write( byte[] b, int off, int len ) {
+    if ( spillStream == null && count + len > memoryThreshold ) {
+      spill();
+    }
+    if ( spillStream != null ) {
+      try {
+        spillStream.write( b, off, len );
+      } catch ( IOException e ) {
+        throw new UncheckedIOException( e );
+      }
+      spilledCount += len;
+    } else {
+      super.write( b, off, len );
+    }
+  }
+
+  @Override
+  public synchronized int size() {
+    return (int) Math.min( Integer.MAX_VALUE, spilledCount + count );
+  }
+
+  @Override
+  public synchronized byte[] toByteArray() {
+    if ( spillStream == null ) {
+      return super.toByteArray();
+    }
+    ByteArrayOutputStream copy = new ByteArrayOutputStream( size() );
+    try {
+      writeTo( copy );
+    } catch ( IOException e ) {
+      throw new UncheckedIOException( e );
+    }
+    return copy.toByteArray();
+  }
+
+  @Override
+  public synchronized void writeTo( OutputStream out ) throws IOException {
+    if ( spillStream == null ) {
+      super.writeTo( out );
+      return;
+    }
+    try ( InputStream in = openContent() ) {
+      byte[] buffer = new byte[ 8192 ];
+      int n;
+      while ( ( n = in.read( buffer ) ) != -1 ) {
+        out.write( buffer, 0, n );
+      }
+    }
+  }
+
+  @Override
+  public synchronized String toString() {
+    return new String( toByteArray() );
+  }
+
+  @Override
+  public synchronized String toString( String charsetName ) throws UnsupportedEncodingException {
+    return new String( toByteArray(), charsetName );
+  }
+
+  @Override
+  public synchronized void reset() {
+    super.reset();
+    discardSpillFile();
+  }
+
+  /**
+   * Returns the number of bytes kept on the heap before the content is moved to a temp file.
+   */
+  public int getMemoryThreshold() {
+    return memoryThreshold;
+  }
+
+  public void setMemoryThreshold( int memoryThreshold ) {
+    this.memoryThreshold = memoryThreshold;
+  }
+
+  /**
+   * Opens a stream over what has been written so far, without copying it.
+   */
+  protected synchronized InputStream openContent() throws IOException {
+    if ( spillStream == null ) {
+      return new ByteArrayInputStream( buf, 0, count );
+    }
+    spillStream.flush();
+    return new FileInputStream( spillFile );
+  }
+
+  private void spill() {
+    try {
+      spillFile = File.createTempFile( "repository-upload", ".tmp" ); //$NON-NLS-1$ //$NON-NLS-2$
+      spillStream = new BufferedOutputStream( new FileOutputStream( spillFile ) );
+      spillStream.write( buf, 0, count );
+    } catch ( IOException e ) {
+      discardSpillFile();
+      throw new UncheckedIOException( e );
+    }
+    spilledCount = count;
+    super.reset();
+    // the heap buffer may have grown up to the threshold; let it go
+    buf = new byte[ 32 ];
+  }
+
+  private void discardSpillFile() {
+    if ( spillStream != null ) {
+      try {
+        spillStream.close();
+      } catch ( IOException e ) {
+        // ignore, the file is deleted anyway
+      }
+      spillStream = null;
+    }
+    if ( spillFile != null ) {
+      if ( !spillFile.delete() ) {
+        spillFile.deleteOnExit();
+      }
+      spillFile = null;
     }
+    spilledCount = 0;
   }
 
-  IRepositoryFileData convert( Converter converter, ByteArrayInputStream bis, String mimeType ) {
+  IRepositoryFileData convert( Converter converter, InputStream bis, String mimeType ) {
     final IRepositoryFileData payload;
     if ( converter != null ) {
       payload = converter.convert( bis, charsetName, mimeType );
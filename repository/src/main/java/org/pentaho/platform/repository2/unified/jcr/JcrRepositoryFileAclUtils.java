@@ -27,6 +27,7 @@ import org.pentaho.platform.repository2.unified.jcr.JcrRepositoryFileAclDao.IPer
 import org.pentaho.platform.repository2.unified.jcr.jackrabbit.security.SpringSecurityRolePrincipal;
 import org.pentaho.platform.repository2.unified.jcr.jackrabbit.security.SpringSecurityUserPrincipal;
 
+import javax.jcr.AccessDeniedException;
 import javax.jcr.ItemNotFoundException;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -43,8 +44,10 @@ import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -258,8 +261,36 @@ public class JcrRepositoryFileAclUtils {
       throw new RepositoryException( Messages.getInstance().getString(
           "JackrabbitRepositoryFileAclDao.ERROR_0001_NODE_NOT_FOUND", id.toString() ) ); //$NON-NLS-1$
     }
-    String absPath = node.getPath();
+    return getAcl( session, session.getAccessControlManager(), id, node.getPath() );
+  }
+
+  /**
+   * Reads the ACLs of several nodes, such as the children of one folder, with a single access control manager. The
+   * callers hold the nodes already, so unlike {@link #getAcl(Session, PentahoJcrConstants, Serializable)} they are not
+   * looked up again by id. Nodes whose ACL the session may not read are left out of the result.
+   * 
+   * @param session
+   *          jcr session
+   * @param paths
+   *          absolute node paths keyed by file id
+   * @return ACLs keyed by file id
+   */
+  public static Map<Serializable, RepositoryFileAcl> getAcls( final Session session,
+      final Map<Serializable, String> paths ) throws RepositoryException {
     AccessControlManager acMgr = session.getAccessControlManager();
+    Map<Serializable, RepositoryFileAcl> acls = new HashMap<Serializable, RepositoryFileAcl>();
+    for ( Map.Entry<Serializable, String> entry : paths.entrySet() ) {
+      try {
+        acls.put( entry.getKey(), getAcl( session, acMgr, entry.getKey(), entry.getValue() ) );
+      } catch ( AccessDeniedException e ) {
+        // the node is not readable; leave it out
+      }
+    }
+    return acls;
+  }
+
+  private static RepositoryFileAcl getAcl( final Session session, final AccessControlManager acMgr,
+      final Serializable id, final String absPath ) throws RepositoryException {
     AccessControlList acList = getAccessControlList( acMgr, absPath );
 
     RepositoryFileSid owner = null;
@@ -281,7 +312,6 @@ public class JcrRepositoryFileAclUtils {
       aclBuilder.ace( toAce( session, acEntry ) );
     }
     return aclBuilder.build();
-
   }
 
   private static AccessControlList getAccessControlList( final AccessControlManager acMgr, final String path )
@@ -14,8 +14,11 @@
 package org.pentaho.platform.repository2.unified.jcr;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
@@ -25,7 +28,9 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Properties;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import javax.jcr.AccessDeniedException;
@@ -50,7 +55,6 @@ import org.apache.commons.lang.mutable.MutableBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.jackrabbit.JcrConstants;
-import org.apache.jackrabbit.core.NodeImpl;
 import org.apache.jackrabbit.core.VersionManagerImpl;
 import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.locale.IPentahoLocale;
@@ -84,6 +88,8 @@ public class JcrRepositoryFileUtils {
 
   private static final Log logger = LogFactory.getLog( JcrRepositoryFileUtils.class );
 
+  private static final char CONTINUATION_TOKEN_SEPARATOR = '\n';
+
   /**
    * See section 4.6 "Path Syntax" of JCR 1.0 spec. Note that this list is only characters that can never appear in a
    * "simplename". It does not include '.' because, while "." and ".." are illegal, any other string containing '.' is
@@ -723,22 +729,139 @@ public class JcrRepositoryFileUtils {
       nodeIterator = folderNode.getNodes();
     }
 
+    Set<String> hydrateMembers = repositoryRequest.getHydrateMemberSet();
+    ChildrenPageCollector page = repositoryRequest.isPaged() ? new ChildrenPageCollector( repositoryRequest ) : null;
     while ( nodeIterator.hasNext() ) {
       Node node = nodeIterator.nextNode();
       if ( isSupportedNodeType( pentahoJcrConstants, node ) ) {
         RepositoryFile file = nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, node );
+        if ( file == null || ( page != null && !page.accepts( file ) ) ) {
+          continue;
+        }
+        if ( hydrateMembers != null && file instanceof RepositoryFileProxy ) {
+          // Read everything the caller needs while we still hold the session
+          ( (RepositoryFileProxy) file ).hydrate( pentahoJcrConstants, hydrateMembers );
+        }
         if ( !file.isAclNode() && ( !file.isHidden() || repositoryRequest.isShowHidden() ) ) {
-          children.add( file );
+          if ( page != null ) {
+            page.add( file );
+          } else {
+            children.add( file );
+          }
         }
       }
     }
 
+    if ( page != null ) {
+      return page.toList( repositoryRequest );
+    }
     children.removeIf( Objects::isNull );
     Collections.sort( children );
     return children;
 
   }
 
+  /**
+   * Keeps the children of one page of a paged {@link RepositoryRequest}: the ones following the continuation token in
+   * locale title order, of which only the first {@code offset + limit + 1} are retained (the extra one tells whether
+   * there is a next page). Memory is bounded by the page size rather than by the size of the folder.
+   */
+  static class ChildrenPageCollector {
+    private final Collator collator;
+    private final String afterTitle;
+    private final String afterId;
+    private final int capacity;
+    // max-heap on page order, so the head is the child to drop when the page overflows
+    private final PriorityQueue<RepositoryFile> files;
+
+    ChildrenPageCollector( final RepositoryRequest repositoryRequest ) {
+      collator = Collator.getInstance( LocaleHelper.getLocale() );
+      collator.setStrength( Collator.PRIMARY ); // ignore case
+      String[] after = decodeContinuationToken( repositoryRequest.getContinuationToken() );
+      afterTitle = after == null ? null : after[ 0 ];
+      afterId = after == null ? null : after[ 1 ];
+      long size = (long) repositoryRequest.getOffset() + repositoryRequest.getLimit() + 1;
+      capacity = (int) Math.min( size, Integer.MAX_VALUE - 1 );
+      files = new PriorityQueue<>( Math.min( capacity, 1024 ), ( file1, file2 ) -> compare( file2, file1 ) );
+    }
+
+    /**
+     * Cheap check, before the file is hydrated, of whether it could still be part of the page.
+     */
+    boolean accepts( final RepositoryFile file ) {
+      if ( afterId != null && compare( file.getTitle(), idOf( file ), afterTitle, afterId ) <= 0 ) {
+        return false;
+      }
+      return files.size() < capacity || compare( file, files.peek() ) < 0;
+    }
+
+    void add( final RepositoryFile file ) {
+      files.add( file );
+      if ( files.size() > capacity ) {
+        files.poll();
+      }
+    }
+
+    List<RepositoryFile> toList( final RepositoryRequest repositoryRequest ) {
+      List<RepositoryFile> sorted = new ArrayList<>( files );
+      sorted.sort( this::compare );
+      int limit = repositoryRequest.getLimit();
+      int from = Math.min( repositoryRequest.getOffset(), sorted.size() );
+      int to = (int) Math.min( (long) from + limit, sorted.size() );
+      String nextToken = null;
+      if ( sorted.size() > to && to > 0 ) {
+        RepositoryFile last = sorted.get( to - 1 );
+        nextToken = encodeContinuationToken( last.getTitle(), idOf( last ) );
+      }
+      repositoryRequest.setNextContinuationToken( nextToken );
+      return new ArrayList<>( sorted.subList( from, to ) );
+    }
+
+    private int compare( final RepositoryFile file1, final RepositoryFile file2 ) {
+      return compare( file1.getTitle(), idOf( file1 ), file2.getTitle(), idOf( file2 ) );
+    }
+
+    /**
+     * Same order as the REST layer's locale title sort, with the id as a last resort so that the order is total and
+     * pages neither repeat nor skip children.
+     */
+    private int compare( final String title1, final String id1, final String title2, final String id2 ) {
+      String t1 = title1 == null ? "" : title1;
+      String t2 = title2 == null ? "" : title2;
+      int result = collator.compare( t1, t2 );
+      if ( result == 0 ) {
+        result = t1.compareTo( t2 ); // use lexical order if equals ignore case
+      }
+      return result != 0 ? result : id1.compareTo( id2 );
+    }
+
+    private static String idOf( final RepositoryFile file ) {
+      return file.getId() == null ? "" : file.getId().toString();
+    }
+  }
+
+  static String encodeContinuationToken( final String title, final String id ) {
+    String key = ( title == null ? "" : title ) + CONTINUATION_TOKEN_SEPARATOR + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString( key.getBytes( StandardCharsets.UTF_8 ) );
+  }
+
+  static String[] decodeContinuationToken( final String token ) {
+    if ( token == null ) {
+      return null;
+    }
+    String key;
+    try {
+      key = new String( Base64.getUrlDecoder().decode( token ), StandardCharsets.UTF_8 );
+    } catch ( IllegalArgumentException e ) {
+      throw new IllegalArgumentException( "Invalid continuation token: " + token, e ); //$NON-NLS-1$
+    }
+    int separator = key.lastIndexOf( CONTINUATION_TOKEN_SEPARATOR );
+    if ( separator < 0 ) {
+      throw new IllegalArgumentException( "Invalid continuation token: " + token ); //$NON-NLS-1$
+    }
+    return new String[] { key.substring( 0, separator ), key.substring( separator + 1 ) };
+  }
+
   @Deprecated
   public static List<RepositoryFile> getChildren( final Session session, final PentahoJcrConstants pentahoJcrConstants,
       final IPathConversionHelper pathConversionHelper, final ILockHelper lockHelper, final Serializable folderId,
@@ -1196,6 +1319,25 @@ public class JcrRepositoryFileUtils {
             .getId() ), PentahoSessionHolder.getSession() ) ) ) {
       return null;
     }
+    return getTreeByNode( session, pentahoJcrConstants, pathConversionHelper, lockHelper, fileNode, rootFile, depth,
+        childNodeFilter, showHidden, accessVoterManager, types, foundFiltered, includeSystemFolders, rootPath );
+  }
+
+  /**
+   * Builds the tree below a node whose <code>RepositoryFile</code> has already been created and whose READ access has
+   * already been granted by the caller. This avoids evaluating the ACL of every folder twice (once by
+   * <code>getReadableFiles</code> and once more when descending into it).
+   */
+  private static RepositoryFileTree getTreeByNode( final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final IPathConversionHelper pathConversionHelper, final ILockHelper lockHelper, final Node fileNode,
+      final RepositoryFile rootFile, final int depth, final String childNodeFilter, final boolean showHidden,
+      IRepositoryAccessVoterManager accessVoterManager, RepositoryRequest.FILES_TYPE_FILTER types,
+      MutableBoolean foundFiltered, final boolean includeSystemFolders, final String rootPath )
+      throws RepositoryException {
+
+    if ( ( !showHidden && rootFile.isHidden() ) || rootFile.isAclNode() ) {
+      return null;
+    }
     List<RepositoryFileTree> children;
     HashSet<Node> childrenFolderSet;
     // if depth is neither negative (indicating unlimited depth) nor positive (indicating at least one more level
@@ -1204,6 +1346,13 @@ public class JcrRepositoryFileUtils {
       children = new ArrayList<RepositoryFileTree>();
       int numberOfPasses = childNodeFilter != null && !childNodeFilter.equals( "*" ) ? 2 : 1;
 
+      // system folders are only skipped directly below the root of the request, and all children share this parent
+      String systemFolderPropertyName = null;
+      if ( !includeSystemFolders && rootPath.equals( fileNode.getPath() ) ) {
+        systemFolderPropertyName =
+            session.getNamespacePrefix( PentahoJcrConstants.PHO_NS ) + ":" + IUnifiedRepository.SYSTEM_FOLDER; //$NON-NLS-1$
+      }
+
       // get Filtered Children set
       HashSet<Node> filteredChildrenSet;
       filteredChildrenSet = new HashSet<Node>();
@@ -1215,8 +1364,8 @@ public class JcrRepositoryFileUtils {
         if ( !( !pentahoFolder && types == RepositoryRequest.FILES_TYPE_FILTER.FOLDERS || pentahoFolder
             && types == RepositoryRequest.FILES_TYPE_FILTER.FILES ) ) {
           // do not to include (skip) system_folder children that are at root level if includeSystemFolders is false
-          if ( !( !includeSystemFolders && ( rootPath.equals( childNode.getParent().getPath() ) && isSystemFolder(
-            session, childNode ) ) ) ) {
+          if ( systemFolderPropertyName == null || !isSystemFolder( pentahoJcrConstants, childNode,
+              systemFolderPropertyName ) ) {
             filteredChildrenSet.add( childNode );
           }
         }
@@ -1237,18 +1386,27 @@ public class JcrRepositoryFileUtils {
         }
       }
 
+      // fetch and evaluate the ACLs of this whole level before descending into any of its folders
+      List<Node> levelNodes = new ArrayList<Node>( childrenFolderSet );
+      levelNodes.addAll( filteredChildrenSet );
+      Map<Node, RepositoryFile> readableFiles =
+          getReadableFiles( session, pentahoJcrConstants, pathConversionHelper, lockHelper, accessVoterManager,
+              levelNodes );
+
       // Now work on the unfiltered set of folders, if any, add them only if file have been found somewhere down the
       // tree
       for ( Node childNode : childrenFolderSet ) {
-        checkNodeForTree( childNode, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
-            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, false, includeSystemFolders, rootPath );
+        addNodeToTree( childNode, readableFiles.get( childNode ), children, session, pentahoJcrConstants,
+            pathConversionHelper, childNodeFilter, lockHelper, depth, showHidden, accessVoterManager, types,
+            foundFiltered, false, includeSystemFolders, rootPath );
       }
 
       // And finally, add Children in filtered
       for ( Node childNode : filteredChildrenSet ) {
         foundFiltered.setValue( true );
-        checkNodeForTree( childNode, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
-            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, true, includeSystemFolders, rootPath );
+        addNodeToTree( childNode, readableFiles.get( childNode ), children, session, pentahoJcrConstants,
+            pathConversionHelper, childNodeFilter, lockHelper, depth, showHidden, accessVoterManager, types,
+            foundFiltered, true, includeSystemFolders, rootPath );
       }
 
       children.removeIf( Objects::isNull );
@@ -1259,20 +1417,56 @@ public class JcrRepositoryFileUtils {
     return new RepositoryFileTree( rootFile, children );
   }
 
-  private static boolean isSystemFolder( Session session, Node childNode ) throws RepositoryException {
-    Map<String, Serializable> fileMeta = getFileMetadata( session, ( (NodeImpl) childNode ).getNodeId() );
-    boolean isSystemFolder = fileMeta.containsKey( IUnifiedRepository.SYSTEM_FOLDER ) ? (Boolean) fileMeta
-        .get( IUnifiedRepository.SYSTEM_FOLDER ) : false;
-    return isSystemFolder;
+  /**
+   * Reads the single <code>system_folder</code> metadata flag of a node instead of loading its whole metadata map.
+   */
+  static boolean isSystemFolder( final PentahoJcrConstants pentahoJcrConstants, final Node childNode,
+      final String systemFolderPropertyName ) throws RepositoryException {
+    String metadataNodeName = pentahoJcrConstants.getPHO_METADATA();
+    if ( !childNode.hasNode( metadataNodeName ) ) {
+      return false;
+    }
+    Node metadataNode = childNode.getNode( metadataNodeName );
+    if ( !metadataNode.hasProperty( systemFolderPropertyName ) ) {
+      return false;
+    }
+    Property property = metadataNode.getProperty( systemFolderPropertyName );
+    return property.getType() == PropertyType.BOOLEAN && property.getBoolean();
+  }
+
+  /**
+   * Converts the supported nodes of one folder level to <code>RepositoryFile</code>s and returns those the current user
+   * may read. The ACLs of the level are fetched in one batch, through a single access control manager and the node
+   * paths already at hand, and evaluated before <code>getTreeByNode</code> descends into any of the level's folders.
+   */
+  static Map<Node, RepositoryFile> getReadableFiles( final Session session,
+      final PentahoJcrConstants pentahoJcrConstants, final IPathConversionHelper pathConversionHelper,
+      final ILockHelper lockHelper, final IRepositoryAccessVoterManager accessVoterManager, final List<Node> nodes )
+      throws RepositoryException {
+    Map<Node, RepositoryFile> files = new HashMap<Node, RepositoryFile>();
+    Map<Serializable, String> paths = new HashMap<Serializable, String>();
+    for ( Node node : nodes ) {
+      if ( !files.containsKey( node ) && isSupportedNodeType( pentahoJcrConstants, node ) ) {
+        RepositoryFile file = nodeToFile( session, pentahoJcrConstants, pathConversionHelper, lockHelper, node );
+        files.put( node, file );
+        paths.put( file.getId(), node.getPath() );
+      }
+    }
+
+    Map<Serializable, RepositoryFileAcl> acls = JcrRepositoryFileAclUtils.getAcls( session, paths );
+    IPentahoSession pentahoSession = PentahoSessionHolder.getSession();
+    files.entrySet().removeIf( entry -> {
+      RepositoryFileAcl fileAcl = acls.get( entry.getValue().getId() );
+      return fileAcl == null
+          || !accessVoterManager.hasAccess( entry.getValue(), RepositoryFilePermission.READ, fileAcl, pentahoSession );
+    } );
+    return files;
   }
 
   /**
-   * This method is called twice by <code>getTreeNode</code>. It's job is to determine whether the current child node
-   * should be added to the list of children for the node being processed. It is a separate method simply because it is
-   * too much code to appear twice in the above <code>getTreeNode</code> method. It also makes the recursive call back
-   * to getTreeByNode to process the next lower level of folder node (it must process the lower levels to know if the
-   * folder should be added). Finally, it returns the foundFiltered boolean to let the caller know if a file was found
-   * that satisfied the childNodeFilter.
+   * Determines for a single child node whether it should be added to the list of children for the node being
+   * processed. <code>getTreeByNode</code> evaluates a whole level at once through <code>getReadableFiles</code>; this
+   * method does the same for one node and then hands it to <code>addNodeToTree</code>.
    */
   static void checkNodeForTree( final Node childNode, List<RepositoryFileTree> children, final Session session,
       final PentahoJcrConstants pentahoJcrConstants, final IPathConversionHelper pathConversionHelper,
@@ -1290,18 +1484,39 @@ public class JcrRepositoryFileUtils {
         return;
       }
       if ( accessVoterManager.hasAccess( file, RepositoryFilePermission.READ, fileAcl, PentahoSessionHolder.getSession() ) ) {
-        MutableBoolean foundFilteredAtomic = new MutableBoolean( !isPentahoFolder( pentahoJcrConstants, childNode ) );
-        RepositoryFileTree repositoryFileTree =
-            getTreeByNode( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode, depth - 1,
-                childNodeFilter, showHidden, accessVoterManager, types, foundFilteredAtomic, includeSystemFolders, rootPath );
-        if ( repositoryFileTree != null && ( foundFilteredAtomic.booleanValue() || isRootFiltered ) ) {
-          foundFiltered.setValue( true );
-          children.add( repositoryFileTree );
-        }
+        addNodeToTree( childNode, file, children, session, pentahoJcrConstants, pathConversionHelper, childNodeFilter,
+            lockHelper, depth, showHidden, accessVoterManager, types, foundFiltered, isRootFiltered,
+            includeSystemFolders, rootPath );
       }
     }
   }
 
+  /**
+   * Makes the recursive call back to getTreeByNode to process the next lower level below a child node the current user
+   * may read (it must process the lower levels to know if the folder should be added), and adds the child to the list
+   * of children if it qualifies. Finally, it sets the foundFiltered boolean to let the caller know if a file was found
+   * that satisfied the childNodeFilter. A <code>null</code> file means the child is not readable and is skipped.
+   */
+  private static void addNodeToTree( final Node childNode, final RepositoryFile file,
+      List<RepositoryFileTree> children, final Session session, final PentahoJcrConstants pentahoJcrConstants,
+      final IPathConversionHelper pathConversionHelper, final String childNodeFilter, final ILockHelper lockHelper,
+      final int depth, final boolean showHidden, final IRepositoryAccessVoterManager accessVoterManager,
+      RepositoryRequest.FILES_TYPE_FILTER types, MutableBoolean foundFiltered, boolean isRootFiltered,
+      final boolean includeSystemFolders, final String rootPath ) throws RepositoryException {
+    if ( file == null ) {
+      return;
+    }
+    MutableBoolean foundFilteredAtomic = new MutableBoolean( !isPentahoFolder( pentahoJcrConstants, childNode ) );
+    // access to the child has already been granted, so the subtree walk reuses the file instead of re-evaluating it
+    RepositoryFileTree repositoryFileTree =
+        getTreeByNode( session, pentahoJcrConstants, pathConversionHelper, lockHelper, childNode, file, depth - 1,
+            childNodeFilter, showHidden, accessVoterManager, types, foundFilteredAtomic, includeSystemFolders, rootPath );
+    if ( repositoryFileTree != null && ( foundFilteredAtomic.booleanValue() || isRootFiltered ) ) {
+      foundFiltered.setValue( true );
+      children.add( repositoryFileTree );
+    }
+  }
+
   public static Node updateFileLocaleProperties( final Session session, final Serializable fileId, String locale,
       Properties properties ) throws RepositoryException {
 
@@ -36,6 +36,7 @@ import java.util.Date;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * User: nbaker Date: 5/28/13
@@ -76,6 +77,11 @@ public class RepositoryFileProxy extends RepositoryFile {
   private String versionId;
   private Date createdDate;
   private Boolean aclNode;
+  // Set once the property has been read, even if it turned out to be absent
+  private boolean titleLoaded;
+  private boolean fileSizeLoaded;
+  private boolean lastModifiedDateLoaded;
+  private boolean createdDateLoaded;
 
   public RepositoryFileProxy( final Node node, final JcrTemplate template, IPentahoLocale pentahoLocale ) {
     super( null, null, false, HIDDEN_BY_DEFAULT, SCHEDULABLE_BY_DEFAULT, false, null, null, null, null, false, null,
@@ -161,7 +167,7 @@ public class RepositoryFileProxy extends RepositoryFile {
 
   @Override
   public Date getCreatedDate() {
-    if ( createdDate == null ) {
+    if ( !createdDateLoaded ) {
       this.executeOperation( session -> {
 
         try {
@@ -171,6 +177,7 @@ public class RepositoryFileProxy extends RepositoryFile {
               createdDate = tmpCal.getTime();
             }
           }
+          createdDateLoaded = true;
         } catch ( InvalidItemStateException | ItemNotFoundException | PathNotFoundException e ) {
           getLogger()
             .warn( Messages.getInstance().getString( INVALID_ITEM_STATE_EXCEPTION_MESSAGE, "getCreatedDate" ) );
@@ -227,7 +234,7 @@ public class RepositoryFileProxy extends RepositoryFile {
   }
 
   private void getTitleAndDescription() {
-    if ( title == null ) {
+    if ( !titleLoaded ) {
       this.executeOperation( session -> {
         try {
           if ( JcrRepositoryFileUtils.isPentahoHierarchyNode( session, getPentahoJcrConstants(), node ) ) {
@@ -264,6 +271,7 @@ public class RepositoryFileProxy extends RepositoryFile {
             }
 
           }
+          titleLoaded = true;
         } catch ( InvalidItemStateException | ItemNotFoundException | PathNotFoundException e ) {
           getLogger()
             .warn( Messages.getInstance().getString( INVALID_ITEM_STATE_EXCEPTION_MESSAGE, "getTitleAndDescription" ) );
@@ -289,12 +297,13 @@ public class RepositoryFileProxy extends RepositoryFile {
 
   @Override
   public Long getFileSize() {
-    if ( fileSize == -1 ) {
+    if ( !fileSizeLoaded ) {
       this.executeOperation( session -> {
         try {
           if ( node.hasProperty( getPentahoJcrConstants().getPHO_FILESIZE() ) ) {
             fileSize = node.getProperty( getPentahoJcrConstants().getPHO_FILESIZE() ).getLong();
           }
+          fileSizeLoaded = true;
         } catch ( InvalidItemStateException | ItemNotFoundException | PathNotFoundException e ) {
           getLogger().warn( Messages.getInstance().getString( INVALID_ITEM_STATE_EXCEPTION_MESSAGE, "getFileSize" ) );
         } catch ( RepositoryException e ) {
@@ -324,13 +333,14 @@ public class RepositoryFileProxy extends RepositoryFile {
 
   @Override
   public Date getLastModifiedDate() {
-    if ( lastModifiedDate != null ) {
+    if ( lastModifiedDateLoaded ) {
       return lastModifiedDate;
     }
 
     this.executeOperation( session -> {
       try {
         lastModifiedDate = getLastModifiedDatePentahoFile( lastModifiedDate );
+        lastModifiedDateLoaded = true;
       } catch ( InvalidItemStateException | ItemNotFoundException | PathNotFoundException e ) {
         getLogger()
           .warn( Messages.getInstance().getString( INVALID_ITEM_STATE_EXCEPTION_MESSAGE, "getLastModifiedDate" ) );
@@ -398,7 +408,7 @@ public class RepositoryFileProxy extends RepositoryFile {
 
   @Override
   public Date getLockDate() {
-    if ( isLocked() ) {
+    if ( lockDate == null && isLocked() ) {
       this.executeOperation( session -> {
         try {
           lockDate = lockHelper.getLockDate( session, getPentahoJcrConstants(), getLock() );
@@ -414,7 +424,7 @@ public class RepositoryFileProxy extends RepositoryFile {
 
   @Override
   public String getLockMessage() {
-    if ( isLocked() ) {
+    if ( lockMessage == null && isLocked() ) {
       this.executeOperation( session -> {
         try {
           lockMessage = lockHelper.getLockMessage( session, getPentahoJcrConstants(), getLock() );
@@ -431,7 +441,7 @@ public class RepositoryFileProxy extends RepositoryFile {
 
   @Override
   public String getLockOwner() {
-    if ( isLocked() ) {
+    if ( lockOwner == null && isLocked() ) {
       this.executeOperation( session -> {
         try {
           lockOwner = lockHelper.getLockOwner( session, getPentahoJcrConstants(), getLock() );
@@ -536,9 +546,8 @@ public class RepositoryFileProxy extends RepositoryFile {
 
       this.executeOperation( session -> {
         try {
-          if ( node.hasProperty( getPentahoJcrConstants().getPHO_HIDDEN() ) ) {
-            hidden = node.getProperty( getPentahoJcrConstants().getPHO_HIDDEN() ).getBoolean();
-          }
+          hidden = node.hasProperty( getPentahoJcrConstants().getPHO_HIDDEN() )
+            ? node.getProperty( getPentahoJcrConstants().getPHO_HIDDEN() ).getBoolean() : HIDDEN_BY_DEFAULT;
         } catch ( InvalidItemStateException | ItemNotFoundException | PathNotFoundException e ) {
           getLogger().warn( Messages.getInstance().getString( INVALID_ITEM_STATE_EXCEPTION_MESSAGE, "isHidden" ) );
         } catch ( RepositoryException e ) {
@@ -606,9 +615,8 @@ public class RepositoryFileProxy extends RepositoryFile {
     if ( aclNode == null ) {
       this.executeOperation( session -> {
         try {
-          if ( node.hasProperty( getPentahoJcrConstants().getPHO_ACLNODE() ) ) {
-            aclNode = node.getProperty( getPentahoJcrConstants().getPHO_ACLNODE() ).getBoolean();
-          }
+          aclNode = node.hasProperty( getPentahoJcrConstants().getPHO_ACLNODE() )
+            && node.getProperty( getPentahoJcrConstants().getPHO_ACLNODE() ).getBoolean();
         } catch ( InvalidItemStateException | ItemNotFoundException | PathNotFoundException e ) {
           getLogger().warn( Messages.getInstance().getString( INVALID_ITEM_STATE_EXCEPTION_MESSAGE, "isAclNode" ) );
         } catch ( RepositoryException e ) {
@@ -620,6 +628,139 @@ public class RepositoryFileProxy extends RepositoryFile {
     return aclNode != null && aclNode;
   }
 
+  /**
+   * Reads the given members right away, while the node's session is still open, so that later calls don't need to
+   * go back to the repository one property at a time. Member names are the ones used by
+   * {@link org.pentaho.platform.api.repository2.unified.RepositoryRequest#getHydrateMemberSet()}. The id, name, path,
+   * folder, hidden and aclNode members are always read.
+   *
+   * @param pentahoJcrConstants constants of the session the node belongs to, shared by the whole batch
+   */
+  public void hydrate( final PentahoJcrConstants pentahoJcrConstants, final Set<String> members ) {
+    if ( constants == null ) {
+      constants = pentahoJcrConstants;
+    }
+    getId();
+    getPath();
+    getName();
+    isFolder();
+    isHidden();
+    isAclNode();
+    if ( members == null ) {
+      return;
+    }
+    for ( String member : members ) {
+      switch ( member ) {
+        case "title":
+        case "description":
+        case "locales":
+          getTitleAndDescription();
+          break;
+        case "fileSize":
+          getFileSize();
+          break;
+        case "lastModifiedDate":
+          getLastModifiedDate();
+          break;
+        case "createDate":
+          getCreatedDate();
+          break;
+        case "creatorId":
+          getCreatorId();
+          break;
+        case "locked":
+          isLocked();
+          break;
+        case "lockDate":
+          getLockDate();
+          break;
+        case "lockMessage":
+          getLockMessage();
+          break;
+        case "lockOwner":
+          getLockOwner();
+          break;
+        case "versioned":
+          isVersioned();
+          break;
+        case "versionId":
+          getVersionId();
+          break;
+        default:
+          // Not backed by the node, or cheap enough to read lazily
+          break;
+      }
+    }
+  }
+
+  /**
+   * Copies this file into a plain {@link RepositoryFile} that no longer needs the repository, e.g. to keep it in a
+   * cache. With a member set, named as in {@link #hydrate(PentahoJcrConstants, Set)}, only the always hydrated members
+   * and the given ones are copied, which a listing has already read while its session was open. Without one, every
+   * member is copied, and they are all read in a single session instead of one session per member.
+   *
+   * @return the copy, or null if the node could not be read
+   */
+  public RepositoryFile detach( final Set<String> members ) {
+    if ( members == null ) {
+      final RepositoryFile[] copy = new RepositoryFile[ 1 ];
+      this.executeOperation( session -> copy[ 0 ] = new RepositoryFile.Builder( this ).build() );
+      return copy[ 0 ];
+    }
+    RepositoryFile.Builder builder = new RepositoryFile.Builder( getName() ).id( getId() ).path( getPath() )
+      .folder( isFolder() ).hidden( isHidden() ).aclNode( isAclNode() ).locale( getLocale() );
+    for ( String member : members ) {
+      switch ( member ) {
+        case "title":
+          builder.title( getTitle() );
+          break;
+        case "description":
+          builder.description( getDescription() );
+          break;
+        case "locales":
+          builder.localePropertiesMap( getLocalePropertiesMap() );
+          break;
+        case "fileSize":
+          Long size = getFileSize();
+          if ( size != null ) {
+            builder.fileSize( size );
+          }
+          break;
+        case "lastModifiedDate":
+          builder.lastModificationDate( getLastModifiedDate() );
+          break;
+        case "createDate":
+          builder.createdDate( getCreatedDate() );
+          break;
+        case "creatorId":
+          builder.creatorId( getCreatorId() );
+          break;
+        case "locked":
+          builder.locked( isLocked() );
+          break;
+        case "lockDate":
+          builder.lockDate( getLockDate() );
+          break;
+        case "lockMessage":
+          builder.lockMessage( getLockMessage() );
+          break;
+        case "lockOwner":
+          builder.lockOwner( getLockOwner() );
+          break;
+        case "versioned":
+          builder.versioned( isVersioned() );
+          break;
+        case "versionId":
+          builder.versionId( getVersionId() );
+          break;
+        default:
+          // Not backed by the node
+          break;
+      }
+    }
+    return builder.build();
+  }
+
   @Override
   public String toString() {
     return super.toString(); // To change body of overridden methods use File | Settings | File Templates.
@@ -19,10 +19,10 @@ import org.pentaho.platform.repository2.unified.jcr.ITransformer;
 import org.pentaho.platform.repository2.unified.jcr.PentahoJcrConstants;
 import org.springframework.util.StringUtils;
 
+import javax.jcr.Binary;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
-import java.io.InputStream;
 import java.util.Calendar;
 
 /**
@@ -100,9 +100,9 @@ public class SimpleRepositoryFileDataTransformer implements ITransformer<SimpleR
     if ( resourceNode.hasProperty( pentahoJcrConstants.getJCR_ENCODING() ) ) {
       encoding = resourceNode.getProperty( pentahoJcrConstants.getJCR_ENCODING() ).getString();
     }
-    InputStream data = resourceNode.getProperty( pentahoJcrConstants.getJCR_DATA() ).getBinary().getStream();
+    Binary data = resourceNode.getProperty( pentahoJcrConstants.getJCR_DATA() ).getBinary();
     String mimeType = resourceNode.getProperty( pentahoJcrConstants.getJCR_MIMETYPE() ).getString();
-    return new SimpleRepositoryFileData( data, encoding, mimeType );
+    return new SimpleRepositoryFileData( data.getStream(), encoding, mimeType, data.getSize() );
   }
 
   /**
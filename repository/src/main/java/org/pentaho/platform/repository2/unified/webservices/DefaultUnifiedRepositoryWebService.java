@@ -96,6 +96,10 @@ public class DefaultUnifiedRepositoryWebService implements IUnifiedRepositoryWeb
 
   @Override
   public List<RepositoryFileDto> getChildrenFromRequest( RepositoryRequest repositoryRequest ) {
+    if ( repositoryRequest.getHydrateMemberSet() == null ) {
+      // Everything we marshal below is read from every child; let the repository load it in one pass
+      repositoryRequest.setHydrateMemberSet( RepositoryFileAdapter.getMarshalledMembers( repositoryRequest ) );
+    }
     return marshalFiles( repo.getChildren( repositoryRequest ), repositoryRequest );
   }
 
@@ -15,6 +15,9 @@ package org.pentaho.platform.repository2.unified.webservices;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -46,6 +49,14 @@ public class RepositoryFileAdapter extends XmlAdapter<RepositoryFileDto, Reposit
 
   private static Logger logger = LoggerFactory.getLogger( RepositoryFileAdapter.class );
 
+  /**
+   * Every member {@link #toFileDto(RepositoryFile, Set, boolean, boolean)} can read from a file.
+   */
+  private static final Set<String> FILE_MEMBERS = Collections.unmodifiableSet( new HashSet<String>( Arrays.asList(
+      "name", "path", "hidden", "aclNode", "createDate", "creatorId", "fileSize", "description", "folder",
+      "lastModifiedDate", "locale", "originalParentFolderPath", "deletedDate", "lockDate", "locked", "lockMessage",
+      "lockOwner", "title", "versioned", "versionId", "owner", "locales" ) ) );
+
   private static DefaultUnifiedRepositoryWebService repoWs;
   private Set<String> membersSet;
   private boolean exclude;
@@ -81,6 +92,22 @@ public class RepositoryFileAdapter extends XmlAdapter<RepositoryFileDto, Reposit
     return toFileDto( repositoryFileTree, membersSet, exclude, includeAcls );
   }
 
+  /**
+   * Returns the members that will be read from each file when marshalling the result of the given request.
+   */
+  public static Set<String> getMarshalledMembers( RepositoryRequest repositoryRequest ) {
+    Set<String> members = new HashSet<String>();
+    boolean exclude =
+        repositoryRequest.getExcludeMemberSet() != null && !repositoryRequest.getExcludeMemberSet().isEmpty();
+    Set<String> memberSet = exclude ? repositoryRequest.getExcludeMemberSet() : repositoryRequest.getIncludeMemberSet();
+    for ( String member : FILE_MEMBERS ) {
+      if ( include( member, memberSet, exclude ) ) {
+        members.add( member );
+      }
+    }
+    return members;
+  }
+
   private static boolean include( String key, Set<String> set, boolean exclude ) {
     return !exclude && ( set == null || set.contains( key ) ) || ( exclude && !set.contains( key ) );
   }
@@ -22,6 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.jcr.NamespaceException;
 import javax.jcr.Node;
@@ -72,6 +73,8 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
 
   private static final String LOGICAL_ROLE_BINDINGS_REGION = "roleBindingCache";
 
+  private static final AtomicLong bindingsRevision = new AtomicLong();
+
   public AbstractJcrBackedRoleBindingDao() {
 
     cacheManager = PentahoSystem.getCacheManager( null );
@@ -128,6 +131,7 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
             if ( cacheManager.cacheEnabled( LOGICAL_ROLE_BINDINGS_REGION ) ) {
               cacheManager.removeRegionCache( LOGICAL_ROLE_BINDINGS_REGION );
             }
+            bindingsChanged();
             loaded = true;
           }
         }
@@ -135,6 +139,18 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
     }
   }
 
+  /**
+   * Returns a number that changes whenever role bindings may have changed, so that callers keeping a compiled form of
+   * the bindings (see {@link RoleBindingIndex}) know when to rebuild it.
+   */
+  public static long getBindingsRevision() {
+    return bindingsRevision.get();
+  }
+
+  protected static void bindingsChanged() {
+    bindingsRevision.incrementAndGet();
+  }
+
   public void updateImmutableRoleBindingNames() {
     for ( List<String> roles : immutableRoleBindingNames.values() ) {
       roles.clear();
@@ -307,6 +323,7 @@ public abstract class AbstractJcrBackedRoleBindingDao implements IRoleAuthorizat
     // update cache
     String roleId = tenantedRoleNameUtils.getPrincipleId( tenant, runtimeRoleName );
     cacheManager.putInRegionCache( LOGICAL_ROLE_BINDINGS_REGION, roleId, logicalRoleNames );
+    bindingsChanged();
   }
 
   private String getPrincipalName( String principalId ) {
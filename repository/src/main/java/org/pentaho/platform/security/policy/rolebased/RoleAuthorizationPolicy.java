@@ -15,16 +15,20 @@ package org.pentaho.platform.security.policy.rolebased;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 import org.pentaho.platform.api.engine.IAuthorizationPolicy;
+import org.pentaho.platform.repository2.unified.jcr.JcrTenantUtils;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.Assert;
 
 /**
- * An authorization policy based on roles.
+ * An authorization policy based on roles. The role bindings are compiled into a {@link RoleBindingIndex}, so that a
+ * check only goes to the role binding DAO for runtime roles it has not seen since the bindings last changed.
  * 
  * @author mlowery
  */
@@ -38,6 +42,15 @@ public class RoleAuthorizationPolicy implements IAuthorizationPolicy {
 
   private IRoleAuthorizationPolicyRoleBindingDao roleBindingDao;
 
+  private final Function<String, List<String>> bindingLoader = new Function<String, List<String>>() {
+    @Override
+    public List<String> apply( final String runtimeRoleName ) {
+      return roleBindingDao.getBoundLogicalRoleNames( Collections.singletonList( runtimeRoleName ) );
+    }
+  };
+
+  private volatile RoleBindingIndex index;
+
   // ~ Constructors
   // ====================================================================================================
 
@@ -54,14 +67,16 @@ public class RoleAuthorizationPolicy implements IAuthorizationPolicy {
    * {@inheritDoc}
    */
   public List<String> getAllowedActions( String actionNamespace ) {
+    List<String> boundRoles =
+        getIndex().getBoundLogicalRoleNames( getTenantId(), getRuntimeRoleNames(), bindingLoader );
     List<String> assignedRolesInNamespace = new ArrayList<String>();
     if ( actionNamespace == null ) {
-      assignedRolesInNamespace.addAll( roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() ) );
+      assignedRolesInNamespace.addAll( boundRoles );
     } else {
       if ( !actionNamespace.endsWith( "." ) ) {
         actionNamespace += ".";
       }
-      for ( String assignedRole : roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() ) ) {
+      for ( String assignedRole : boundRoles ) {
         if ( assignedRole.startsWith( actionNamespace ) ) {
           assignedRolesInNamespace.add( assignedRole );
         }
@@ -74,7 +89,27 @@ public class RoleAuthorizationPolicy implements IAuthorizationPolicy {
    * {@inheritDoc}
    */
   public boolean isAllowed( String actionName ) {
-    return roleBindingDao.getBoundLogicalRoleNames( getRuntimeRoleNames() ).contains( actionName );
+    return getIndex().isBound( getTenantId(), getRuntimeRoleNames(), actionName, bindingLoader );
+  }
+
+  /**
+   * Returns the index for the current bindings, replacing it when they have changed.
+   */
+  protected RoleBindingIndex getIndex() {
+    long revision = AbstractJcrBackedRoleBindingDao.getBindingsRevision();
+    RoleBindingIndex current = index;
+    if ( current == null || current.getRevision() != revision ) {
+      current = new RoleBindingIndex( revision );
+      index = current;
+    }
+    return current;
+  }
+
+  /**
+   * Runtime role names without a tenant are resolved against the current tenant.
+   */
+  protected String getTenantId() {
+    return JcrTenantUtils.getTenant().getId();
   }
 
   protected List<String> getRuntimeRoleNames() {
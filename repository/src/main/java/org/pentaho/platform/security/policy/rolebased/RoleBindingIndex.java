@@ -0,0 +1,136 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.security.policy.rolebased;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A compiled form of the role bindings: every logical role gets a bit, and every runtime role the set of bits of the
+ * logical roles bound to it. Checking an action for a set of runtime roles is then a few bit operations. The bindings of
+ * a runtime role are loaded once, on first use; an index is never updated when bindings change but replaced by a new
+ * one, see {@link AbstractJcrBackedRoleBindingDao#getBindingsRevision()}.
+ *
+ * <p>
+ * Runtime roles are kept per tenant, since the same role name may be bound differently in another tenant.
+ * </p>
+ */
+public class RoleBindingIndex {
+
+  private final long revision;
+
+  private final ConcurrentMap<String, Integer> bitsByLogicalRole = new ConcurrentHashMap<String, Integer>();
+
+  private final List<String> logicalRoles = new ArrayList<String>();
+
+  private final ConcurrentMap<String, ConcurrentMap<String, BitSet>> bitsByTenant =
+      new ConcurrentHashMap<String, ConcurrentMap<String, BitSet>>();
+
+  public RoleBindingIndex( final long revision ) {
+    this.revision = revision;
+  }
+
+  /**
+   * The bindings revision this index was built for.
+   */
+  public long getRevision() {
+    return revision;
+  }
+
+  /**
+   * Whether any of the runtime roles is bound to the logical role.
+   *
+   * @param loader
+   *          returns the logical roles bound to a runtime role; only called for runtime roles not yet in the index
+   */
+  public boolean isBound( final String tenantId, final List<String> runtimeRoleNames, final String logicalRoleName,
+      final Function<String, List<String>> loader ) {
+    BitSet bits = getBits( tenantId, runtimeRoleNames, loader );
+    Integer bit = bitsByLogicalRole.get( logicalRoleName );
+    return bit != null && bits.get( bit );
+  }
+
+  /**
+   * Returns the logical roles bound to any of the runtime roles.
+   *
+   * @param loader
+   *          returns the logical roles bound to a runtime role; only called for runtime roles not yet in the index
+   */
+  public List<String> getBoundLogicalRoleNames( final String tenantId, final List<String> runtimeRoleNames,
+      final Function<String, List<String>> loader ) {
+    BitSet bits = getBits( tenantId, runtimeRoleNames, loader );
+    List<String> names = new ArrayList<String>( bits.cardinality() );
+    synchronized ( logicalRoles ) {
+      for ( int bit = bits.nextSetBit( 0 ); bit >= 0; bit = bits.nextSetBit( bit + 1 ) ) {
+        names.add( logicalRoles.get( bit ) );
+      }
+    }
+    return names;
+  }
+
+  private BitSet getBits( final String tenantId, final List<String> runtimeRoleNames,
+      final Function<String, List<String>> loader ) {
+    ConcurrentMap<String, BitSet> bitsByRuntimeRole = bitsByTenant.get( tenantId );
+    if ( bitsByRuntimeRole == null ) {
+      bitsByTenant.putIfAbsent( tenantId, new ConcurrentHashMap<String, BitSet>() );
+      bitsByRuntimeRole = bitsByTenant.get( tenantId );
+    }
+    if ( runtimeRoleNames.size() == 1 ) {
+      // the bits are never modified once published
+      return getBits( bitsByRuntimeRole, runtimeRoleNames.get( 0 ), loader );
+    }
+    BitSet bits = new BitSet();
+    for ( String runtimeRoleName : runtimeRoleNames ) {
+      bits.or( getBits( bitsByRuntimeRole, runtimeRoleName, loader ) );
+    }
+    return bits;
+  }
+
+  private BitSet getBits( final ConcurrentMap<String, BitSet> bitsByRuntimeRole, final String runtimeRoleName,
+      final Function<String, List<String>> loader ) {
+    BitSet bits = bitsByRuntimeRole.get( runtimeRoleName );
+    if ( bits == null ) {
+      bits = new BitSet();
+      List<String> bound = loader.apply( runtimeRoleName );
+      for ( String logicalRoleName : bound != null ? bound : Collections.<String>emptyList() ) {
+        bits.set( getBit( logicalRoleName ) );
+      }
+      BitSet existing = bitsByRuntimeRole.putIfAbsent( runtimeRoleName, bits );
+      if ( existing != null ) {
+        bits = existing;
+      }
+    }
+    return bits;
+  }
+
+  private int getBit( final String logicalRoleName ) {
+    Integer bit = bitsByLogicalRole.get( logicalRoleName );
+    if ( bit == null ) {
+      synchronized ( logicalRoles ) {
+        bit = bitsByLogicalRole.get( logicalRoleName );
+        if ( bit == null ) {
+          bit = logicalRoles.size();
+          logicalRoles.add( logicalRoleName );
+          bitsByLogicalRole.put( logicalRoleName, bit );
+        }
+      }
+    }
+    return bit;
+  }
+}
@@ -0,0 +1,157 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.apache.jackrabbit.core.security.authorization.acl;
+
+import org.apache.jackrabbit.core.NodeImpl;
+import org.apache.jackrabbit.core.SessionImpl;
+import org.apache.jackrabbit.core.id.NodeId;
+import org.apache.jackrabbit.core.security.authorization.AccessControlModifications;
+import org.apache.jackrabbit.core.security.authorization.PrivilegeBits;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Value;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.RETURNS_MOCKS;
+import static org.mockito.Mockito.when;
+
+public class CachingPentahoEntryCollectorTest {
+
+  private TestEntryCollector collector;
+  private NodeImpl a;
+  private NodeImpl ab;
+  private NodeImpl c;
+
+  @Before
+  public void setup() throws Exception {
+    collector = new TestEntryCollector( Mockito.mock( SessionImpl.class, RETURNS_MOCKS ) );
+    a = collector.addNode( "/a" );
+    ab = collector.addNode( "/a/b" );
+    c = collector.addNode( "/c" );
+  }
+
+  @Test
+  public void testEntriesAreSharedBySessionsWithTheSameRoles() throws Exception {
+    collector.login( "alice", "tenant\nAuthenticated" );
+    collector.getEntries( a );
+    collector.getEntries( a );
+    assertEquals( 1, collector.collected( "/a" ) );
+
+    collector.login( "bob", "tenant\nAuthenticated" );
+    collector.getEntries( a );
+    assertEquals( 1, collector.collected( "/a" ) );
+
+    collector.login( "bob", "tenant\nAdministrator\nAuthenticated" );
+    collector.getEntries( a );
+    assertEquals( 2, collector.collected( "/a" ) );
+  }
+
+  @Test
+  public void testEntriesNamingTheUserAreNotShared() throws Exception {
+    collector.personal = true;
+    collector.login( "alice", "tenant\nAuthenticated" );
+    assertEquals( "alice", principalOf( collector.getEntries( a ) ) );
+    collector.getEntries( a );
+    assertEquals( 1, collector.collected( "/a" ) );
+
+    collector.login( "bob", "tenant\nAuthenticated" );
+    assertEquals( "bob", principalOf( collector.getEntries( a ) ) );
+    assertEquals( 2, collector.collected( "/a" ) );
+  }
+
+  @Test
+  public void testPolicyChangeDropsEntriesOfTheSubtreeOnly() throws Exception {
+    collector.login( "alice", "tenant\nAuthenticated" );
+    collector.getEntries( a );
+    collector.getEntries( ab );
+    collector.getEntries( c );
+
+    Map<NodeId, Integer> changes = new HashMap<NodeId, Integer>();
+    changes.put( a.getNodeId(), CachingPentahoEntryCollector.POLICY_MODIFIED );
+    collector.notifyListeners( new AccessControlModifications<NodeId>( changes ) );
+
+    collector.getEntries( a );
+    collector.getEntries( ab );
+    collector.getEntries( c );
+    assertEquals( 2, collector.collected( "/a" ) );
+    assertEquals( 2, collector.collected( "/a/b" ) );
+    assertEquals( 1, collector.collected( "/c" ) );
+  }
+
+  private static String principalOf( PentahoEntryCollector.PentahoEntries entries ) {
+    return ( (PentahoEntry) entries.getACEs().get( 0 ) ).getPrincipalName();
+  }
+
+  private static class TestEntryCollector extends CachingPentahoEntryCollector {
+
+    private final Map<NodeId, NodeImpl> nodes = new HashMap<NodeId, NodeImpl>();
+    private final Map<String, Integer> collected = new HashMap<String, Integer>();
+    private String user;
+    private String principalSetKey;
+    private boolean personal;
+
+    TestEntryCollector( SessionImpl systemSession ) throws RepositoryException {
+      super( systemSession, new NodeId(), new HashMap() );
+    }
+
+    NodeImpl addNode( String path ) throws RepositoryException {
+      NodeImpl node = Mockito.mock( NodeImpl.class );
+      NodeId id = new NodeId();
+      when( node.getNodeId() ).thenReturn( id );
+      when( node.getPath() ).thenReturn( path );
+      nodes.put( id, node );
+      return node;
+    }
+
+    void login( String user, String principalSetKey ) {
+      this.user = user;
+      this.principalSetKey = principalSetKey;
+    }
+
+    int collected( String path ) {
+      Integer count = collected.get( path );
+      return count == null ? 0 : count;
+    }
+
+    @Override
+    protected String getPrincipalSetKey() {
+      return principalSetKey;
+    }
+
+    @Override
+    protected String getCurrentUser() {
+      return user;
+    }
+
+    @Override
+    NodeImpl getNodeById( NodeId nodeId ) {
+      return nodes.get( nodeId );
+    }
+
+    @Override
+    protected PentahoEntries collectEntries( NodeImpl node ) throws RepositoryException {
+      collected.put( node.getPath(), collected( node.getPath() ) + 1 );
+      PentahoEntry entry =
+        new PentahoEntry( node.getNodeId(), personal ? user : "Authenticated", !personal, PrivilegeBits.EMPTY, true,
+          node.getPath(), (Value) null );
+      return new PentahoEntries( Collections.singletonList( entry ), null );
+    }
+  }
+}
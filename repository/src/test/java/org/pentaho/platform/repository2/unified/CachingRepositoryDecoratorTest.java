@@ -0,0 +1,153 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.repository2.unified;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pentaho.platform.api.repository2.unified.IUnifiedRepository;
+import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
+import org.pentaho.platform.util.messages.LocaleHelper;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+public class CachingRepositoryDecoratorTest {
+
+  private IUnifiedRepository delegatee;
+  private CachingRepositoryDecorator repository;
+  private RepositoryRequest request;
+
+  @Before
+  public void setUp() {
+    delegatee = mock( IUnifiedRepository.class );
+    repository = new CachingRepositoryDecorator( delegatee );
+    RepositoryFile folder = new RepositoryFile.Builder( "folderId", "public" ).path( "/public" ).folder( true ).build();
+    RepositoryFile child = new RepositoryFile.Builder( "childId", "a.prpt" ).path( "/public/a.prpt" ).build();
+    when( delegatee.getFileById( "folderId" ) ).thenReturn( folder );
+    when( delegatee.getChildren( any( RepositoryRequest.class ) ) ).thenReturn( Arrays.asList( child ) );
+    request = new RepositoryRequest( "folderId", false, 1, null );
+    login( "joe", "Authenticated" );
+  }
+
+  @After
+  public void tearDown() {
+    SecurityContextHolder.clearContext();
+    LocaleHelper.setLocale( null );
+  }
+
+  @Test
+  public void testListingCachedPerPrincipalSet() {
+    assertEquals( "/public/a.prpt", repository.getChildren( request ).get( 0 ).getPath() );
+    repository.getChildren( request );
+    verify( delegatee, times( 1 ) ).getChildren( request );
+
+    login( "joe", "Administrator" );
+    repository.getChildren( request );
+    verify( delegatee, times( 2 ) ).getChildren( request );
+  }
+
+  @Test
+  public void testListingCachedPerLocale() {
+    LocaleHelper.setLocale( Locale.ENGLISH );
+    repository.getChildren( request );
+    repository.getChildren( request );
+    verify( delegatee, times( 1 ) ).getChildren( request );
+
+    LocaleHelper.setLocale( Locale.FRENCH );
+    repository.getChildren( request );
+    verify( delegatee, times( 2 ) ).getChildren( request );
+  }
+
+  @Test
+  public void testEventOnTheRootFolder() throws Exception {
+    repository.getChildren( request );
+    repository.onEvent( events( event( Event.PROPERTY_CHANGED, "/pentaho/jcr:mixinTypes" ) ) );
+    repository.getChildren( request );
+    verify( delegatee, times( 1 ) ).getChildren( request );
+
+    // an ACL on the root folder applies to everything below
+    repository.onEvent( events( event( Event.NODE_ADDED, "/pentaho/rep:policy" ) ) );
+    repository.getChildren( request );
+    verify( delegatee, times( 2 ) ).getChildren( request );
+  }
+
+  @Test
+  public void testUnreadableEventClearsTheCache() throws Exception {
+    repository.getChildren( request );
+    Event event = mock( Event.class );
+    when( event.getPath() ).thenThrow( new IllegalStateException() );
+    repository.onEvent( events( event ) );
+    repository.getChildren( request );
+    verify( delegatee, times( 2 ) ).getChildren( request );
+  }
+
+  @Test
+  public void testObservationEventInvalidatesParentListing() throws Exception {
+    repository.getChildren( request );
+
+    // an unrelated folder changes
+    repository.onEvent( events( event( Event.PROPERTY_CHANGED, "/pentaho/tenant0/home/pho:lastModified" ) ) );
+    repository.getChildren( request );
+    verify( delegatee, times( 1 ) ).getChildren( request );
+
+    // the title of a child changes
+    repository.onEvent( events( event( Event.PROPERTY_CHANGED,
+        "/pentaho/tenant0/public/a.prpt/pho:locales/default/file.title" ) ) );
+    repository.getChildren( request );
+    verify( delegatee, times( 2 ) ).getChildren( request );
+  }
+
+  @Test
+  public void testWriteThroughDecoratorInvalidatesListing() {
+    repository.getChildren( request );
+    repository.createFolder( "folderId", new RepositoryFile.Builder( "b" ).folder( true ).build(), null );
+    repository.getChildren( request );
+    verify( delegatee, times( 2 ) ).getChildren( request );
+  }
+
+  private void login( String name, String authority ) {
+    SecurityContextHolder.getContext().setAuthentication( new UsernamePasswordAuthenticationToken( name, null,
+        Collections.singletonList( new SimpleGrantedAuthority( authority ) ) ) );
+  }
+
+  private Event event( int type, String path ) throws Exception {
+    Event event = mock( Event.class );
+    when( event.getType() ).thenReturn( type );
+    when( event.getPath() ).thenReturn( path );
+    return event;
+  }
+
+  private EventIterator events( Event event ) {
+    EventIterator iterator = mock( EventIterator.class );
+    when( iterator.hasNext() ).thenReturn( true, false );
+    when( iterator.nextEvent() ).thenReturn( event );
+    return iterator;
+  }
+}
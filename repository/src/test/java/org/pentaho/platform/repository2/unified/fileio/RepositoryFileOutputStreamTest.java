@@ -13,6 +13,7 @@
 
 package org.pentaho.platform.repository2.unified.fileio;
 
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 import org.mockito.Mockito;
 import org.pentaho.platform.api.repository2.unified.Converter;
@@ -24,9 +25,13 @@ import org.pentaho.platform.api.repository2.unified.data.node.NodeRepositoryFile
 import org.pentaho.platform.api.repository2.unified.data.simple.SimpleRepositoryFileData;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -114,4 +119,32 @@ public class RepositoryFileOutputStreamTest {
     verify( streamListener, times( 1 ) ).streamComplete();
     verify( streamListener, times( 0 ) ).fileCreated( any() );
   }
+
+  @Test
+  public void testLargeContentIsSpilledToDisk() throws IOException {
+    IUnifiedRepository repository = mock( IUnifiedRepository.class );
+    when( repository.getFile( "/public" ) ).thenReturn( mock( RepositoryFile.class ) );
+    final ByteArrayOutputStream saved = new ByteArrayOutputStream();
+    when( repository.createFile( nullable( Serializable.class ), any( RepositoryFile.class ),
+      any( IRepositoryFileData.class ), any( String.class ) ) ).thenAnswer( invocation -> {
+        IOUtils.copy( ( (SimpleRepositoryFileData) invocation.getArgument( 2 ) ).getInputStream(), saved );
+        return mock( RepositoryFile.class );
+      } );
+
+    RepositoryFileOutputStream repositoryFileOutputStream =
+      new RepositoryFileOutputStream( "/public/data.csv", false, false, repository, false );
+    repositoryFileOutputStream.setMemoryThreshold( 16 );
+    byte[] data = "a,b,c\n1,2,3\n4,5,6\n7,8,9\n".getBytes( StandardCharsets.UTF_8 );
+    repositoryFileOutputStream.write( data, 0, 10 );
+    repositoryFileOutputStream.write( data, 10, data.length - 10 );
+
+    // nothing is left on the heap once the threshold is passed
+    assertEquals( 0, repositoryFileOutputStream.count );
+    assertEquals( data.length, repositoryFileOutputStream.size() );
+    assertArrayEquals( data, repositoryFileOutputStream.toByteArray() );
+
+    repositoryFileOutputStream.close();
+    assertArrayEquals( data, saved.toByteArray() );
+    assertEquals( 0, repositoryFileOutputStream.size() );
+  }
 }
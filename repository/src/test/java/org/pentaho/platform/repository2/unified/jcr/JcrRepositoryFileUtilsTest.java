@@ -13,6 +13,8 @@
 
 package org.pentaho.platform.repository2.unified.jcr;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -20,16 +22,24 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.jcr.AccessDeniedException;
 import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.PropertyType;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.UnsupportedRepositoryOperationException;
@@ -51,6 +61,8 @@ import org.pentaho.platform.api.engine.IPentahoSession;
 import org.pentaho.platform.api.repository2.unified.IRepositoryAccessVoterManager;
 import org.pentaho.platform.api.repository2.unified.IRepositoryVersionManager;
 import org.pentaho.platform.api.repository2.unified.RepositoryFile;
+import org.pentaho.platform.api.repository2.unified.RepositoryFileAcl;
+import org.pentaho.platform.api.repository2.unified.RepositoryFilePermission;
 import org.pentaho.platform.api.repository2.unified.RepositoryFileTree;
 import org.pentaho.platform.api.repository2.unified.RepositoryRequest;
 import org.pentaho.platform.engine.core.system.PentahoSessionHolder;
@@ -293,4 +305,107 @@ public class JcrRepositoryFileUtilsTest {
       }
     }
   }
+
+  @Test
+  public void testGetReadableFilesReadsTheAclsOfALevelInOneBatch() throws Exception {
+    IPathConversionHelper pathConversionHelper = new DefaultPathConversionHelper();
+    ILockHelper lockHelperMock = mock( ILockHelper.class );
+    IRepositoryAccessVoterManager repositoryAccessVoterManagerMock = mock( IRepositoryAccessVoterManager.class );
+    Node deniedNodeMock = mock( Node.class );
+    RepositoryFile fileMock = mock( RepositoryFile.class );
+    RepositoryFile deniedFileMock = mock( RepositoryFile.class );
+    RepositoryFileAcl aclMock = mock( RepositoryFileAcl.class );
+    List<Node> levelNodes = Arrays.asList( nodeMock, deniedNodeMock );
+
+    when( fileMock.getId() ).thenReturn( 1 );
+    when( deniedFileMock.getId() ).thenReturn( 2 );
+    when( nodeMock.getPath() ).thenReturn( "/public/a" );
+    when( deniedNodeMock.getPath() ).thenReturn( "/public/b" );
+    when( repositoryAccessVoterManagerMock.hasAccess( fileMock, RepositoryFilePermission.READ, aclMock,
+      PentahoSessionHolder.getSession() ) ).thenReturn( true );
+    Map<Serializable, String> paths = new HashMap<>();
+    paths.put( 1, "/public/a" );
+    paths.put( 2, "/public/b" );
+
+    try ( MockedStatic<JcrRepositoryFileUtils> jcrRepositoryFileUtils = mockStatic( JcrRepositoryFileUtils.class ) ) {
+      jcrRepositoryFileUtils.when( () -> JcrRepositoryFileUtils.getReadableFiles( sessionMock, pJcrConstMock,
+        pathConversionHelper, lockHelperMock, repositoryAccessVoterManagerMock, levelNodes ) ).thenCallRealMethod();
+      jcrRepositoryFileUtils.when( () -> JcrRepositoryFileUtils.nodeToFile( sessionMock, pJcrConstMock,
+        pathConversionHelper, lockHelperMock, nodeMock ) ).thenReturn( fileMock );
+      jcrRepositoryFileUtils.when( () -> JcrRepositoryFileUtils.nodeToFile( sessionMock, pJcrConstMock,
+        pathConversionHelper, lockHelperMock, deniedNodeMock ) ).thenReturn( deniedFileMock );
+      jcrRepositoryFileUtils.when( () -> JcrRepositoryFileUtils.isSupportedNodeType( any(), any() ) )
+        .thenReturn( true );
+
+      try ( MockedStatic<JcrRepositoryFileAclUtils> jcrRepositoryFileAclUtils = mockStatic( JcrRepositoryFileAclUtils.class ) ) {
+        // the second node's ACL is not readable, so the batch leaves it out
+        jcrRepositoryFileAclUtils.when( () -> JcrRepositoryFileAclUtils.getAcls( sessionMock, paths ) )
+          .thenReturn( Collections.singletonMap( 1, aclMock ) );
+
+        Map<Node, RepositoryFile> readableFiles =
+          JcrRepositoryFileUtils.getReadableFiles( sessionMock, pJcrConstMock, pathConversionHelper, lockHelperMock,
+            repositoryAccessVoterManagerMock, levelNodes );
+
+        assertEquals( Collections.singletonMap( nodeMock, fileMock ), readableFiles );
+        jcrRepositoryFileAclUtils.verify( () -> JcrRepositoryFileAclUtils.getAcl( any(), any(), any() ), never() );
+      }
+    }
+  }
+
+  @Test
+  public void testIsSystemFolderReadsSingleMetadataProperty() throws Exception {
+    Node metadataNodeMock = mock( Node.class );
+    Property propertyMock = mock( Property.class );
+    when( pJcrConstMock.getPHO_METADATA() ).thenReturn( "pho:metadata" );
+    when( nodeMock.hasNode( "pho:metadata" ) ).thenReturn( true );
+    when( nodeMock.getNode( "pho:metadata" ) ).thenReturn( metadataNodeMock );
+    when( metadataNodeMock.hasProperty( "pho:system_folder" ) ).thenReturn( true );
+    when( metadataNodeMock.getProperty( "pho:system_folder" ) ).thenReturn( propertyMock );
+    when( propertyMock.getType() ).thenReturn( PropertyType.BOOLEAN );
+    when( propertyMock.getBoolean() ).thenReturn( true );
+
+    assertTrue( JcrRepositoryFileUtils.isSystemFolder( pJcrConstMock, nodeMock, "pho:system_folder" ) );
+    verify( metadataNodeMock, never() ).getProperties( nullable( String.class ) );
+  }
+
+  @Test
+  public void testIsSystemFolderWithoutMetadata() throws Exception {
+    when( pJcrConstMock.getPHO_METADATA() ).thenReturn( "pho:metadata" );
+    when( nodeMock.hasNode( "pho:metadata" ) ).thenReturn( false );
+
+    assertFalse( JcrRepositoryFileUtils.isSystemFolder( pJcrConstMock, nodeMock, "pho:system_folder" ) );
+  }
+
+  @Test
+  public void testChildrenPageCollectorWalksAllChildrenInTitleOrder() {
+    List<RepositoryFile> files = new ArrayList<>();
+    String[] titles = { "b", "A", "a", "c", "B", "d", "e", "a" };
+    for ( int i = 0; i < titles.length; i++ ) {
+      files.add( new RepositoryFile.Builder( "id" + i, "file" + i ).title( titles[ i ] ).build() );
+    }
+    Collections.shuffle( files );
+
+    List<String> listed = new ArrayList<>();
+    String token = null;
+    int pages = 0;
+    do {
+      RepositoryRequest request = new RepositoryRequest( "/folder", false, 0, null );
+      request.setLimit( 3 );
+      request.setContinuationToken( token );
+      JcrRepositoryFileUtils.ChildrenPageCollector page = new JcrRepositoryFileUtils.ChildrenPageCollector( request );
+      for ( RepositoryFile file : files ) {
+        if ( page.accepts( file ) ) {
+          page.add( file );
+        }
+      }
+      for ( RepositoryFile file : page.toList( request ) ) {
+        listed.add( file.getTitle() + "/" + file.getId() );
+      }
+      token = request.getNextContinuationToken();
+      pages++;
+    } while ( token != null );
+
+    assertEquals( 3, pages );
+    assertEquals( "[A/id1, a/id2, a/id7, B/id4, b/id0, c/id3, d/id5, e/id6]", listed.toString() );
+  }
 }
@@ -17,13 +17,17 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.mockito.Mockito.spy;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
@@ -82,4 +86,50 @@ public class RepositoryFileProxyTest {
     assertFalse( repoFileProxySpy.isSchedulable() );
   }
 
+  // Properties that are absent must not be looked up again on every call
+  @Test
+  public void testHydrateReadsEachPropertyOnce() throws RepositoryException {
+    PentahoJcrConstants constants = mock( PentahoJcrConstants.class );
+    when( constants.getPHO_HIDDEN() ).thenReturn( "pho:hidden" );
+    when( constants.getPHO_ACLNODE() ).thenReturn( "pho:aclNode" );
+    when( constants.getPHO_FILESIZE() ).thenReturn( "pho:fileSize" );
+    when( nodeMock.getPath() ).thenReturn( "/pentaho/tenant0/public/report" );
+    when( nodeMock.getName() ).thenReturn( "report" );
+    when( nodeMock.getIdentifier() ).thenReturn( "reportId" );
+
+    repoFileProxy.hydrate( constants, Collections.singleton( "fileSize" ) );
+
+    assertFalse( repoFileProxy.isHidden() );
+    assertFalse( repoFileProxy.isAclNode() );
+    assertEquals( Long.valueOf( -1 ), repoFileProxy.getFileSize() );
+    assertEquals( "report", repoFileProxy.getName() );
+    assertEquals( "reportId", repoFileProxy.getId() );
+    verify( nodeMock, times( 1 ) ).hasProperty( "pho:hidden" );
+    verify( nodeMock, times( 1 ) ).hasProperty( "pho:aclNode" );
+    verify( nodeMock, times( 1 ) ).hasProperty( "pho:fileSize" );
+    verify( nodeMock, times( 1 ) ).getIdentifier();
+  }
+
+  // A detached listing entry only copies what the listing hydrated, without going back to the node
+  @Test
+  public void testDetachCopiesHydratedMembers() throws RepositoryException {
+    PentahoJcrConstants constants = mock( PentahoJcrConstants.class );
+    when( constants.getPHO_HIDDEN() ).thenReturn( "pho:hidden" );
+    when( constants.getPHO_ACLNODE() ).thenReturn( "pho:aclNode" );
+    when( constants.getPHO_FILESIZE() ).thenReturn( "pho:fileSize" );
+    when( nodeMock.getPath() ).thenReturn( "/pentaho/tenant0/public/report" );
+    when( nodeMock.getName() ).thenReturn( "report" );
+    when( nodeMock.getIdentifier() ).thenReturn( "reportId" );
+
+    repoFileProxy.hydrate( constants, Collections.singleton( "fileSize" ) );
+    RepositoryFile copy = repoFileProxy.detach( Collections.singleton( "fileSize" ) );
+
+    assertFalse( copy instanceof RepositoryFileProxy );
+    assertEquals( "report", copy.getName() );
+    assertEquals( "reportId", copy.getId() );
+    assertEquals( Long.valueOf( -1 ), copy.getFileSize() );
+    verify( nodeMock, times( 1 ) ).hasProperty( "pho:fileSize" );
+    verify( nodeMock, times( 1 ) ).getIdentifier();
+  }
+
 }
@@ -0,0 +1,101 @@
+/*! ******************************************************************************
+ *
+ * Pentaho
+ *
+ * Copyright (C) 2024 by Hitachi Vantara, LLC : http://www.pentaho.com
+ *
+ * Use of this software is governed by the Business Source License included
+ * in the LICENSE.TXT file.
+ *
+ * Change Date: 2029-07-20
+ ******************************************************************************/
+
+
+package org.pentaho.platform.security.policy.rolebased;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RoleAuthorizationPolicyTest {
+
+  private IRoleAuthorizationPolicyRoleBindingDao dao;
+  private TestPolicy policy;
+
+  @Before
+  public void setUp() {
+    dao = mock( IRoleAuthorizationPolicyRoleBindingDao.class );
+    when( dao.getBoundLogicalRoleNames( Collections.singletonList( "Power User" ) ) ).thenReturn(
+        Arrays.asList( "org.pentaho.repository.read", "org.pentaho.repository.create" ) );
+    when( dao.getBoundLogicalRoleNames( Collections.singletonList( "Business Analyst" ) ) ).thenReturn(
+        Arrays.asList( "org.pentaho.repository.read", "org.pentaho.scheduler.manage" ) );
+    policy = new TestPolicy( dao );
+    policy.roles = Arrays.asList( "Power User", "Business Analyst" );
+  }
+
+  @Test
+  public void testBindingsAreLoadedOncePerRuntimeRole() {
+    assertTrue( policy.isAllowed( "org.pentaho.repository.create" ) );
+    assertTrue( policy.isAllowed( "org.pentaho.scheduler.manage" ) );
+    assertFalse( policy.isAllowed( "org.pentaho.security.administerSecurity" ) );
+    assertEquals( Arrays.asList( "org.pentaho.repository.read", "org.pentaho.repository.create" ),
+        policy.getAllowedActions( "org.pentaho.repository" ) );
+    assertEquals( 3, policy.getAllowedActions( null ).size() );
+
+    verify( dao, times( 1 ) ).getBoundLogicalRoleNames( Collections.singletonList( "Power User" ) );
+    verify( dao, times( 1 ) ).getBoundLogicalRoleNames( Collections.singletonList( "Business Analyst" ) );
+
+    policy.roles = Collections.singletonList( "Business Analyst" );
+    assertFalse( policy.isAllowed( "org.pentaho.repository.create" ) );
+    assertTrue( policy.isAllowed( "org.pentaho.scheduler.manage" ) );
+
+    // another tenant may bind the same role name differently
+    policy.tenantId = "/pentaho/other";
+    assertTrue( policy.isAllowed( "org.pentaho.scheduler.manage" ) );
+    verify( dao, times( 2 ) ).getBoundLogicalRoleNames( Collections.singletonList( "Business Analyst" ) );
+  }
+
+  @Test
+  public void testIndexIsRebuiltWhenBindingsChange() {
+    policy.roles = Collections.singletonList( "Business Analyst" );
+    assertFalse( policy.isAllowed( "org.pentaho.repository.create" ) );
+
+    when( dao.getBoundLogicalRoleNames( Collections.singletonList( "Business Analyst" ) ) ).thenReturn(
+        Arrays.asList( "org.pentaho.repository.read", "org.pentaho.repository.create" ) );
+    assertFalse( policy.isAllowed( "org.pentaho.repository.create" ) );
+
+    AbstractJcrBackedRoleBindingDao.bindingsChanged();
+    assertTrue( policy.isAllowed( "org.pentaho.repository.create" ) );
+  }
+
+  private static class TestPolicy extends RoleAuthorizationPolicy {
+
+    private List<String> roles;
+    private String tenantId = "/pentaho/tenant0";
+
+    TestPolicy( IRoleAuthorizationPolicyRoleBindingDao roleBindingDao ) {
+      super( roleBindingDao );
+    }
+
+    @Override
+    protected List<String> getRuntimeRoleNames() {
+      return roles;
+    }
+
+    @Override
+    protected String getTenantId() {
+      return tenantId;
+    }
+  }
+}